@@ -62,6 +62,10 @@ public class VespaMetricSet {
         metrics.add(new Metric("jrt.transport.server.unencrypted-connections-established"));
         metrics.add(new Metric("jrt.transport.client.unencrypted-connections-established"));
 
+        // Java (JRT) buffer pool metrics
+        metrics.add(new Metric("jrt.transport.buffer-pool.idle-bytes.last"));
+        metrics.add(new Metric("jrt.transport.buffer-pool.used-bytes.last"));
+
         // C++ TLS metrics
         metrics.add(new Metric("vds.server.network.tls-handshakes-failed"));
         metrics.add(new Metric("vds.server.network.peer-authorization-failures"));
@@ -266,6 +270,12 @@ public class VespaMetricSet {
         metrics.add(new Metric("documents_total.count"));
         metrics.add(new Metric("dispatch_internal.rate"));
         metrics.add(new Metric("dispatch_fdispatch.rate"));
+        metrics.add(new Metric("dispatch_result_cache_hits.rate"));
+        metrics.add(new Metric("dispatch_result_cache_misses.rate"));
+        metrics.add(new Metric("dispatch_result_cache_evictions.rate"));
+        metrics.add(new Metric("dispatch_compression_allocated_bytes.rate"));
+        metrics.add(new Metric("dispatch_compression_reused_bytes.rate"));
+        metrics.add(new Metric("dispatch_compression_retained_bytes.last"));
 
         metrics.add(new Metric("totalhits_per_query.max"));
         metrics.add(new Metric("totalhits_per_query.sum"));
@@ -11,7 +11,7 @@ public class DispatchTuning {
 
     public static final DispatchTuning empty = new DispatchTuning.Builder().build();
 
-    public enum DispatchPolicy { ROUNDROBIN, ADAPTIVE}
+    public enum DispatchPolicy { ROUNDROBIN, ADAPTIVE, LATENCY_AWARE }
 
     private final Integer maxHitsPerPartition;
     private DispatchPolicy dispatchPolicy;
@@ -23,6 +23,7 @@ public class DispatchTuning {
     }
 
     private final Double topkProbability;
+    private final Double hedgingPercentile;
 
     private DispatchTuning(Builder builder) {
         maxHitsPerPartition = builder.maxHitsPerPartition;
@@ -30,6 +31,7 @@ public class DispatchTuning {
         minGroupCoverage = builder.minGroupCoverage;
         minActiveDocsCoverage = builder.minActiveDocsCoverage;
         topkProbability = builder.topKProbability;
+        hedgingPercentile = builder.hedgingPercentile;
     }
 
     /** Returns the max number of hits to fetch from each partition, or null to fetch all */
@@ -47,6 +49,9 @@ public class DispatchTuning {
     /** Returns the percentage of documents which must be available in a group for that group to receive queries */
     public Double getMinActiveDocsCoverage() { return minActiveDocsCoverage; }
 
+    /** Returns the percentile of a group's search times after which a query should also be sent to another group */
+    public Double getHedgingPercentile() { return hedgingPercentile; }
+
     public static class Builder {
 
         private Integer maxHitsPerPartition;
@@ -54,6 +59,7 @@ public class DispatchTuning {
         private Double minGroupCoverage;
         private Double minActiveDocsCoverage;
         private Double topKProbability;
+        private Double hedgingPercentile;
 
         public DispatchTuning build() {
             return new DispatchTuning(this);
@@ -67,6 +73,10 @@ public class DispatchTuning {
             this.topKProbability = topKProbability;
             return this;
         }
+        public Builder setHedgingPercentile(Double hedgingPercentile) {
+            this.hedgingPercentile = hedgingPercentile;
+            return this;
+        }
         public Builder setDispatchPolicy(String policy) {
             if (policy != null)
                 dispatchPolicy = toDispatchPolicy(policy);
@@ -77,6 +87,7 @@ public class DispatchTuning {
             switch (policy.toLowerCase()) {
                 case "adaptive": case "random": return DispatchPolicy.ADAPTIVE; // TODO: Deprecate 'random' on Java 8
                 case "round-robin": return DispatchPolicy.ROUNDROBIN;
+                case "latency-aware": return DispatchPolicy.LATENCY_AWARE;
                 default: throw new IllegalArgumentException("Unknown dispatch policy '" + policy + "'");
             }
         }
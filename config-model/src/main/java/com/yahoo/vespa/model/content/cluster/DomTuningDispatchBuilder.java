@@ -24,6 +24,7 @@ public class DomTuningDispatchBuilder {
         }
         builder.setMaxHitsPerPartition(dispatchElement.childAsInteger("max-hits-per-partition"));
         builder.setTopKProbability(dispatchElement.childAsDouble("top-k-probability"));
+        builder.setHedgingPercentile(dispatchElement.childAsDouble("hedging-percentile"));
         builder.setDispatchPolicy(dispatchElement.childAsString("dispatch-policy"));
         builder.setMinGroupCoverage(dispatchElement.childAsDouble("min-group-coverage"));
         builder.setMinActiveDocsCoverage(dispatchElement.childAsDouble("min-active-docs-coverage"));
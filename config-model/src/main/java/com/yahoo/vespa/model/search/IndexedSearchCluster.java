@@ -303,6 +303,9 @@ public class IndexedSearchCluster extends SearchCluster
         if (tuning.dispatch.getTopkProbability() != null) {
             builder.topKProbability(tuning.dispatch.getTopkProbability());
         }
+        if (tuning.dispatch.getHedgingPercentile() != null) {
+            builder.hedgingPercentile(tuning.dispatch.getHedgingPercentile());
+        }
         if (tuning.dispatch.getMinActiveDocsCoverage() != null)
             builder.minActivedocsPercentage(tuning.dispatch.getMinActiveDocsCoverage());
         if (tuning.dispatch.getMinGroupCoverage() != null)
@@ -315,6 +318,9 @@ public class IndexedSearchCluster extends SearchCluster
                 case ROUNDROBIN:
                     builder.distributionPolicy(DistributionPolicy.ROUNDROBIN);
                     break;
+                case LATENCY_AWARE:
+                    builder.distributionPolicy(DistributionPolicy.LATENCY_AWARE);
+                    break;
             }
         }
         if (tuning.dispatch.getMaxHitsPerPartition() != null)
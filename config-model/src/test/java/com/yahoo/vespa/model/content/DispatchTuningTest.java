@@ -20,12 +20,14 @@ public class DispatchTuningTest {
                 .setMinGroupCoverage(7.5)
                 .setMinActiveDocsCoverage(12.5)
                 .setTopKProbability(18.3)
+                .setHedgingPercentile(0.99)
                 .build();
         assertEquals(69, dispatch.getMaxHitsPerPartition().intValue());
         assertEquals(7.5, dispatch.getMinGroupCoverage().doubleValue(), 0.0);
         assertEquals(12.5, dispatch.getMinActiveDocsCoverage().doubleValue(), 0.0);
         assertTrue(DispatchTuning.DispatchPolicy.ROUNDROBIN == dispatch.getDispatchPolicy());
         assertEquals(18.3, dispatch.getTopkProbability(), 0.0);
+        assertEquals(0.99, dispatch.getHedgingPercentile(), 0.0);
     }
     @Test
     public void requireThatRandomDispatchWork() {
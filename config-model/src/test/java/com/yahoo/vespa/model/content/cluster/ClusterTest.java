@@ -77,7 +77,8 @@ public class ClusterTest {
                                                            "<dispatch-policy>round-robin</dispatch-policy>",
                                                            "<min-group-coverage>13</min-group-coverage>",
                                                            "<min-active-docs-coverage>93</min-active-docs-coverage>",
-                                                           "<top-k-probability>0.777</top-k-probability>"),
+                                                           "<top-k-probability>0.777</top-k-probability>",
+                                                           "<hedging-percentile>0.99</hedging-percentile>"),
                                                    false);
         DispatchConfig.Builder builder = new DispatchConfig.Builder();
         cluster.getSearch().getConfig(builder);
@@ -88,6 +89,7 @@ public class ClusterTest {
         assertEquals(DispatchConfig.DistributionPolicy.ROUNDROBIN, config.distributionPolicy());
         assertEquals(77, config.maxHitsPerNode());
         assertEquals(0.777, config.topKProbability(), DELTA);
+        assertEquals(0.99, config.hedgingPercentile(), DELTA);
     }
 
     @Test
@@ -92,6 +92,18 @@ public class DomDispatchTuningBuilderTest {
                         "</content>");
         assertTrue(DispatchTuning.DispatchPolicy.ADAPTIVE == dispatch.getDispatchPolicy());
     }
+    @Test
+    public void requireThatTuningDispatchPolicyLatencyAware() throws Exception {
+        DispatchTuning dispatch = newTuningDispatch(
+                "<content>" +
+                        "  <tuning>" +
+                        "    <dispatch>" +
+                        "      <dispatch-policy>latency-aware</dispatch-policy>" +
+                        "    </dispatch>" +
+                        "  </tuning>" +
+                        "</content>");
+        assertTrue(DispatchTuning.DispatchPolicy.LATENCY_AWARE == dispatch.getDispatchPolicy());
+    }
 
     private static DispatchTuning newTuningDispatch(String xml) throws Exception {
         return DomTuningDispatchBuilder.build(
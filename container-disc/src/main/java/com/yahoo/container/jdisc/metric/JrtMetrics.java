@@ -31,6 +31,8 @@ class JrtMetrics {
         increment("jrt.transport.server.unencrypted-connections-established", changesSincePrevious.serverUnencryptedConnectionsEstablished());
         increment("jrt.transport.client.unencrypted-connections-established", changesSincePrevious.clientUnencryptedConnectionsEstablished());
         previousSnapshot = snapshot;
+        metric.set("jrt.transport.buffer-pool.idle-bytes", transportMetrics.bufferPoolIdleBytes(), null);
+        metric.set("jrt.transport.buffer-pool.used-bytes", transportMetrics.bufferPoolUsedBytes(), null);
     }
 
     private void increment(String metricName, long countIncrement) {
@@ -32,6 +32,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static com.yahoo.container.QrSearchersConfig.Searchcluster.Indexingmode.STREAMING;
 
@@ -262,6 +263,39 @@ public class ClusterSearcher extends Searcher {
         return doSearch(searcher, query, execution);
     }
 
+    /**
+     * Searches without blocking while waiting for the content nodes when there is a single document type.
+     * Queries to multiple document types are searched synchronously.
+     */
+    @Override
+    public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+        if (documentTypes.size() > 1)
+            return super.searchAsync(query, execution);
+
+        validateQueryTimeout(query);
+        validateQueryCache(query);
+        VespaBackEndSearcher searcher = server;
+        if (searcher == null)
+            return CompletableFuture.completedFuture(new Result(query, ErrorMessage.createNoBackendsInService("Could not search")));
+        if (query.getTimeLeft() <= 0)
+            return CompletableFuture.completedFuture(new Result(query, ErrorMessage.createTimeout("No time left for searching")));
+
+        Result invalidRankProfile = checkValidRankProfiles(query, documentTypes);
+        if (invalidRankProfile != null)
+            return CompletableFuture.completedFuture(invalidRankProfile);
+
+        query.getModel().setRestrict(documentTypes.iterator().next());
+        return searcher.searchAsync(query, execution);
+    }
+
+    @Override
+    public CompletableFuture<Result> fillAsync(Result result, String summaryClass, Execution execution) {
+        VespaBackEndSearcher searcher = server;
+        if (searcher == null || result.getQuery().getTimeLeft() <= 0)
+            return super.fillAsync(result, summaryClass, execution); // adds the error
+        return searcher.fillAsync(result, summaryClass, execution);
+    }
+
     private void validateQueryTimeout(Query query) {
         if (query.getTimeout() <= maxQueryTimeout) return;
 
@@ -19,6 +19,8 @@ import com.yahoo.search.searchchain.Execution;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 
 import static com.yahoo.container.util.Util.quote;
@@ -99,17 +101,44 @@ public class FastSearcher extends VespaBackEndSearcher {
                 fill(result, query.getPresentation().getSummary(), execution); // ARGH
             }
             return result;
-        } catch (TimeoutException e) {
-            return new Result(query,ErrorMessage.createTimeout(e.getMessage()));
         } catch (IOException e) {
-            Result result = new Result(query);
-            if (query.getTraceLevel() >= 1)
-                query.trace(getName() + " error response: " + result, false, 1);
-            result.hits().addError(ErrorMessage.createBackendCommunicationError(getName() + " failed: "+ e.getMessage()));
-            return result;
+            return errorResult(query, e);
         }
     }
 
+    @Override
+    protected CompletableFuture<Result> doSearch2Async(Query query, Execution execution) {
+        if (query.properties().getBoolean(Ranking.RANKFEATURES, false))
+            return super.doSearch2Async(query, execution); // needs the synchronous fill done by doSearch2
+
+        if (dispatcher.searchCluster().groupSize() == 1)
+            forceSinglePassGrouping(query);
+        SearchInvoker invoker = getSearchInvoker(query);
+        return invoker.searchAsync(query, execution).handle((result, exception) -> {
+            invoker.close();
+            if (exception != null) {
+                Throwable cause = exception instanceof CompletionException ? exception.getCause() : exception;
+                if (cause instanceof IOException)
+                    return errorResult(query, (IOException)cause);
+                throw exception instanceof CompletionException ? (CompletionException)exception
+                                                               : new CompletionException(exception);
+            }
+            injectSource(result.hits());
+            return result;
+        });
+    }
+
+    private Result errorResult(Query query, IOException e) {
+        if (e instanceof TimeoutException)
+            return new Result(query,ErrorMessage.createTimeout(e.getMessage()));
+
+        Result result = new Result(query);
+        if (query.getTraceLevel() >= 1)
+            query.trace(getName() + " error response: " + result, false, 1);
+        result.hits().addError(ErrorMessage.createBackendCommunicationError(getName() + " failed: "+ e.getMessage()));
+        return result;
+    }
+
     /**
      * Perform a partial docsum fill for a temporary result
      * representing a partition of the complete fill request.
@@ -129,6 +158,23 @@ public class FastSearcher extends VespaBackEndSearcher {
         }
     }
 
+    @Override
+    protected CompletableFuture<Void> doPartialFillAsync(Result result, String summaryClass) {
+        if (result.isFilled(summaryClass)) return CompletableFuture.completedFuture(null);
+
+        Query query = result.getQuery();
+        traceQuery(getName(), "fill", query, query.getOffset(), query.getHits(), 1, quotedSummaryClass(summaryClass));
+
+        FillInvoker invoker = getFillInvoker(result);
+        return invoker.fillAsync(result, summaryClass).handle((filled, exception) -> {
+            invoker.close();
+            if (exception != null)
+                throw exception instanceof CompletionException ? (CompletionException)exception
+                                                               : new CompletionException(exception);
+            return null;
+        });
+    }
+
     /** When we only search a single node, doing all grouping in one pass is more efficient */
     private void forceSinglePassGrouping(Query query) {
         for (GroupingRequest groupingRequest : query.getSelect().getGrouping())
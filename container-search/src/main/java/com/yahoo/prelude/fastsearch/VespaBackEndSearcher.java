@@ -25,6 +25,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -74,6 +75,33 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
 
     protected abstract void doPartialFill(Result result, String summaryClass);
 
+    /**
+     * Searches a search cluster, returning a future result.
+     * This default implementation calls doSearch2 and returns a completed future.
+     */
+    protected CompletableFuture<Result> doSearch2Async(Query query, Execution execution) {
+        try {
+            return CompletableFuture.completedFuture(doSearch2(query, execution));
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Performs a partial docsum fill, returning a future which completes when it is done.
+     * This default implementation calls doPartialFill and returns a completed future.
+     */
+    protected CompletableFuture<Void> doPartialFillAsync(Result result, String summaryClass) {
+        try {
+            doPartialFill(result, summaryClass);
+            return CompletableFuture.completedFuture(null);
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Returns whether we need to send the query when fetching summaries.
      * This is necessary if the query requests summary features or dynamic snippeting
@@ -141,6 +169,22 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
     protected void transformQuery(Query query) { }
 
     public Result search(Query query, Execution execution) {
+        Result emptyResult = prepareSearch(query);
+        if (emptyResult != null) return emptyResult;
+
+        return completeSearch(query, doSearch2(query, execution));
+    }
+
+    @Override
+    public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+        Result emptyResult = prepareSearch(query);
+        if (emptyResult != null) return CompletableFuture.completedFuture(emptyResult);
+
+        return doSearch2Async(query, execution).thenApply(result -> completeSearch(query, result));
+    }
+
+    /** Prepares the query for searching, and returns the result if there is nothing to search for, or null otherwise */
+    private Result prepareSearch(Query query) {
         // query root should not be null here
         Item root = query.getModel().getQueryTree().getRoot();
         if (root == null || root instanceof NullItem) {
@@ -163,7 +207,10 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
         if (root == null || root instanceof NullItem) // root can become null after resolving and transformation?
             return new Result(query);
 
-        Result result = doSearch2(query, execution);
+        return null;
+    }
+
+    private Result completeSearch(Query query, Result result) {
         if (isLoggingFine())
             getLogger().fine("Result NOT retrieved from cache");
 
@@ -215,6 +262,25 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
         }
     }
 
+    @Override
+    public CompletableFuture<Result> fillAsync(Result result, String summaryClass, Execution execution) {
+        if (result.isFilled(summaryClass)) return CompletableFuture.completedFuture(result);
+
+        List<Result> parts = partitionHits(result, summaryClass);
+        if (parts.isEmpty()) return CompletableFuture.completedFuture(result); // nothing to fill
+
+        // Fill the parts in sequence as in fill
+        CompletableFuture<Void> filled = CompletableFuture.completedFuture(null);
+        for (Result r : parts)
+            filled = filled.thenCompose(__ -> doPartialFillAsync(r, summaryClass))
+                           .thenRun(() -> mergeErrorsInto(result, r));
+        return filled.thenApply(__ -> {
+            result.hits().setSorted(false);
+            result.analyzeHits();
+            return result;
+        });
+    }
+
     private void mergeErrorsInto(Result destination, Result source) {
         ErrorHit eh = source.hits().getErrorHit();
         if (eh != null) {
@@ -6,6 +6,7 @@ import com.yahoo.processing.Processor;
 import com.yahoo.processing.Response;
 import com.yahoo.search.searchchain.Execution;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /**
@@ -149,6 +150,51 @@ public abstract class Searcher extends Processor {
         execution.fill(result, summaryClass);
     }
 
+    /**
+     * Returns the result of the given query as a future, which may be completed by another thread.
+     * <p>
+     * Override this in searchers which spend their time waiting, such as sources waiting for backend responses,
+     * to wait without blocking a thread. Implementations pass the query on by calling
+     * execution.searchAsync, and must complete the returned future also when failing.
+     * <p>
+     * This default implementation calls the synchronous {@link #search} method and returns a completed future,
+     * such that all searchers can be invoked asynchronously.
+     *
+     * @param query the query
+     * @param execution the execution of the rest of the chain, which can be used by any thread until
+     *                  the returned future completes
+     * @return the future result of making this query
+     */
+    public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+        try {
+            return CompletableFuture.completedFuture(search(query, execution));
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Fills the given result, and returns a future which completes with it when it is filled.
+     * <p>
+     * Override this in searchers which override {@link #fill} if they can fill without blocking a thread.
+     * This default implementation calls the synchronous {@link #fill} method and returns a completed future.
+     *
+     * @param result the result to fill
+     * @param summaryClass the name of the collection of fields to fetch the values of
+     * @param execution the execution of the rest of the chain, which can be used by any thread until
+     *                  the returned future completes
+     */
+    public CompletableFuture<Result> fillAsync(Result result, String summaryClass, Execution execution) {
+        try {
+            fill(result, summaryClass, execution);
+            return CompletableFuture.completedFuture(result);
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * Fills the result if it is not already filled for the given summary class.
      * See the fill method.
@@ -0,0 +1,40 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.searchchain.Execution;
+
+import java.util.Optional;
+
+/**
+ * A search invoker which returns a result from the {@link SearchResultCache} without
+ * sending any requests to content nodes.
+ */
+class CachedSearchInvoker extends SearchInvoker {
+
+    private final SearchResultCache.Entry entry;
+    private Query query;
+
+    CachedSearchInvoker(SearchResultCache.Entry entry) {
+        super(Optional.empty());
+        this.entry = entry;
+    }
+
+    @Override
+    protected Object sendSearchRequest(Query query, Object context) {
+        this.query = query;
+        query.trace(false, 2, "Using cached result");
+        return context;
+    }
+
+    @Override
+    protected InvokerResult getSearchResult(Execution execution) {
+        return entry.toResult(query);
+    }
+
+    @Override
+    protected void release() {
+        // nothing to release
+    }
+
+}
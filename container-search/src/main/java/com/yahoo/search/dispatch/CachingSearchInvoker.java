@@ -0,0 +1,54 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.searchchain.Execution;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * A search invoker which adds the result of another invoker to a {@link SearchResultCache}.
+ */
+class CachingSearchInvoker extends SearchInvoker {
+
+    private final SearchInvoker invoker;
+    private final SearchResultCache cache;
+    private final byte[] cacheKey;
+    private final Runnable afterPut;
+    private Query query;
+
+    /**
+     * Creates a caching invoker
+     *
+     * @param afterPut called after the result is added to the cache, which may evict other results
+     */
+    CachingSearchInvoker(SearchInvoker invoker, SearchResultCache cache, byte[] cacheKey, Runnable afterPut) {
+        super(Optional.empty());
+        this.invoker = invoker;
+        this.cache = cache;
+        this.cacheKey = cacheKey;
+        this.afterPut = afterPut;
+    }
+
+    @Override
+    protected Object sendSearchRequest(Query query, Object context) throws IOException {
+        this.query = query;
+        return invoker.sendSearchRequest(query, context);
+    }
+
+    @Override
+    protected InvokerResult getSearchResult(Execution execution) throws IOException {
+        InvokerResult result = invoker.getSearchResult(execution);
+        invoker.setFinalStatus(result.getResult().hits().getError() == null);
+        cache.put(cacheKey, result, query.getOffset());
+        afterPut.run();
+        return result;
+    }
+
+    @Override
+    protected void release() {
+        invoker.close();
+    }
+
+}
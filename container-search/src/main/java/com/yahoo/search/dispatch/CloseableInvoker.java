@@ -2,7 +2,9 @@
 package com.yahoo.search.dispatch;
 
 import java.io.Closeable;
-import java.util.function.BiConsumer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * CloseableInvoker is an abstract implementation of {@link Closeable} with an additional hook for
@@ -12,13 +14,15 @@ import java.util.function.BiConsumer;
  * @author ollivir
  */
 public abstract class CloseableInvoker implements Closeable {
+
     protected abstract void release();
 
-    private BiConsumer<Boolean, Long> teardown = null;
+    private Teardown teardown = null;
     private boolean success = false;
+    private boolean abandoned = false;
     private long startTime = 0;
 
-    public void teardown(BiConsumer<Boolean, Long> teardown) {
+    public void teardown(Teardown teardown) {
         this.teardown = teardown;
         this.startTime = System.currentTimeMillis();
     }
@@ -27,12 +31,40 @@ public abstract class CloseableInvoker implements Closeable {
         this.success = success;
     }
 
+    /**
+     * Marks this as abandoned because its result is not needed, such that the time until it is closed
+     * is a lower bound on the time it would have taken to complete.
+     */
+    protected void setAbandoned() {
+        this.abandoned = true;
+    }
+
+    /** Runs the given task after the given delay using the given timer, to time out an asynchronous invocation */
+    protected static ScheduledFuture<?> scheduleTimeout(ScheduledExecutorService timeouts, Runnable task, long delayMs) {
+        return timeouts.schedule(task, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+    }
+
     @Override
     public final void close() {
         if (teardown != null) {
-            teardown.accept(success, System.currentTimeMillis() - startTime);
+            teardown.accept(success, abandoned, System.currentTimeMillis() - startTime);
             teardown = null;
         }
         release();
     }
+
+    /** Called when an invoker is closed */
+    @FunctionalInterface
+    public interface Teardown {
+
+        /**
+         * @param success whether the invocation completed successfully
+         * @param abandoned whether the invocation was closed before completing because its result was not needed,
+         *                  such that the given time is only a lower bound on the time it would have taken
+         * @param timeMs the time from the teardown was set until the invoker was closed
+         */
+        void accept(boolean success, boolean abandoned, long timeMs);
+
+    }
+
 }
@@ -14,6 +14,7 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.cluster.ClusterMonitor;
 import com.yahoo.search.dispatch.SearchPath.InvalidSearchPathException;
+import com.yahoo.search.dispatch.rpc.ProtobufSerialization;
 import com.yahoo.search.dispatch.rpc.RpcInvokerFactory;
 import com.yahoo.search.dispatch.rpc.RpcPingFactory;
 import com.yahoo.search.dispatch.rpc.RpcResourcePool;
@@ -26,12 +27,15 @@ import com.yahoo.search.query.profile.types.QueryProfileType;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -54,6 +58,9 @@ public class Dispatcher extends AbstractComponent {
     private static final String TOP_K_PROBABILITY = "topKProbability";
 
     private static final String INTERNAL_METRIC = "dispatch_internal";
+    private static final String RESULT_CACHE_HITS_METRIC = "dispatch_result_cache_hits";
+    private static final String RESULT_CACHE_MISSES_METRIC = "dispatch_result_cache_misses";
+    private static final String RESULT_CACHE_EVICTIONS_METRIC = "dispatch_result_cache_evictions";
 
     private static final int MAX_GROUP_SELECTION_ATTEMPTS = 3;
 
@@ -76,6 +83,12 @@ public class Dispatcher extends AbstractComponent {
 
     private final int maxHitsPerNode;
 
+    /** The cache of search results, or null if result caching is disabled */
+    private final SearchResultCache resultCache;
+    private final AtomicLong reportedResultCacheHits = new AtomicLong();
+    private final AtomicLong reportedResultCacheMisses = new AtomicLong();
+    private final AtomicLong reportedResultCacheEvictions = new AtomicLong();
+
     private static final QueryProfileType argumentType;
 
     static {
@@ -118,12 +131,17 @@ public class Dispatcher extends AbstractComponent {
 
         this.searchCluster = searchCluster;
         this.clusterMonitor = clusterMonitor;
-        this.loadBalancer = new LoadBalancer(searchCluster,
-                                  dispatchConfig.distributionPolicy() == DispatchConfig.DistributionPolicy.ROUNDROBIN);
+        this.loadBalancer = new LoadBalancer(searchCluster, dispatchConfig.distributionPolicy(), dispatchConfig.hedgingPercentile());
         this.invokerFactory = invokerFactory;
         this.metric = metric;
         this.metricContext = metric.createContext(null);
         this.maxHitsPerNode = dispatchConfig.maxHitsPerNode();
+        this.resultCache = dispatchConfig.resultCacheSize() > 0
+                           ? new SearchResultCache(dispatchConfig.resultCacheSize(),
+                                                   Duration.ofMillis((long) (dispatchConfig.resultCacheTtl() * 1000)))
+                           : null;
+        if (resultCache != null)
+            searchCluster.addStateChangeListener(resultCache::invalidate);
         searchCluster.addMonitoring(clusterMonitor);
         Thread warmup = new Thread(new Runnable() {
             @Override
@@ -173,8 +191,13 @@ public class Dispatcher extends AbstractComponent {
         return invokerFactory.createFillInvoker(searcher, result);
     }
 
+    /** Returns the cache of search results, or empty if result caching is not enabled */
+    public Optional<SearchResultCache> resultCache() { return Optional.ofNullable(resultCache); }
+
     public SearchInvoker getSearchInvoker(Query query, VespaBackEndSearcher searcher) {
-        SearchInvoker invoker = getSearchPathInvoker(query, searcher).orElseGet(() -> getInternalInvoker(query, searcher));
+        SearchInvoker invoker = getCachingInvoker(query, searcher)
+                .orElseGet(() -> getSearchPathInvoker(query, searcher)
+                .orElseGet(() -> getInternalInvoker(query, searcher)));
 
         if (query.properties().getBoolean(com.yahoo.search.query.Model.ESTIMATE)) {
             query.setHits(0);
@@ -184,6 +207,46 @@ public class Dispatcher extends AbstractComponent {
         return invoker;
     }
 
+    /** Returns the key to use to cache the result of this query, or empty if it should not be cached */
+    private Optional<byte[]> resultCacheKey(Query query, VespaBackEndSearcher searcher) {
+        if (resultCache == null) return Optional.empty();
+        if (query.getNoCache()) return Optional.empty();
+        if (query.getModel().getSearchPath() != null) return Optional.empty();
+        if ( ! query.getSelect().getGrouping().isEmpty()) return Optional.empty();
+        if (query.getRanking().getQueryCache()) return Optional.empty();
+        if (ProtobufSerialization.getTraceLevelForBackend(query) > 0) return Optional.empty();
+        return invokerFactory.searchRequestCacheKey(searcher, query);
+    }
+
+    /**
+     * Returns an invoker returning a cached result if the result of this query is cached, an invoker which will
+     * cache the result if it is not, or empty if the result of this query should not be cached.
+     */
+    private Optional<SearchInvoker> getCachingInvoker(Query query, VespaBackEndSearcher searcher) {
+        Optional<byte[]> cacheKey = resultCacheKey(query, searcher);
+        if (cacheKey.isEmpty()) return Optional.empty();
+
+        Optional<SearchResultCache.Entry> cached = resultCache.get(cacheKey.get());
+        reportResultCacheMetrics();
+        if (cached.isPresent()) return Optional.of(new CachedSearchInvoker(cached.get()));
+
+        SearchInvoker invoker = getSearchPathInvoker(query, searcher).orElseGet(() -> getInternalInvoker(query, searcher));
+        return Optional.of(new CachingSearchInvoker(invoker, resultCache, cacheKey.get(), this::reportResultCacheMetrics));
+    }
+
+    /** Reports the changes to the counters of the result cache since they were last reported */
+    private void reportResultCacheMetrics() {
+        report(RESULT_CACHE_HITS_METRIC, resultCache.hits(), reportedResultCacheHits);
+        report(RESULT_CACHE_MISSES_METRIC, resultCache.misses(), reportedResultCacheMisses);
+        report(RESULT_CACHE_EVICTIONS_METRIC, resultCache.evictions(), reportedResultCacheEvictions);
+    }
+
+    private void report(String metricName, long total, AtomicLong reported) {
+        long delta = total - reported.getAndSet(total);
+        if (delta > 0)
+            metric.add(metricName, delta, metricContext);
+    }
+
     /** Builds an invoker based on searchpath */
     private Optional<SearchInvoker> getSearchPathInvoker(Query query, VespaBackEndSearcher searcher) {
         String searchPath = query.getModel().getSearchPath();
@@ -237,8 +300,8 @@ public class Dispatcher extends AbstractComponent {
             if (invoker.isPresent()) {
                 query.trace(false, 2, "Dispatching to group ", group.id());
                 query.getModel().setSearchPath("/" + group.id());
-                invoker.get().teardown((success, time) -> loadBalancer.releaseGroup(group, success, time));
-                return invoker.get();
+                invoker.get().teardown((success, abandoned, time) -> loadBalancer.releaseGroup(group, success, abandoned, time));
+                return hedgedIfEnabled(invoker.get(), group, query, searcher);
             } else {
                 loadBalancer.releaseGroup(group, false, 0);
                 if (rejected == null) {
@@ -250,6 +313,41 @@ public class Dispatcher extends AbstractComponent {
         throw new IllegalStateException("No suitable groups to dispatch query. Rejected: " + rejected);
     }
 
+    /**
+     * Returns an invoker which will also send the query to another group if the given group does not respond
+     * within its hedge delay, or the given invoker if queries to this group should not be hedged.
+     */
+    private SearchInvoker hedgedIfEnabled(SearchInvoker invoker, Group group, Query query, VespaBackEndSearcher searcher) {
+        OptionalLong hedgeDelay = loadBalancer.hedgeDelay(group);
+        if (hedgeDelay.isEmpty()) return invoker;
+        return new HedgedSearchInvoker(invoker, () -> getHedgeInvoker(group, query, searcher), hedgeDelay.getAsLong());
+    }
+
+    private Optional<SearchInvoker> getHedgeInvoker(Group primary, Query query, VespaBackEndSearcher searcher) {
+        Set<Integer> rejected = rejectGroupBlockingFeed(searchCluster.orderedGroups());
+        if (rejected == null) {
+            rejected = new HashSet<>();
+        }
+        rejected.add(primary.id());
+        Optional<Group> groupInCluster = loadBalancer.takeGroup(rejected);
+        if (groupInCluster.isEmpty()) return Optional.empty();
+
+        Group group = groupInCluster.get();
+        Optional<SearchInvoker> invoker = invokerFactory.createSearchInvoker(searcher,
+                                                                             query,
+                                                                             OptionalInt.of(group.id()),
+                                                                             group.nodes(),
+                                                                             false,
+                                                                             maxHitsPerNode);
+        if (invoker.isEmpty()) {
+            loadBalancer.releaseGroup(group, false, 0);
+            return Optional.empty();
+        }
+        query.trace(false, 2, "Hedging to group ", group.id());
+        invoker.get().teardown((success, abandoned, time) -> loadBalancer.releaseGroup(group, success, abandoned, time));
+        return invoker;
+    }
+
     /**
      * We want to avoid groups blocking feed because their data may be out of date.
      * If there is a single group blocking feed, we want to reject it.
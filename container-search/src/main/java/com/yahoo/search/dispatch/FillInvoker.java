@@ -3,6 +3,8 @@ package com.yahoo.search.dispatch;
 
 import com.yahoo.search.Result;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * FillInvoker encapsulates an allocated connection for running a document summary retrieval.
  * The invocation object can be stateful and should not be reused.
@@ -16,6 +18,21 @@ public abstract class FillInvoker extends CloseableInvoker {
         getFillResults(result, summaryClass);
     }
 
+    /**
+     * Retrieves document summaries for the unfilled hits in the given {@link Result}, returning a future
+     * which completes with the result when it is filled.
+     * This default implementation blocks by calling {@link #fill}, and returns a completed future.
+     */
+    public CompletableFuture<Result> fillAsync(Result result, String summaryClass) {
+        try {
+            fill(result, summaryClass);
+            return CompletableFuture.completedFuture(result);
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     protected abstract void getFillResults(Result result, String summaryClass);
 
     protected abstract void sendFillRequest(Result result, String summaryClass);
@@ -0,0 +1,116 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.searchchain.Execution;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A search invoker which sends the query to a primary invoker (group), and if it has not responded with
+ * sufficient coverage after a given delay, sends the same query to a second (hedge) invoker. The first invoker to
+ * reach sufficient coverage is used, and the other one is closed. If neither does before the query times out,
+ * the (partial) result of the primary invoker is used.
+ *
+ * Groups ({@link InterleavedSearchInvoker}) notify when they reach the minimum search coverage rather than when
+ * all their nodes have responded, so a single stuck node in each group does not make this wait for the full
+ * query timeout: The winning group waits for its remaining nodes only until its adaptive timeout.
+ *
+ * This trades some extra load for cutting the tail latency caused by a single slow group,
+ * e.g due to a garbage collection pause on one of its content nodes.
+ */
+public class HedgedSearchInvoker extends SearchInvoker implements ResponseMonitor<SearchInvoker> {
+
+    private final SearchInvoker primary;
+    private final Supplier<Optional<SearchInvoker>> hedgeFactory;
+    private final long hedgeDelayMs;
+    private final LinkedBlockingQueue<SearchInvoker> completed = new LinkedBlockingQueue<>();
+
+    private SearchInvoker hedge = null;
+    private SearchInvoker winner = null;
+    private Query query;
+
+    /**
+     * Creates a hedged invoker.
+     *
+     * @param primary the invoker to send the query to first
+     * @param hedgeFactory supplies the invoker to send the query to if the primary is too slow, or empty
+     *                     if no alternative is available. This is only called if hedging is needed.
+     * @param hedgeDelayMs the time to wait for the primary before sending the query to the hedge invoker
+     */
+    public HedgedSearchInvoker(SearchInvoker primary, Supplier<Optional<SearchInvoker>> hedgeFactory, long hedgeDelayMs) {
+        super(Optional.empty());
+        this.primary = primary;
+        this.hedgeFactory = hedgeFactory;
+        this.hedgeDelayMs = hedgeDelayMs;
+    }
+
+    @Override
+    protected Object sendSearchRequest(Query query, Object context) throws IOException {
+        this.query = query;
+        primary.setMonitor(this);
+        primary.sendSearchRequest(query, null);
+        return context;
+    }
+
+    @Override
+    protected InvokerResult getSearchResult(Execution execution) throws IOException {
+        try {
+            winner = completed.poll(Math.min(hedgeDelayMs, query.getTimeLeft()), TimeUnit.MILLISECONDS);
+            if (winner == null && query.getTimeLeft() > 0) {
+                Optional<SearchInvoker> alternative = hedgeFactory.get();
+                if (alternative.isPresent()) {
+                    hedge = alternative.get();
+                    hedge.setMonitor(this);
+                    query.trace(false, 2, "No response after ", hedgeDelayMs, " ms: Sending hedged request");
+                    hedge.sendSearchRequest(query, null);
+                }
+                winner = completed.poll(query.getTimeLeft(), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            // handled as timeout
+        }
+        if (winner == null) {
+            winner = primary;
+        }
+        else if (winner == hedge) {
+            query.trace(false, 2, "Using the hedged response");
+        }
+        SearchInvoker loser = (winner == primary) ? hedge : primary;
+        if (loser != null) {
+            loser.setAbandoned(); // such that the time it has spent is recorded as a lower bound of its search time
+            loser.close();
+        }
+
+        InvokerResult result = winner.getSearchResult(execution);
+        winner.setFinalStatus(result.getResult().hits().getError() == null);
+        return result;
+    }
+
+    @Override
+    protected void release() {
+        if (winner != null) {
+            winner.close();
+        } else {
+            primary.close();
+            if (hedge != null) {
+                hedge.close();
+            }
+        }
+    }
+
+    @Override
+    public void responseAvailable(SearchInvoker from) {
+        completed.add(from);
+    }
+
+    @Override
+    protected void setMonitor(ResponseMonitor<SearchInvoker> monitor) {
+        // never to be called
+    }
+
+}
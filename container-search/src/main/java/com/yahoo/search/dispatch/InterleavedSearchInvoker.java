@@ -11,7 +11,6 @@ import com.yahoo.search.searchchain.Execution;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
@@ -19,8 +18,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -43,8 +48,14 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private final SearchCluster searchCluster;
     private final LinkedBlockingQueue<SearchInvoker> availableForProcessing;
     private final Set<Integer> alreadyFailedNodes;
+    private final ScheduledExecutorService timeouts;
+    private final AtomicInteger pendingResponses = new AtomicInteger();
     private Query query;
 
+    /** The distribution keys of the nodes queried, or null if not all are known */
+    private int[] nodeKeys = null;
+    private int hitsPerNode = 0;
+
     private boolean adaptiveTimeoutCalculated = false;
     private long adaptiveTimeoutMin = 0;
     private long adaptiveTimeoutMax = 0;
@@ -59,13 +70,18 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private boolean timedOut = false;
     private boolean degradedByMatchPhase = false;
 
-    public InterleavedSearchInvoker(Collection<SearchInvoker> invokers, SearchCluster searchCluster, Set<Integer> alreadyFailedNodes) {
+    /** The state of the search if it is done asynchronously, or null if it is not */
+    private volatile AsyncSearch asyncSearch = null;
+
+    public InterleavedSearchInvoker(Collection<SearchInvoker> invokers, SearchCluster searchCluster, Set<Integer> alreadyFailedNodes,
+                                    ScheduledExecutorService timeouts) {
         super(Optional.empty());
         this.invokers = Collections.newSetFromMap(new IdentityHashMap<>());
         this.invokers.addAll(invokers);
         this.searchCluster = searchCluster;
         this.availableForProcessing = newQueue();
         this.alreadyFailedNodes = alreadyFailedNodes;
+        this.timeouts = timeouts;
     }
 
     /**
@@ -83,12 +99,16 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         int originalOffset = query.getOffset();
         int neededHits = originalHits + originalOffset;
         Double topkProbabilityOverrride = query.properties().getDouble(Dispatcher.topKProbability);
+        String rankProfile = query.getRanking().getProfile();
         int q = (topkProbabilityOverrride != null)
-                ? searchCluster.estimateHitsToFetch(neededHits, invokers.size(), topkProbabilityOverrride)
-                : searchCluster.estimateHitsToFetch(neededHits, invokers.size());
+                ? searchCluster.estimateHitsToFetch(neededHits, invokers.size(), topkProbabilityOverrride, rankProfile)
+                : searchCluster.estimateHitsToFetch(neededHits, invokers.size(), rankProfile);
         query.setHits(q);
         query.setOffset(0);
+        hitsPerNode = q;
+        nodeKeys = nodeKeys(invokers);
 
+        pendingResponses.set(sufficientResponses(invokers.size()));
         Object context = null;
         for (SearchInvoker invoker : invokers) {
             context = invoker.sendSearchRequest(query, context);
@@ -100,10 +120,30 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         return null;
     }
 
+    /**
+     * Sends the query to the content nodes and returns a future which is completed with the merged result
+     * when the last needed response has arrived, or at timeout, such that no thread is blocked while waiting
+     * for the content nodes. Responses are merged by the timeout executor, not by the threads delivering them.
+     */
+    @Override
+    public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+        AsyncSearch search = new AsyncSearch(execution);
+        asyncSearch = search; // Before sending, as responses may arrive at once
+        try {
+            sendSearchRequest(query, null);
+        }
+        catch (IOException | RuntimeException e) {
+            search.fail(e);
+            return search.future;
+        }
+        search.start();
+        return search.future;
+    }
+
     @Override
     protected InvokerResult getSearchResult(Execution execution) throws IOException {
         InvokerResult result = new InvokerResult(query, query.getHits());
-        List<LeanHit> merged = Collections.emptyList();
+        LeanHitMerger merger = new LeanHitMerger();
         long nextTimeout = query.getTimeLeft();
         try {
             while (!invokers.isEmpty() && nextTimeout >= 0) {
@@ -112,7 +152,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                     log.fine(() -> "Search timed out with " + askedNodes + " requests made, " + answeredNodes + " responses received");
                     break;
                 } else {
-                    merged = mergeResult(result.getResult(), invoker.getSearchResult(execution), merged);
+                    mergeResult(result.getResult(), invoker.getSearchResult(execution), merger);
                     ejectInvoker(invoker);
                 }
                 nextTimeout = nextTimeout();
@@ -120,10 +160,16 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         } catch (InterruptedException e) {
             throw new RuntimeException("Interrupted while waiting for search results", e);
         }
+        return completeResult(result, merger);
+    }
 
+    /** Completes the given result after all the responses to include in it are merged */
+    private InvokerResult completeResult(InvokerResult result, LeanHitMerger merger) {
         insertNetworkErrors(result.getResult());
         result.getResult().setCoverage(createCoverage());
         int needed = query.getOffset() + query.getHits();
+        List<LeanHit> merged = merger.merge(needed);
+        learnTopK(merged, needed);
         for (int index = query.getOffset(); (index < merged.size()) && (index < needed); index++) {
             result.getLeanHits().add(merged.get(index));
         }
@@ -131,6 +177,24 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         return result;
     }
 
+    /** Lets the hit estimator learn from the merged hits if all nodes returned complete results */
+    private void learnTopK(List<LeanHit> merged, int needed) {
+        if (nodeKeys == null || merged.size() < needed) return;
+        if (timedOut || degradedByMatchPhase || answeredNodesParticipated != askedNodes || alreadyFailedNodes != null) return;
+        searchCluster.hitEstimator().learn(query.getRanking().getProfile(), nodeKeys, hitsPerNode, merged);
+    }
+
+    private static int[] nodeKeys(Collection<SearchInvoker> invokers) {
+        int[] keys = new int[invokers.size()];
+        int i = 0;
+        for (SearchInvoker invoker : invokers) {
+            Optional<Integer> key = invoker.distributionKey();
+            if (key.isEmpty()) return null;
+            keys[i++] = key.get();
+        }
+        return keys;
+    }
+
     private void insertNetworkErrors(Result result) {
         // Network errors will be reported as errors only when all nodes fail, otherwise they are just traced
         boolean asErrors = answeredNodes == 0;
@@ -161,6 +225,16 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         }
     }
 
+    /**
+     * Returns the number of responses needed to reach the minimum search coverage. After this, the remaining
+     * responses are only waited for until the adaptive timeout, so the monitor of this is notified at this point.
+     */
+    private int sufficientResponses(int nodes) {
+        double minimumCoverage = searchCluster.dispatchConfig().minSearchCoverage();
+        if (minimumCoverage >= 100.0) return nodes;
+        return Math.min(nodes, Math.max(1, (int) Math.ceil(nodes * minimumCoverage / 100.0)));
+    }
+
     private long nextTimeout() {
         DispatchConfig config = searchCluster.dispatchConfig();
         double minimumCoverage = config.minSearchCoverage();
@@ -197,7 +271,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         return nextAdaptive;
     }
 
-    private List<LeanHit> mergeResult(Result result, InvokerResult partialResult, List<LeanHit> current) {
+    private void mergeResult(Result result, InvokerResult partialResult, LeanHitMerger merger) {
         collectCoverage(partialResult.getResult().getCoverage(true));
 
         result.mergeWith(partialResult.getResult());
@@ -207,42 +281,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                 result.hits().add(hit);
             }
         }
-        if (current.isEmpty() ) {
-            return partialResult.getLeanHits();
-        }
-        List<LeanHit> partial = partialResult.getLeanHits();
-        if (partial.isEmpty()) {
-            return current;
-        }
-
-        int needed = query.getOffset() + query.getHits();
-        List<LeanHit> merged = new ArrayList<>(needed);
-        int indexCurrent = 0;
-        int indexPartial = 0;
-        while (indexCurrent < current.size() && indexPartial < partial.size() && merged.size() < needed) {
-            LeanHit incommingHit = partial.get(indexPartial);
-            LeanHit currentHit = current.get(indexCurrent);
-
-            int cmpRes = currentHit.compareTo(incommingHit);
-            if (cmpRes < 0) {
-                merged.add(currentHit);
-                indexCurrent++;
-            } else if (cmpRes > 0) {
-                merged.add(incommingHit);
-                indexPartial++;
-            } else { // Duplicates
-                merged.add(currentHit);
-                indexCurrent++;
-                indexPartial++;
-            }
-        }
-        while ((indexCurrent < current.size()) && (merged.size() < needed)) {
-            merged.add(current.get(indexCurrent++));
-        }
-        while ((indexPartial < partial.size()) && (merged.size() < needed)) {
-            merged.add(partial.get(indexPartial++));
-        }
-        return merged;
+        merger.add(partialResult.getLeanHits());
     }
 
     private void collectCoverage(Coverage source) {
@@ -312,11 +351,132 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         if (availableForProcessing != null) {
             availableForProcessing.add(from);
         }
+        if (pendingResponses.decrementAndGet() == 0) {
+            responseAvailable(); // enough nodes have responded to reach the minimum coverage
+        }
+        AsyncSearch search = asyncSearch;
+        if (search != null)
+            search.responseAdded();
     }
 
-    @Override
-    protected void setMonitor(ResponseMonitor<SearchInvoker> monitor) {
-        // never to be called
+    /**
+     * Merges responses as they arrive, in the same way as getSearchResult, and completes the future result
+     * when no more responses are needed.
+     */
+    private class AsyncSearch {
+
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private final Execution execution;
+        private final LeanHitMerger merger = new LeanHitMerger();
+
+        private InvokerResult result;
+        private ScheduledFuture<?> timeout = null;
+
+        /** Whether all requests are sent, such that responses can be processed */
+        private boolean started = false;
+        private boolean done = false;
+
+        /** Whether processing of the available responses is scheduled and not yet begun */
+        private final AtomicBoolean processingScheduled = new AtomicBoolean(false);
+
+        AsyncSearch(Execution execution) {
+            this.execution = execution;
+        }
+
+        synchronized void start() {
+            if (done) return;
+            started = true;
+            result = new InvokerResult(query, query.getHits());
+            if (invokers.isEmpty())
+                complete();
+            else if ( ! availableForProcessing.isEmpty())
+                responsesAvailable();
+            else
+                timeout = scheduleTimeout(timeouts, this::timeout, query.getTimeLeft());
+        }
+
+        /**
+         * Schedules processing of the available responses in the timeout executor, to avoid decoding
+         * and merging in the network thread delivering the response. Processing which is scheduled
+         * but not yet begun will pick up this response as well, so it is not scheduled again.
+         */
+        void responseAdded() {
+            if (processingScheduled.getAndSet(true)) return;
+            try {
+                timeouts.execute(this::process);
+            }
+            catch (RejectedExecutionException e) { // shut down
+                process();
+            }
+        }
+
+        private void process() {
+            processingScheduled.set(false);
+            responsesAvailable();
+        }
+
+        /** Merges the available responses, then completes, or waits for more responses until the next timeout */
+        synchronized void responsesAvailable() {
+            if ( ! started || done) return;
+            try {
+                boolean merged = false;
+                long nextTimeout = 0;
+                SearchInvoker invoker;
+                while ((invoker = availableForProcessing.poll()) != null) {
+                    mergeResult(result.getResult(), invoker.getSearchResult(execution), merger);
+                    ejectInvoker(invoker);
+                    merged = true;
+                    nextTimeout = nextTimeout();
+                    if (nextTimeout < 0) break;
+                }
+                if ( ! merged) return; // already merged by an earlier call, keep the current timeout
+
+                if (invokers.isEmpty() || nextTimeout < 0) {
+                    complete();
+                }
+                else {
+                    if (timeout != null)
+                        timeout.cancel(false);
+                    timeout = scheduleTimeout(timeouts, this::timeout, nextTimeout);
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private synchronized void timeout() {
+            if (done) return;
+            if ( ! availableForProcessing.isEmpty()) { // arrived as the timeout expired
+                responsesAvailable();
+                return;
+            }
+            log.fine(() -> "Search timed out with " + askedNodes + " requests made, " + answeredNodes + " responses received");
+            complete();
+        }
+
+        private void complete() {
+            done = true;
+            if (timeout != null)
+                timeout.cancel(false);
+            try {
+                InvokerResult completed = completeResult(result, merger);
+                setFinalStatus(completed.getResult().hits().getError() == null);
+                completed.complete();
+                future.complete(completed.getResult());
+            }
+            catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        synchronized void fail(Exception e) {
+            done = true;
+            if (timeout != null)
+                timeout.cancel(false);
+            future.completeExceptionally(e);
+        }
+
     }
 
     // For overriding in tests
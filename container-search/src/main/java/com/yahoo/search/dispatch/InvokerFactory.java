@@ -1,6 +1,7 @@
 // Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch;
 
+import com.yahoo.concurrent.ThreadFactoryFactory;
 import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
@@ -15,6 +16,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 /**
  * @author ollivir
@@ -23,8 +26,21 @@ public abstract class InvokerFactory {
 
     protected final SearchCluster searchCluster;
 
+    /** Runs the timeouts of the asynchronous invocations created by this, and processes asynchronous fill responses */
+    protected final ScheduledExecutorService timeouts;
+
     public InvokerFactory(SearchCluster searchCluster) {
         this.searchCluster = searchCluster;
+        this.timeouts = createTimeoutExecutor();
+    }
+
+    private static ScheduledExecutorService createTimeoutExecutor() {
+        // Threads are not started until the first timeout is scheduled
+        ScheduledThreadPoolExecutor executor =
+                new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors(),
+                                                ThreadFactoryFactory.getDaemonThreadFactory("dispatch-timeout"));
+        executor.setRemoveOnCancelPolicy(true); // Most timeouts are cancelled
+        return executor;
     }
 
     protected abstract Optional<SearchInvoker> createNodeSearchInvoker(VespaBackEndSearcher searcher,
@@ -34,6 +50,14 @@ public abstract class InvokerFactory {
 
     public abstract FillInvoker createFillInvoker(VespaBackEndSearcher searcher, Result result);
 
+    /**
+     * Returns a key which is equal for queries which will produce the same search requests to content nodes,
+     * or empty if search results from this factory cannot be cached.
+     */
+    public Optional<byte[]> searchRequestCacheKey(VespaBackEndSearcher searcher, Query query) {
+        return Optional.empty();
+    }
+
     /**
      * Create a {@link SearchInvoker} for a list of content nodes.
      *
@@ -90,7 +114,7 @@ public abstract class InvokerFactory {
         if (invokers.size() == 1 && failed == null) {
             return Optional.of(invokers.get(0));
         } else {
-            return Optional.of(new InterleavedSearchInvoker(invokers, searchCluster, failed));
+            return Optional.of(new InterleavedSearchInvoker(invokers, searchCluster, failed, timeouts));
         }
     }
 
@@ -111,6 +135,9 @@ public abstract class InvokerFactory {
         return new SearchErrorInvoker(ErrorMessage.createBackendCommunicationError(down.toString()), coverage);
     }
 
-    public void release() {}
+    /** Releases the resources of this. Timeouts which are already scheduled will still run. */
+    public void release() {
+        timeouts.shutdown();
+    }
 
 }
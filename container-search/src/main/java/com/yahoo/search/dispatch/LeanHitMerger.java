@@ -0,0 +1,82 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges the sorted lean hit lists returned from a set of content nodes.
+ * Partial lists are only collected as they arrive, and a single k-way merge over per-node
+ * cursors is done when all the lists are in, so that no intermediate merged lists are built.
+ * Hits which compare as equal (duplicates) are only included once, and among those the
+ * hit from the list added first is kept.
+ *
+ * This is not thread safe.
+ */
+class LeanHitMerger {
+
+    private final List<List<LeanHit>> partials = new ArrayList<>();
+    private int totalHits = 0;
+
+    /** Adds a sorted list of hits from a single node */
+    void add(List<LeanHit> hits) {
+        if (hits.isEmpty()) return;
+        partials.add(hits);
+        totalHits += hits.size();
+    }
+
+    /** Returns the merged list of the first (at most) needed hits of all the lists added so far */
+    List<LeanHit> merge(int needed) {
+        if (partials.isEmpty() || needed <= 0) return Collections.emptyList();
+        if (partials.size() == 1) {
+            List<LeanHit> single = partials.get(0);
+            return (single.size() <= needed) ? single : single.subList(0, needed);
+        }
+
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(partials.size());
+        for (int i = 0; i < partials.size(); i++)
+            heap.add(new Cursor(partials.get(i), i));
+
+        List<LeanHit> merged = new ArrayList<>(Math.min(needed, totalHits));
+        LeanHit last = null;
+        while ( ! heap.isEmpty() && merged.size() < needed) {
+            Cursor cursor = heap.poll();
+            LeanHit hit = cursor.current();
+            if (last == null || last.compareTo(hit) != 0) {
+                merged.add(hit);
+                last = hit;
+            }
+            if (cursor.advance())
+                heap.add(cursor);
+        }
+        return merged;
+    }
+
+    /** A position in the hit list of one node */
+    private static class Cursor implements Comparable<Cursor> {
+
+        private final List<LeanHit> hits;
+        private final int order;
+        private int index = 0;
+
+        Cursor(List<LeanHit> hits, int order) {
+            this.hits = hits;
+            this.order = order;
+        }
+
+        LeanHit current() { return hits.get(index); }
+
+        /** Moves to the next hit and returns whether there is one */
+        boolean advance() { return ++index < hits.size(); }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int result = current().compareTo(other.current());
+            return (result != 0) ? result : Integer.compare(order, other.order);
+        }
+
+    }
+
+}
@@ -3,10 +3,12 @@ package com.yahoo.search.dispatch;
 
 import com.yahoo.search.dispatch.searchcluster.Group;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.vespa.config.search.DispatchConfig;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Random;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -26,17 +28,33 @@ public class LoadBalancer {
     private static final long MIN_LATENCY_DECAY_RATE = 42;
     private static final double INITIAL_QUERY_TIME = 0.001;
     private static final double MIN_QUERY_TIME = 0.001;
+    private static final double TAIL_LATENCY_PERCENTILE = 0.95;
+    private static final double LATENCY_PERCENTILE_LEARNING_RATE = 0.05;
+    private static final long MIN_QUERIES_BEFORE_HEDGING = 100;
 
     private final List<GroupStatus> scoreboard;
     private final GroupScheduler scheduler;
 
-    public LoadBalancer(SearchCluster searchCluster, boolean roundRobin) {
+    public LoadBalancer(SearchCluster searchCluster, DispatchConfig.DistributionPolicy.Enum policy) {
+        this(searchCluster, policy, 0);
+    }
+
+    /**
+     * Creates a load balancer
+     *
+     * @param policy the policy used to select groups
+     * @param hedgingPercentile the percentile of the observed search times of a group after which queries to that
+     *                          group should be hedged to another group (see {@link #hedgeDelay}), or 0 to disable hedging
+     */
+    public LoadBalancer(SearchCluster searchCluster, DispatchConfig.DistributionPolicy.Enum policy, double hedgingPercentile) {
         this.scoreboard = new ArrayList<>(searchCluster.groups().size());
         for (Group group : searchCluster.orderedGroups()) {
-            scoreboard.add(new GroupStatus(group));
+            scoreboard.add(new GroupStatus(group, hedgingPercentile));
         }
-        if (roundRobin || scoreboard.size() == 1) {
+        if (policy == DispatchConfig.DistributionPolicy.ROUNDROBIN || scoreboard.size() == 1) {
             this.scheduler = new RoundRobinScheduler(scoreboard);
+        } else if (policy == DispatchConfig.DistributionPolicy.LATENCY_AWARE) {
+            this.scheduler = new LatencyAwareScheduler(new Random(), scoreboard);
         } else {
             this.scheduler = new AdaptiveScheduler(new Random(), scoreboard);
         }
@@ -73,24 +91,60 @@ public class LoadBalancer {
      * @param searchTimeMs query execution time in milliseconds, used for adaptive load balancing
      */
     public void releaseGroup(Group group, boolean success, double searchTimeMs) {
+        releaseGroup(group, success, false, searchTimeMs);
+    }
+
+    /**
+     * Release an allocation given by {@link #takeGroup}. The release must be done exactly once for each allocation.
+     *
+     * @param group previously allocated group
+     * @param success was the query successful
+     * @param abandoned whether the query was abandoned before completing, as another group responded first,
+     *                  such that the search time is only a lower bound on the time it would have taken
+     * @param searchTimeMs query execution time in milliseconds, used for adaptive load balancing
+     */
+    public void releaseGroup(Group group, boolean success, boolean abandoned, double searchTimeMs) {
         synchronized (this) {
             for (GroupStatus sched : scoreboard) {
                 if (sched.group.id() == group.id()) {
-                    sched.release(success, (double) searchTimeMs / 1000.0);
+                    sched.release(success, abandoned, (double) searchTimeMs / 1000.0);
                     break;
                 }
             }
         }
     }
 
+    /**
+     * Returns the time to wait for a response from the given group before the query should also be sent
+     * to another group, or empty if queries to this group should not be hedged.
+     */
+    public OptionalLong hedgeDelay(Group group) {
+        synchronized (this) {
+            if (scoreboard.size() < 2) return OptionalLong.empty();
+            for (GroupStatus sched : scoreboard) {
+                if (sched.group.id() == group.id()) {
+                    return sched.hedgeDelay();
+                }
+            }
+            return OptionalLong.empty();
+        }
+    }
+
     static class GroupStatus {
         private final Group group;
         private int allocations = 0;
         private long queries = 0;
         private double averageSearchTime = INITIAL_QUERY_TIME;
+        private final SearchTimePercentile tailSearchTime = new SearchTimePercentile(TAIL_LATENCY_PERCENTILE);
+        private final SearchTimePercentile hedgingSearchTime;
 
         GroupStatus(Group group) {
+            this(group, 0);
+        }
+
+        GroupStatus(Group group, double hedgingPercentile) {
             this.group = group;
+            this.hedgingSearchTime = hedgingPercentile > 0 ? new SearchTimePercentile(hedgingPercentile) : null;
         }
 
         void allocate() {
@@ -98,23 +152,64 @@ public class LoadBalancer {
         }
 
         void release(boolean success, double searchTime) {
+            release(success, false, searchTime);
+        }
+
+        void release(boolean success, boolean abandoned, double searchTime) {
             allocations--;
             if (allocations < 0) {
                 log.warning("Double free of query target group detected");
                 allocations = 0;
             }
-            if (success) {
+            if (abandoned) {
+                // Only known to be at least this slow: Still recorded, as leaving out the slowest queries to
+                // this group would make it look faster than it is, and make it be hedged ever sooner
+                searchTime = Math.max(searchTime, MIN_QUERY_TIME);
+                if (searchTime > averageSearchTime)
+                    updateAverageSearchTime(searchTime);
+                tailSearchTime.updateWithLowerBound(searchTime);
+                if (hedgingSearchTime != null) {
+                    hedgingSearchTime.updateWithLowerBound(searchTime);
+                }
+                queries++;
+            }
+            else if (success) {
                 searchTime = Math.max(searchTime, MIN_QUERY_TIME);
-                double decayRate = Math.min(queries + MIN_LATENCY_DECAY_RATE, DEFAULT_LATENCY_DECAY_RATE);
-                averageSearchTime = (searchTime + (decayRate - 1) * averageSearchTime) / decayRate;
+                updateAverageSearchTime(searchTime);
+                tailSearchTime.update(searchTime);
+                if (hedgingSearchTime != null) {
+                    hedgingSearchTime.update(searchTime);
+                }
                 queries++;
             }
         }
 
+        private void updateAverageSearchTime(double searchTime) {
+            double decayRate = Math.min(queries + MIN_LATENCY_DECAY_RATE, DEFAULT_LATENCY_DECAY_RATE);
+            averageSearchTime = (searchTime + (decayRate - 1) * averageSearchTime) / decayRate;
+        }
+
         double averageSearchTime() {
             return averageSearchTime;
         }
 
+        /** Returns the current estimate of the 95th percentile search time of this group, in seconds */
+        double tailSearchTime() {
+            return tailSearchTime.get();
+        }
+
+        OptionalLong hedgeDelay() {
+            if (hedgingSearchTime == null || queries < MIN_QUERIES_BEFORE_HEDGING) {
+                return OptionalLong.empty();
+            }
+            return OptionalLong.of((long) Math.ceil(hedgingSearchTime.get() * 1000));
+        }
+
+        /** Returns the number of queries currently in flight to this group */
+        int allocations() {
+            return allocations;
+        }
+
         double averageSearchTimeInverse() {
             return 1.0 / averageSearchTime;
         }
@@ -127,9 +222,54 @@ public class LoadBalancer {
             this.queries = queries;
             this.averageSearchTime = averageSearchTime;
         }
+
+        void setTailSearchTime(double tailSearchTime) {
+            this.tailSearchTime.set(tailSearchTime);
+        }
     }
 
-    private interface GroupScheduler {
+    /**
+     * Tracks an estimate of a percentile of search times in constant space. On each observation the estimate
+     * is moved up or down by a step proportional to the current estimate, with step sizes weighted such that the
+     * estimate settles where the given fraction of the observed search times are below it. This reacts faster
+     * to a group slowing down than the average search time does.
+     */
+    static class SearchTimePercentile {
+
+        private final double percentile;
+        private double estimate = INITIAL_QUERY_TIME;
+
+        SearchTimePercentile(double percentile) {
+            if (percentile <= 0 || percentile >= 1)
+                throw new IllegalArgumentException("Percentile must be in <0, 1>, but was " + percentile);
+            this.percentile = percentile;
+        }
+
+        void update(double searchTime) {
+            double step = LATENCY_PERCENTILE_LEARNING_RATE * estimate;
+            if (searchTime > estimate)
+                estimate += step * percentile;
+            else
+                estimate = Math.max(MIN_QUERY_TIME, estimate - step * (1 - percentile));
+        }
+
+        /**
+         * Updates with a search time which is only known to be at least the given time. That is above the estimate
+         * if the given time is, but otherwise it may be on either side, so then it is ignored.
+         */
+        void updateWithLowerBound(double minSearchTime) {
+            if (minSearchTime >= estimate)
+                update(Double.POSITIVE_INFINITY);
+        }
+
+        /** Returns the current estimate in seconds */
+        double get() { return estimate; }
+
+        void set(double estimate) { this.estimate = estimate; }
+
+    }
+
+    interface GroupScheduler {
         Optional<GroupStatus> takeNextGroup(Set<Integer> rejectedGroups);
     }
 
@@ -254,4 +394,65 @@ public class LoadBalancer {
         }
     }
 
+    /**
+     * Selects groups by "power of two choices": Two distinct groups are sampled at random and the one with the
+     * lowest expected latency is used, where expected latency is the tail latency estimate of the group scaled by
+     * the number of queries already in flight to it. This reacts to a group getting slow or backed up
+     * (e.g due to reindexing or a merge) before the averages move, while the random sampling avoids sending
+     * all traffic to the momentarily best group.
+     */
+    static class LatencyAwareScheduler implements GroupScheduler {
+
+        private final Random random;
+        private final List<GroupStatus> scoreboard;
+        private final List<GroupStatus> candidates;
+
+        public LatencyAwareScheduler(Random random, List<GroupStatus> scoreboard) {
+            this.random = random;
+            this.scoreboard = scoreboard;
+            this.candidates = new ArrayList<>(scoreboard.size());
+        }
+
+        private Optional<GroupStatus> selectGroup(boolean requireCoverage, Set<Integer> rejected) {
+            candidates.clear();
+            for (GroupStatus gs : scoreboard) {
+                if (rejected == null || !rejected.contains(gs.group.id())) {
+                    if (!requireCoverage || gs.group.hasSufficientCoverage()) {
+                        candidates.add(gs);
+                    }
+                }
+            }
+            if (candidates.isEmpty()) {
+                return Optional.empty();
+            }
+            if (candidates.size() == 1) {
+                return Optional.of(candidates.get(0));
+            }
+            int first = random.nextInt(candidates.size());
+            int second = random.nextInt(candidates.size() - 1);
+            if (second >= first) {
+                second++;
+            }
+            return Optional.of(better(candidates.get(first), candidates.get(second)));
+        }
+
+        private static GroupStatus better(GroupStatus first, GroupStatus second) {
+            return expectedLatency(second) < expectedLatency(first) ? second : first;
+        }
+
+        static double expectedLatency(GroupStatus gs) {
+            return gs.tailSearchTime() * (1 + gs.allocations());
+        }
+
+        @Override
+        public Optional<GroupStatus> takeNextGroup(Set<Integer> rejectedGroups) {
+            Optional<GroupStatus> gs = selectGroup(true, rejectedGroups);
+            if (gs.isPresent()) {
+                return gs;
+            }
+            // fallback - any coverage better than none
+            return selectGroup(false, rejectedGroups);
+        }
+    }
+
 }
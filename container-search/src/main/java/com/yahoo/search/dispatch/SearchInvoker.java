@@ -10,6 +10,7 @@ import com.yahoo.search.searchchain.Execution;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * SearchInvoker encapsulates an allocated connection for running a single search query.
@@ -39,6 +40,19 @@ public abstract class SearchInvoker extends CloseableInvoker {
         return result.getResult();
     }
 
+    /**
+     * Retrieves the hits for the given {@link Query}, returning a future which completes with them.
+     * This default implementation blocks by calling {@link #search}, and returns a completed future.
+     */
+    public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+        try {
+            return CompletableFuture.completedFuture(search(query, execution));
+        }
+        catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      *
      * @param query the query to send
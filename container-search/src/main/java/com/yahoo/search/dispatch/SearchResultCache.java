@@ -0,0 +1,182 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Coverage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of search results from a content cluster, keyed on the serialized search request.
+ * Entries expire after a time to live, and all current entries can be invalidated at once by
+ * bumping the generation of the cache, which the dispatcher does whenever the state of the nodes or groups of the
+ * search cluster, or their active documents, change. Only complete (full coverage, no errors) results without
+ * any hits other than the regular document hits are cached.
+ *
+ * This class is multithread safe.
+ */
+public class SearchResultCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Map<Key, Entry> entries;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public SearchResultCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, Clock.systemUTC());
+    }
+
+    SearchResultCache(int maxEntries, Duration ttl, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SearchResultCache.Entry> eldest) {
+                if (size() <= SearchResultCache.this.maxEntries) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /** Returns the cached result for the given serialized request, or empty if it is not cached or no longer valid */
+    public Optional<Entry> get(byte[] request) {
+        Key key = new Key(request);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && ! isValid(entry)) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        (entry == null ? misses : hits).incrementAndGet();
+        return Optional.ofNullable(entry);
+    }
+
+    /**
+     * Caches the given result of the given serialized request if it is cacheable.
+     *
+     * @param request the serialized request
+     * @param result the result, before its lean hits are completed into the result
+     * @param queryOffset the offset of the query after the search, which depends on whether the search
+     *                    has applied the offset to the lean hits
+     */
+    public void put(byte[] request, InvokerResult result, int queryOffset) {
+        if ( ! isCacheable(result.getResult())) return;
+
+        Entry entry = new Entry(result, queryOffset, clock.millis(), generation.get());
+        synchronized (entries) {
+            entries.put(new Key(request), entry);
+        }
+    }
+
+    /** Invalidates all the currently cached results */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    public long hits() { return hits.get(); }
+    public long misses() { return misses.get(); }
+    public long evictions() { return evictions.get(); }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private boolean isValid(Entry entry) {
+        return entry.generation == generation.get() && clock.millis() - entry.createdAt < ttlMillis;
+    }
+
+    private static boolean isCacheable(Result result) {
+        Coverage coverage = result.getCoverage(false);
+        return result.hits().getErrorHit() == null
+               && result.hits().size() == 0
+               && coverage != null && coverage.getFull() && ! coverage.isDegraded();
+    }
+
+    /** An immutable cached search result */
+    public static class Entry {
+
+        private final List<LeanHit> leanHits;
+        private final long totalHitCount;
+        private final long docs;
+        private final long active;
+        private final long soonActive;
+        private final int nodes;
+        private final int nodesTried;
+        private final int resultSets;
+        private final int queryOffset;
+        private final long createdAt;
+        private final long generation;
+
+        private Entry(InvokerResult result, int queryOffset, long createdAt, long generation) {
+            Coverage coverage = result.getResult().getCoverage(false);
+            this.leanHits = List.copyOf(result.getLeanHits());
+            this.totalHitCount = result.getResult().getTotalHitCount();
+            this.docs = coverage.getDocs();
+            this.active = coverage.getActive();
+            this.soonActive = coverage.getSoonActive();
+            this.nodes = coverage.getNodes();
+            this.nodesTried = coverage.getNodesTried();
+            this.resultSets = coverage.getResultSets();
+            this.queryOffset = queryOffset;
+            this.createdAt = createdAt;
+            this.generation = generation;
+        }
+
+        /** Returns a new invoker result for the given query containing the cached data */
+        InvokerResult toResult(Query query) {
+            InvokerResult result = new InvokerResult(query, leanHits.size());
+            result.getResult().setTotalHitCount(totalHitCount);
+            Coverage coverage = new Coverage(docs, active, nodes, resultSets);
+            coverage.setNodesTried(nodesTried);
+            coverage.setSoonActive(soonActive);
+            result.getResult().setCoverage(coverage);
+            result.getLeanHits().addAll(leanHits);
+            query.setOffset(queryOffset);
+            return result;
+        }
+
+    }
+
+    private static class Key {
+
+        private final byte[] request;
+        private final int hashCode;
+
+        Key(byte[] request) {
+            this.request = request;
+            this.hashCode = Arrays.hashCode(request);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key)) return false;
+            Key other = (Key)o;
+            return hashCode == other.hashCode && Arrays.equals(request, other.request);
+        }
+
+    }
+
+}
@@ -3,16 +3,39 @@ package com.yahoo.search.dispatch;
 
 import org.apache.commons.math3.distribution.TDistribution;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Use StudentT distribution and estimate how many hits you need from each partition
- * to to get the globally top-k documents with the desired probability
+ * to to get the globally top-k documents with the desired probability.
+ *
+ * If adaptive, this also learns how large a share of the merged top-k hits each node actually contributes,
+ * per rank profile, and uses the largest share instead of the static skew factor once enough
+ * queries are observed.
+ *
  * @author baldersheim
  */
 public class TopKEstimator {
+
+    /**
+     * The weight of a single observation in the moving average of the share of each node.
+     * This must be low for the noise in the average to be small compared to the static skew factor,
+     * as the largest of the noisy averages is used.
+     */
+    static final double learningRate = 0.001;
+
+    /** The number of observations needed for a rank profile before the learned skew is used */
+    static final int minObservations = 1000;
+
     private final TDistribution studentT;
     private final double defaultP;
     private final boolean estimate;
     private final double skewFactor;
+    private final boolean adaptive;
+    private final Map<String, LearnedSkew> learnedSkews = new ConcurrentHashMap<>();
 
     private static boolean needEstimate(double p) {
         return (0.0 < p) && (p < 1.0);
@@ -21,13 +44,19 @@ public class TopKEstimator {
         this(freedom, defaultProbability, 0.0);
     }
     public TopKEstimator(double freedom, double defaultProbability, double skewFactor) {
+        this(freedom, defaultProbability, skewFactor, false);
+    }
+    public TopKEstimator(double freedom, double defaultProbability, double skewFactor, boolean adaptive) {
         this.studentT = new TDistribution(null, freedom);
         defaultP = defaultProbability;
         estimate = needEstimate(defaultP);
         this.skewFactor = skewFactor;
+        this.adaptive = adaptive;
     }
     double estimateExactK(double k, double n, double p) {
-        double p_max = (1 + skewFactor)/n;
+        return estimateExactK(k, n, p, (1 + skewFactor)/n);
+    }
+    private double estimateExactK(double k, double n, double p, double p_max) {
         n = Math.max(1, 1/p_max);
         double variance = k * 1/n * (1 - 1/n);
         double p_inverse = 1 - (1 - p)/n;
@@ -46,4 +75,74 @@ public class TopKEstimator {
                 ? Math.min(k, (int)Math.ceil(estimateExactK(k, n, p)))
                 : k;
     }
+
+    /** Estimates using the skew learned for the given rank profile if this is adaptive and it is known */
+    public int estimateK(int k, int n, String rankProfile) {
+        return estimateK(k, n, defaultP, rankProfile);
+    }
+
+    /** Estimates using the skew learned for the given rank profile if this is adaptive and it is known */
+    public int estimateK(int k, int n, double p, String rankProfile) {
+        if ( ! needEstimate(p) || n <= 1) return k;
+        double maxShare = maxShare(rankProfile);
+        if (maxShare <= 0) return estimateK(k, n, p);
+        return Math.min(k, (int)Math.ceil(estimateExactK(k, n, p, Math.max(1.0/n, maxShare))));
+    }
+
+    /** Returns the learned largest share of the top-k hits of any node for this rank profile, or 0 if not known */
+    double maxShare(String rankProfile) {
+        if ( ! adaptive) return 0;
+        LearnedSkew skew = learnedSkews.get(rankProfile);
+        return (skew == null) ? 0 : skew.maxShare();
+    }
+
+    /**
+     * Learns from the merged top-k hits of a query which was answered by all the given nodes.
+     * If some node had all its hits in the merged top-k, its real share may have been larger than observed,
+     * so everything learned for the rank profile is forgotten, such that the static skew is used until
+     * enough new observations are made.
+     *
+     * @param rankProfile the rank profile of the query
+     * @param nodeKeys the distribution keys of the nodes the query was sent to
+     * @param hitsPerNode the number of hits each node was asked for
+     * @param topK the merged top-k hits
+     */
+    public void learn(String rankProfile, int[] nodeKeys, int hitsPerNode, List<LeanHit> topK) {
+        if ( ! adaptive || nodeKeys.length <= 1 || topK.isEmpty()) return;
+
+        Map<Integer, Integer> contributions = new HashMap<>();
+        for (LeanHit hit : topK)
+            contributions.merge(hit.getDistributionKey(), 1, Integer::sum);
+        if (hitsPerNode < topK.size() && contributions.values().stream().anyMatch(count -> count >= hitsPerNode)) {
+            learnedSkews.remove(rankProfile);
+            return;
+        }
+        learnedSkews.computeIfAbsent(rankProfile, __ -> new LearnedSkew()).update(nodeKeys, contributions, topK.size());
+    }
+
+    /** The moving average of the share of the top-k hits contributed by each node */
+    private static class LearnedSkew {
+
+        private final Map<Integer, Double> shares = new HashMap<>();
+        private long observations = 0;
+        private volatile double maxShare = 0;
+
+        synchronized void update(int[] nodeKeys, Map<Integer, Integer> contributions, int k) {
+            double max = 0;
+            for (int nodeKey : nodeKeys) {
+                double observed = (double)contributions.getOrDefault(nodeKey, 0) / k;
+                double share = shares.getOrDefault(nodeKey, 1.0 / nodeKeys.length);
+                share += learningRate * (observed - share);
+                shares.put(nodeKey, share);
+                max = Math.max(max, share);
+            }
+            if (++observations >= minObservations)
+                maxShare = max;
+        }
+
+        /** Returns the largest share of any node, or 0 if there are not enough observations yet */
+        double maxShare() { return maxShare; }
+
+    }
+
 }
@@ -5,7 +5,8 @@ import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol;
 import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol.StringProperty;
 import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol.TensorProperty;
 import com.google.protobuf.ByteString;
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
 import com.yahoo.data.access.simple.Value;
 import com.yahoo.data.access.slime.SlimeAdapter;
 import com.yahoo.fs4.GetDocSumsPacket;
@@ -29,6 +30,7 @@ import com.yahoo.searchlib.aggregation.Grouping;
 import com.yahoo.slime.BinaryFormat;
 import com.yahoo.vespa.objects.BufferSerializer;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
@@ -38,10 +40,36 @@ public class ProtobufSerialization {
 
     private static final int INITIAL_SERIALIZATION_BUFFER_SIZE = 10 * 1024;
 
+    // Tags (field number and wire type) of the SearchReply and Hit fields in search_protocol.proto
+    private static final int REPLY_TOTAL_HIT_COUNT = 1 << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int REPLY_COVERAGE_DOCS = 2 << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int REPLY_ACTIVE_DOCS = 3 << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int REPLY_SOON_ACTIVE_DOCS = 4 << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int REPLY_DEGRADED_BY_MATCH_PHASE = 5 << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int REPLY_DEGRADED_BY_SOFT_TIMEOUT = 6 << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int REPLY_HITS = 7 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int REPLY_GROUPING_BLOB = 8 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int REPLY_SLIME_TRACE = 9 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int HIT_GLOBAL_ID = 1 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int HIT_RELEVANCE = 2 << 3 | WireFormat.WIRETYPE_FIXED64;
+    private static final int HIT_SORT_DATA = 3 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
     static byte[] serializeSearchRequest(Query query, int hits, String serverId) {
         return convertFromQuery(query, hits, serverId).toByteArray();
     }
 
+    /**
+     * Returns the serialized form of a search request for this query which does not depend on the time it is sent,
+     * such that identical queries have identical keys.
+     */
+    static byte[] serializeSearchRequestCacheKey(Query query, String serverId) {
+        return convertFromQuery(query, query.getHits(), serverId).toBuilder()
+                .clearTimeout()
+                .clearSessionKey()
+                .build()
+                .toByteArray();
+    }
+
     private static SearchProtocol.SearchRequest convertFromQuery(Query query, int hits, String serverId) {
         var builder = SearchProtocol.SearchRequest.newBuilder().setHits(hits).setOffset(query.getOffset())
                 .setTimeout((int) query.getTimeLeft());
@@ -183,58 +211,134 @@ public class ProtobufSerialization {
     }
 
     static InvokerResult deserializeToSearchResult(byte[] payload, Query query, VespaBackEndSearcher searcher, int partId, int distKey)
-            throws InvalidProtocolBufferException {
-        var protobuf = SearchProtocol.SearchReply.parseFrom(payload);
-        return convertToResult(query, protobuf, searcher.getDocumentDatabase(query), partId, distKey);
+            throws IOException {
+        return deserializeToSearchResult(payload, payload.length, query, searcher, partId, distKey);
     }
 
-    static InvokerResult convertToResult(Query query, SearchProtocol.SearchReply protobuf,
-                                                 DocumentDatabase documentDatabase, int partId, int distKey)
-    {
-        InvokerResult result = new InvokerResult(query, protobuf.getHitsCount());
-
-        result.getResult().setTotalHitCount(protobuf.getTotalHitCount());
-        result.getResult().setCoverage(convertToCoverage(protobuf));
-
-        var haveGrouping = protobuf.getGroupingBlob() != null && !protobuf.getGroupingBlob().isEmpty();
-        if (haveGrouping) {
-            BufferSerializer buf = new BufferSerializer(new GrowableByteBuffer(protobuf.getGroupingBlob().asReadOnlyByteBuffer()));
-            int cnt = buf.getInt(null);
-            ArrayList<Grouping> list = new ArrayList<>(cnt);
-            for (int i = 0; i < cnt; i++) {
-                Grouping g = new Grouping();
-                g.deserialize(buf);
-                list.add(g);
+    static InvokerResult deserializeToSearchResult(byte[] payload, int length, Query query, VespaBackEndSearcher searcher,
+                                                   int partId, int distKey) throws IOException {
+        return decodeSearchReply(payload, length, query, searcher.getDocumentDatabase(query), partId, distKey);
+    }
+
+    /**
+     * Decodes a serialized SearchReply directly into a result, without creating the intermediate protobuf
+     * message and hit objects. Blobs are read as views into the given payload where possible.
+     *
+     * @param payload the buffer containing the serialized reply
+     * @param length the length of the serialized reply in the buffer, which may be larger
+     */
+    static InvokerResult decodeSearchReply(byte[] payload, int length, Query query,
+                                           DocumentDatabase documentDatabase, int partId, int distKey) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(payload, 0, length);
+        in.enableAliasing(true);
+        InvokerResult result = new InvokerResult(query, query.getHits());
+        long coverageDocs = 0;
+        long activeDocs = 0;
+        long soonActiveDocs = 0;
+        boolean degradedByMatchPhase = false;
+        boolean degradedBySoftTimeout = false;
+        boolean done = false;
+        while ( ! done) {
+            int tag = in.readTag();
+            switch (tag) {
+                case 0:
+                    done = true;
+                    break;
+                case REPLY_TOTAL_HIT_COUNT:
+                    result.getResult().setTotalHitCount(in.readInt64());
+                    break;
+                case REPLY_COVERAGE_DOCS:
+                    coverageDocs = in.readInt64();
+                    break;
+                case REPLY_ACTIVE_DOCS:
+                    activeDocs = in.readInt64();
+                    break;
+                case REPLY_SOON_ACTIVE_DOCS:
+                    soonActiveDocs = in.readInt64();
+                    break;
+                case REPLY_DEGRADED_BY_MATCH_PHASE:
+                    degradedByMatchPhase = in.readBool();
+                    break;
+                case REPLY_DEGRADED_BY_SOFT_TIMEOUT:
+                    degradedBySoftTimeout = in.readBool();
+                    break;
+                case REPLY_HITS:
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    result.getLeanHits().add(decodeHit(in, partId, distKey));
+                    in.popLimit(limit);
+                    break;
+                case REPLY_GROUPING_BLOB:
+                    ByteBuffer grouping = in.readByteBuffer();
+                    if (grouping.hasRemaining())
+                        result.getResult().hits().add(toGroupingListHit(grouping, query, documentDatabase));
+                    break;
+                case REPLY_SLIME_TRACE:
+                    byte[] trace = in.readByteArray();
+                    if (trace.length > 0)
+                        addTrace(trace, query);
+                    break;
+                default:
+                    done = ! in.skipField(tag);
             }
-            GroupingListHit hit = new GroupingListHit(list, documentDatabase.getDocsumDefinitionSet());
-            hit.setQuery(query);
-            result.getResult().hits().add(hit);
         }
+        result.getResult().setCoverage(toCoverage(coverageDocs, activeDocs, soonActiveDocs, degradedByMatchPhase, degradedBySoftTimeout));
+        return result;
+    }
 
-        for (var replyHit : protobuf.getHitsList()) {
-            LeanHit hit = (replyHit.getSortData().isEmpty())
-                    ? new LeanHit(replyHit.getGlobalId().toByteArray(), partId, distKey, replyHit.getRelevance())
-                    : new LeanHit(replyHit.getGlobalId().toByteArray(), partId, distKey, replyHit.getRelevance(), replyHit.getSortData().toByteArray());
-            result.getLeanHits().add(hit);
+    private static LeanHit decodeHit(CodedInputStream in, int partId, int distKey) throws IOException {
+        byte[] gid = null;
+        double relevance = 0.0;
+        byte[] sortData = null;
+        while ( ! in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (tag) {
+                case HIT_GLOBAL_ID:
+                    gid = in.readByteArray();
+                    break;
+                case HIT_RELEVANCE:
+                    relevance = in.readDouble();
+                    break;
+                case HIT_SORT_DATA:
+                    sortData = in.readByteArray();
+                    if (sortData.length == 0)
+                        sortData = null;
+                    break;
+                default:
+                    in.skipField(tag);
+            }
         }
+        return new LeanHit(gid != null ? gid : new byte[0], partId, distKey, relevance, sortData);
+    }
 
-        var slimeTrace = protobuf.getSlimeTrace();
-        if (slimeTrace != null && !slimeTrace.isEmpty()) {
-            var traces = new Value.ArrayValue();
-            traces.add(new SlimeAdapter(BinaryFormat.decode(slimeTrace.toByteArray()).get()));
-            query.trace(traces, query.getTraceLevel());
+    private static GroupingListHit toGroupingListHit(ByteBuffer groupingBlob, Query query, DocumentDatabase documentDatabase) {
+        BufferSerializer buf = new BufferSerializer(new GrowableByteBuffer(groupingBlob));
+        int cnt = buf.getInt(null);
+        ArrayList<Grouping> list = new ArrayList<>(cnt);
+        for (int i = 0; i < cnt; i++) {
+            Grouping g = new Grouping();
+            g.deserialize(buf);
+            list.add(g);
         }
-        return result;
+        GroupingListHit hit = new GroupingListHit(list, documentDatabase.getDocsumDefinitionSet());
+        hit.setQuery(query);
+        return hit;
+    }
+
+    private static void addTrace(byte[] slimeTrace, Query query) {
+        var traces = new Value.ArrayValue();
+        traces.add(new SlimeAdapter(BinaryFormat.decode(slimeTrace).get()));
+        query.trace(traces, query.getTraceLevel());
     }
 
-    private static Coverage convertToCoverage(SearchProtocol.SearchReply protobuf) {
-        var coverage = new Coverage(protobuf.getCoverageDocs(), protobuf.getActiveDocs(), 1);
-        coverage.setNodesTried(1).setSoonActive(protobuf.getSoonActiveDocs());
+    private static Coverage toCoverage(long coverageDocs, long activeDocs, long soonActiveDocs,
+                                       boolean degradedByMatchPhase, boolean degradedBySoftTimeout) {
+        var coverage = new Coverage(coverageDocs, activeDocs, 1);
+        coverage.setNodesTried(1).setSoonActive(soonActiveDocs);
 
         int degradedReason = 0;
-        if (protobuf.getDegradedByMatchPhase())
+        if (degradedByMatchPhase)
             degradedReason |= Coverage.DEGRADED_BY_MATCH_PHASE;
-        if (protobuf.getDegradedBySoftTimeout())
+        if (degradedBySoftTimeout)
             degradedReason |= Coverage.DEGRADED_BY_TIMEOUT;
         coverage.setDegradedReason(degradedReason);
 
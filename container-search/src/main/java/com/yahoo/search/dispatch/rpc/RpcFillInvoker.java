@@ -4,6 +4,7 @@ package com.yahoo.search.dispatch.rpc;
 import com.yahoo.collections.ListMap;
 import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
+import com.yahoo.compress.Compressor.Decompression;
 import com.yahoo.container.protect.Error;
 import com.yahoo.data.access.Inspector;
 import com.yahoo.data.access.slime.SlimeAdapter;
@@ -23,6 +24,7 @@ import com.yahoo.slime.BinaryFormat;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Slime;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -215,8 +217,10 @@ public class RpcFillInvoker extends FillInvoker {
             else {
                 Client.GetDocsumsResponse response = responseOrError.response().get();
                 CompressionType compression = CompressionType.valueOf(response.compression());
-                byte[] slimeBytes = compressor.decompress(response.compressedSlimeBytes(), compression, response.uncompressedSize());
-                return fill(response.hitsContext(), summaryClass, documentDb, slimeBytes);
+                try (Decompression slimeBytes = compressor.decompressToPooledBuffer(response.compressedSlimeBytes(), compression,
+                                                                                     response.uncompressedSize())) {
+                    return fill(response.hitsContext(), summaryClass, documentDb, slimeBytes.data(), slimeBytes.size());
+                }
             }
             return 0;
         }
@@ -231,8 +235,9 @@ public class RpcFillInvoker extends FillInvoker {
             });
         }
 
-        private int fill(List<FastHit> hits, String summaryClass, DocumentDatabase documentDb, byte[] slimeBytes) {
-            com.yahoo.slime.Inspector root = BinaryFormat.decode(slimeBytes).get();
+        private int fill(List<FastHit> hits, String summaryClass, DocumentDatabase documentDb, byte[] slimeBytes, int length) {
+            // The summaries are only decoded as they are accessed, so they need their own copy of the pooled buffer
+            com.yahoo.slime.Inspector root = BinaryFormat.view(Arrays.copyOf(slimeBytes, length), 0, length);
             com.yahoo.slime.Inspector errors = root.field("errors");
             boolean hasErrors = errors.valid() && (errors.entries() > 0);
             if (hasErrors) {
@@ -23,6 +23,9 @@ public class RpcInvokerFactory extends InvokerFactory {
     /** Unless turned off this will fill summaries by dispatching directly to search nodes over RPC when possible */
     private final static CompoundName dispatchSummaries = new CompoundName("dispatch.summaries");
 
+    /** If turned on, summary responses are decoded by the threads receiving them, in parallel across nodes */
+    private final static CompoundName pipelinedFill = new CompoundName("dispatch.pipelinedFill");
+
     private final RpcResourcePool rpcResourcePool;
 
     public RpcInvokerFactory(RpcResourcePool rpcResourcePool, SearchCluster searchCluster) {
@@ -38,6 +41,11 @@ public class RpcInvokerFactory extends InvokerFactory {
         return Optional.of(new RpcSearchInvoker(searcher, node, rpcResourcePool, maxHits));
     }
 
+    @Override
+    public Optional<byte[]> searchRequestCacheKey(VespaBackEndSearcher searcher, Query query) {
+        return Optional.of(ProtobufSerialization.serializeSearchRequestCacheKey(query, searcher.getServerId()));
+    }
+
     @Override
     public FillInvoker createFillInvoker(VespaBackEndSearcher searcher, Result result) {
         Query query = result.getQuery();
@@ -45,10 +53,12 @@ public class RpcInvokerFactory extends InvokerFactory {
         boolean summaryNeedsQuery = searcher.summaryNeedsQuery(query);
         boolean useProtoBuf = query.properties().getBoolean(Dispatcher.dispatchProtobuf, true);
         boolean useDispatchDotSummaries = query.properties().getBoolean(dispatchSummaries, false);
+        boolean decodeOnArrival = query.properties().getBoolean(pipelinedFill, false);
 
         return  ((useDispatchDotSummaries || !useProtoBuf) && ! summaryNeedsQuery)
                 ? new RpcFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query))
-                : new RpcProtobufFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query), searcher.getServerId(), summaryNeedsQuery);
+                : new RpcProtobufFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query), searcher.getServerId(),
+                                             summaryNeedsQuery, decodeOnArrival, timeouts);
     }
 
     // for testing
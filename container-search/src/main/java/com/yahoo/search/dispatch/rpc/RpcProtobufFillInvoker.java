@@ -2,11 +2,11 @@
 package com.yahoo.search.dispatch.rpc;
 
 import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol;
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.CodedInputStream;
 import com.yahoo.collections.ListMap;
-import com.yahoo.collections.Pair;
 import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
+import com.yahoo.compress.Compressor.Decompression;
 import com.yahoo.container.protect.Error;
 import com.yahoo.data.access.Inspector;
 import com.yahoo.data.access.slime.SlimeAdapter;
@@ -22,12 +22,18 @@ import com.yahoo.search.result.Hit;
 import com.yahoo.slime.ArrayTraverser;
 import com.yahoo.slime.BinaryFormat;
 
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,8 +52,10 @@ public class RpcProtobufFillInvoker extends FillInvoker {
     private final RpcResourcePool resourcePool;
     private final boolean summaryNeedsQuery;
     private final String serverId;
+    private final boolean decodeOnArrival;
+    private final ScheduledExecutorService timeouts;
 
-    private BlockingQueue<Pair<Client.ResponseOrError<ProtobufResponse>, List<FastHit>>> responses;
+    private BlockingQueue<ReceivedResponse> responses;
 
     /** Whether we have already logged/notified about an error - to avoid spamming */
     private boolean hasReportedError = false;
@@ -55,11 +63,30 @@ public class RpcProtobufFillInvoker extends FillInvoker {
     /** The number of responses we should receive (and process) before this is complete */
     private int outstandingResponses;
 
-    RpcProtobufFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb, String serverId, boolean summaryNeedsQuery) {
+    /** The state of the fill if it is done asynchronously, or null if it is not */
+    private volatile AsyncFill asyncFill = null;
+
+    RpcProtobufFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb, String serverId, boolean summaryNeedsQuery,
+                           ScheduledExecutorService timeouts) {
+        this(resourcePool, documentDb, serverId, summaryNeedsQuery, false, timeouts);
+    }
+
+    /**
+     * Creates a fill invoker
+     *
+     * @param decodeOnArrival whether responses should be decoded by the thread delivering them as they arrive,
+     *                        such that responses from different nodes are decoded in parallel, and in parallel
+     *                        with waiting for the remaining responses, instead of by the thread waiting for them
+     * @param timeouts the executor used to time out asynchronous fills and to process their responses
+     */
+    RpcProtobufFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb, String serverId,
+                           boolean summaryNeedsQuery, boolean decodeOnArrival, ScheduledExecutorService timeouts) {
         this.documentDb = documentDb;
         this.resourcePool = resourcePool;
         this.serverId = serverId;
         this.summaryNeedsQuery = summaryNeedsQuery;
+        this.decodeOnArrival = decodeOnArrival;
+        this.timeouts = timeouts;
     }
 
     @Override
@@ -78,6 +105,27 @@ public class RpcProtobufFillInvoker extends FillInvoker {
         }
     }
 
+    /**
+     * Sends the docsum requests and returns a future which is completed with the filled result when the last
+     * response is received, or on timeout, such that no thread is blocked while waiting for them.
+     * The responses are processed, and the future completed, by the timeout executor rather than by the
+     * network thread delivering the last response.
+     */
+    @Override
+    public CompletableFuture<Result> fillAsync(Result result, String summaryClass) {
+        AsyncFill fill = new AsyncFill(result, summaryClass);
+        asyncFill = fill; // Before sending, as responses may arrive at once
+        try {
+            sendFillRequest(result, summaryClass);
+        }
+        catch (RuntimeException e) {
+            fill.future.completeExceptionally(e);
+            return fill.future;
+        }
+        fill.start();
+        return fill.future;
+    }
+
     @Override
     protected void getFillResults(Result result, String summaryClass) {
         try {
@@ -96,7 +144,24 @@ public class RpcProtobufFillInvoker extends FillInvoker {
 
     /** Called by a thread belonging to the client when a valid response becomes available */
     public void receive(Client.ResponseOrError<ProtobufResponse> response, List<FastHit> hitsContext) {
-        responses.add(new Pair<>(response, hitsContext));
+        if (decodeOnArrival && response.response().isPresent()) {
+            try {
+                responses.add(new ReceivedResponse(response, hitsContext, decode(response.response().get())));
+                responseAdded();
+                return;
+            }
+            catch (RuntimeException e) {
+                // Leave it to the waiting thread, which will handle the failure
+            }
+        }
+        responses.add(new ReceivedResponse(response, hitsContext));
+        responseAdded();
+    }
+
+    private void responseAdded() {
+        AsyncFill fill = asyncFill;
+        if (fill != null)
+            fill.responseAdded();
     }
 
     /** Return a map of hits by their search node (partition) id */
@@ -139,13 +204,11 @@ public class RpcProtobufFillInvoker extends FillInvoker {
                 if (timeLeftMs <= 0) {
                     throwTimeout();
                 }
-                var responseAndHits = responses.poll(timeLeftMs, TimeUnit.MILLISECONDS);
-                if (responseAndHits == null) {
+                var response = responses.poll(timeLeftMs, TimeUnit.MILLISECONDS);
+                if (response == null) {
                     throwTimeout();
                 }
-                var response = responseAndHits.getFirst();
-                var hitsContext = responseAndHits.getSecond();
-                skippedHits += processResponse(result, response, hitsContext, summaryClass);
+                skippedHits += processResponse(result, response, summaryClass);
                 outstandingResponses--;
             }
             if (skippedHits != 0) {
@@ -157,8 +220,8 @@ public class RpcProtobufFillInvoker extends FillInvoker {
         }
     }
 
-    private int processResponse(Result result, Client.ResponseOrError<ProtobufResponse> responseOrError, List<FastHit> hitsContext,
-            String summaryClass) {
+    private int processResponse(Result result, ReceivedResponse received, String summaryClass) {
+        var responseOrError = received.responseOrError;
         if (responseOrError.error().isPresent()) {
             if (hasReportedError) {
                 return 0;
@@ -168,15 +231,30 @@ public class RpcProtobufFillInvoker extends FillInvoker {
             log.log(Level.WARNING, "Error fetching summary data: " + error);
             hasReportedError = true;
         } else {
-            Client.ProtobufResponse response = responseOrError.response().get();
-            CompressionType compression = CompressionType.valueOf(response.compression());
-            byte[] responseBytes = resourcePool.compressor().decompress(response.compressedPayload(), compression,
-                    response.uncompressedSize());
-            return fill(result, hitsContext, summaryClass, responseBytes);
+            var root = received.decoded ? received.root : decode(responseOrError.response().get());
+            if (root == null) {
+                result.hits().addError(ErrorMessage.createInternalServerError("Invalid response to docsum request from backend"));
+                return 0;
+            }
+            return fill(result, received.hits, summaryClass, root);
         }
         return 0;
     }
 
+    /** Returns the decoded content of the given response, or null if it is invalid */
+    private com.yahoo.slime.Inspector decode(ProtobufResponse response) {
+        CompressionType compression = CompressionType.valueOf(response.compression());
+        try (Decompression responseBytes = resourcePool.compressor().decompressToPooledBuffer(response.compressedPayload(), compression,
+                                                                                               response.uncompressedSize())) {
+            var protobuf = SearchProtocol.DocsumReply.parseFrom(CodedInputStream.newInstance(responseBytes.data(), 0, responseBytes.size()));
+            byte[] slimeSummaries = protobuf.getSlimeSummaries().toByteArray();
+            return BinaryFormat.view(slimeSummaries, 0, slimeSummaries.length);
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Invalid response to docsum request", ex);
+            return null;
+        }
+    }
+
     private void addErrors(Result result, com.yahoo.slime.Inspector errors) {
         errors.traverse((ArrayTraverser) (index, value) -> {
             int errorCode = ("timeout".equalsIgnoreCase(value.field("type").asString())) ? Error.TIMEOUT.code : Error.UNSPECIFIED.code;
@@ -184,41 +262,120 @@ public class RpcProtobufFillInvoker extends FillInvoker {
         });
     }
 
-    private int fill(Result result, List<FastHit> hits, String summaryClass, byte[] payload) {
-        try {
-            var protobuf = SearchProtocol.DocsumReply.parseFrom(payload);
-            var root = BinaryFormat.decode(protobuf.getSlimeSummaries().toByteArray()).get();
-            var errors = root.field("errors");
-            boolean hasErrors = errors.valid() && (errors.entries() > 0);
-            if (hasErrors) {
-                addErrors(result, errors);
-            }
+    private int fill(Result result, List<FastHit> hits, String summaryClass, com.yahoo.slime.Inspector root) {
+        var errors = root.field("errors");
+        boolean hasErrors = errors.valid() && (errors.entries() > 0);
+        if (hasErrors) {
+            addErrors(result, errors);
+        }
 
-            Inspector summaries = new SlimeAdapter(root.field("docsums"));
-            if (!summaries.valid()) {
-                return 0; // No summaries; Perhaps we requested a non-existing summary class
-            }
-            int skippedHits = 0;
-            for (int i = 0; i < hits.size(); i++) {
-                Inspector summary = summaries.entry(i).field("docsum");
-                if (summary.valid()) {
-                    hits.get(i).setField(Hit.SDDOCNAME_FIELD, documentDb.getName());
-                    hits.get(i).addSummary(documentDb.getDocsumDefinitionSet().getDocsum(summaryClass), summary);
-                    hits.get(i).setFilled(summaryClass);
-                } else {
-                    skippedHits++;
-                }
+        Inspector summaries = new SlimeAdapter(root.field("docsums"));
+        if (!summaries.valid()) {
+            return 0; // No summaries; Perhaps we requested a non-existing summary class
+        }
+        int skippedHits = 0;
+        for (int i = 0; i < hits.size(); i++) {
+            Inspector summary = summaries.entry(i).field("docsum");
+            if (summary.valid()) {
+                hits.get(i).setField(Hit.SDDOCNAME_FIELD, documentDb.getName());
+                hits.get(i).addSummary(documentDb.getDocsumDefinitionSet().getDocsum(summaryClass), summary);
+                hits.get(i).setFilled(summaryClass);
+            } else {
+                skippedHits++;
             }
-            return skippedHits;
-        } catch (InvalidProtocolBufferException ex) {
-            log.log(Level.WARNING, "Invalid response to docsum request", ex);
-            result.hits().addError(ErrorMessage.createInternalServerError("Invalid response to docsum request from backend"));
-            return 0;
         }
+        return skippedHits;
     }
 
     private void throwTimeout() throws TimeoutException {
         throw new TimeoutException("Timed out waiting for summary data. " + outstandingResponses + " responses outstanding.");
     }
 
+    /** Completes an asynchronous fill when all responses are received, or when it times out */
+    private class AsyncFill {
+
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private final Result result;
+        private final String summaryClass;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        private volatile boolean started = false;
+        private volatile ScheduledFuture<?> timeout = null;
+
+        AsyncFill(Result result, String summaryClass) {
+            this.result = result;
+            this.summaryClass = summaryClass;
+        }
+
+        void start() {
+            started = true;
+            if (responses.size() >= outstandingResponses) { // received while sending: Process in the calling thread
+                if (done.compareAndSet(false, true))
+                    process();
+                return;
+            }
+            timeout = scheduleTimeout(timeouts, this::complete, result.getQuery().getTimeLeft());
+            if (done.get())
+                timeout.cancel(false);
+        }
+
+        void responseAdded() {
+            if (started && responses.size() >= outstandingResponses)
+                complete();
+        }
+
+        /** Processes the responses received in the timeout executor, adding a timeout error if some are missing */
+        private void complete() {
+            if ( ! done.compareAndSet(false, true)) return;
+            ScheduledFuture<?> timeout = this.timeout;
+            if (timeout != null)
+                timeout.cancel(false);
+            try {
+                timeouts.execute(this::process);
+            }
+            catch (RejectedExecutionException e) { // shut down
+                process();
+            }
+        }
+
+        private void process() {
+            try {
+                getFillResults(result, summaryClass);
+                future.complete(result);
+            }
+            catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+    }
+
+    /** A response or error received for the given hits, which may have been decoded on arrival */
+    private static class ReceivedResponse {
+
+        final Client.ResponseOrError<ProtobufResponse> responseOrError;
+        final List<FastHit> hits;
+        final boolean decoded;
+
+        /** The decoded response, or null if it is not decoded or invalid */
+        final com.yahoo.slime.Inspector root;
+
+        ReceivedResponse(Client.ResponseOrError<ProtobufResponse> responseOrError, List<FastHit> hits) {
+            this(responseOrError, hits, false, null);
+        }
+
+        ReceivedResponse(Client.ResponseOrError<ProtobufResponse> responseOrError, List<FastHit> hits, com.yahoo.slime.Inspector root) {
+            this(responseOrError, hits, true, root);
+        }
+
+        private ReceivedResponse(Client.ResponseOrError<ProtobufResponse> responseOrError, List<FastHit> hits,
+                                 boolean decoded, com.yahoo.slime.Inspector root) {
+            this.responseOrError = responseOrError;
+            this.hits = hits;
+            this.decoded = decoded;
+            this.root = root;
+        }
+
+    }
+
 }
@@ -8,6 +8,7 @@ import com.yahoo.component.ComponentId;
 import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import com.yahoo.compress.Compressor.Compression;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.processing.request.CompoundName;
 import com.yahoo.search.Query;
 import com.yahoo.search.dispatch.FillInvoker;
@@ -19,6 +20,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * RpcResourcePool constructs {@link FillInvoker} objects that communicate with content nodes over RPC. It also contains
@@ -30,9 +32,18 @@ public class RpcResourcePool extends AbstractComponent {
     /** The compression method which will be used with rpc dispatch. "lz4" (default) and "none" is supported. */
     public final static CompoundName dispatchCompression = new CompoundName("dispatch.compression");
 
+    private static final String BUFFER_ALLOCATED_BYTES_METRIC = "dispatch_compression_allocated_bytes";
+    private static final String BUFFER_REUSED_BYTES_METRIC = "dispatch_compression_reused_bytes";
+    private static final String BUFFER_RETAINED_BYTES_METRIC = "dispatch_compression_retained_bytes";
+
     private final Compressor compressor = new Compressor(CompressionType.LZ4, 5, 0.95, 32);
     private final Random random = new Random();
 
+    private final Metric metric;
+    private final Metric.Context metricContext;
+    private final AtomicLong reportedAllocatedBytes = new AtomicLong();
+    private final AtomicLong reportedReusedBytes = new AtomicLong();
+
     /** Connections to the search nodes this talks to, indexed by node id ("partid") */
     private final ImmutableMap<Integer, NodeConnectionPool> nodeConnectionPools;
 
@@ -40,11 +51,19 @@ public class RpcResourcePool extends AbstractComponent {
         var builder = new ImmutableMap.Builder<Integer, NodeConnectionPool>();
         nodeConnections.forEach((key, connection) -> builder.put(key, new NodeConnectionPool(Collections.singletonList(connection))));
         this.nodeConnectionPools = builder.build();
+        this.metric = null;
+        this.metricContext = null;
     }
 
-    @Inject
     public RpcResourcePool(DispatchConfig dispatchConfig) {
+        this(dispatchConfig, null);
+    }
+
+    @Inject
+    public RpcResourcePool(DispatchConfig dispatchConfig, Metric metric) {
         super();
+        this.metric = metric;
+        this.metricContext = metric != null ? metric.createContext(null) : null;
         var client = new RpcClient(dispatchConfig.numJrtTransportThreads());
 
         // Create rpc node connection pools indexed by the node distribution key
@@ -66,7 +85,26 @@ public class RpcResourcePool extends AbstractComponent {
 
     public Compression compress(Query query, byte[] payload) {
         CompressionType compression = CompressionType.valueOf(query.properties().getString(dispatchCompression, "LZ4").toUpperCase());
-        return compressor.compress(compression, payload);
+        Compression result = compressor.compress(compression, payload);
+        reportBufferUsage();
+        return result;
+    }
+
+    /**
+     * Reports the bytes allocated and reused by the compressor since the last report,
+     * and the bytes it currently retains for reuse, if this has a metric
+     */
+    private void reportBufferUsage() {
+        if (metric == null) return;
+        report(BUFFER_ALLOCATED_BYTES_METRIC, compressor.allocatedBytes(), reportedAllocatedBytes);
+        report(BUFFER_REUSED_BYTES_METRIC, compressor.reusedBytes(), reportedReusedBytes);
+        metric.set(BUFFER_RETAINED_BYTES_METRIC, compressor.retainedBytes(), metricContext);
+    }
+
+    private void report(String metricName, long total, AtomicLong reported) {
+        long delta = total - reported.getAndSet(total);
+        if (delta > 0)
+            metric.add(metricName, delta, metricContext);
     }
 
     public NodeConnection getConnection(int nodeId) {
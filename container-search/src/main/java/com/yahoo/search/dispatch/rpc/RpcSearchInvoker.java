@@ -3,6 +3,7 @@ package com.yahoo.search.dispatch.rpc;
 
 import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
+import com.yahoo.compress.Compressor.Decompression;
 import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.search.Query;
 import com.yahoo.search.dispatch.InvokerResult;
@@ -101,10 +102,13 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
 
         ProtobufResponse protobufResponse = response.response().get();
         CompressionType compression = CompressionType.valueOf(protobufResponse.compression());
-        byte[] payload = resourcePool.compressor().decompress(protobufResponse.compressedPayload(), compression, protobufResponse.uncompressedSize());
-        var result = ProtobufSerialization.deserializeToSearchResult(payload, query, searcher, node.pathIndex(), node.key());
-
-        return result;
+        // The reply is decoded directly from a pooled buffer, as decoding copies all the data it keeps
+        try (Decompression payload = resourcePool.compressor().decompressToPooledBuffer(protobufResponse.compressedPayload(),
+                                                                                         compression,
+                                                                                         protobufResponse.uncompressedSize())) {
+            return ProtobufSerialization.deserializeToSearchResult(payload.data(), payload.size(),
+                                                                   query, searcher, node.pathIndex(), node.key());
+        }
     }
 
     @Override
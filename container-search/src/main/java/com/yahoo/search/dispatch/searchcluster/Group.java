@@ -62,9 +62,11 @@ public class Group {
         return nodesUp;
     }
 
-    void aggregateNodeValues() {
-        activeDocuments.set(nodes.stream().filter(node -> node.isWorking() == Boolean.TRUE).mapToLong(Node::getActiveDocuments).sum());
+    /** Aggregates the values of the nodes of this group, and returns whether the active documents of this changed */
+    boolean aggregateNodeValues() {
+        long activeDocumentsNow = nodes.stream().filter(node -> node.isWorking() == Boolean.TRUE).mapToLong(Node::getActiveDocuments).sum();
         isBlockingWrites.set(nodes.stream().anyMatch(node -> node.isBlockingWrites()));
+        return activeDocuments.getAndSet(activeDocumentsNow) != activeDocumentsNow;
     }
 
     /** Returns the active documents on this node. If unknown, 0 is returned. */
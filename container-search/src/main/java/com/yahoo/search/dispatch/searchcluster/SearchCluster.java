@@ -18,6 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -40,6 +41,7 @@ public class SearchCluster implements NodeManager<Node> {
     private final VipStatus vipStatus;
     private final PingFactory pingFactory;
     private final TopKEstimator hitEstimator;
+    private final List<Runnable> stateChangeListeners = new CopyOnWriteArrayList<>();
     private long nextLogTime = 0;
     private static final double SKEW_FACTOR = 0.05;
 
@@ -79,7 +81,7 @@ public class SearchCluster implements NodeManager<Node> {
         for (Node node : nodes)
             nodesByHostBuilder.put(node.hostname(), node);
         this.nodesByHost = nodesByHostBuilder.build();
-        hitEstimator = new TopKEstimator(30.0, dispatchConfig.topKProbability(), SKEW_FACTOR);
+        hitEstimator = new TopKEstimator(30.0, dispatchConfig.topKProbability(), SKEW_FACTOR, dispatchConfig.adaptiveTopK());
 
         this.localCorpusDispatchTarget = findLocalCorpusDispatchTarget(HostName.getLocalhost(),
                                                                        size,
@@ -101,6 +103,18 @@ public class SearchCluster implements NodeManager<Node> {
         }
     }
 
+    /**
+     * Adds a listener which is called when a node changes between working and failed, a group changes
+     * between having and not having sufficient coverage, or the active documents of a group change.
+     */
+    public void addStateChangeListener(Runnable listener) {
+        stateChangeListeners.add(listener);
+    }
+
+    private void stateChanged() {
+        stateChangeListeners.forEach(Runnable::run);
+    }
+
     private static Optional<Node> findLocalCorpusDispatchTarget(String selfHostname,
                                                                 int searchClusterSize,
                                                                 int containerClusterSize,
@@ -194,6 +208,7 @@ public class SearchCluster implements NodeManager<Node> {
     private void updateWorkingState(Node node, boolean isWorking) {
         node.setWorking(isWorking);
         updateVipStatusOnNodeChange(node, isWorking);
+        stateChanged();
     }
 
     /** Called by the cluster monitor when node state changes to working */
@@ -213,6 +228,7 @@ public class SearchCluster implements NodeManager<Node> {
 
         group.setHasSufficientCoverage(sufficientCoverage);
         updateVipStatusOnCoverageChange(group, sufficientCoverage);
+        stateChanged();
     }
 
     private void updateVipStatusOnNodeChange(Node node, boolean nodeIsWorking) {
@@ -250,6 +266,15 @@ public class SearchCluster implements NodeManager<Node> {
     public int estimateHitsToFetch(int wantedHits, int numPartitions, double topKProbability) {
         return hitEstimator.estimateK(wantedHits, numPartitions, topKProbability);
     }
+    public int estimateHitsToFetch(int wantedHits, int numPartitions, String rankProfile) {
+        return hitEstimator.estimateK(wantedHits, numPartitions, rankProfile);
+    }
+    public int estimateHitsToFetch(int wantedHits, int numPartitions, double topKProbability, String rankProfile) {
+        return hitEstimator.estimateK(wantedHits, numPartitions, topKProbability, rankProfile);
+    }
+
+    /** Returns the estimator used to decide how many hits to fetch from each node */
+    public TopKEstimator hitEstimator() { return hitEstimator; }
 
     public boolean hasInformationAboutAllNodes() {
         return nodesByHost.values().stream().allMatch(node -> node.isWorking() != null);
@@ -301,7 +326,8 @@ public class SearchCluster implements NodeManager<Node> {
 
     private void pingIterationCompletedSingleGroup() {
         Group group = groups().values().iterator().next();
-        group.aggregateNodeValues();
+        if (group.aggregateNodeValues())
+            stateChanged();
         // With just one group sufficient coverage may not be the same as full coverage, as the
         // group will always be marked sufficient for use.
         updateSufficientCoverage(group, true);
@@ -315,12 +341,15 @@ public class SearchCluster implements NodeManager<Node> {
         // Update active documents per group and use it to decide if the group should be active
         long[] activeDocumentsInGroup = new long[numGroups];
         long sumOfActiveDocuments = 0;
+        boolean activeDocumentsChanged = false;
         for(int i = 0; i < numGroups; i++) {
             Group group = orderedGroups().get(i);
-            group.aggregateNodeValues();
+            activeDocumentsChanged |= group.aggregateNodeValues();
             activeDocumentsInGroup[i] = group.getActiveDocuments();
             sumOfActiveDocuments += activeDocumentsInGroup[i];
         }
+        if (activeDocumentsChanged)
+            stateChanged();
 
         boolean anyGroupsSufficientCoverage = false;
         for (int i = 0; i < numGroups; i++) {
@@ -39,6 +39,7 @@ import com.yahoo.search.searchchain.FutureResult;
 import com.yahoo.search.searchchain.SearchChainRegistry;
 import com.yahoo.search.searchchain.model.federation.FederationOptions;
 
+import java.lang.reflect.InvocationTargetException;
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -52,6 +53,8 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -89,6 +92,9 @@ public class FederationSearcher extends ForkingSearcher {
     private final boolean strictSearchchain;
     private final TargetSelector<?> targetSelector;
 
+    /** The executor of the asynchronous searches and fills of this, or null to use the default pool of threads */
+    private final ExecutorService executor;
+
     private final Clock clock = Clock.systemUTC();
 
     private static final List<CompoundName> queryAndHits = ImmutableList.of(Query.OFFSET, Query.HITS);
@@ -97,7 +103,7 @@ public class FederationSearcher extends ForkingSearcher {
     public FederationSearcher(FederationConfig config, StrictContractsConfig strict,
                               ComponentRegistry<TargetSelector> targetSelectors) {
         this(createResolver(config), strict.searchchains(), strict.propagateSourceProperties(),
-             resolveSelector(config.targetSelector(), targetSelectors));
+             resolveSelector(config.targetSelector(), targetSelectors), createExecutor(config.threads()));
     }
 
     private static TargetSelector resolveSelector(String selectorId, 
@@ -109,18 +115,49 @@ public class FederationSearcher extends ForkingSearcher {
 
     // for testing
     public FederationSearcher(ComponentId id, SearchChainResolver searchChainResolver) {
-        this(searchChainResolver, false, PropagateSourceProperties.EVERY, null);
+        this(id, searchChainResolver, FederationConfig.Threads.Enum.PLATFORM);
+    }
+
+    // for testing
+    public FederationSearcher(ComponentId id, SearchChainResolver searchChainResolver, FederationConfig.Threads.Enum threads) {
+        this(searchChainResolver, false, PropagateSourceProperties.EVERY, null, createExecutor(threads));
     }
 
     private FederationSearcher(SearchChainResolver searchChainResolver,
                                boolean strictSearchchain,
                                PropagateSourceProperties.Enum propagateSourceProperties,
-                               TargetSelector targetSelector) {
+                               TargetSelector targetSelector,
+                               ExecutorService executor) {
         this.searchChainResolver = searchChainResolver;
         sourceRefResolver = new SourceRefResolver(searchChainResolver);
         this.strictSearchchain = strictSearchchain;
         this.propagateSourceProperties = propagateSourceProperties;
         this.targetSelector = targetSelector;
+        this.executor = executor;
+    }
+
+    /** Returns an executor running each task in a new virtual thread if that is configured and supported, or null */
+    private static ExecutorService createExecutor(FederationConfig.Threads.Enum threads) {
+        if (threads != FederationConfig.Threads.Enum.VIRTUAL) return null;
+        try {
+            // Looked up at runtime since this is compiled for a Java version without virtual threads
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (InvocationTargetException e) {
+            if ( ! (e.getCause() instanceof UnsupportedOperationException)) // thrown when a preview feature is not enabled
+                throw new IllegalStateException("Could not create a virtual thread executor", e.getCause());
+        }
+        catch (ReflectiveOperationException e) {
+            // Not present in this JVM
+        }
+        log.warning("Virtual threads are not supported by this JVM: Using platform threads for federation");
+        return null;
+    }
+
+    @Override
+    public void deconstruct() {
+        if (executor != null)
+            executor.shutdown();
     }
 
     private static SearchChainResolver createResolver(FederationConfig config) {
@@ -248,7 +285,9 @@ public class FederationSearcher extends ForkingSearcher {
         if (timeout <= 0)
             return new FutureResult(() -> new Result(query, ErrorMessage.createTimeout("Timed out before federation")), execution, query);
         Query clonedQuery = cloneFederationQuery(query, window, timeout, target);
-        return new AsyncExecution(target.getChain(), execution).search(clonedQuery);
+        AsyncExecution asyncExecution = executor == null ? new AsyncExecution(target.getChain(), execution)
+                                                          : new AsyncExecution(target.getChain(), execution, executor);
+        return asyncExecution.search(clonedQuery);
     }
 
     private Query cloneFederationQuery(Query query, Window window, long timeout, Target target) {
@@ -440,7 +479,8 @@ public class FederationSearcher extends ForkingSearcher {
                     chainExecution.fill(resultToFill, summaryClass);
                     propagateErrors(resultToFill, result);
                 } else {
-                    AsyncExecution asyncFill = new AsyncExecution(chainExecution);
+                    AsyncExecution asyncFill = executor == null ? new AsyncExecution(chainExecution)
+                                                                : new AsyncExecution(chainExecution, executor);
                     futureFilledResults.add(new Pair<>(resultToFill, asyncFill.fill(resultToFill, summaryClass)));
                 }
             }
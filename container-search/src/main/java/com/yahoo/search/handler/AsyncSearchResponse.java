@@ -0,0 +1,136 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.handler;
+
+import com.yahoo.container.handler.Coverage;
+import com.yahoo.container.handler.Timing;
+import com.yahoo.container.jdisc.ExtendedResponse;
+import com.yahoo.container.jdisc.ThreadedHttpRequestHandler;
+import com.yahoo.container.logging.AccessLogEntry;
+import com.yahoo.container.logging.HitCounts;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A response which is rendered when the search response it is waiting for completes,
+ * such that no thread is blocked while the query is executed.
+ * The status and headers of this are set from the search response before anything is written.
+ */
+class AsyncSearchResponse extends ExtendedResponse {
+
+    private static final Logger log = Logger.getLogger(AsyncSearchResponse.class.getName());
+
+    private final CompletableFuture<HttpSearchResponse> response;
+    private final Executor executor;
+
+    /**
+     * Creates an asynchronous search response
+     *
+     * @param response the search response to render, which must not complete exceptionally
+     * @param executor the executor rendering the response if it is not complete when rendering is requested
+     */
+    AsyncSearchResponse(CompletableFuture<HttpSearchResponse> response, Executor executor) {
+        super(200);
+        this.response = response;
+        this.executor = executor;
+    }
+
+    @Override
+    public void render(OutputStream output, ContentChannel networkChannel, CompletionHandler handler) throws IOException {
+        if (response.isDone()) {
+            render(response.join(), output, networkChannel, handler);
+            return;
+        }
+        // Don't render in the thread completing the search, which may be a network thread
+        response.thenAccept(completed -> {
+            try {
+                executor.execute(() -> renderAsync(completed, output, networkChannel, handler));
+            }
+            catch (RejectedExecutionException e) {
+                renderAsync(completed, output, networkChannel, handler);
+            }
+        });
+    }
+
+    private void renderAsync(HttpSearchResponse completed, OutputStream output, ContentChannel networkChannel,
+                             CompletionHandler handler) {
+        try {
+            render(completed, output, networkChannel, handler);
+        }
+        catch (IOException | RuntimeException e) {
+            log.log(Level.INFO, "Failed rendering the response to " + completed.getQuery(), e);
+            networkChannel.close(handler);
+        }
+    }
+
+    private void render(HttpSearchResponse completed, OutputStream output, ContentChannel networkChannel,
+                        CompletionHandler handler) throws IOException {
+        setStatus(completed.getStatus());
+        headers().addAll(completed.headers());
+        if ( ! headers().containsKey(ThreadedHttpRequestHandler.CONTENT_TYPE) && completed.getContentType() != null)
+            headers().put(ThreadedHttpRequestHandler.CONTENT_TYPE, contentTypeOf(completed));
+        completed.render(output, networkChannel, handler);
+    }
+
+    private static String contentTypeOf(HttpSearchResponse response) {
+        if (response.getCharacterEncoding() == null) return response.getContentType();
+        return response.getContentType() + "; charset=" + response.getCharacterEncoding();
+    }
+
+    /** Returns the search response if it is complete, and null otherwise */
+    private HttpSearchResponse completed() {
+        return response.getNow(null);
+    }
+
+    /** Returns the content type of the search response, or null if it is not yet known */
+    @Override
+    public String getContentType() {
+        HttpSearchResponse completed = completed();
+        return completed == null ? null : completed.getContentType();
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        HttpSearchResponse completed = completed();
+        return completed == null ? null : completed.getCharacterEncoding();
+    }
+
+    @Override
+    public void populateAccessLogEntry(AccessLogEntry accessLogEntry) {
+        HttpSearchResponse completed = completed();
+        if (completed != null)
+            completed.populateAccessLogEntry(accessLogEntry);
+    }
+
+    @Override
+    public String getParsedQuery() {
+        HttpSearchResponse completed = completed();
+        return completed == null ? null : completed.getParsedQuery();
+    }
+
+    @Override
+    public Timing getTiming() {
+        HttpSearchResponse completed = completed();
+        return completed == null ? null : completed.getTiming();
+    }
+
+    @Override
+    public Coverage getCoverage() {
+        HttpSearchResponse completed = completed();
+        return completed == null ? null : completed.getCoverage();
+    }
+
+    @Override
+    public HitCounts getHitCounts() {
+        HttpSearchResponse completed = completed();
+        return completed == null ? null : completed.getHitCounts();
+    }
+
+}
@@ -17,6 +17,8 @@ import com.yahoo.container.jdisc.VespaHeaders;
 import com.yahoo.container.logging.AccessLog;
 import com.yahoo.io.IOUtils;
 import com.yahoo.jdisc.Metric;
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.handler.ContentChannel;
 import com.yahoo.language.Linguistics;
 import java.util.logging.Level;
 import com.yahoo.net.HostName;
@@ -38,6 +40,7 @@ import com.yahoo.search.Searcher;
 import com.yahoo.search.config.IndexInfoConfig;
 import com.yahoo.search.query.profile.compiled.CompiledQueryProfile;
 import com.yahoo.search.query.profile.compiled.CompiledQueryProfileRegistry;
+import com.yahoo.search.query.profile.compiled.ResolutionCache;
 import com.yahoo.search.query.profile.config.QueryProfileConfigurer;
 import com.yahoo.search.query.profile.config.QueryProfilesConfig;
 import com.yahoo.search.query.properties.DefaultProperties;
@@ -57,10 +60,13 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -71,10 +77,12 @@ import java.util.logging.Logger;
  */
 public class SearchHandler extends LoggingRequestHandler {
 
-    private final AtomicInteger requestsInFlight = new AtomicInteger(0);
+    private final AtomicInteger queriesInFlight = new AtomicInteger(0);
 
-    // max number of threads for the executor for this handler
-    private final int maxThreads;
+    /** The max number of queries executed concurrently by this, further queries are answered with 503 */
+    private final int maxQueriesInFlight;
+
+    private final Executor executor;
 
     private static final CompoundName DETAILED_TIMING_LOGGING = new CompoundName("trace.timingDetails");
     private static final CompoundName FORCE_TIMESTAMPS = new CompoundName("trace.timestamps");
@@ -83,6 +91,12 @@ public class SearchHandler extends LoggingRequestHandler {
     /** Event name for number of connections to the search subsystem */
     private static final String SEARCH_CONNECTIONS = "search_connections";
 
+    /** Event names for the cache of query profile values resolved for particular dimension values */
+    private static final String RESOLUTION_CACHE_HITS = "query_profile_resolution_cache_hits";
+    private static final String RESOLUTION_CACHE_MISSES = "query_profile_resolution_cache_misses";
+    private static final String RESOLUTION_CACHE_EVICTIONS = "query_profile_resolution_cache_evictions";
+    private static final String RESOLUTION_CACHE_SIZE = "query_profile_resolution_cache_size";
+
     private static final String JSON_CONTENT_TYPE = "application/json";
 
     private static Logger log = Logger.getLogger(SearchHandler.class.getName());
@@ -103,6 +117,21 @@ public class SearchHandler extends LoggingRequestHandler {
 
     private final AtomicLong numRequestsLeftToTrace;
 
+    private final Map<CompiledQueryProfile, ResolutionCacheMetrics> resolutionCacheMetrics = new ConcurrentHashMap<>();
+
+    /** Whether searchers of a class override searchAsync, such that they need not block the calling thread */
+    private static final ClassValue<Boolean> implementsSearchAsync = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("searchAsync", Query.class, Execution.class).getDeclaringClass() != Searcher.class;
+            }
+            catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
     private final class MeanConnections implements Callback {
 
         @Override
@@ -116,6 +145,40 @@ public class SearchHandler extends LoggingRequestHandler {
         }
     }
 
+    /** Reports the changes to the statistics of the resolution cache of a query profile since the last report */
+    private final class ResolutionCacheMetrics {
+
+        private final ResolutionCache cache;
+        private final Metric.Context context;
+
+        private final AtomicLong reportedHits = new AtomicLong();
+        private final AtomicLong reportedMisses = new AtomicLong();
+        private final AtomicLong reportedEvictions = new AtomicLong();
+
+        ResolutionCacheMetrics(CompiledQueryProfile profile) {
+            this.cache = profile.getResolutionCache();
+            this.context = metric.createContext(Map.of("queryProfile", profile.getId().toString()));
+        }
+
+        void report() {
+            long hits = cache.hits();
+            long misses = cache.misses();
+            long evictions = cache.evictions();
+            long newHits = hits - reportedHits.getAndSet(hits);
+            long newMisses = misses - reportedMisses.getAndSet(misses);
+            long newEvictions = evictions - reportedEvictions.getAndSet(evictions);
+            if (newHits > 0)
+                metric.add(RESOLUTION_CACHE_HITS, newHits, context);
+            if (newMisses > 0) {
+                metric.add(RESOLUTION_CACHE_MISSES, newMisses, context);
+                metric.set(RESOLUTION_CACHE_SIZE, cache.size(), context);
+            }
+            if (newEvictions > 0)
+                metric.add(RESOLUTION_CACHE_EVICTIONS, newEvictions, context);
+        }
+
+    }
+
     @Inject
     public SearchHandler(Statistics statistics,
                          Metric metric,
@@ -132,7 +195,8 @@ public class SearchHandler extends LoggingRequestHandler {
              executionFactory,
              containerHttpConfig.numQueriesToTraceOnDebugAfterConstruction(),
              containerHttpConfig.hostResponseHeaderKey().equals("") ?
-                     Optional.empty() : Optional.of(containerHttpConfig.hostResponseHeaderKey()));
+                     Optional.empty() : Optional.of(containerHttpConfig.hostResponseHeaderKey()),
+             containerHttpConfig.maxQueriesInFlight());
     }
 
     /**
@@ -154,7 +218,8 @@ public class SearchHandler extends LoggingRequestHandler {
              executionFactory,
              containerHttpConfig.numQueriesToTraceOnDebugAfterConstruction(),
              containerHttpConfig.hostResponseHeaderKey().equals("") ?
-                     Optional.empty() : Optional.of( containerHttpConfig.hostResponseHeaderKey()));
+                     Optional.empty() : Optional.of( containerHttpConfig.hostResponseHeaderKey()),
+             containerHttpConfig.maxQueriesInFlight());
     }
 
     public SearchHandler(Statistics statistics,
@@ -164,7 +229,8 @@ public class SearchHandler extends LoggingRequestHandler {
                          CompiledQueryProfileRegistry queryProfileRegistry,
                          ExecutionFactory executionFactory,
                          Optional<String> hostResponseHeaderKey) {
-        this(statistics, metric, executor, accessLog, queryProfileRegistry, executionFactory, 0, hostResponseHeaderKey);
+        this(statistics, metric, executor, accessLog, queryProfileRegistry, executionFactory, 0, hostResponseHeaderKey,
+             new ContainerHttpConfig(new ContainerHttpConfig.Builder()).maxQueriesInFlight());
     }
 
     private SearchHandler(Statistics statistics,
@@ -174,13 +240,15 @@ public class SearchHandler extends LoggingRequestHandler {
                          CompiledQueryProfileRegistry queryProfileRegistry,
                          ExecutionFactory executionFactory,
                          long numQueriesToTraceOnDebugAfterStartup,
-                         Optional<String> hostResponseHeaderKey) {
+                         Optional<String> hostResponseHeaderKey,
+                         int maxQueriesInFlight) {
         super(executor, accessLog, metric, true);
         log.log(Level.FINE, "SearchHandler.init " + System.identityHashCode(this));
         this.queryProfileRegistry = queryProfileRegistry;
         this.executionFactory = executionFactory;
 
-        this.maxThreads = examineExecutor(executor);
+        this.maxQueriesInFlight = maxQueriesInFlight;
+        this.executor = executor;
 
         searchConnections = new Value(SEARCH_CONNECTIONS, statistics,
                                       new Value.Parameters().setLogRaw(true).setLogMax(true)
@@ -216,30 +284,51 @@ public class SearchHandler extends LoggingRequestHandler {
              new ExecutionFactory(chainsConfig, indexInfo, clusters, searchers, specialtokens, linguistics, renderers));
     }
 
-    private static int examineExecutor(Executor executor) {
-        if (executor instanceof ThreadPoolExecutor) {
-            return ((ThreadPoolExecutor) executor).getMaximumPoolSize();
-        }
-        return Integer.MAX_VALUE; // assume unbound
+    @Override
+    public final HttpResponse handle(com.yahoo.container.jdisc.HttpRequest request) {
+        return handleAsync(request).join();
     }
 
+    /**
+     * Returns a response which is rendered when the query completes. If all searchers of the search chain
+     * implement searchAsync, the calling thread is not blocked while the query is executed.
+     * Otherwise, the query is executed synchronously by the calling thread.
+     */
     @Override
-    public final HttpResponse handle(com.yahoo.container.jdisc.HttpRequest request) {
-        requestsInFlight.incrementAndGet();
+    public final HttpResponse handle(com.yahoo.container.jdisc.HttpRequest request, ContentChannel channel) {
+        return new AsyncSearchResponse(handleAsync(request), executor);
+    }
+
+    /**
+     * Returns the response to the given request, or a 503 response if the max number of queries are already in flight.
+     * The returned future never completes exceptionally.
+     */
+    private CompletableFuture<HttpSearchResponse> handleAsync(com.yahoo.container.jdisc.HttpRequest request) {
+        int inFlight = queriesInFlight.incrementAndGet();
+        CompletableFuture<HttpSearchResponse> response;
         try {
-            try {
-                return handleBody(request);
-            } catch (QueryException e) {
-                return (e.getCause() instanceof IllegalArgumentException)
-                        ? invalidParameterResponse(request, e)
-                        : illegalQueryResponse(request, e);
-            } catch (RuntimeException e) { // Make sure we generate a valid response even on unexpected errors
-                log.log(Level.WARNING, "Failed handling " + request, e);
-                return internalServerErrorResponse(request, e);
-            }
-        } finally {
-            requestsInFlight.decrementAndGet();
+            response = inFlight > maxQueriesInFlight ? CompletableFuture.completedFuture(overloadedResponse(request))
+                                                     : handleBody(request);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
         }
+        return response.exceptionally(e -> errorResponse(request, unwrap(e)))
+                       .whenComplete((completed, e) -> queriesInFlight.decrementAndGet());
+    }
+
+    private HttpSearchResponse errorResponse(HttpRequest request, Throwable e) {
+        if (e instanceof QueryException)
+            return (e.getCause() instanceof IllegalArgumentException)
+                   ? invalidParameterResponse(request, e)
+                   : illegalQueryResponse(request, e);
+
+        // Make sure we generate a valid response even on unexpected errors
+        log.log(Level.WARNING, "Failed handling " + request, e);
+        return internalServerErrorResponse(request, e);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
     }
 
     private int getHttpResponseStatus(com.yahoo.container.jdisc.HttpRequest httpRequest, Result result) {
@@ -255,7 +344,7 @@ public class SearchHandler extends LoggingRequestHandler {
 
     }
 
-    private HttpResponse errorResponse(HttpRequest request, ErrorMessage errorMessage) {
+    private HttpSearchResponse errorResponse(HttpRequest request, ErrorMessage errorMessage) {
         Query query = new Query();
         Result result = new Result(query, errorMessage);
         Renderer renderer = getRendererCopy(ComponentSpecification.fromString(request.getProperty("format")));
@@ -263,20 +352,25 @@ public class SearchHandler extends LoggingRequestHandler {
         return new HttpSearchResponse(getHttpResponseStatus(request, result), result, query, renderer);
     }
 
-    private HttpResponse invalidParameterResponse(HttpRequest request, RuntimeException e) {
+    private HttpSearchResponse invalidParameterResponse(HttpRequest request, Throwable e) {
         return errorResponse(request, ErrorMessage.createInvalidQueryParameter(Exceptions.toMessageString(e)));
     }
 
-    private HttpResponse illegalQueryResponse(HttpRequest request, RuntimeException e) {
+    private HttpSearchResponse illegalQueryResponse(HttpRequest request, Throwable e) {
         return errorResponse(request, ErrorMessage.createIllegalQuery(Exceptions.toMessageString(e)));
     }
 
-    private HttpResponse internalServerErrorResponse(HttpRequest request, RuntimeException e) {
+    private HttpSearchResponse internalServerErrorResponse(HttpRequest request, Throwable e) {
         return errorResponse(request, ErrorMessage.createInternalServerError(Exceptions.toMessageString(e)));
     }
 
+    private HttpSearchResponse overloadedResponse(HttpRequest request) {
+        return errorResponse(request, new ErrorMessage(Response.Status.SERVICE_UNAVAILABLE,
+                                                       "Too many queries in flight, the maximum is " + maxQueriesInFlight));
+    }
+
 
-    private HttpSearchResponse handleBody(HttpRequest request) {
+    private CompletableFuture<HttpSearchResponse> handleBody(HttpRequest request) {
         Map<String, String> requestMap = requestMapFromRequest(request);
 
         // Get query profile
@@ -303,20 +397,26 @@ public class SearchHandler extends LoggingRequestHandler {
         }
 
         // Create the result
-        Result result;
+        CompletableFuture<Result> result;
         if (invalidReason != null) {
-            result = new Result(query, ErrorMessage.createIllegalQuery(invalidReason));
+            result = CompletableFuture.completedFuture(new Result(query, ErrorMessage.createIllegalQuery(invalidReason)));
         } else if (queryProfile == null && queryProfileName != null) {
-            result = new Result(query,
-                                ErrorMessage.createIllegalQuery("Could not resolve query profile '" + queryProfileName + "'"));
+            result = CompletableFuture.completedFuture(new Result(query,
+                                ErrorMessage.createIllegalQuery("Could not resolve query profile '" + queryProfileName + "'")));
         } else if (searchChain == null) {
-            result = new Result(query,
-                                ErrorMessage.createInvalidQueryParameter("No search chain named '" + searchChainName + "' was found"));
+            result = CompletableFuture.completedFuture(new Result(query,
+                                ErrorMessage.createInvalidQueryParameter("No search chain named '" + searchChainName + "' was found")));
         } else {
             String pathAndQuery = UriTools.rawRequest(request.getUri());
             result = search(pathAndQuery, query, searchChain);
         }
 
+        return result.thenApply(completed -> toResponse(request, query, queryProfile, completed,
+                                                        benchmarking, benchmarkCoverage));
+    }
+
+    private HttpSearchResponse toResponse(HttpRequest request, Query query, CompiledQueryProfile queryProfile,
+                                          Result result, boolean benchmarking, boolean benchmarkCoverage) {
         // Transform result to response
         Renderer renderer = toRendererCopy(query.getPresentation().getRenderer());
         HttpSearchResponse response = new HttpSearchResponse(getHttpResponseStatus(request, result),
@@ -328,6 +428,8 @@ public class SearchHandler extends LoggingRequestHandler {
         if (benchmarking)
             VespaHeaders.benchmarkOutput(response.headers(), benchmarkCoverage, response.getTiming(),
                                          response.getHitCounts(), getErrors(result), response.getCoverage());
+        if (queryProfile != null)
+            resolutionCacheMetrics.computeIfAbsent(queryProfile, ResolutionCacheMetrics::new).report();
 
         return response;
     }
@@ -374,6 +476,39 @@ public class SearchHandler extends LoggingRequestHandler {
         Result errorResult = validateQuery(query);
         if (errorResult != null) return errorResult;
 
+        Execution execution = createExecution(query, searchChain);
+        Result result = execution.search(query);
+
+        ensureQuerySet(result, query);
+        execution.fill(result, result.getQuery().getPresentation().getSummary());
+
+        traceResult(query, result);
+        return result;
+    }
+
+    /**
+     * Searches and fills asynchronously, without blocking the calling thread while the search chain executes.
+     * If the search does not complete in the calling thread, the fill is started in this handler's executor,
+     * as the search may complete in a network thread, and fills may block.
+     */
+    private CompletableFuture<Result> searchAndFillAsync(Query query, Chain<? extends Searcher> searchChain) {
+        Result errorResult = validateQuery(query);
+        if (errorResult != null) return CompletableFuture.completedFuture(errorResult);
+
+        Execution execution = createExecution(query, searchChain);
+        CompletableFuture<Result> searched = execution.searchAsync(query);
+        Function<Result, CompletableFuture<Result>> fill = result -> {
+            ensureQuerySet(result, query);
+            return execution.fillAsync(result, result.getQuery().getPresentation().getSummary());
+        };
+        return (searched.isDone() ? searched.thenCompose(fill) : searched.thenComposeAsync(fill, executor))
+                .thenApply(result -> {
+                    traceResult(query, result);
+                    return result;
+                });
+    }
+
+    private Execution createExecution(Query query, Chain<? extends Searcher> searchChain) {
         Renderer<Result> renderer = executionFactory.rendererRegistry().getRenderer(query.getPresentation().getRenderer());
 
         // docsumClass null means "unset", so we set it (it might be null
@@ -394,15 +529,13 @@ public class SearchHandler extends LoggingRequestHandler {
             // check and set (instead of set directly) to avoid overwriting stuff from prepareForBreakdownAnalysis()
             execution.context().setDetailedDiagnostics(true);
         }
-        Result result = execution.search(query);
-
-        ensureQuerySet(result, query);
-        execution.fill(result, result.getQuery().getPresentation().getSummary());
+        return execution;
+    }
 
+    private void traceResult(Query query, Result result) {
         traceExecutionTimes(query, result);
         traceVespaVersion(query);
         traceRequestAttributes(query);
-        return result;
     }
 
     private void traceRequestAttributes(Query query) {
@@ -431,7 +564,7 @@ public class SearchHandler extends LoggingRequestHandler {
         }
     }
 
-    private Result search(String request, Query query, Chain<Searcher> searchChain) {
+    private CompletableFuture<Result> search(String request, Query query, Chain<Searcher> searchChain) {
         if (query.getTraceLevel() >= 2) {
             query.trace("Invoking " + searchChain, false, 2);
         }
@@ -443,14 +576,35 @@ public class SearchHandler extends LoggingRequestHandler {
                     "searchConnections is a null reference, probably a known race condition during startup.",
                     new IllegalStateException("searchConnections reference is null."));
         }
+        CompletableFuture<Result> result;
         try {
-            return searchAndFill(query, searchChain);
-        } catch (ParseException e) {
+            result = isAsynchronous(searchChain) ? searchAndFillAsync(query, searchChain)
+                                                 : CompletableFuture.completedFuture(searchAndFill(query, searchChain));
+        } catch (Exception | LinkageError | StackOverflowError e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.exceptionally(e -> errorResult(request, query, searchChain, unwrap(e)));
+    }
+
+    /**
+     * Returns whether all the searchers of the given chain implement searchAsync. Only then is the chain
+     * executed asynchronously, as the synchronous adapters of the others would block the calling thread
+     * anyway, and doing so in the thread completing an asynchronous searcher may block a network thread.
+     */
+    private static boolean isAsynchronous(Chain<? extends Searcher> searchChain) {
+        for (Searcher searcher : searchChain.components())
+            if ( ! implementsSearchAsync.get(searcher.getClass())) return false;
+        return true;
+    }
+
+    /** Returns the result of a search which failed with the given exception, or rethrows it if it is not recoverable */
+    private Result errorResult(String request, Query query, Chain<Searcher> searchChain, Throwable e) {
+        if (e instanceof ParseException) {
             ErrorMessage error = ErrorMessage.createIllegalQuery("Could not parse query [" + request + "]: "
                                                                  + Exceptions.toMessageString(e));
             log.log(Level.FINE, error::getDetailedMessage);
             return new Result(query, error);
-        } catch (IllegalArgumentException e) {
+        } else if (e instanceof IllegalArgumentException) {
             if ("Comparison method violates its general contract!".equals(e.getMessage())) {
                 // This is an error in application components or Vespa code
                 log(request, query, e);
@@ -463,45 +617,46 @@ public class SearchHandler extends LoggingRequestHandler {
                 log.log(Level.FINE, error::getDetailedMessage);
                 return new Result(query, error);
             }
-        } catch (LinkageError | StackOverflowError e) {
+        } else if (e instanceof LinkageError || e instanceof StackOverflowError) {
             // LinkageError should have been an Exception in an OSGi world - typical bundle dependency issue problem
             // StackOverflowError is recoverable
             ErrorMessage error = ErrorMessage.createErrorInPluginSearcher("Error executing " + searchChain + "]: " +
                                                                           Exceptions.toMessageString(e), e);
             log(request, query, e);
             return new Result(query, error);
-        } catch (Exception e) {
+        } else if (e instanceof Exception) {
             log(request, query, e);
             return new Result(query, ErrorMessage.createUnspecifiedError("Failed searching: " +
                                                                          Exceptions.toMessageString(e), e));
         }
+        throw (Error) e;
     }
 
     private void connectionStatistics() {
-        int connections = requestsInFlight.intValue();
+        int connections = queriesInFlight.intValue();
         searchConnections.put(connections);
-        if (maxThreads > 3) {
-            // cast to long to avoid overflows if maxThreads is at no
+        if (maxQueriesInFlight > 3) {
+            // cast to long to avoid overflows if maxQueriesInFlight is at no
             // log value (maxint)
-            final long maxThreadsAsLong = maxThreads;
+            final long maxQueriesAsLong = maxQueriesInFlight;
             final long connectionsAsLong = connections;
             // only log when exactly crossing the limit to avoid
             // spamming the log
-            if (connectionsAsLong < maxThreadsAsLong * 9L / 10L) {
+            if (connectionsAsLong < maxQueriesAsLong * 9L / 10L) {
                 // NOP
-            } else if (connectionsAsLong == maxThreadsAsLong * 9L / 10L) {
-                log.log(Level.WARNING, threadConsumptionMessage(connections, maxThreads, "90"));
-            } else if (connectionsAsLong == maxThreadsAsLong * 95L / 100L) {
-                log.log(Level.WARNING, threadConsumptionMessage(connections, maxThreads, "95"));
-            } else if (connectionsAsLong == maxThreadsAsLong) {
-                log.log(Level.WARNING, threadConsumptionMessage(connections, maxThreads, "100"));
+            } else if (connectionsAsLong == maxQueriesAsLong * 9L / 10L) {
+                log.log(Level.WARNING, queriesInFlightMessage(connections, "90"));
+            } else if (connectionsAsLong == maxQueriesAsLong * 95L / 100L) {
+                log.log(Level.WARNING, queriesInFlightMessage(connections, "95"));
+            } else if (connectionsAsLong == maxQueriesAsLong) {
+                log.log(Level.WARNING, queriesInFlightMessage(connections, "100"));
             }
         }
     }
 
-    private String threadConsumptionMessage(int connections, int maxThreads, String percentage) {
-        return percentage + "% of possible search connections (" + connections +
-               " of maximum " + maxThreads + ") currently active.";
+    private String queriesInFlightMessage(int connections, String percentage) {
+        return percentage + "% of possible queries in flight (" + connections +
+               " of maximum " + maxQueriesInFlight + ") currently executing.";
     }
 
     private void log(String request, Query query, Throwable e) {
@@ -41,6 +41,15 @@ public class QueryProfileProperties extends Properties {
      */
     private List<Pair<CompoundName, CompiledQueryProfile>> references = null;
 
+    /** Whether values are shared with a clone, such that they must be copied before they are modified */
+    private boolean sharedValues = false;
+
+    /** Whether references are shared with a clone, such that they must be copied before they are modified */
+    private boolean sharedReferences = false;
+
+    /** Whether values may contain values which must be cloned when this is cloned */
+    private boolean hasClonableValues = false;
+
     /** Creates an instance from a profile, throws an exception if the given profile is null */
     public QueryProfileProperties(CompiledQueryProfile profile) {
         Validator.ensureNotNull("The profile wrapped by this cannot be null", profile);
@@ -138,14 +147,12 @@ public class QueryProfileProperties extends Properties {
             }
 
             if (value instanceof CompiledQueryProfile) { // this will be due to one of the two clauses above
-                if (references == null)
-                    references = new ArrayList<>();
-                references.add(0, new Pair<>(name, (CompiledQueryProfile)value)); // references set later has precedence - put first
+                ownReferences().add(0, new Pair<>(name, (CompiledQueryProfile)value)); // references set later has precedence - put first
             }
             else {
-                if (values == null)
-                    values = new HashMap<>();
-                values.put(name, value);
+                ownValues().put(name, value);
+                if (value instanceof Cloneable)
+                    hasClonableValues = true;
             }
         }
         catch (IllegalArgumentException e) {
@@ -155,12 +162,34 @@ public class QueryProfileProperties extends Properties {
 
     @Override
     public void clearAll(CompoundName name, Map<String, String> context) {
-        if (references == null)
-            references = new ArrayList<>();
-        references.add(new Pair<>(name, null));
+        ownReferences().add(new Pair<>(name, null));
 
         if (values != null)
-            values.keySet().removeIf(key -> key.hasPrefix(name));
+            ownValues().keySet().removeIf(key -> key.hasPrefix(name));
+    }
+
+    /** Returns the values of this, after creating them or copying them if they are shared with a clone */
+    private Map<CompoundName, Object> ownValues() {
+        if (values == null) {
+            values = new HashMap<>();
+        }
+        else if (sharedValues) {
+            values = new HashMap<>(values);
+            sharedValues = false;
+        }
+        return values;
+    }
+
+    /** Returns the references of this, after creating them or copying them if they are shared with a clone */
+    private List<Pair<CompoundName, CompiledQueryProfile>> ownReferences() {
+        if (references == null) {
+            references = new ArrayList<>();
+        }
+        else if (sharedReferences) {
+            references = new ArrayList<>(references);
+            sharedReferences = false;
+        }
+        return references;
     }
 
     @Override
@@ -297,8 +326,20 @@ public class QueryProfileProperties extends Properties {
     @Override
     public QueryProfileProperties clone() {
         QueryProfileProperties clone = (QueryProfileProperties)super.clone();
-        if (this.values != null)
-            clone.values = PropertyMap.cloneMap(this.values);
+        if (this.values != null) {
+            if (hasClonableValues) {
+                clone.values = PropertyMap.cloneMap(this.values);
+                clone.sharedValues = false;
+            }
+            else { // values which cannot be cloned are shared with the clone in any case, so it can share the map too
+                sharedValues = true;
+                clone.sharedValues = true;
+            }
+        }
+        if (this.references != null) {
+            sharedReferences = true;
+            clone.sharedReferences = true;
+        }
         return clone;
     }
 
@@ -86,6 +86,13 @@ public class Binding implements Comparable<Binding> {
         this.hashCode = Arrays.hashCode(dimensions) + 11 * Arrays.hashCode(dimensionValues);
     }
 
+    /** Creates a binding of the given values, which must be in the order of the dimensions of the given spec */
+    Binding(DimensionalValue.BindingSpec spec, String[] dimensionValues) {
+        this.generality = 0; // Not used here
+        this.dimensions = spec.dimensions();
+        this.dimensionValues = dimensionValues;
+        this.hashCode = Arrays.hashCode(dimensions) + 11 * Arrays.hashCode(dimensionValues);
+    }
 
     /** Returns true only if this binding is null (contains no values for its dimensions (if any) */
     public boolean isNull() { return dimensions.length == 0; }
@@ -24,14 +24,14 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
 
     private static final Pattern namePattern = Pattern.compile("[$a-zA-Z_/][-$a-zA-Z0-9_/()]*");
 
+    /** The max number of dimension value combinations to keep resolved values for */
+    private static final int maxResolvedContexts = 256;
+
     private final CompiledQueryProfileRegistry registry;
 
     /** The type of this, or null if none */
     private final QueryProfileType type;
 
-    /** The values of this */
-    private final DimensionalMap<CompoundName, ValueWithSource> entries;
-
     /** Keys which have a type in this */
     private final DimensionalMap<CompoundName, QueryProfileType> types;
 
@@ -41,6 +41,9 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
     /** Values which are not overridable in this. Used as a set. */
     private final DimensionalMap<CompoundName, Object> unoverridables;
 
+    /** The values of this, resolved for the dimension value combinations seen in recent requests */
+    private final ResolutionCache resolutionCache;
+
     /**
      * Creates a new query profile from an id.
      */
@@ -56,10 +59,10 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         if (type != null)
             type.freeze();
         this.type = type;
-        this.entries = entries;
         this.types = types;
         this.references = references;
         this.unoverridables = unoverridables;
+        this.resolutionCache = new ResolutionCache(entries, maxResolvedContexts);
         if ( ! id.isAnonymous())
             validateName(id.getName());
     }
@@ -96,6 +99,9 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
     /** Returns the references reachable from this, or an empty map (never null) if none */
     public DimensionalMap<CompoundName, Object> getReferences() { return references; }
 
+    /** Returns the cache of the values of this resolved for particular contexts, to allow its statistics to be reported */
+    public ResolutionCache getResolutionCache() { return resolutionCache; }
+
     /**
      * Return all objects that start with the given prefix path using no context. Use "" to list all.
      * <p>
@@ -133,12 +139,10 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
      */
     public Map<String, Object> listValues(CompoundName prefix, Map<String, String> context, Properties substitution) {
         Map<String, Object> values = new HashMap<>();
-        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entries.entrySet()) {
+        for (Map.Entry<CompoundName, ValueWithSource> entry : resolutionCache.get(context).entrySet()) {
             if ( ! entry.getKey().hasPrefix(prefix)) continue;
 
-            ValueWithSource valueWithSource = entry.getValue().get(context);
-            if (valueWithSource == null) continue;
-
+            ValueWithSource valueWithSource = entry.getValue();
             Object value = valueWithSource.value();
             if (value == null) continue;
 
@@ -153,12 +157,11 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
                                                               Map<String, String> context,
                                                               Properties substitution) {
         Map<String, ValueWithSource> values = new HashMap<>();
-        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entries.entrySet()) {
+        for (Map.Entry<CompoundName, ValueWithSource> entry : resolutionCache.get(context).entrySet()) {
             if ( entry.getKey().size() <= prefix.size()) continue;
             if ( ! entry.getKey().hasPrefix(prefix)) continue;
 
-            ValueWithSource valueWithSource = entry.getValue().get(context);
-            if (valueWithSource == null) continue;
+            ValueWithSource valueWithSource = entry.getValue();
             if (valueWithSource.value() == null) continue;
 
             valueWithSource = valueWithSource.withValue(substitute(valueWithSource.value(), context, substitution));
@@ -178,7 +181,7 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         return get(new CompoundName(name), context, substitution);
     }
     public final Object get(CompoundName name, Map<String, String> context, Properties substitution) {
-        ValueWithSource value = entries.get(name, context);
+        ValueWithSource value = resolutionCache.get(context).get(name);
         if (value == null) return null;
         return substitute(value.value(), context, substitution);
     }
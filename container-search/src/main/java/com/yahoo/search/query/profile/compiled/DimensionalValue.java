@@ -56,6 +56,14 @@ public class DimensionalValue<VALUE> {
 
     public boolean isEmpty() { return indexedVariants.isEmpty(); }
 
+    /** Adds the values this has bindings for to the given sets of values by dimension */
+    void addDimensionValuesTo(Map<String, Set<String>> dimensionValues) {
+        for (Binding binding : indexedVariants.keySet()) {
+            for (int i = 0; i < binding.dimensions().length; i++)
+                dimensionValues.computeIfAbsent(binding.dimensions()[i], __ -> new HashSet<>()).add(binding.dimensionValues()[i]);
+        }
+    }
+
     @Override
     public String toString() {
         return indexedVariants.toString();
@@ -222,7 +230,11 @@ public class DimensionalValue<VALUE> {
         private final String[] dimensions;
 
         public BindingSpec(Binding binding) {
-            this.dimensions = binding.dimensions();
+            this(binding.dimensions());
+        }
+
+        BindingSpec(String[] dimensions) {
+            this.dimensions = dimensions;
         }
 
         /** Do not change the returned array */
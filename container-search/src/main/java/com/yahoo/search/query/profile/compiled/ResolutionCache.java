@@ -0,0 +1,147 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.query.profile.compiled;
+
+import com.google.common.collect.ImmutableMap;
+import com.yahoo.processing.request.CompoundName;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of the values of a compiled query profile fully resolved for
+ * a given combination of dimension values. This allows values to be looked up by a single hash lookup
+ * instead of matching each variant of the value to the context.
+ *
+ * The cache is keyed on the values in the context of the dimensions used by variants in the profile,
+ * where values no variant is bound to are treated as missing, so contexts which differ only in other
+ * values share the same resolved values.
+ *
+ * Lookups do not lock. When the cache is full, an arbitrary entry is evicted to make room for a new one,
+ * rather than the least recently used, as tracking use would make every lookup a write.
+ *
+ * This class is multithread safe.
+ */
+public final class ResolutionCache {
+
+    private final DimensionalMap<CompoundName, ValueWithSource> entries;
+
+    /** The dimensions used by the variants of the entries, or null if there are no variants */
+    private final DimensionalValue.BindingSpec dimensions;
+
+    /** The values bound by the variants of the entries, for each of the above dimensions in order */
+    private final List<Set<String>> dimensionValues;
+
+    /** The resolved values when there are no variants, or null if there are variants */
+    private final Map<CompoundName, ValueWithSource> invariantValues;
+
+    private final int maxEntries;
+    private final Map<Binding, Map<CompoundName, ValueWithSource>> resolved;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    ResolutionCache(DimensionalMap<CompoundName, ValueWithSource> entries, int maxEntries) {
+        this.entries = entries;
+        this.maxEntries = maxEntries;
+        this.resolved = new ConcurrentHashMap<>();
+
+        Map<String, Set<String>> dimensionValueSets = new TreeMap<>();
+        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entries.entrySet())
+            entry.getValue().addDimensionValuesTo(dimensionValueSets);
+        if (dimensionValueSets.isEmpty()) {
+            this.dimensions = null;
+            this.dimensionValues = null;
+            this.invariantValues = resolve(Collections.emptyMap());
+        }
+        else {
+            this.dimensions = new DimensionalValue.BindingSpec(dimensionValueSets.keySet().toArray(new String[0]));
+            this.dimensionValues = List.copyOf(dimensionValueSets.values());
+            this.invariantValues = null;
+        }
+    }
+
+    /** Returns the values of the profile resolved in the given context, which may be null */
+    Map<CompoundName, ValueWithSource> get(Map<String, String> context) {
+        if (invariantValues != null) return invariantValues;
+        if (context == null)
+            context = Collections.emptyMap();
+
+        Binding key = keyOf(context);
+        Map<CompoundName, ValueWithSource> values = resolved.get(key);
+        if (values != null) {
+            hits.incrementAndGet();
+            return values;
+        }
+
+        values = resolve(contextOf(key));
+        misses.incrementAndGet();
+        makeRoom();
+        resolved.put(key, values);
+        return values;
+    }
+
+    /** Evicts arbitrary entries until there is room for one more. Concurrent inserts may exceed the limit slightly. */
+    private void makeRoom() {
+        for (Iterator<Binding> i = resolved.keySet().iterator(); resolved.size() >= maxEntries && i.hasNext(); ) {
+            i.next();
+            i.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /** Returns the values of the given context in the dimensions of this, with values no variant is bound to as null */
+    private Binding keyOf(Map<String, String> context) {
+        String[] values = new String[dimensions.dimensions().length];
+        for (int i = 0; i < values.length; i++) {
+            String value = context.get(dimensions.dimensions()[i]);
+            if (value != null && dimensionValues.get(i).contains(value))
+                values[i] = value;
+        }
+        return new Binding(dimensions, values);
+    }
+
+    private Map<CompoundName, ValueWithSource> resolve(Map<String, String> context) {
+        ImmutableMap.Builder<CompoundName, ValueWithSource> values = new ImmutableMap.Builder<>();
+        for (Map.Entry<CompoundName, DimensionalValue<ValueWithSource>> entry : entries.entrySet()) {
+            ValueWithSource value = entry.getValue().get(context);
+            if (value != null)
+                values.put(entry.getKey(), value);
+        }
+        return values.build();
+    }
+
+    /**
+     * Returns the context containing only the dimension values of the given key.
+     * Dimensions which are missing, set to null or set to a value no variant is bound to are equivalent,
+     * as no variant matches them.
+     */
+    private static Map<String, String> contextOf(Binding key) {
+        Map<String, String> context = new HashMap<>();
+        for (int i = 0; i < key.dimensions().length; i++) {
+            if (key.dimensionValues()[i] != null)
+                context.put(key.dimensions()[i], key.dimensionValues()[i]);
+        }
+        return context;
+    }
+
+    /** Returns the number of lookups which found resolved values in this */
+    public long hits() { return hits.get(); }
+
+    /** Returns the number of lookups which had to resolve the values of a new combination of dimension values */
+    public long misses() { return misses.get(); }
+
+    /** Returns the number of resolved value sets removed from this to keep it within its maximum size */
+    public long evictions() { return evictions.get(); }
+
+    /** Returns the number of combinations of dimension values which currently have resolved values in this */
+    public int size() { return resolved.size(); }
+
+}
@@ -10,7 +10,8 @@ import java.util.HashMap;
  * A Map backing of Properties.
  * <p>
  * When this is cloned it will deep copy not only the model object map, but also each
- * clonable member inside the map.
+ * clonable member inside the map. If there are no clonable members, the map is instead shared
+ * with the clone until either of them modifies it.
  * <p>
  * Subclassing is supported, a hook can be implemented to provide conditional inclusion in the map.
  * By default - all properties are accepted, so set is never propagated.
@@ -26,14 +27,33 @@ public class PropertyMap extends Properties {
     /** The properties of this */
     private Map<CompoundName, Object> properties = new LinkedHashMap<>();
 
+    /** Whether the properties map is shared with a clone, such that it must be copied before it is modified */
+    private boolean shared = false;
+
+    /** Whether the properties map may contain values which must be cloned when this is cloned */
+    private boolean hasClonableValues = false;
+
     public void set(CompoundName name, Object value, Map<String, String> context) {
-        if (value == null) // Both clear and forward
-            properties.remove(name);
+        if (value == null && properties.containsKey(name)) // Both clear and forward
+            ownProperties().remove(name);
 
-        if (shouldSet(name, value))
-            properties.put(name, value);
-        else
+        if (shouldSet(name, value)) {
+            ownProperties().put(name, value);
+            if (value instanceof Cloneable)
+                hasClonableValues = true;
+        }
+        else {
             super.set(name, value, context);
+        }
+    }
+
+    /** Returns the properties map, after copying it first if it is shared with a clone */
+    private Map<CompoundName, Object> ownProperties() {
+        if (shared) {
+            properties = new LinkedHashMap<>(properties);
+            shared = false;
+        }
+        return properties;
     }
 
     /**
@@ -53,12 +73,21 @@ public class PropertyMap extends Properties {
      * Returns a direct reference to the map containing the properties set in this instance.
      */
     public Map<CompoundName, Object> propertyMap() {
-        return properties;
+        hasClonableValues = true; // as we don't know what will be put in it
+        return ownProperties();
     }
 
     @Override
     public PropertyMap clone() {
         PropertyMap clone = (PropertyMap)super.clone();
+        if ( ! hasClonableValues) {
+            // Values which cannot be cloned are shared with the clone in any case, so it can share the map too
+            shared = true;
+            clone.shared = true;
+            return clone;
+        }
+
+        clone.shared = false;
         clone.properties = new HashMap<>();
         for (Map.Entry<CompoundName, Object> entry : this.properties.entrySet()) {
             Object cloneValue = cloneHelper.clone(entry.getValue());
@@ -166,7 +166,7 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
     public void beginResponse(OutputStream stream) throws IOException {
         beginJsonCallback(stream);
         debugRendering = getDebugRendering(getResult().getQuery());
-        setGenerator(generatorFactory.createGenerator(stream, JsonEncoding.UTF8), debugRendering);
+        setGenerator(createGenerator(stream), debugRendering);
         renderedChildren = new ArrayDeque<>();
         generator.writeStartObject();
         renderTrace(getExecution().trace());
@@ -174,6 +174,11 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         generator.writeFieldName(ROOT);
     }
 
+    /** Creates the generator this renders the response to */
+    protected JsonGenerator createGenerator(OutputStream stream) throws IOException {
+        return generatorFactory.createGenerator(stream, JsonEncoding.UTF8);
+    }
+
     private void renderTiming() throws IOException {
         if (!getResult().getQuery().getPresentation().getTiming()) return;
 
@@ -490,7 +495,8 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         }
     }
 
-    private boolean shouldRenderJsonCallback() {
+    /** Returns whether the response should be wrapped in a JSONP callback function */
+    protected boolean shouldRenderJsonCallback() {
         String jsonCallback = getJsonCallback();
         return jsonCallback != null && !"".equals(jsonCallback);
     }
@@ -530,6 +536,9 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         private final JsonGenerator generator;
         private final boolean debugRendering;
 
+        /** Writes values received as Slime, created on first use */
+        private SlimeJsonWriter slimeJsonWriter = null;
+
         private MutableBoolean hasFieldsField;
 
         public FieldConsumer(JsonGenerator generator, boolean debugRendering) {
@@ -622,6 +631,7 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         }
 
         private void renderInspector(Inspector data) throws IOException {
+            if (renderSlime(data, true)) return;
             Inspector asMap = wrapAsMap(data);
             if (asMap != null) {
                 StringBuilder intermediate = new StringBuilder();
@@ -633,11 +643,21 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         }
 
         private void renderInspectorDirect(Inspector data) throws IOException {
+            if (renderSlime(data, false)) return;
             StringBuilder intermediate = new StringBuilder();
             JsonRender.render(data, intermediate, true);
             generator.writeRawValue(intermediate.toString());
         }
 
+        /** Renders the given data directly from the UTF-8 Slime backing it, if any. Returns whether it was rendered. */
+        private boolean renderSlime(Inspector data, boolean renderMaps) throws IOException {
+            com.yahoo.slime.Inspector slime = SlimeJsonWriter.slimeOf(data);
+            if (slime == null) return false;
+            if (slimeJsonWriter == null)
+                slimeJsonWriter = new SlimeJsonWriter();
+            return slimeJsonWriter.write(slime, renderMaps, generator);
+        }
+
         protected void renderFieldContents(Object field) throws IOException {
             if (field instanceof Inspectable && ! (field instanceof FeatureData)) {
                 renderInspector(((Inspectable)field).inspect());
@@ -23,6 +23,7 @@ public final class RendererRegistry extends ComponentRegistry<com.yahoo.processi
     public static final ComponentId xmlRendererId = ComponentId.fromString("XmlRenderer");
     public static final ComponentId pageRendererId = ComponentId.fromString("PageTemplatesXmlRenderer");
     public static final ComponentId jsonRendererId = ComponentId.fromString("JsonRenderer");
+    public static final ComponentId slimeRendererId = ComponentId.fromString("SlimeRenderer");
     public static final ComponentId defaultRendererId = jsonRendererId;
     
     /** Creates a registry containing the built-in renderers only */
@@ -54,6 +55,11 @@ public final class RendererRegistry extends ComponentRegistry<com.yahoo.processi
         jsonRenderer.initId(RendererRegistry.jsonRendererId);
         register(jsonRenderer.getId(), jsonRenderer);
 
+        // Add slime renderer
+        Renderer slimeRenderer = new SlimeRenderer(executor);
+        slimeRenderer.initId(slimeRendererId);
+        register(slimeRenderer.getId(), slimeRenderer);
+
         // Add xml renderer
         Renderer xmlRenderer = new XmlRenderer(executor);
         xmlRenderer.initId(xmlRendererId);
@@ -75,6 +81,7 @@ public final class RendererRegistry extends ComponentRegistry<com.yahoo.processi
     public void deconstruct() {
         // deconstruct the renderers which was created by this
         getRenderer(jsonRendererId.toSpecification()).deconstruct();
+        getRenderer(slimeRendererId.toSpecification()).deconstruct();
         getRenderer(xmlRendererId.toSpecification()).deconstruct();
         getRenderer(pageRendererId.toSpecification()).deconstruct();
     }
@@ -98,6 +105,7 @@ public final class RendererRegistry extends ComponentRegistry<com.yahoo.processi
     public com.yahoo.processing.rendering.Renderer<Result> getRenderer(ComponentSpecification format) {
         if (format == null || format.stringValue().equals("default")) return getDefaultRenderer();
         if (format.stringValue().equals("json")) return getComponent(jsonRendererId);
+        if (format.stringValue().equals("slime")) return getComponent(slimeRendererId);
         if (format.stringValue().equals("xml")) return getComponent(xmlRendererId);
         if (format.stringValue().equals("page")) return getComponent(pageRendererId);
 
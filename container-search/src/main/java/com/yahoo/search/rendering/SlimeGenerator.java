@@ -0,0 +1,301 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.rendering;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.base.GeneratorBase;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
+import com.yahoo.slime.ArrayInserter;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Injector;
+import com.yahoo.slime.Inserter;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.JsonDecoder;
+import com.yahoo.slime.ObjectInserter;
+import com.yahoo.slime.Slime;
+import com.yahoo.slime.SlimeInserter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * A JSON generator which builds the written value as a Slime, and writes it to the output stream
+ * in the Slime binary format when closed. This allows renderers written against the JSON generator API
+ * to produce the same structure in a format which is cheaper to parse.
+ *
+ * Raw JSON values are parsed into the Slime, while raw content which is not a complete value is not supported.
+ * Numbers which cannot be represented as a Slime long are written as doubles.
+ *
+ * This is not multithread safe.
+ */
+final class SlimeGenerator extends GeneratorBase {
+
+    private final OutputStream stream;
+    private final Slime slime = new Slime();
+
+    /** The arrays and objects currently being written, innermost first */
+    private final Deque<Cursor> containers = new ArrayDeque<>();
+
+    private final SlimeInserter slimeInserter = new SlimeInserter(slime);
+    private final ArrayInserter arrayInserter = new ArrayInserter(null);
+    private final ObjectInserter objectInserter = new ObjectInserter(null, null);
+    private final Injector injector = new Injector();
+
+    SlimeGenerator(OutputStream stream, ObjectCodec codec) {
+        super(Feature.collectDefaults(), codec);
+        this.stream = stream;
+    }
+
+    /** Writes the given Slime value */
+    void writeSlime(Inspector value) throws IOException {
+        _verifyValueWrite("write a Slime value");
+        injector.inject(value, inserter());
+    }
+
+    /** Writes the given Slime array of key/value objects as an object */
+    void writeSlimeMap(Inspector map) throws IOException {
+        _verifyValueWrite("write a Slime map");
+        Cursor object = inserter().insertOBJECT();
+        for (int i = 0; i < map.entries(); i++) {
+            Inspector entry = map.entry(i);
+            injector.inject(entry.field("value"), objectInserter.adjust(object, entry.field("key").asString()));
+        }
+    }
+
+    @Override
+    public void writeStartArray() throws IOException {
+        _verifyValueWrite("start an array");
+        containers.push(inserter().insertARRAY());
+        _writeContext = _writeContext.createChildArrayContext();
+    }
+
+    @Override
+    public void writeEndArray() throws IOException {
+        if ( ! _writeContext.inArray())
+            _reportError("Current context not Array but " + _writeContext.typeDesc());
+        containers.pop();
+        _writeContext = _writeContext.clearAndGetParent();
+    }
+
+    @Override
+    public void writeStartObject() throws IOException {
+        _verifyValueWrite("start an object");
+        containers.push(inserter().insertOBJECT());
+        _writeContext = _writeContext.createChildObjectContext();
+    }
+
+    @Override
+    public void writeEndObject() throws IOException {
+        if ( ! _writeContext.inObject())
+            _reportError("Current context not Object but " + _writeContext.typeDesc());
+        containers.pop();
+        _writeContext = _writeContext.clearAndGetParent();
+    }
+
+    @Override
+    public void writeFieldName(String name) throws IOException {
+        if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE)
+            _reportError("Can not write a field name, expecting a value");
+    }
+
+    @Override
+    public void writeString(String text) throws IOException {
+        if (text == null) {
+            writeNull();
+            return;
+        }
+        _verifyValueWrite("write a string");
+        inserter().insertSTRING(text);
+    }
+
+    @Override
+    public void writeString(char[] text, int offset, int len) throws IOException {
+        writeString(new String(text, offset, len));
+    }
+
+    @Override
+    public void writeString(SerializableString text) throws IOException {
+        _verifyValueWrite("write a string");
+        inserter().insertSTRING(text.asUnquotedUTF8());
+    }
+
+    @Override
+    public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+        writeUTF8String(text, offset, length);
+    }
+
+    @Override
+    public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+        _verifyValueWrite("write a string");
+        inserter().insertSTRING(Arrays.copyOfRange(text, offset, offset + length));
+    }
+
+    @Override
+    public void writeRawValue(String text) throws IOException {
+        writeJson(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeRawValue(String text, int offset, int len) throws IOException {
+        writeRawValue(text.substring(offset, offset + len));
+    }
+
+    @Override
+    public void writeRawValue(char[] text, int offset, int len) throws IOException {
+        writeRawValue(new String(text, offset, len));
+    }
+
+    @Override
+    public void writeRawValue(SerializableString text) throws IOException {
+        writeJson(text.asUnquotedUTF8());
+    }
+
+    private void writeJson(byte[] json) throws IOException {
+        _verifyValueWrite("write a raw value");
+        Slime value = new JsonDecoder().decodeOrThrow(new Slime(), json);
+        injector.inject(value.get(), inserter());
+    }
+
+    @Override
+    public void writeRaw(String text) {
+        throw new UnsupportedOperationException("Raw content which is not a complete value cannot be written as Slime");
+    }
+
+    @Override
+    public void writeRaw(String text, int offset, int len) {
+        throw new UnsupportedOperationException("Raw content which is not a complete value cannot be written as Slime");
+    }
+
+    @Override
+    public void writeRaw(char[] text, int offset, int len) {
+        throw new UnsupportedOperationException("Raw content which is not a complete value cannot be written as Slime");
+    }
+
+    @Override
+    public void writeRaw(char c) {
+        throw new UnsupportedOperationException("Raw content which is not a complete value cannot be written as Slime");
+    }
+
+    @Override
+    public void writeBinary(Base64Variant variant, byte[] data, int offset, int len) throws IOException {
+        _verifyValueWrite("write binary value");
+        inserter().insertDATA(Arrays.copyOfRange(data, offset, offset + len));
+    }
+
+    @Override
+    public void writeNumber(int v) throws IOException {
+        writeNumber((long)v);
+    }
+
+    @Override
+    public void writeNumber(long v) throws IOException {
+        _verifyValueWrite("write a number");
+        inserter().insertLONG(v);
+    }
+
+    @Override
+    public void writeNumber(BigInteger v) throws IOException {
+        if (v == null) {
+            writeNull();
+        }
+        else if (v.bitLength() < Long.SIZE) {
+            writeNumber(v.longValue());
+        }
+        else {
+            writeNumber(v.doubleValue());
+        }
+    }
+
+    @Override
+    public void writeNumber(double v) throws IOException {
+        _verifyValueWrite("write a number");
+        inserter().insertDOUBLE(v);
+    }
+
+    @Override
+    public void writeNumber(float v) throws IOException {
+        writeNumber((double)v);
+    }
+
+    @Override
+    public void writeNumber(BigDecimal v) throws IOException {
+        if (v == null)
+            writeNull();
+        else
+            writeNumber(v.doubleValue());
+    }
+
+    @Override
+    public void writeNumber(String encodedValue) throws IOException {
+        try {
+            writeNumber(Long.parseLong(encodedValue));
+        }
+        catch (NumberFormatException e) {
+            writeNumber(Double.parseDouble(encodedValue));
+        }
+    }
+
+    @Override
+    public void writeBoolean(boolean state) throws IOException {
+        _verifyValueWrite("write a boolean value");
+        inserter().insertBOOL(state);
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        _verifyValueWrite("write a null");
+        inserter().insertNIX();
+    }
+
+    @Override
+    public void flush() {
+        // Nothing is written before the generator is closed
+    }
+
+    /** Writes the Slime built by this to the output stream in the binary format, if it is complete */
+    @Override
+    public void close() throws IOException {
+        if (isClosed()) return;
+        if (isEnabled(Feature.AUTO_CLOSE_JSON_CONTENT)) { // as Jackson's generators, which the JSON renderer relies on
+            while ( ! _writeContext.inRoot()) {
+                if (_writeContext.inArray())
+                    writeEndArray();
+                else
+                    writeEndObject();
+            }
+        }
+        super.close();
+        if (containers.isEmpty() && _writeContext.getEntryCount() > 0)
+            stream.write(BinaryFormat.encode(slime));
+        stream.flush();
+    }
+
+    @Override
+    protected void _releaseBuffers() { }
+
+    @Override
+    protected void _verifyValueWrite(String typeMsg) throws IOException {
+        if (_writeContext.writeValue() == JsonWriteContext.STATUS_EXPECT_NAME)
+            _reportError("Can not " + typeMsg + ", expecting a field name");
+        if (_writeContext.inRoot() && _writeContext.getEntryCount() > 1)
+            _reportError("Can not " + typeMsg + ", a Slime can only hold a single root value");
+    }
+
+    /** Returns an inserter for the next value, after it is verified that a value can be written */
+    private Inserter inserter() {
+        if (_writeContext.inObject())
+            return objectInserter.adjust(containers.peek(), _writeContext.getCurrentName());
+        if (_writeContext.inArray())
+            return arrayInserter.adjust(containers.peek());
+        return slimeInserter;
+    }
+
+}
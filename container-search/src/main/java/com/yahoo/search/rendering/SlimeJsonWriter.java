@@ -0,0 +1,165 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.rendering;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.yahoo.data.access.Inspector;
+import com.yahoo.data.access.slime.SlimeAdapter;
+import com.yahoo.io.ByteWriter;
+import com.yahoo.slime.JsonFormat;
+import com.yahoo.slime.Type;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes summary field values backed by Slime to a JSON generator as raw UTF-8 JSON encoded by
+ * {@link JsonFormat}, such that strings are copied as the UTF-8 bytes they are received as
+ * instead of being decoded to Java strings and encoded again.
+ * The output is equivalent JSON to that produced by rendering the values through the data access API,
+ * but not byte identical: Non-ASCII characters (and DEL) are written as UTF-8 instead of as escape sequences,
+ * as with string fields rendered by Jackson.
+ *
+ * This is not multithread safe.
+ */
+final class SlimeJsonWriter {
+
+    private final Utf8Buffer buffer = new Utf8Buffer();
+    private final ByteWriter writer = new ByteWriter(buffer);
+
+    /** Returns the Slime inspector wrapped by the given value, or null if it is not backed by Slime */
+    static com.yahoo.slime.Inspector slimeOf(Inspector value) {
+        return value instanceof SlimeAdapter ? ((SlimeAdapter)value).slimeInspector() : null;
+    }
+
+    /**
+     * Writes the given value to the generator.
+     *
+     * @param value the value to write
+     * @param renderMaps whether an array of key/value objects should be written as a JSON object
+     * @param generator the generator to write to, positioned where a value is expected
+     * @return true if the value was written, false if it is a map with duplicate keys which is left to the caller
+     */
+    boolean write(com.yahoo.slime.Inspector value, boolean renderMaps, JsonGenerator generator) throws IOException {
+        buffer.reset();
+        if (renderMaps && isMap(value)) {
+            if ( ! hasDistinctKeys(value)) return false;
+            encodeMap(value);
+        }
+        else {
+            new JsonFormat.Encoder(value, writer, true).encode();
+        }
+        generator.writeRawValue(buffer);
+        return true;
+    }
+
+    private void encodeMap(com.yahoo.slime.Inspector map) throws IOException {
+        writer.append((byte)'{');
+        for (int i = 0; i < map.entries(); i++) {
+            com.yahoo.slime.Inspector entry = map.entry(i);
+            if (i > 0)
+                writer.append((byte)',');
+            new JsonFormat.Encoder(entry.field("key"), writer, true).encode();
+            writer.append((byte)':');
+            new JsonFormat.Encoder(entry.field("value"), writer, true).encode();
+        }
+        writer.append((byte)'}');
+        writer.flush();
+    }
+
+    /** Returns whether the given value is a non-empty array of objects containing exactly a string "key" and a "value" */
+    static boolean isMap(com.yahoo.slime.Inspector value) {
+        if (value.type() != Type.ARRAY) return false;
+        if (value.entries() == 0) return false;
+        for (int i = 0; i < value.entries(); i++) {
+            com.yahoo.slime.Inspector entry = value.entry(i);
+            if (entry.type() != Type.OBJECT) return false;
+            if (entry.fields() != 2) return false;
+            if (entry.field("key").type() != Type.STRING) return false;
+            if ( ! entry.field("value").valid()) return false;
+        }
+        return true;
+    }
+
+    static boolean hasDistinctKeys(com.yahoo.slime.Inspector map) {
+        Set<ByteBuffer> keys = new HashSet<>();
+        for (int i = 0; i < map.entries(); i++) {
+            if ( ! keys.add(ByteBuffer.wrap(map.entry(i).field("key").asUtf8())))
+                return false;
+        }
+        return true;
+    }
+
+    /** A reusable buffer of encoded JSON which can be written as a raw value by a JSON generator */
+    private static class Utf8Buffer extends ByteArrayOutputStream implements SerializableString {
+
+        Utf8Buffer() {
+            super(1024);
+        }
+
+        @Override
+        public String getValue() { return new String(buf, 0, count, StandardCharsets.UTF_8); }
+
+        @Override
+        public int charLength() { return getValue().length(); }
+
+        @Override
+        public byte[] asUnquotedUTF8() { return Arrays.copyOf(buf, count); }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            if (count > buffer.length - offset) return -1;
+            System.arraycopy(buf, 0, buffer, offset, count);
+            return count;
+        }
+
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            String value = getValue();
+            if (value.length() > buffer.length - offset) return -1;
+            value.getChars(0, value.length(), buffer, offset);
+            return value.length();
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(buf, 0, count);
+            return count;
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer out) {
+            if (count > out.remaining()) return -1;
+            out.put(buf, 0, count);
+            return count;
+        }
+
+        // This is raw JSON which is never written as a quoted string
+
+        @Override
+        public char[] asQuotedChars() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public byte[] asQuotedUTF8() { throw new UnsupportedOperationException(); }
+
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public int appendQuoted(char[] buffer, int offset) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public int writeQuotedUTF8(OutputStream out) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) { throw new UnsupportedOperationException(); }
+
+    }
+
+}
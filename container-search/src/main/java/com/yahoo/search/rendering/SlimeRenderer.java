@@ -0,0 +1,95 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.rendering;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.yahoo.data.access.Inspectable;
+import com.yahoo.search.result.FeatureData;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+
+/**
+ * Renders a search result in the Slime binary format (see com.yahoo.slime.BinaryFormat).
+ * The result has the same structure as the one rendered by {@link JsonRenderer},
+ * but is much cheaper to parse for clients which can read the binary format.
+ * Summary fields which are received as Slime are copied without being converted to JSON.
+ *
+ * Unlike the JSON renderer, the result is written to the output in one piece when it is complete.
+ */
+public class SlimeRenderer extends JsonRenderer {
+
+    private final ObjectCodec codec = createJsonCodec();
+
+    public SlimeRenderer() {
+        this(null);
+    }
+
+    /**
+     * Creates a Slime renderer using a custom executor.
+     * Using a custom executor is useful for tests to avoid creating new threads for each renderer registry.
+     */
+    public SlimeRenderer(Executor executor) {
+        super(executor);
+    }
+
+    @Override
+    protected JsonGenerator createGenerator(OutputStream stream) {
+        return new SlimeGenerator(stream, codec);
+    }
+
+    @Override
+    protected FieldConsumer createFieldConsumer(JsonGenerator generator, boolean debugRendering) {
+        return new SlimeFieldConsumer((SlimeGenerator)generator, debugRendering);
+    }
+
+    @Override
+    protected boolean shouldRenderJsonCallback() { return false; }
+
+    @Override
+    public String getEncoding() { return null; }
+
+    @Override
+    public String getMimeType() { return "application/x-vespa-slime"; }
+
+    private static class SlimeFieldConsumer extends FieldConsumer {
+
+        private final SlimeGenerator generator;
+
+        SlimeFieldConsumer(SlimeGenerator generator, boolean debugRendering) {
+            super(generator, debugRendering);
+            this.generator = generator;
+        }
+
+        @Override
+        protected void renderFieldContents(Object field) throws IOException {
+            if ( ! renderSlime(field, true))
+                super.renderFieldContents(field);
+        }
+
+        @Override
+        public void accept(Object field) throws IOException {
+            if ( ! renderSlime(field, false))
+                super.accept(field);
+        }
+
+        /** Copies the given field directly if it is backed by Slime. Returns whether it was rendered. */
+        private boolean renderSlime(Object field, boolean renderMaps) throws IOException {
+            if ( ! (field instanceof Inspectable) || field instanceof FeatureData) return false;
+            com.yahoo.slime.Inspector slime = SlimeJsonWriter.slimeOf(((Inspectable)field).inspect());
+            if (slime == null) return false;
+
+            if (renderMaps && SlimeJsonWriter.isMap(slime)) {
+                if ( ! SlimeJsonWriter.hasDistinctKeys(slime)) return false;
+                generator.writeSlimeMap(slime);
+            }
+            else {
+                generator.writeSlime(slime);
+            }
+            return true;
+        }
+
+    }
+
+}
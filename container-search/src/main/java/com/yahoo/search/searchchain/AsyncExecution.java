@@ -61,6 +61,9 @@ public class AsyncExecution {
     /** The execution this executes */
     private final Execution execution;
 
+    /** The executor running the tasks of this */
+    private final Executor executor;
+
     /**
      * Creates an async execution.
      *
@@ -68,7 +71,18 @@ public class AsyncExecution {
      * @param execution the execution holding the context of this
      */
     public AsyncExecution(Chain<? extends Searcher> chain, Execution execution) {
-        this(execution.context(), chain);
+        this(chain, execution, executorMain);
+    }
+
+    /**
+     * Creates an async execution running in the given executor rather than the default pool of threads.
+     *
+     * @param chain the chain to execute
+     * @param execution the execution holding the context of this
+     * @param executor the executor running the search and fill tasks of this
+     */
+    public AsyncExecution(Chain<? extends Searcher> chain, Execution execution, Executor executor) {
+        this(execution.context(), chain, executor);
     }
 
     /**
@@ -78,7 +92,7 @@ public class AsyncExecution {
      * @param context the the context of this
      */
     public AsyncExecution(Chain<? extends Searcher> chain, Execution.Context context) {
-        this(context, chain);
+        this(context, chain, executorMain);
     }
 
     /**
@@ -102,11 +116,24 @@ public class AsyncExecution {
      * @see #AsyncExecution(Chain, Execution)
      */
     public AsyncExecution(Execution execution) {
+        this(execution, executorMain);
+    }
+
+    /**
+     * Creates an async execution from an existing execution, as {@link #AsyncExecution(Execution)},
+     * running in the given executor rather than the default pool of threads.
+     *
+     * @param execution the execution from which the state of this is created
+     * @param executor the executor running the search and fill tasks of this
+     */
+    public AsyncExecution(Execution execution, Executor executor) {
         this.execution = new Execution(execution);
+        this.executor = executor;
     }
 
-    private AsyncExecution(Execution.Context context, Chain<? extends Searcher> chain) {
+    private AsyncExecution(Execution.Context context, Chain<? extends Searcher> chain, Executor executor) {
         this.execution = new Execution(chain, context);
+        this.executor = executor;
     }
 
     /**
@@ -129,10 +156,6 @@ public class AsyncExecution {
         }, query);
     }
 
-    private static Executor getExecutor() {
-        return executorMain;
-    }
-
     /**
      * The future of this functions returns the original Result
      *
@@ -146,22 +169,22 @@ public class AsyncExecution {
 
     }
 
-    private static <T> Future<T> getFuture(Callable<T> callable) {
+    private static <T> Future<T> getFuture(Callable<T> callable, Executor executor) {
         FutureTask<T> future = new FutureTask<>(callable);
-        getExecutor().execute(future);
+        executor.execute(future);
         return future;
     }
 
-    private static Future<Void> runTask(Runnable runnable) {
+    private static Future<Void> runTask(Runnable runnable, Executor executor) {
         return getFuture(() -> {
             runnable.run();
             return null;
-        });
+        }, executor);
     }
 
     private FutureResult getFutureResult(Callable<Result> callable, Query query) {
         FutureResult future = new FutureResult(callable, execution, query);
-        getExecutor().execute(future);
+        executor.execute(future);
         return future;
     }
 
@@ -174,13 +197,24 @@ public class AsyncExecution {
      * collection
      */
     public static List<Result> waitForAll(Collection<FutureResult> tasks, long timeoutMs) {
+        return waitForAll(tasks, timeoutMs, executorMain);
+    }
+
+    /**
+     * Waits for all futures until the given timeout, as {@link #waitForAll(Collection, long)},
+     * waiting in a task run by the given executor rather than the default pool of threads.
+     * Pass the executor of the async executions to wait in the same kind of threads as they run in.
+     *
+     * @return the list of results in the same order as returned from the task collection
+     */
+    public static List<Result> waitForAll(Collection<FutureResult> tasks, long timeoutMs, Executor executor) {
         // Copy the list in case it is modified while we are waiting
         List<FutureResult> workingTasks = new ArrayList<>(tasks);
         try {
             runTask(() -> {
                 for (FutureResult task : workingTasks)
                     task.get();
-            }).get(timeoutMs, TimeUnit.MILLISECONDS);
+            }, executor).get(timeoutMs, TimeUnit.MILLISECONDS);
         } catch (TimeoutException | InterruptedException | ExecutionException e) {
             // Handle timeouts below
         }
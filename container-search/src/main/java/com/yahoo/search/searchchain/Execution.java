@@ -17,6 +17,7 @@ import com.yahoo.search.cluster.PingableSearcher;
 import com.yahoo.search.rendering.RendererRegistry;
 import com.yahoo.search.statistics.TimeTracker;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /**
@@ -495,6 +496,43 @@ public class Execution extends com.yahoo.processing.execution.Execution {
         return (Result)super.process(query);
     }
 
+    /**
+     * Calls searchAsync on the next searcher in this chain, and returns the future result.
+     * If there is no next, an empty result is returned.
+     * <p>
+     * Searchers which do not implement searchAsync are invoked synchronously in the calling thread,
+     * so this does not block only when the searchers reached from here all implement it.
+     * The next searcher is given a new execution of the rest of the chain, which it can use from other threads.
+     */
+    public CompletableFuture<Result> searchAsync(Query query) {
+        int index = nextIndex();
+        timer.sampleSearch(index, context.getDetailedDiagnostics());
+        Searcher next = (Searcher)next(); // TODO: Allow but skip processors which are not searchers
+        if (next == null)
+            return CompletableFuture.completedFuture((Result)defaultResponse(query));
+
+        trace().setTraceLevel(query.getTraceLevel());
+        CompletableFuture<Result> result;
+        try {
+            nextProcessor();
+            Execution continuation = new Execution(this);
+            query.getModel().setExecution(continuation);
+            continuation.trace().setTraceLevel(query.getTraceLevel());
+            continuation.onInvoking(query, next);
+            result = next.searchAsync(query, continuation);
+            if (result == null)
+                throw new NullPointerException(next + " returned null, not a future Result");
+        }
+        catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        finally {
+            previousProcessor();
+        }
+        return result.whenComplete((searchResult, exception) ->
+                timer.sampleSearchReturn(index, context.getDetailedDiagnostics(), searchResult));
+    }
+
     @Override
     protected void onInvoking(Request request, Processor processor) {
         super.onInvoking(request,processor);
@@ -564,6 +602,48 @@ public class Execution extends com.yahoo.processing.execution.Execution {
         }
     }
 
+    /** Calls fillAsync with the default summary class of the result */
+    public CompletableFuture<Result> fillAsync(Result result) {
+        return fillAsync(result, result.getQuery().getPresentation().getSummary());
+    }
+
+    /**
+     * Calls fillAsync on the next searcher in this chain, and returns a future which completes with the given result
+     * when it is filled. If there is no next, or the result is already filled, a completed future is returned.
+     * As with {@link #searchAsync}, searchers which do not implement fillAsync are invoked synchronously.
+     */
+    public CompletableFuture<Result> fillAsync(Result result, String summaryClass) {
+        int index = nextIndex();
+        timer.sampleFill(index, context.getDetailedDiagnostics());
+        Searcher current = (Searcher)next(); // TODO: Allow but skip processors which are not searchers
+        if (current == null) return CompletableFuture.completedFuture(result);
+        String filledSummaryClass = summaryClass != null ? summaryClass : result.getQuery().getPresentation().getSummary();
+
+        CompletableFuture<Result> filled;
+        try {
+            nextProcessor();
+            onInvokingFill(current, filledSummaryClass);
+            if (result.isFilled(filledSummaryClass)) {
+                filled = CompletableFuture.completedFuture(result);
+            }
+            else {
+                filled = current.fillAsync(result, filledSummaryClass, new Execution(this));
+                if (filled == null)
+                    throw new NullPointerException(current + " returned null, not a future Result");
+            }
+        }
+        catch (RuntimeException e) {
+            filled = CompletableFuture.failedFuture(e);
+        }
+        finally {
+            previousProcessor();
+        }
+        return filled.whenComplete((filledResult, exception) -> {
+            onReturningFill(current, result, filledSummaryClass);
+            timer.sampleFillReturn(index, context.getDetailedDiagnostics(), result);
+        });
+    }
+
     private void onInvokingFill(Searcher searcher, String summaryClass) {
         int traceFillAt = 5;
         if (trace().getTraceLevel() < traceFillAt) return;
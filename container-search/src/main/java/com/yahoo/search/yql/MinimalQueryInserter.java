@@ -3,6 +3,7 @@ package com.yahoo.search.yql;
 
 import com.google.common.annotations.Beta;
 import com.google.inject.Inject;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.language.Linguistics;
 import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.search.Query;
@@ -21,6 +22,7 @@ import com.yahoo.yolean.chain.After;
 import com.yahoo.yolean.chain.Before;
 import com.yahoo.yolean.chain.Provides;
 
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 /**
@@ -42,10 +44,32 @@ public class MinimalQueryInserter extends Searcher {
     private static final CompoundName MAX_OFFSET = new CompoundName("maxOffset");
     private static Logger log = Logger.getLogger(MinimalQueryInserter.class.getName());
 
+    private static final String PROGRAM_CACHE_HITS_METRIC = "yql_program_cache_hits";
+    private static final String PROGRAM_CACHE_MISSES_METRIC = "yql_program_cache_misses";
+    private static final String PROGRAM_CACHE_EVICTIONS_METRIC = "yql_program_cache_evictions";
+    private static final String PROGRAM_PARSE_TIME_METRIC = "yql_program_parse_time";
+    private static final String PROGRAM_PARSE_TIME_SAVED_METRIC = "yql_program_parse_time_saved";
+
+    private static final int programCacheSize = 1000;
+
+    private final YqlProgramCache programCache = new YqlProgramCache(programCacheSize);
+    private final Metric metric;
+    private final Metric.Context metricContext;
+
+    private final AtomicLong reportedHits = new AtomicLong();
+    private final AtomicLong reportedMisses = new AtomicLong();
+    private final AtomicLong reportedEvictions = new AtomicLong();
+    private final AtomicLong reportedParseNanos = new AtomicLong();
+
     @Inject
-    public MinimalQueryInserter(Linguistics linguistics) {
+    public MinimalQueryInserter(Linguistics linguistics, Metric metric) {
         // Warmup is needed to avoid a large 400ms init cost during first execution of yql code.
         warmup(linguistics);
+        this.metric = metric;
+        this.metricContext = metric == null ? null : metric.createContext(null);
+    }
+    public MinimalQueryInserter(Linguistics linguistics) {
+        this(linguistics, null);
     }
     public MinimalQueryInserter() {
         this(new SimpleLinguistics());
@@ -55,7 +79,7 @@ public class MinimalQueryInserter extends Searcher {
     }
     private static boolean warmup(Linguistics linguistics) {
         Query query = new Query("search/?yql=select%20*%20from%20sources%20where%20title%20contains%20'xyz';");
-        Result result = insertQuery(query, new ParserEnvironment().setLinguistics(linguistics));
+        Result result = insertQuery(query, new ParserEnvironment().setLinguistics(linguistics), null);
         if (result != null) {
             log.warning("Warmup code trigger an error. Error = " + result.toString());
             return false;
@@ -67,10 +91,11 @@ public class MinimalQueryInserter extends Searcher {
         return true;
     }
 
-    private static Result insertQuery(Query query, ParserEnvironment env) {
+    private static Result insertQuery(Query query, ParserEnvironment env, YqlProgramCache programCache) {
         YqlParser parser = (YqlParser) ParserFactory.newInstance(Query.Type.YQL, env);
         parser.setQueryParser(false);
         parser.setUserQuery(query);
+        parser.setProgramCache(programCache);
         QueryTree newTree;
         try {
             Parsable parsable = Parsable.fromQueryModel(query.getModel()).setQuery(query.properties().getString(YQL));
@@ -120,8 +145,38 @@ public class MinimalQueryInserter extends Searcher {
     public Result search(Query query, Execution execution) {
         if (query.properties().get(YQL) == null) return execution.search(query);
 
-        Result result = insertQuery(query, ParserEnvironment.fromExecutionContext(execution.context()));
+        Result result = insertQuery(query, ParserEnvironment.fromExecutionContext(execution.context()), programCache);
+        reportProgramCacheMetrics();
         return (result == null) ? execution.search(query) : result;
     }
 
+    /** Reports the program cache activity since this was last called */
+    private void reportProgramCacheMetrics() {
+        if (metric == null) return;
+
+        long hits = programCache.hits();
+        long misses = programCache.misses();
+        long evictions = programCache.evictions();
+        long parseNanos = programCache.parseNanos();
+        long newHits = hits - reportedHits.getAndSet(hits);
+        long newMisses = misses - reportedMisses.getAndSet(misses);
+        long newEvictions = evictions - reportedEvictions.getAndSet(evictions);
+        long newParseNanos = parseNanos - reportedParseNanos.getAndSet(parseNanos);
+        if (newHits > 0) {
+            metric.add(PROGRAM_CACHE_HITS_METRIC, newHits, metricContext);
+            // Estimate the time saved by each hit as the average parse time of a miss
+            if (misses > 0)
+                metric.add(PROGRAM_PARSE_TIME_SAVED_METRIC, newHits * parseNanos / misses / 1_000_000.0, metricContext);
+        }
+        if (newMisses > 0) {
+            metric.add(PROGRAM_CACHE_MISSES_METRIC, newMisses, metricContext);
+            metric.set(PROGRAM_PARSE_TIME_METRIC, newParseNanos / newMisses / 1_000_000.0, metricContext);
+        }
+        if (newEvictions > 0)
+            metric.add(PROGRAM_CACHE_EVICTIONS_METRIC, newEvictions, metricContext);
+    }
+
+    /** Returns the cache of parsed programs used by this */
+    YqlProgramCache programCache() { return programCache; }
+
 }
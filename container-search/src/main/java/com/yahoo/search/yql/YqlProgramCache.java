@@ -0,0 +1,81 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.yql;
+
+import org.antlr.v4.runtime.RecognitionException;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, least recently used cache of parsed YQL programs, keyed on the YQL string.
+ * The cached programs are shared by all queries using the same YQL string, which is safe since
+ * {@link YqlParser} never modifies them. Queries which use the same YQL with different values
+ * should pass the values as parameter references (e.g <code>userInput(@myInput)</code>),
+ * which are resolved when each query is built from the program.
+ *
+ * This class is multithread safe.
+ */
+class YqlProgramCache {
+
+    /** Longer YQL strings are not cached, as these usually contain unique values such as lists of tokens */
+    static final int maxCachedLength = 4096;
+
+    private final int maxEntries;
+    private final Map<String, OperatorNode<StatementOperator>> programs;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+
+    YqlProgramCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.programs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OperatorNode<StatementOperator>> eldest) {
+                if (size() <= YqlProgramCache.this.maxEntries) return false;
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /** Returns the program of the given YQL string, which is parsed and cached if it is not already cached */
+    OperatorNode<StatementOperator> get(String yql) throws IOException, RecognitionException {
+        OperatorNode<StatementOperator> program;
+        synchronized (programs) {
+            program = programs.get(yql);
+        }
+        if (program != null) {
+            hits.incrementAndGet();
+            return program;
+        }
+
+        long startTime = System.nanoTime();
+        program = new ProgramParser().parse("query", yql);
+        parseNanos.addAndGet(System.nanoTime() - startTime);
+        misses.incrementAndGet();
+        if (yql.length() <= maxCachedLength) {
+            synchronized (programs) {
+                programs.put(yql, program);
+            }
+        }
+        return program;
+    }
+
+    long hits() { return hits.get(); }
+    long misses() { return misses.get(); }
+    long evictions() { return evictions.get(); }
+
+    /** Returns the total time spent parsing programs which were not cached, in nanoseconds */
+    long parseNanos() { return parseNanos.get(); }
+
+    int size() {
+        synchronized (programs) {
+            return programs.size();
+        }
+    }
+
+}
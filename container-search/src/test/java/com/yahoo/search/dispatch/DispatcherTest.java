@@ -1,6 +1,7 @@
 // Copyright 2019 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch;
 
+import com.yahoo.jdisc.Metric;
 import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.prelude.fastsearch.test.MockMetric;
 import com.yahoo.search.Query;
@@ -11,9 +12,15 @@ import com.yahoo.search.dispatch.searchcluster.PingFactory;
 import com.yahoo.search.dispatch.searchcluster.Pinger;
 import com.yahoo.search.dispatch.searchcluster.PongHandler;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.vespa.config.search.DispatchConfig;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 
@@ -139,6 +146,36 @@ public class DispatcherTest {
         dispatcher.deconstruct();
     }
 
+    @Test
+    public void testResultCacheMetricsAreReportedWhenTheyChange() throws IOException {
+        SearchCluster cluster = new MockSearchCluster("1", 1, 1);
+        DispatchConfig config = new DispatchConfig.Builder(createDispatchConfig()).resultCacheSize(1).resultCacheTtl(60).build();
+        CountingMetric metric = new CountingMetric();
+        Dispatcher dispatcher = new Dispatcher(new ClusterMonitor(cluster, false), cluster, config,
+                                               new CacheableResultInvokerFactory(cluster), metric);
+        cluster.pingIterationCompleted();
+
+        search(dispatcher, "a");
+        assertEquals(Map.of("dispatch_result_cache_misses", 1L), metric.values);
+        search(dispatcher, "b"); // evicts a when the result of b is cached
+        assertEquals(Map.of("dispatch_result_cache_misses", 2L, "dispatch_result_cache_evictions", 1L), metric.values);
+        search(dispatcher, "b");
+        assertEquals(Map.of("dispatch_result_cache_misses", 2L, "dispatch_result_cache_evictions", 1L,
+                            "dispatch_result_cache_hits", 1L),
+                     metric.values);
+
+        SearchResultCache cache = dispatcher.resultCache().get();
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(1, cache.evictions());
+        dispatcher.deconstruct();
+    }
+
+    private static void search(Dispatcher dispatcher, String queryString) throws IOException {
+        Query query = new Query("?query=" + queryString);
+        dispatcher.getSearchInvoker(query, null).search(query, null);
+    }
+
     interface FactoryStep {
         boolean returnInvoker(List<Node> nodes, boolean acceptIncompleteCoverage);
     }
@@ -198,4 +235,55 @@ public class DispatcherTest {
         }
     }
 
+    /** Returns cacheable results, cached on the query string */
+    private static class CacheableResultInvokerFactory extends InvokerFactory {
+
+        CacheableResultInvokerFactory(SearchCluster cluster) {
+            super(cluster);
+        }
+
+        @Override
+        public Optional<byte[]> searchRequestCacheKey(VespaBackEndSearcher searcher, Query query) {
+            return Optional.of(query.getModel().getQueryString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Optional<SearchInvoker> createSearchInvoker(VespaBackEndSearcher searcher,
+                                                           Query query,
+                                                           OptionalInt groupId,
+                                                           List<Node> nodes,
+                                                           boolean acceptIncompleteCoverage,
+                                                           int maxHitsPerNode) {
+            return Optional.of(new MockInvoker(nodes.get(0).key(), new Coverage(100, 100, 1)));
+        }
+
+        @Override
+        protected Optional<SearchInvoker> createNodeSearchInvoker(VespaBackEndSearcher searcher,
+                                                                  Query query,
+                                                                  int maxHitsPerNode,
+                                                                  Node node) {
+            fail("Unexpected call to createNodeSearchInvoker");
+            return null;
+        }
+
+        @Override
+        public FillInvoker createFillInvoker(VespaBackEndSearcher searcher, Result result) {
+            fail("Unexpected call to createFillInvoker");
+            return null;
+        }
+
+    }
+
+    private static class CountingMetric extends MockMetric {
+
+        final Map<String, Long> values = new HashMap<>();
+
+        @Override
+        public void add(String key, Number value, Metric.Context context) {
+            if (key.startsWith("dispatch_result_cache"))
+                values.merge(key, value.longValue(), Long::sum);
+        }
+
+    }
+
 }
@@ -0,0 +1,146 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.search.result.Coverage;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.yahoo.search.dispatch.MockSearchCluster.createDispatchConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HedgedSearchInvokerTest {
+
+    private static final ScheduledExecutorService timeouts = new ScheduledThreadPoolExecutor(1);
+
+    @Test
+    public void requireThatNoHedgingIsDoneWhenPrimaryRespondsInTime() throws IOException {
+        TestInvoker primary = new TestInvoker(0, true);
+        AtomicInteger hedgesCreated = new AtomicInteger();
+        SearchInvoker invoker = new HedgedSearchInvoker(primary, () -> {
+            hedgesCreated.incrementAndGet();
+            return Optional.of(new TestInvoker(1, true));
+        }, 1000);
+
+        Result result = invoker.search(new Query("?timeout=5s"), null);
+        invoker.close();
+
+        assertEquals(0, hedgesCreated.get());
+        assertEquals(0, result.getCoverage(false).getDocs());
+        assertTrue(primary.released);
+    }
+
+    @Test
+    public void requireThatHedgedResponseIsUsedWhenPrimaryIsSlow() throws IOException {
+        TestInvoker primary = new TestInvoker(0, false);
+        TestInvoker hedge = new TestInvoker(1, true);
+        AtomicBoolean primaryAbandoned = new AtomicBoolean();
+        AtomicLong primaryTime = new AtomicLong();
+        primary.teardown((success, abandoned, timeMs) -> {
+            primaryAbandoned.set(abandoned);
+            primaryTime.set(timeMs);
+        });
+        SearchInvoker invoker = new HedgedSearchInvoker(primary, () -> Optional.of(hedge), 10);
+
+        Result result = invoker.search(new Query("?timeout=5s"), null);
+
+        assertEquals(1, result.getCoverage(false).getDocs());
+        assertTrue("The slow primary is closed", primary.released);
+        assertTrue("The slow primary is abandoned", primaryAbandoned.get());
+        assertTrue("The time of the primary is at least the hedge delay", primaryTime.get() >= 10);
+        assertFalse(hedge.released);
+        invoker.close();
+        assertTrue(hedge.released);
+    }
+
+    @Test
+    public void requireThatPrimaryResponseIsUsedWhenNoneRespondsInTime() throws IOException {
+        TestInvoker primary = new TestInvoker(0, false);
+        TestInvoker hedge = new TestInvoker(1, false);
+        SearchInvoker invoker = new HedgedSearchInvoker(primary, () -> Optional.of(hedge), 10);
+
+        Result result = invoker.search(new Query("?timeout=100ms"), null);
+        invoker.close();
+
+        assertEquals(0, result.getCoverage(false).getDocs());
+        assertTrue(primary.released);
+        assertTrue(hedge.released);
+    }
+
+    @Test
+    public void requireThatPrimaryResponseIsUsedWhenNoHedgeIsAvailable() throws IOException {
+        TestInvoker primary = new TestInvoker(0, false);
+        SearchInvoker invoker = new HedgedSearchInvoker(primary, Optional::empty, 10);
+
+        Result result = invoker.search(new Query("?timeout=100ms"), null);
+        invoker.close();
+
+        assertEquals(0, result.getCoverage(false).getDocs());
+        assertTrue(primary.released);
+    }
+
+    @Test
+    public void requireThatOneStuckNodePerGroupDoesNotDelayQueryWhenCoverageIsSufficient() throws IOException {
+        SearchCluster cluster = new MockSearchCluster("!", createDispatchConfig(50.0), 2, 2);
+        InterleavedSearchInvoker primary = new InterleavedSearchInvoker(List.of(new TestInvoker(0, true), new TestInvoker(1, false)),
+                                                                        cluster, null, timeouts);
+        InterleavedSearchInvoker hedge = new InterleavedSearchInvoker(List.of(new TestInvoker(2, true), new TestInvoker(3, false)),
+                                                                      cluster, null, timeouts);
+        AtomicInteger hedgesCreated = new AtomicInteger();
+        SearchInvoker invoker = new HedgedSearchInvoker(primary, () -> {
+            hedgesCreated.incrementAndGet();
+            return Optional.of(hedge);
+        }, 10);
+
+        long startTime = System.currentTimeMillis();
+        Result result = invoker.search(new Query("?timeout=20s"), null);
+        long elapsed = System.currentTimeMillis() - startTime;
+        invoker.close();
+
+        assertTrue("Waited " + elapsed + " ms, not the full query timeout", elapsed < 10000);
+        assertEquals("Minimum coverage was reached by the primary before the hedge delay", 0, hedgesCreated.get());
+        assertEquals(1, result.getCoverage(false).getNodes());
+        assertEquals(2, result.getCoverage(false).getNodesTried());
+        assertTrue(result.getCoverage(false).isDegradedByAdapativeTimeout());
+    }
+
+    private static class TestInvoker extends MockInvoker {
+
+        private final boolean respond;
+        boolean released = false;
+
+        /** Creates an invoker whose result coverage has the given number of docs */
+        TestInvoker(int docs, boolean respond) {
+            super(docs, new Coverage(docs, docs, 1));
+            this.respond = respond;
+        }
+
+        @Override
+        protected Object sendSearchRequest(Query query, Object context) throws IOException {
+            Object result = super.sendSearchRequest(query, context);
+            if (respond) {
+                responseAvailable();
+            }
+            return result;
+        }
+
+        @Override
+        protected void release() {
+            released = true;
+        }
+
+    }
+
+}
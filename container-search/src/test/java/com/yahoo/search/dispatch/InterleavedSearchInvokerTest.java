@@ -13,6 +13,7 @@ import com.yahoo.search.result.DefaultErrorHit;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.Relevance;
+import com.yahoo.search.searchchain.Execution;
 import com.yahoo.test.ManualClock;
 import org.junit.Test;
 
@@ -25,7 +26,10 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.StreamSupport;
 
@@ -44,6 +48,7 @@ import static org.junit.Assert.fail;
  * @author ollivir
  */
 public class InterleavedSearchInvokerTest {
+    private static final ScheduledExecutorService timeouts = new ScheduledThreadPoolExecutor(1);
     private ManualClock clock = new ManualClock(Instant.now());
     private Query query = new TestQuery();
     private LinkedList<Event> expectedEvents = new LinkedList<>();
@@ -297,12 +302,39 @@ public class InterleavedSearchInvokerTest {
         assertEquals(3, result.getQuery().getHits());
     }
 
+    @Test
+    public void requireThatAsynchronousSearchMergesResponsesOutsideTheThreadDeliveringThem() throws Exception {
+        List<Thread> mergingThreads = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 2; i++) {
+            invokers.add(new MockInvoker(i) {
+                @Override
+                protected InvokerResult getSearchResult(Execution execution) throws IOException {
+                    mergingThreads.add(Thread.currentThread());
+                    return super.getSearchResult(execution);
+                }
+            });
+        }
+        InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(invokers, new MockSearchCluster("!", 1, 2),
+                                                                        Collections.emptySet(), timeouts);
+        CompletableFuture<Result> future = invoker.searchAsync(query, null);
+        assertFalse(future.isDone());
+
+        invoker.responseAvailable(invokers.get(0));
+        invoker.responseAvailable(invokers.get(1));
+        Result result = future.get(10, TimeUnit.SECONDS);
+
+        assertNull(result.hits().getErrorHit());
+        assertEquals(2, mergingThreads.size());
+        assertFalse("Responses are not merged by the thread delivering them",
+                    mergingThreads.contains(Thread.currentThread()));
+    }
+
     private static InterleavedSearchInvoker createInterLeavedTestInvoker(List<Double> a, List<Double> b) {
         SearchCluster cluster = new MockSearchCluster("!", 1, 2);
         List<SearchInvoker> invokers = new ArrayList<>();
         invokers.add(createInvoker(a, 0));
         invokers.add(createInvoker(b, 1));
-        InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(invokers, cluster, Collections.emptySet());
+        InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(invokers, cluster, Collections.emptySet(), timeouts);
         invoker.responseAvailable(invokers.get(0));
         invoker.responseAvailable(invokers.get(1));
         return invoker;
@@ -353,7 +385,7 @@ public class InterleavedSearchInvokerTest {
             invokers.add(new MockInvoker(i));
         }
 
-        return new InterleavedSearchInvoker(invokers, searchCluster, null) {
+        return new InterleavedSearchInvoker(invokers, searchCluster, null, timeouts) {
             @Override
             protected long currentTime() {
                 return clock.millis();
@@ -0,0 +1,99 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares merging the partial results of a group with repeated pairwise merges
+ * (as done in each step of the old InterleavedSearchInvoker) against a single k-way merge
+ * by {@link LeanHitMerger}.
+ */
+public class LeanHitMergeMicroBenchmark {
+
+    private static final int nodes = 32;
+    private static final int hits = 400;
+
+    public void benchmark() {
+        List<List<LeanHit>> partials = createPartials(new Random(17));
+
+        long checksum = 0;
+        for (int i = 0; i < 2000; i++) { // warmup
+            checksum += pairwise(partials).size();
+            checksum += kway(partials).size();
+        }
+
+        int runs = 10000;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < runs; i++)
+            checksum += pairwise(partials).size();
+        long pairwiseTime = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < runs; i++)
+            checksum += kway(partials).size();
+        long kwayTime = System.nanoTime() - startTime;
+
+        System.out.println("Merging " + nodes + " lists of " + hits + " hits (checksum " + checksum + "):");
+        System.out.println("  pairwise: " + (pairwiseTime / runs) + " nanoseconds per merge");
+        System.out.println("  k-way:    " + (kwayTime / runs) + " nanoseconds per merge");
+    }
+
+    private static List<List<LeanHit>> createPartials(Random random) {
+        List<List<LeanHit>> partials = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) {
+            List<LeanHit> partial = new ArrayList<>(hits);
+            for (int i = 0; i < hits; i++) {
+                byte[] gid = new byte[12];
+                random.nextBytes(gid);
+                partial.add(new LeanHit(gid, 0, node, random.nextDouble()));
+            }
+            Collections.sort(partial);
+            partials.add(partial);
+        }
+        return partials;
+    }
+
+    private static List<LeanHit> kway(List<List<LeanHit>> partials) {
+        LeanHitMerger merger = new LeanHitMerger();
+        partials.forEach(merger::add);
+        return merger.merge(hits);
+    }
+
+    private static List<LeanHit> pairwise(List<List<LeanHit>> partials) {
+        List<LeanHit> current = Collections.emptyList();
+        for (List<LeanHit> partial : partials)
+            current = merge(current, partial);
+        return current;
+    }
+
+    private static List<LeanHit> merge(List<LeanHit> current, List<LeanHit> partial) {
+        if (current.isEmpty()) return partial;
+        List<LeanHit> merged = new ArrayList<>(hits);
+        int indexCurrent = 0;
+        int indexPartial = 0;
+        while (indexCurrent < current.size() && indexPartial < partial.size() && merged.size() < hits) {
+            int cmpRes = current.get(indexCurrent).compareTo(partial.get(indexPartial));
+            if (cmpRes < 0) {
+                merged.add(current.get(indexCurrent++));
+            } else if (cmpRes > 0) {
+                merged.add(partial.get(indexPartial++));
+            } else {
+                merged.add(current.get(indexCurrent++));
+                indexPartial++;
+            }
+        }
+        while ((indexCurrent < current.size()) && (merged.size() < hits))
+            merged.add(current.get(indexCurrent++));
+        while ((indexPartial < partial.size()) && (merged.size() < hits))
+            merged.add(partial.get(indexPartial++));
+        return merged;
+    }
+
+    public static void main(String[] args) {
+        new LeanHitMergeMicroBenchmark().benchmark();
+    }
+
+}
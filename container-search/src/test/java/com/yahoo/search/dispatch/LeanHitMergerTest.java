@@ -0,0 +1,61 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LeanHitMergerTest {
+
+    private static LeanHit hit(char gid, double relevance, int distributionKey) {
+        return new LeanHit(new byte[] { (byte)gid }, 0, distributionKey, relevance);
+    }
+
+    @Test
+    public void requireThatEmptyMergerGivesEmptyList() {
+        LeanHitMerger merger = new LeanHitMerger();
+        assertTrue(merger.merge(10).isEmpty());
+        merger.add(List.of());
+        assertTrue(merger.merge(10).isEmpty());
+    }
+
+    @Test
+    public void requireThatSingleListIsTrimmed() {
+        LeanHitMerger merger = new LeanHitMerger();
+        merger.add(List.of(hit('a', 3, 0), hit('b', 2, 0), hit('c', 1, 0)));
+        List<LeanHit> merged = merger.merge(2);
+        assertEquals(2, merged.size());
+        assertEquals(3.0, merged.get(0).getRelevance(), 0.0);
+        assertEquals(2.0, merged.get(1).getRelevance(), 0.0);
+    }
+
+    @Test
+    public void requireThatListsAreMergedInOrder() {
+        LeanHitMerger merger = new LeanHitMerger();
+        merger.add(List.of(hit('a', 9, 0), hit('b', 5, 0), hit('c', 1, 0)));
+        merger.add(List.of(hit('d', 8, 1), hit('e', 4, 1)));
+        merger.add(List.of(hit('f', 7, 2), hit('g', 6, 2), hit('h', 3, 2), hit('i', 2, 2)));
+        List<LeanHit> merged = merger.merge(100);
+        assertEquals(9, merged.size());
+        for (int i = 0; i < merged.size(); i++)
+            assertEquals(9 - i, merged.get(i).getRelevance(), 0.0);
+        assertEquals(4, merger.merge(4).size());
+    }
+
+    @Test
+    public void requireThatDuplicatesAreRemovedKeepingTheFirstAdded() {
+        LeanHit first = hit('a', 5, 0);
+        LeanHit duplicate = hit('a', 5, 1);
+        LeanHitMerger merger = new LeanHitMerger();
+        merger.add(List.of(hit('b', 6, 0), first));
+        merger.add(List.of(duplicate, hit('c', 4, 1)));
+        List<LeanHit> merged = merger.merge(10);
+        assertEquals(3, merged.size());
+        assertSame(first, merged.get(1));
+    }
+
+}
@@ -0,0 +1,133 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.dispatch.LoadBalancer.AdaptiveScheduler;
+import com.yahoo.search.dispatch.LoadBalancer.GroupScheduler;
+import com.yahoo.search.dispatch.LoadBalancer.GroupStatus;
+import com.yahoo.search.dispatch.LoadBalancer.LatencyAwareScheduler;
+import com.yahoo.search.dispatch.searchcluster.Group;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+/**
+ * Simulates dispatching queries to a set of groups with the adaptive and latency aware schedulers,
+ * and prints the resulting latency percentiles.
+ *
+ * Each group replays a latency distribution, either recorded (one latency in milliseconds per line,
+ * one file per group given as arguments) or a synthetic one where the last group is slowed down,
+ * as if it was reindexing. Latencies increase with the number of queries in flight to a group.
+ */
+public class LoadBalancerSimulation {
+
+    private static final int queries = 200000;
+    private static final double queriesPerSecond = 1000;
+    private static final double loadPenaltyPerQueryInFlight = 0.05;
+
+    private final List<double[]> distributions;
+
+    public LoadBalancerSimulation(List<double[]> distributions) {
+        this.distributions = distributions;
+    }
+
+    public void run() {
+        simulate("ADAPTIVE", AdaptiveScheduler::new);
+        simulate("LATENCY_AWARE", LatencyAwareScheduler::new);
+    }
+
+    private void simulate(String name, BiFunction<Random, List<GroupStatus>, GroupScheduler> schedulerFactory) {
+        List<GroupStatus> scoreboard = new ArrayList<>();
+        for (int i = 0; i < distributions.size(); i++)
+            scoreboard.add(new GroupStatus(new Group(i, Collections.emptyList())));
+        GroupScheduler scheduler = schedulerFactory.apply(new Random(7), scoreboard);
+
+        Random random = new Random(42);
+        PriorityQueue<Completion> inFlight = new PriorityQueue<>();
+        double[] latencies = new double[queries];
+        int[] queriesPerGroup = new int[distributions.size()];
+        double now = 0;
+        for (int query = 0; query < queries; query++) {
+            now += -Math.log(1 - random.nextDouble()) / queriesPerSecond;
+            while ( ! inFlight.isEmpty() && inFlight.peek().time <= now) {
+                Completion completion = inFlight.poll();
+                completion.group.release(true, completion.latency);
+            }
+            GroupStatus group = scheduler.takeNextGroup(null).get();
+            double[] distribution = distributions.get(group.groupId());
+            double latency = distribution[random.nextInt(distribution.length)] / 1000.0
+                             * (1 + loadPenaltyPerQueryInFlight * group.allocations());
+            group.allocate();
+            queriesPerGroup[group.groupId()]++;
+            latencies[query] = latency;
+            inFlight.add(new Completion(now + latency, latency, group));
+        }
+
+        Arrays.sort(latencies);
+        System.out.printf("%-14s p50 %7.2f ms, p95 %7.2f ms, p99 %7.2f ms, queries per group %s%n",
+                          name, percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                          Arrays.toString(queriesPerGroup));
+    }
+
+    private static double percentile(double[] sorted, double percentile) {
+        return sorted[(int)(percentile * (sorted.length - 1))] * 1000;
+    }
+
+    private static class Completion implements Comparable<Completion> {
+
+        final double time;
+        final double latency;
+        final GroupStatus group;
+
+        Completion(double time, double latency, GroupStatus group) {
+            this.time = time;
+            this.latency = latency;
+            this.group = group;
+        }
+
+        @Override
+        public int compareTo(Completion other) { return Double.compare(time, other.time); }
+
+    }
+
+    private static double[] readDistribution(String file) throws IOException {
+        return Files.readAllLines(Paths.get(file)).stream()
+                    .filter(line -> ! line.isBlank())
+                    .mapToDouble(line -> Double.parseDouble(line.trim()))
+                    .toArray();
+    }
+
+    /** Log-normal latencies around the given median, with occasional spikes of the given size */
+    private static double[] syntheticDistribution(Random random, double medianMs, double spikeProbability, double spikeFactor) {
+        double[] distribution = new double[10000];
+        for (int i = 0; i < distribution.length; i++) {
+            distribution[i] = medianMs * Math.exp(0.4 * random.nextGaussian());
+            if (random.nextDouble() < spikeProbability)
+                distribution[i] *= spikeFactor;
+        }
+        return distribution;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<double[]> distributions = new ArrayList<>();
+        if (args.length > 0) {
+            for (String file : args)
+                distributions.add(readDistribution(file));
+        }
+        else {
+            Random random = new Random(1);
+            for (int i = 0; i < 3; i++)
+                distributions.add(syntheticDistribution(random, 10, 0.01, 5));
+            distributions.add(syntheticDistribution(random, 15, 0.10, 10));
+        }
+        new LoadBalancerSimulation(distributions).run();
+    }
+
+}
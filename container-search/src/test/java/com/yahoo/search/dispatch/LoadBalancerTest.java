@@ -3,9 +3,11 @@ package com.yahoo.search.dispatch;
 
 import com.yahoo.search.dispatch.LoadBalancer.AdaptiveScheduler;
 import com.yahoo.search.dispatch.LoadBalancer.GroupStatus;
+import com.yahoo.search.dispatch.LoadBalancer.LatencyAwareScheduler;
 import com.yahoo.search.dispatch.searchcluster.Group;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.vespa.config.search.DispatchConfig.DistributionPolicy;
 import junit.framework.AssertionFailedError;
 import org.junit.Test;
 
@@ -14,6 +16,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 
 import static com.yahoo.search.dispatch.MockSearchCluster.createDispatchConfig;
 import static org.hamcrest.Matchers.closeTo;
@@ -30,7 +33,7 @@ public class LoadBalancerTest {
     public void requireThatLoadBalancerServesSingleNodeSetups() {
         Node n1 = new Node(0, "test-node1", 0);
         SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1), null, null);
-        LoadBalancer lb = new LoadBalancer(cluster, true);
+        LoadBalancer lb = new LoadBalancer(cluster, DistributionPolicy.ROUNDROBIN);
 
         Optional<Group> grp = lb.takeGroup(null);
         Group group = grp.orElseGet(() -> {
@@ -44,7 +47,7 @@ public class LoadBalancerTest {
         Node n1 = new Node(0, "test-node1", 0);
         Node n2 = new Node(1, "test-node2", 1);
         SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1, n2), null, null);
-        LoadBalancer lb = new LoadBalancer(cluster, true);
+        LoadBalancer lb = new LoadBalancer(cluster, DistributionPolicy.ROUNDROBIN);
 
         Optional<Group> grp = lb.takeGroup(null);
         Group group = grp.orElseGet(() -> {
@@ -60,7 +63,7 @@ public class LoadBalancerTest {
         Node n3 = new Node(0, "test-node3", 1);
         Node n4 = new Node(1, "test-node4", 1);
         SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1, n2, n3, n4), null, null);
-        LoadBalancer lb = new LoadBalancer(cluster, true);
+        LoadBalancer lb = new LoadBalancer(cluster, DistributionPolicy.ROUNDROBIN);
 
         Optional<Group> grp = lb.takeGroup(null);
         assertThat(grp.isPresent(), is(true));
@@ -71,7 +74,7 @@ public class LoadBalancerTest {
         Node n1 = new Node(0, "test-node1", 0);
         Node n2 = new Node(1, "test-node2", 1);
         SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1, n2), null,null);
-        LoadBalancer lb = new LoadBalancer(cluster, true);
+        LoadBalancer lb = new LoadBalancer(cluster, DistributionPolicy.ROUNDROBIN);
 
         // get first group
         Optional<Group> grp = lb.takeGroup(null);
@@ -156,19 +159,76 @@ public class LoadBalancerTest {
         assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(4));
     }
 
+    @Test
+    public void requireTailSearchTimeTracksUpperPercentile() {
+        GroupStatus gs = newGroupStatus(1);
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            updateSearchTime(gs, random.nextDouble()); // uniform in [0, 1>, so the 95th percentile is 0.95
+        }
+        assertThat(gs.tailSearchTime(), closeTo(0.95, 0.1));
+        assertThat(gs.averageSearchTime(), closeTo(0.5, 0.05));
+    }
+
+    @Test
+    public void requireThatLatencyAwareSchedulerPrefersFasterAndLessLoadedGroups() {
+        List<GroupStatus> scoreboard = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            scoreboard.add(newGroupStatus(i));
+        }
+        scoreboard.get(0).setTailSearchTime(0.5);
+        scoreboard.get(1).setTailSearchTime(0.1);
+        LatencyAwareScheduler sched = new LatencyAwareScheduler(new Random(1), scoreboard);
+        for (int i = 0; i < 10; i++) {
+            assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(1));
+        }
+
+        for (int i = 0; i < 5; i++) {
+            scoreboard.get(1).allocate();
+        }
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0));
+        assertThat(sched.takeNextGroup(Set.of(0)).get().groupId(), equalTo(1));
+    }
+
+    @Test
+    public void requireThatAConsistentlySlowGroupKeepsAStableHedgeDelay() {
+        GroupStatus gs = newGroupStatus(1, 0.9);
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            updateSearchTime(gs, 0.1 + 0.1 * random.nextDouble()); // uniform in [0.1, 0.2>, so the 90th percentile is 0.19
+        }
+        assertThat((double)gs.hedgeDelay().getAsLong(), closeTo(190, 20));
+
+        for (int i = 0; i < 100000; i++) {
+            double searchTime = 0.1 + 0.1 * random.nextDouble();
+            double hedgeDelay = gs.hedgeDelay().getAsLong() / 1000.0;
+            gs.allocate();
+            if (searchTime <= hedgeDelay)
+                gs.release(true, searchTime);
+            else // the query is hedged to a fast group which responds after 10 ms, and this is abandoned
+                gs.release(false, true, hedgeDelay + 0.01);
+        }
+        assertThat((double)gs.hedgeDelay().getAsLong(), closeTo(190, 20));
+        assertThat(gs.averageSearchTime(), closeTo(0.15, 0.02));
+    }
+
     private static void updateSearchTime(GroupStatus gs, double time) {
         gs.allocate();
         gs.release(true, time);
     }
 
     private GroupStatus newGroupStatus(int id) {
+        return newGroupStatus(id, 0);
+    }
+
+    private GroupStatus newGroupStatus(int id, double hedgingPercentile) {
         Group dummyGroup = new Group(id, Collections.emptyList()) {
             @Override
             public boolean hasSufficientCoverage() {
                 return true;
             }
         };
-        return new GroupStatus(dummyGroup);
+        return new GroupStatus(dummyGroup, hedgingPercentile);
     }
 
     private Random sequence(double... values) {
@@ -0,0 +1,96 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.test.ManualClock;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SearchResultCacheTest {
+
+    private final ManualClock clock = new ManualClock(Instant.now());
+    private final SearchResultCache cache = new SearchResultCache(2, Duration.ofSeconds(1), clock);
+
+    @Test
+    public void requireThatCachedResultsAreReturned() {
+        cache.put(key(1), result(7), 0);
+        assertTrue(cache.get(key(1)).isPresent());
+        assertFalse(cache.get(key(2)).isPresent());
+
+        Query query = new Query("?offset=3");
+        InvokerResult result = cache.get(key(1)).get().toResult(query);
+        assertEquals(7, result.getResult().getTotalHitCount());
+        assertEquals(1, result.getLeanHits().size());
+        assertEquals(100, result.getResult().getCoverage(false).getDocs());
+        assertEquals(0, query.getOffset());
+
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void requireThatResultsExpire() {
+        cache.put(key(1), result(7), 0);
+        clock.advance(Duration.ofMillis(999));
+        assertTrue(cache.get(key(1)).isPresent());
+        clock.advance(Duration.ofMillis(1));
+        assertFalse(cache.get(key(1)).isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void requireThatResultsAreInvalidated() {
+        cache.put(key(1), result(7), 0);
+        cache.invalidate();
+        assertFalse(cache.get(key(1)).isPresent());
+        cache.put(key(1), result(7), 0);
+        assertTrue(cache.get(key(1)).isPresent());
+    }
+
+    @Test
+    public void requireThatLeastRecentlyUsedResultsAreEvicted() {
+        cache.put(key(1), result(1), 0);
+        cache.put(key(2), result(2), 0);
+        cache.get(key(1));
+        cache.put(key(3), result(3), 0);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        assertTrue(cache.get(key(1)).isPresent());
+        assertFalse(cache.get(key(2)).isPresent());
+        assertTrue(cache.get(key(3)).isPresent());
+    }
+
+    @Test
+    public void requireThatIncompleteResultsAreNotCached() {
+        InvokerResult error = result(1);
+        error.getResult().hits().addError(ErrorMessage.createTimeout("timeout"));
+        cache.put(key(1), error, 0);
+
+        InvokerResult partial = result(1);
+        partial.getResult().setCoverage(new Coverage(50, 100, 1));
+        cache.put(key(2), partial, 0);
+
+        assertEquals(0, cache.size());
+    }
+
+    private static byte[] key(int id) {
+        return new byte[] { 'k', 'e', 'y', (byte)id };
+    }
+
+    private static InvokerResult result(long totalHitCount) {
+        InvokerResult result = new InvokerResult(new Query(), 1);
+        result.getResult().setTotalHitCount(totalHitCount);
+        result.getResult().setCoverage(new Coverage(100, 100, 1));
+        result.getLeanHits().add(new LeanHit(new byte[] { 'g' }, 0, 0, 1.0));
+        return result;
+    }
+
+}
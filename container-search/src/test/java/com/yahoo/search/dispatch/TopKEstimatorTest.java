@@ -3,9 +3,12 @@ package com.yahoo.search.dispatch;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TopKEstimatorTest {
     @Test
@@ -140,6 +143,62 @@ public class TopKEstimatorTest {
         assertEquals(expectedSkew, dumpProbability(10, 0.05));
     }
 
+    @Test
+    public void requireLearnedSkewIsOnlyUsedWhenAdaptive() {
+        TopKEstimator estimator = new TopKEstimator(30, 0.9999, 0.05);
+        learn(estimator, "default", new int[] {20, 20, 20, 20, 20, 20, 20, 20, 20, 20}, 200, 2000);
+        assertEquals(0, estimator.maxShare("default"), 0.0);
+        assertEquals(estimator.estimateK(200, 10), estimator.estimateK(200, 10, "default"));
+    }
+
+    @Test
+    public void requireUniformContributionsReduceHitsToFetch() {
+        TopKEstimator estimator = new TopKEstimator(30, 0.9999, 0.05, true);
+        int[] contributions = {20, 20, 20, 20, 20, 20, 20, 20, 20, 20};
+        learn(estimator, "default", contributions, 200, TopKEstimator.minObservations - 1);
+        assertEquals("Static skew is used until enough is observed",
+                     estimator.estimateK(200, 10), estimator.estimateK(200, 10, "default"));
+
+        learn(estimator, "default", contributions, 200, 1);
+        assertEquals(0.1, estimator.maxShare("default"), 1e-9);
+        assertEquals(new TopKEstimator(30, 0.9999).estimateK(200, 10), estimator.estimateK(200, 10, "default"));
+        assertTrue(estimator.estimateK(200, 10, "default") < estimator.estimateK(200, 10));
+        assertEquals("Other rank profiles are not affected",
+                     estimator.estimateK(200, 10), estimator.estimateK(200, 10, "other"));
+    }
+
+    @Test
+    public void requireSkewedContributionsIncreaseHitsToFetch() {
+        TopKEstimator estimator = new TopKEstimator(30, 0.9999, 0.05, true);
+        learn(estimator, "default", new int[] {40, 15, 15, 15, 15}, 100, 10000);
+        assertEquals(0.4, estimator.maxShare("default"), 0.001);
+        assertTrue(estimator.estimateK(100, 5, "default") > estimator.estimateK(100, 5));
+    }
+
+    @Test
+    public void requireLearnedSkewIsForgottenWhenANodeMayHaveContributedMore() {
+        TopKEstimator estimator = new TopKEstimator(30, 0.9999, 0.05, true);
+        learn(estimator, "default", new int[] {20, 20, 20, 20, 20, 20, 20, 20, 20, 20}, 200, TopKEstimator.minObservations);
+        assertEquals(0.1, estimator.maxShare("default"), 1e-9);
+
+        learn(estimator, "default", new int[] {29, 19, 19, 19, 19, 19, 19, 19, 19, 19}, 29, 1);
+        assertEquals(0, estimator.maxShare("default"), 0.0);
+        assertEquals(estimator.estimateK(200, 10), estimator.estimateK(200, 10, "default"));
+    }
+
+    /** Lets the estimator learn from the given number of identical queries where node i contributed contributions[i] hits */
+    private static void learn(TopKEstimator estimator, String rankProfile, int[] contributions, int hitsPerNode, int queries) {
+        int[] nodeKeys = new int[contributions.length];
+        List<LeanHit> topK = new ArrayList<>();
+        for (int node = 0; node < contributions.length; node++) {
+            nodeKeys[node] = node;
+            for (int i = 0; i < contributions[node]; i++)
+                topK.add(new LeanHit(new byte[] {(byte)node, (byte)i}, 0, node, 1.0));
+        }
+        for (int i = 0; i < queries; i++)
+            estimator.learn(rankProfile, nodeKeys, hitsPerNode, topK);
+    }
+
     /**
      * This make a table showing how many more hits will be fetched as a factor of hits requested.
      * It shows how it varies with probability and hits requested for a given number of partitions.
@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch.rpc;
 
+import com.yahoo.compress.CompressionType;
 import com.yahoo.prelude.fastsearch.DocsumDefinition;
 import com.yahoo.prelude.fastsearch.DocsumDefinitionSet;
 import com.yahoo.prelude.fastsearch.DocsumField;
@@ -16,8 +17,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 
 /**
@@ -146,6 +151,74 @@ public class FillTestCase {
         assertEquals("Missing hit summary data for summary summaryClass1 for 2 hits", result.hits().getError().getDetailedMessage());
     }
 
+    @Test
+    public void testProtobufFilling() {
+        assertProtobufFilling(false);
+    }
+
+    @Test
+    public void testProtobufFillingDecodingOnArrival() {
+        assertProtobufFilling(true);
+    }
+
+    private void assertProtobufFilling(boolean decodeOnArrival) {
+        Map<Integer, Client.NodeConnection> nodes = new HashMap<>();
+        nodes.put(0, client.createConnection("host0", 123));
+        nodes.put(1, client.createConnection("host1", 123));
+        nodes.put(2, client.createConnection("host2", 123));
+        RpcResourcePool rpcResourcePool = new RpcResourcePool(nodes);
+
+        Query query = new Query();
+        Result result = new Result(query);
+        result.hits().add(createHit(0, 0));
+        result.hits().add(createHit(2, 1));
+        result.hits().add(createHit(1, 2));
+        result.hits().add(createHit(2, 3));
+        result.hits().add(createHit(0, 4));
+
+        client.setDocsumReponse("host0", 0, "summaryClass1", map("field1", "s.0.0", "field2", 0));
+        client.setDocsumReponse("host2", 1, "summaryClass1", map("field1", "s.2.1", "field2", 1));
+        client.setDocsumReponse("host1", 2, "summaryClass1", map("field1", "s.1.2", "field2", 2));
+        client.setDocsumReponse("host2", 3, "summaryClass1", map("field1", "s.2.3", "field2", 3));
+        client.setDocsumReponse("host0", 4, "summaryClass1", null);
+
+        new RpcProtobufFillInvoker(rpcResourcePool, db(), "container.0", false, decodeOnArrival,
+                                   new ScheduledThreadPoolExecutor(1)).fill(result, "summaryClass1");
+
+        assertEquals("s.0.0", result.hits().get("hit:0").getField("field1").toString());
+        assertEquals("s.2.1", result.hits().get("hit:1").getField("field1").toString());
+        assertEquals("s.1.2", result.hits().get("hit:2").getField("field1").toString());
+        assertEquals("s.2.3", result.hits().get("hit:3").getField("field1").toString());
+        assertNull(result.hits().get("hit:4").getField("field1"));
+        assertEquals(0L, result.hits().get("hit:0").getField("field2"));
+        assertEquals(3L, result.hits().get("hit:3").getField("field2"));
+
+        assertEquals("Missing hit summary data for summary summaryClass1 for 1 hits", result.hits().getError().getDetailedMessage());
+    }
+
+    @Test
+    public void testAsynchronousFillIsNotProcessedByTheThreadDeliveringTheLastResponse() throws Exception {
+        DelayedConnection connection = new DelayedConnection(client.createConnection("host0", 123));
+        RpcResourcePool rpcResourcePool = new RpcResourcePool(Map.of(0, connection));
+        ScheduledThreadPoolExecutor timeouts = new ScheduledThreadPoolExecutor(1);
+
+        Query query = new Query();
+        Result result = new Result(query);
+        result.hits().add(createHit(0, 0));
+        client.setDocsumReponse("host0", 0, "summaryClass1", map("field1", "s.0.0", "field2", 0));
+
+        CompletableFuture<Thread> completingThread =
+                new RpcProtobufFillInvoker(rpcResourcePool, db(), "container.0", false, timeouts)
+                        .fillAsync(result, "summaryClass1")
+                        .thenApply(filled -> Thread.currentThread());
+        Thread network = new Thread(connection::deliverResponses);
+        network.start();
+
+        assertNotSame(network, completingThread.get(10, TimeUnit.SECONDS));
+        assertEquals("s.0.0", result.hits().get("hit:0").getField("field1").toString());
+        timeouts.shutdown();
+    }
+
     @Test
     public void testErrorHandling() {
         client.setMalfunctioning(true);
@@ -183,6 +256,38 @@ public class FillTestCase {
         assertEquals("Could not fill hits from unknown node 1", result.hits().getError().getDetailedMessage());
     }
 
+    /** A connection which holds back responses until they are delivered */
+    private static class DelayedConnection implements Client.NodeConnection {
+
+        private final Client.NodeConnection connection;
+        private final List<Runnable> responses = new ArrayList<>();
+
+        DelayedConnection(Client.NodeConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void getDocsums(List<FastHit> hits, CompressionType compression, int uncompressedLength, byte[] compressedSlime,
+                               RpcFillInvoker.GetDocsumsResponseReceiver responseReceiver, double timeoutSeconds) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public synchronized void request(String rpcMethod, CompressionType compression, int uncompressedLength, byte[] compressedPayload,
+                                         Client.ResponseReceiver responseReceiver, double timeoutSeconds) {
+            connection.request(rpcMethod, compression, uncompressedLength, compressedPayload,
+                               response -> responses.add(() -> responseReceiver.receive(response)), timeoutSeconds);
+        }
+
+        synchronized void deliverResponses() {
+            responses.forEach(Runnable::run);
+        }
+
+        @Override
+        public void close() { }
+
+    }
+
     private DocumentDatabase db() {
         List<DocsumField> fields = new ArrayList<>();
         fields.add(DocsumField.create("field1", "string"));
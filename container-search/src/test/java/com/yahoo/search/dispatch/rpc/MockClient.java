@@ -1,6 +1,9 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch.rpc;
 
+import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import com.yahoo.document.GlobalId;
@@ -67,24 +70,8 @@ public class MockClient implements Client {
                 GlobalId docId = new GlobalId(gid.asData());
                 docsumsToReturn.add(docsums.get(new DocsumKey(toString(), docId, docsumClass)));
             });
-            Slime responseSlime = new Slime();
-            Cursor root = responseSlime.setObject();
-            Cursor docsums = root.setArray("docsums");
-            for (Map<String, Object> docsumFields : docsumsToReturn) {
-                if (docsumFields == null) continue;
-
-                Cursor docsumItem = docsums.addObject();
-                Cursor docsum = docsumItem.setObject("docsum");
-                for (Map.Entry<String, Object> field : docsumFields.entrySet()) {
-                    if (field.getValue() instanceof Integer)
-                        docsum.setLong(field.getKey(), (Integer) field.getValue());
-                    else if (field.getValue() instanceof String)
-                        docsum.setString(field.getKey(), (String) field.getValue());
-                    else
-                        throw new RuntimeException();
-                }
-            }
-            byte[] slimeBytes = BinaryFormat.encode(responseSlime);
+            docsumsToReturn.removeIf(docsumFields -> docsumFields == null);
+            byte[] slimeBytes = BinaryFormat.encode(docsumsSlime(docsumsToReturn));
             CompressionType responseCompressionType = compression == CompressionType.INCOMPRESSIBLE ? CompressionType.NONE : compression;
             Compressor.Compression compressionResult = compressor.compress(responseCompressionType, slimeBytes);
             GetDocsumsResponse response = new GetDocsumsResponse(compressionResult.type().getCode(), slimeBytes.length,
@@ -100,6 +87,11 @@ public class MockClient implements Client {
                 return;
             }
 
+            if (rpcMethod.equals("vespa.searchprotocol.getDocsums")) {
+                respondToDocsumRequest(compression, uncompressedLength, compressedPayload, responseReceiver);
+                return;
+            }
+
             if(searchResult == null) {
                 responseReceiver.receive(ResponseOrError.fromError("No result defined"));
                 return;
@@ -110,6 +102,24 @@ public class MockClient implements Client {
             responseReceiver.receive(ResponseOrError.fromResponse(response));
         }
 
+        private void respondToDocsumRequest(CompressionType compression, int uncompressedLength, byte[] compressedPayload,
+                                            ResponseReceiver responseReceiver) {
+            try {
+                var request = SearchProtocol.DocsumRequest.parseFrom(compressor.decompress(compressedPayload, compression, uncompressedLength));
+                List<Map<String, Object>> docsumsToReturn = new ArrayList<>();
+                for (ByteString gid : request.getGlobalIdsList())
+                    docsumsToReturn.add(docsums.get(new DocsumKey(toString(), new GlobalId(gid.toByteArray()), request.getSummaryClass())));
+                byte[] slimeBytes = BinaryFormat.encode(docsumsSlime(docsumsToReturn));
+                var payload = SearchProtocol.DocsumReply.newBuilder().setSlimeSummaries(ByteString.copyFrom(slimeBytes)).build().toByteArray();
+                var compressionResult = compressor.compress(CompressionType.LZ4, payload); // Small requests are sent incompressible
+                var response = new ProtobufResponse(compressionResult.type().getCode(), payload.length, compressionResult.data());
+                responseReceiver.receive(ResponseOrError.fromResponse(response));
+            }
+            catch (InvalidProtocolBufferException e) {
+                responseReceiver.receive(ResponseOrError.fromError("Invalid docsum request: " + e.getMessage()));
+            }
+        }
+
         @Override
         public void close() { }
 
@@ -118,6 +128,28 @@ public class MockClient implements Client {
 
     }
 
+    /** Returns a docsum response holding the given docsums, where null docsums are returned as entries without content */
+    private static Slime docsumsSlime(List<Map<String, Object>> docsumsToReturn) {
+        Slime responseSlime = new Slime();
+        Cursor root = responseSlime.setObject();
+        Cursor docsums = root.setArray("docsums");
+        for (Map<String, Object> docsumFields : docsumsToReturn) {
+            Cursor docsumItem = docsums.addObject();
+            if (docsumFields == null) continue;
+
+            Cursor docsum = docsumItem.setObject("docsum");
+            for (Map.Entry<String, Object> field : docsumFields.entrySet()) {
+                if (field.getValue() instanceof Integer)
+                    docsum.setLong(field.getKey(), (Integer) field.getValue());
+                else if (field.getValue() instanceof String)
+                    docsum.setString(field.getKey(), (String) field.getValue());
+                else
+                    throw new RuntimeException();
+            }
+        }
+        return responseSlime;
+    }
+
     private static class DocsumKey {
 
         private final String internalKey;
@@ -10,13 +10,16 @@ import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.search.Query;
 import com.yahoo.search.dispatch.InvokerResult;
 import com.yahoo.search.dispatch.LeanHit;
+import com.yahoo.search.result.Coverage;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
@@ -58,10 +61,14 @@ public class ProtobufSerializationTest {
         }
         return reply.build();
     }
+    private static InvokerResult decode(SearchProtocol.SearchReply reply) throws IOException {
+        byte[] serialized = reply.toByteArray();
+        return ProtobufSerialization.decodeSearchReply(serialized, serialized.length, new Query("search/?query=test"), null, 1, 2);
+    }
+
     @Test
-    public void testSearhReplyDecodingWithRelevance() {
-        Query q = new Query("search/?query=test");
-        InvokerResult result = ProtobufSerialization.convertToResult(q, createSearchReply(5, false), null, 1, 2);
+    public void testSearhReplyDecodingWithRelevance() throws IOException {
+        InvokerResult result = decode(createSearchReply(5, false));
         assertEquals(result.getResult().getTotalHitCount(), 7);
         List<LeanHit> hits = result.getLeanHits();
         assertEquals(5, hits.size());
@@ -78,9 +85,8 @@ public class ProtobufSerializationTest {
         }
     }
     @Test
-    public void testSearhReplyDecodingWithSortData() {
-        Query q = new Query("search/?query=test");
-        InvokerResult result = ProtobufSerialization.convertToResult(q, createSearchReply(5, true), null, 1, 2);
+    public void testSearhReplyDecodingWithSortData() throws IOException {
+        InvokerResult result = decode(createSearchReply(5, true));
         assertEquals(result.getResult().getTotalHitCount(), 7);
         List<LeanHit> hits = result.getLeanHits();
         assertEquals(5, hits.size());
@@ -97,4 +103,38 @@ public class ProtobufSerializationTest {
             hitNum++;
         }
     }
+
+    @Test
+    public void testSearchReplyDecodingFromLargerBuffer() throws IOException {
+        for (boolean useSorting : new boolean[] { false, true }) {
+            SearchProtocol.SearchReply reply = createSearchReply(5, useSorting).toBuilder()
+                    .setCoverageDocs(100).setActiveDocs(200).setSoonActiveDocs(300).setDegradedByMatchPhase(true).build();
+            byte[] serialized = reply.toByteArray();
+            byte[] payload = Arrays.copyOf(serialized, serialized.length + 17); // as in a larger, reused buffer
+
+            InvokerResult result = ProtobufSerialization.decodeSearchReply(payload, serialized.length,
+                                                                           new Query("search/?query=test"), null, 1, 2);
+
+            assertEquals(7, result.getResult().getTotalHitCount());
+            Coverage coverage = result.getResult().getCoverage(false);
+            assertEquals(100, coverage.getDocs());
+            assertEquals(200, coverage.getActive());
+            assertEquals(300, coverage.getSoonActive());
+            assertTrue(coverage.isDegradedByMatchPhase());
+            assertFalse(coverage.isDegradedByTimeout());
+
+            assertEquals(reply.getHitsCount(), result.getLeanHits().size());
+            for (int i = 0; i < reply.getHitsCount(); i++) {
+                SearchProtocol.Hit expectedHit = reply.getHits(i);
+                LeanHit hit = result.getLeanHits().get(i);
+                assertArrayEquals(expectedHit.getGlobalId().toByteArray(), hit.getGid());
+                assertEquals(expectedHit.getRelevance(), hit.getRelevance(), DELTA);
+                assertEquals(useSorting, hit.hasSortData());
+                if (useSorting)
+                    assertArrayEquals(expectedHit.getSortData().toByteArray(), hit.getSortData());
+                assertEquals(1, hit.getPartId());
+                assertEquals(2, hit.getDistributionKey());
+            }
+        }
+    }
 }
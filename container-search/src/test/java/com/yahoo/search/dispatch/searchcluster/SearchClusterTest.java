@@ -6,12 +6,18 @@ import com.yahoo.container.handler.ClustersStatus;
 import com.yahoo.container.handler.VipStatus;
 import com.yahoo.net.HostName;
 import com.yahoo.prelude.Pong;
+import com.yahoo.search.Query;
 import com.yahoo.search.cluster.ClusterMonitor;
+import com.yahoo.search.dispatch.InvokerResult;
+import com.yahoo.search.dispatch.LeanHit;
 import com.yahoo.search.dispatch.MockSearchCluster;
+import com.yahoo.search.dispatch.SearchResultCache;
 import com.yahoo.search.dispatch.TopKEstimator;
+import com.yahoo.search.result.Coverage;
 import com.yahoo.search.result.ErrorMessage;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -180,6 +186,42 @@ public class SearchClusterTest {
         }
     }
 
+    @Test
+    public void requireThatCachedResultsAreInvalidatedWhenClusterStateChanges() {
+        try (State test = new State("cluster.1", 2, "a", "b")) {
+            SearchResultCache cache = new SearchResultCache(10, Duration.ofHours(1));
+            test.searchCluster.addStateChangeListener(cache::invalidate);
+            test.waitOneFullPingRound();
+
+            cache.put(cacheKey, cacheableResult(), 0);
+            test.waitOneFullPingRound();
+            assertTrue("Unchanged cluster state", cache.get(cacheKey).isPresent());
+
+            test.numDocsPerNode.get(0).set(2);
+            test.waitOneFullPingRound();
+            assertFalse("Active documents changed", cache.get(cacheKey).isPresent());
+
+            cache.put(cacheKey, cacheableResult(), 0);
+            test.numDocsPerNode.get(1).set(-1);
+            test.waitOneFullPingRound();
+            assertFalse("Node failed", cache.get(cacheKey).isPresent());
+
+            cache.put(cacheKey, cacheableResult(), 0);
+            test.numDocsPerNode.get(1).set(1);
+            test.waitOneFullPingRound();
+            assertFalse("Node is working again", cache.get(cacheKey).isPresent());
+        }
+    }
+
+    private static final byte[] cacheKey = new byte[] { 'k', 'e', 'y' };
+
+    private static InvokerResult cacheableResult() {
+        InvokerResult result = new InvokerResult(new Query(), 1);
+        result.getResult().setCoverage(new Coverage(100, 100, 1));
+        result.getLeanHits().add(new LeanHit(new byte[] { 'g' }, 0, 0, 1.0));
+        return result;
+    }
+
     @Test
     public void requireThatVipStatusIsDefaultDownWithLocalDispatch() {
         try (State test = new State("cluster.1", 1, HostName.getLocalhost(), "b")) {
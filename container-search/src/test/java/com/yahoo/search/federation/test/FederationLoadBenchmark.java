@@ -0,0 +1,114 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.federation.test;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.federation.FederationConfig;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.searchchain.Execution;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures latency percentiles and the peak number of platform threads when federating concurrent queries
+ * to 20 slow sources.
+ *
+ * Run once with the argument "platform", and once with "virtual" on a JVM supporting virtual threads, to compare.
+ */
+public class FederationLoadBenchmark {
+
+    private static final int sources = 20;
+    private static final int sourceLatencyMillis = 50;
+
+    private final FederationTester tester;
+
+    private FederationLoadBenchmark(FederationConfig.Threads.Enum threads) {
+        tester = new FederationTester(threads);
+        for (int i = 0; i < sources; i++)
+            tester.addSearchChain("source" + i, new SlowSearcher());
+    }
+
+    private void benchmark(int clients, int queriesPerClient) throws Exception {
+        run(clients, queriesPerClient / 10); // warmup
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        List<Long> latencies = run(clients, queriesPerClient);
+        Collections.sort(latencies);
+        System.out.printf("%4d clients: p50 %6.1f ms, p99 %6.1f ms, max %6.1f ms, peak platform threads %5d\n",
+                          clients,
+                          percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0),
+                          threads.getPeakThreadCount());
+    }
+
+    /** Runs queries from the given number of concurrent clients and returns the latency of each in nanoseconds */
+    private List<Long> run(int clients, int queriesPerClient) throws Exception {
+        ExecutorService clientThreads = Executors.newFixedThreadPool(clients);
+        List<Future<List<Long>>> clientLatencies = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            clientLatencies.add(clientThreads.submit(() -> {
+                List<Long> latencies = new ArrayList<>();
+                for (int j = 0; j < queriesPerClient; j++) {
+                    Query query = new Query("?query=test");
+                    query.setTimeout(10 * 1000);
+                    long startTime = System.nanoTime();
+                    Result result = tester.search(query);
+                    latencies.add(System.nanoTime() - startTime);
+                    if (result.hits().getErrorHit() != null)
+                        throw new IllegalStateException("Unexpected error: " + result.hits().getErrorHit());
+                }
+                return latencies;
+            }));
+        }
+        List<Long> latencies = new ArrayList<>();
+        for (Future<List<Long>> clientLatency : clientLatencies)
+            latencies.addAll(clientLatency.get());
+        clientThreads.shutdown();
+        clientThreads.awaitTermination(1, TimeUnit.MINUTES);
+        return latencies;
+    }
+
+    private static double percentile(List<Long> sortedLatencies, double fraction) {
+        int index = Math.min(sortedLatencies.size() - 1, (int)Math.ceil(fraction * sortedLatencies.size()) - 1);
+        return sortedLatencies.get(Math.max(0, index)) / 1000000.0;
+    }
+
+    /** A source which spends some time waiting for a backend before returning a hit */
+    private static class SlowSearcher extends Searcher {
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            try {
+                Thread.sleep(sourceLatencyMillis);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            Result result = execution.search(query);
+            result.hits().add(new Hit(getId().getName()));
+            return result;
+        }
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        FederationConfig.Threads.Enum threads = FederationConfig.Threads.Enum.valueOf(args.length > 0 ? args[0].toUpperCase()
+                                                                                                          : "PLATFORM");
+        FederationLoadBenchmark benchmark = new FederationLoadBenchmark(threads);
+        System.out.println("Federating to " + sources + " sources with " + sourceLatencyMillis + " ms latency, using " +
+                           threads.toString().toLowerCase() + " threads:");
+        for (int clients : new int[] { 10, 50, 200 })
+            benchmark.benchmark(clients, 50);
+        System.exit(0); // the shared pool of async execution threads is not daemon threads
+    }
+
+}
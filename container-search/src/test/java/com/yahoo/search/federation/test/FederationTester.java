@@ -6,6 +6,7 @@ import com.yahoo.component.chain.Chain;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
+import com.yahoo.search.federation.FederationConfig;
 import com.yahoo.search.federation.FederationSearcher;
 import com.yahoo.search.federation.sourceref.SearchChainResolver;
 import com.yahoo.search.searchchain.Execution;
@@ -21,9 +22,21 @@ class FederationTester {
 
     private final SearchChainResolver.Builder builder = new SearchChainResolver.Builder();
     private final SearchChainRegistry registry = new SearchChainRegistry();
+    private final FederationConfig.Threads.Enum threads;
 
     private Execution execution;
 
+    /** The searcher federating to the chains of this, created on the first search */
+    private FederationSearcher federationSearcher;
+
+    FederationTester() {
+        this(FederationConfig.Threads.Enum.PLATFORM);
+    }
+
+    FederationTester(FederationConfig.Threads.Enum threads) {
+        this.threads = threads;
+    }
+
     void addSearchChain(String id, Searcher... searchers) {
         addSearchChain(id, federationOptions(), searchers);
     }
@@ -47,7 +60,7 @@ class FederationTester {
     }
 
     FederationSearcher buildFederationSearcher() {
-        return new FederationSearcher(ComponentId.fromString("federation"), builder.build());
+        return new FederationSearcher(ComponentId.fromString("federation"), builder.build(), threads);
     }
 
     public Result search() {
@@ -69,7 +82,13 @@ class FederationTester {
 
     private Execution createExecution() {
         registry.freeze();
-        return new Execution(new Chain<Searcher>(buildFederationSearcher()), Execution.Context.createContextStub(registry, null));
+        return new Execution(new Chain<Searcher>(federationSearcher()), Execution.Context.createContextStub(registry, null));
+    }
+
+    private synchronized FederationSearcher federationSearcher() {
+        if (federationSearcher == null)
+            federationSearcher = buildFederationSearcher();
+        return federationSearcher;
     }
 
     public void fill(Result result) {
@@ -0,0 +1,112 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.federation.test;
+
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.jdisc.http.HttpRequest.Method;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.query.profile.QueryProfile;
+import com.yahoo.search.query.profile.QueryProfileRegistry;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.searchchain.Execution;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the time and memory allocated when federating a query to 10 sources through the federation searcher,
+ * which gives each source its own clone of the query, where each source sets a few properties of its clone.
+ * The memory allocated is summed over all threads, as the sources are searched in the federation thread pool.
+ */
+public class QueryFanOutCloneMicroBenchmark {
+
+    private static final int sources = 10;
+
+    private final String description;
+    private final int requestParameters;
+    private final FederationTester tester = new FederationTester();
+
+    public QueryFanOutCloneMicroBenchmark(String description, int requestParameters, int propertiesSetPerSource) {
+        this.description = description;
+        this.requestParameters = requestParameters;
+        for (int i = 0; i < sources; i++)
+            tester.addSearchChain("source" + i, new SourceSearcher(propertiesSetPerSource));
+    }
+
+    public void benchmark(int queries) {
+        Query query = createQuery();
+        fanOut(query, queries / 2); // warm-up
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long startBytes = allocatedBytes(threads);
+        long startTime = System.nanoTime();
+        long checksum = fanOut(query, queries);
+        long totalNanos = System.nanoTime() - startTime;
+        long totalBytes = allocatedBytes(threads) - startBytes;
+        System.out.println(description + ": " + String.format("%.2f", totalNanos / 1000.0 / queries) + " us and " +
+                           (totalBytes / queries) + " bytes per fan-out (checksum " + checksum + ")");
+    }
+
+    /** Returns the bytes allocated by all live threads so far */
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads) {
+        long sum = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+            if (allocated > 0) sum += allocated;
+        return sum;
+    }
+
+    private Query createQuery() {
+        QueryProfile profile = new QueryProfile("main");
+        profile.set("a", "value1", (QueryProfileRegistry)null);
+        profile.set("b.c", "value2", (QueryProfileRegistry)null);
+        profile.freeze();
+        StringBuilder request = new StringBuilder("?query=test");
+        for (int i = 0; i < requestParameters; i++)
+            request.append("&parameter").append(i).append("=value").append(i);
+        Query query = new Query(HttpRequest.createTestRequest(request.toString(), Method.GET), profile.compile(null));
+        query.setTimeout(60 * 1000);
+        return query;
+    }
+
+    /** Federates a clone of the given query, as searching changes the query it is given */
+    private long fanOut(Query query, int queries) {
+        long checksum = 0;
+        for (int i = 0; i < queries; i++) {
+            Result result = tester.search(query.clone());
+            if (result.hits().getErrorHit() != null)
+                throw new IllegalStateException("Unexpected error: " + result.hits().getErrorHit());
+            checksum += result.getConcreteHitCount();
+        }
+        return checksum;
+    }
+
+    /** A source which sets some properties of its query before returning a hit */
+    private static class SourceSearcher extends Searcher {
+
+        private final int propertiesSet;
+
+        SourceSearcher(int propertiesSet) {
+            this.propertiesSet = propertiesSet;
+        }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            for (int i = 0; i < propertiesSet; i++)
+                query.properties().set("source.property" + i, "value");
+            Result result = execution.search(query);
+            result.hits().add(new Hit(getId().getName()));
+            return result;
+        }
+
+    }
+
+    public static void main(String[] args) {
+        int queries = 20000;
+        new QueryFanOutCloneMicroBenchmark("30 request parameters, no properties set per source ", 30, 0).benchmark(queries);
+        new QueryFanOutCloneMicroBenchmark("30 request parameters, 2 properties set per source  ", 30, 2).benchmark(queries);
+        new QueryFanOutCloneMicroBenchmark("100 request parameters, no properties set per source", 100, 0).benchmark(queries);
+        new QueryFanOutCloneMicroBenchmark("100 request parameters, 2 properties set per source ", 100, 2).benchmark(queries);
+        System.exit(0); // the shared pool of async execution threads is not daemon threads
+    }
+
+}
@@ -4,6 +4,7 @@ package com.yahoo.search.handler.test;
 import com.yahoo.container.Container;
 import com.yahoo.container.core.config.testutil.HandlersConfigurerTestWrapper;
 import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.container.jdisc.ExtendedResponse;
 import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.container.jdisc.RequestHandlerTestDriver;
 import com.yahoo.container.jdisc.ThreadedHttpRequestHandler;
@@ -30,8 +31,14 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import static com.yahoo.jdisc.http.HttpRequest.Method.GET;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
@@ -105,6 +112,48 @@ public class SearchHandlerTestCase {
             );
     }
 
+    @Test
+    public void testBlockingFillIsNotDoneInTheThreadCompletingTheSearch() {
+        RequestHandlerTestDriver.MockResponseHandler response =
+                driver.sendRequest("http://localhost?query=test&searchChain=blockingFill&format=json");
+        String content = response.readAll();
+        assertEquals(200, response.getStatus());
+        assertTrue(content, content.contains("\"fill\":\"filled\""));
+    }
+
+    @Test
+    public void testOnlyChainsOfAsynchronousSearchersAreExecutedAsynchronously() {
+        HttpResponse synchronous =
+                searchHandler.handle(HttpRequest.createTestRequest("http://localhost?query=test&searchChain=asynchronousThenBlocking", GET),
+                                     null);
+        assertNotNull("Executed by the calling thread", ((ExtendedResponse)synchronous).getHitCounts());
+
+        HttpResponse asynchronous =
+                searchHandler.handle(HttpRequest.createTestRequest("http://localhost?query=test&searchChain=asynchronous", GET), null);
+        assertNull("Not completed when returned", ((ExtendedResponse)asynchronous).getHitCounts());
+    }
+
+    @Test
+    public void testQueriesBeyondTheMaxInFlightAreAnsweredWithServiceUnavailable() throws Exception {
+        try (RequestHandlerTestDriver newDriver = driverWithConfig("config_max_queries_in_flight")) {
+            HttpResponse inFlight =
+                    fetchSearchHandler(configurer).handle(HttpRequest.createTestRequest("http://localhost?query=test&searchChain=asynchronous", GET),
+                                                          null);
+            assertNull("Not completed when returned", ((ExtendedResponse)inFlight).getHitCounts());
+
+            RequestHandlerTestDriver.MockResponseHandler rejected = newDriver.sendRequest("http://localhost?query=test&format=json");
+            assertTrue(rejected.readAll().contains("Too many queries in flight, the maximum is 1"));
+            assertEquals(503, rejected.getStatus());
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (((ExtendedResponse)inFlight).getHitCounts() == null && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            RequestHandlerTestDriver.MockResponseHandler accepted = newDriver.sendRequest("http://localhost?query=test&format=json");
+            assertTrue(accepted.readAll().contains("\"id\":\"testHit\""));
+            assertEquals(200, accepted.getStatus());
+        }
+    }
+
     @Test
     public void testFailing() {
          assertTrue(driver.sendRequest("http://localhost?query=test&searchChain=classLoadingError").readAll().contains("NoClassDefFoundError"));
@@ -115,6 +164,17 @@ public class SearchHandlerTestCase {
         assertTrue(driver.sendRequest("http://localhost?query=test&searchChain=exceptionInPlugin").readAll().contains("NullPointerException"));
     }
 
+    @Test
+    public void testResponseIsRenderedWhenAsynchronousSearchCompletes() {
+        RequestHandlerTestDriver.MockResponseHandler response =
+                driver.sendRequest("http://localhost?query=test&searchChain=asynchronous&format=json");
+        String content = response.readAll();
+        assertEquals(200, response.getStatus());
+        assertTrue(content.contains("\"id\":\"asynchronousHit\""));
+        assertTrue(content.contains("\"id\":\"testHit\""));
+        assertEquals("application/json; charset=utf-8", response.getResponse().headers().getFirst("Content-Type"));
+    }
+
     @Test
     public synchronized void testWorkingReconfiguration() throws Exception {
         assertJsonResult("http://localhost?query=abc", driver);
@@ -332,6 +392,12 @@ public class SearchHandlerTestCase {
 
             return result;
         }
+
+        @Override
+        public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+            return CompletableFuture.completedFuture(search(query, execution));
+        }
+
     }
 
     /** Referenced from config */
@@ -369,6 +435,67 @@ public class SearchHandlerTestCase {
         }
     }
 
+    /** Referenced from config. Completes the search in another thread after the search handler has returned */
+    public static class AsynchronousSearcher extends Searcher {
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            return searchAsync(query, execution).join();
+        }
+
+        @Override
+        public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+            return CompletableFuture.supplyAsync(() -> execution.search(query),
+                                                 CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS))
+                                    .thenApply(result -> {
+                                        result.hits().add(new Hit("asynchronousHit"));
+                                        return result;
+                                    });
+        }
+
+    }
+
+    /**
+     * Referenced from config. Completes the search in a single network thread, and
+     * blocks the fill waiting for a response from that thread, as synchronous fills do.
+     */
+    public static class BlockingFillSearcher extends Searcher {
+
+        private static final ExecutorService network = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "network");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            return searchAsync(query, execution).join();
+        }
+
+        @Override
+        public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+            return CompletableFuture.supplyAsync(() -> {
+                Result result = execution.search(query);
+                Hit hit = new Hit("blockingFillHit");
+                hit.setFillable();
+                result.hits().add(hit);
+                return result;
+            }, network);
+        }
+
+        @Override
+        public void fill(Result result, String summaryClass, Execution execution) {
+            try {
+                String response = CompletableFuture.supplyAsync(() -> "filled", network).get(10, TimeUnit.SECONDS);
+                result.hits().get("blockingFillHit").setField("fill", response);
+            }
+            catch (InterruptedException | ExecutionException | TimeoutException e) {
+                throw new IllegalStateException("No response from the network thread", e);
+            }
+        }
+
+    }
+
     /** Referenced from config */
     public static class EchoingQuerySearcher extends Searcher {
 
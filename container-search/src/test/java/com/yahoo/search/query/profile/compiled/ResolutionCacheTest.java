@@ -0,0 +1,110 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.query.profile.compiled;
+
+import com.yahoo.search.query.profile.QueryProfile;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResolutionCacheTest {
+
+    @Test
+    public void testValuesAreResolvedOncePerDimensionValueCombination() {
+        CompiledQueryProfile profile = createProfile();
+        ResolutionCache cache = profile.getResolutionCache();
+
+        assertEquals("default", profile.get("a", context("x", "x1", "query", "foo")));
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+
+        // Values of dimensions not used by the profile do not matter
+        assertEquals("default", profile.get("a", context("x", "x1", "query", "bar")));
+        assertEquals("x1", profile.get("b", context("x", "x1")));
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+
+        assertEquals("x1,y1", profile.get("a", context("x", "x1", "y", "y1")));
+        assertEquals("x1", profile.get("b", context("x", "x1", "y", "y1")));
+        // Values no variant is bound to are equivalent to missing values
+        assertEquals("default", profile.get("a", context("x", "x2")));
+        assertEquals("default", profile.get("b", context("x", "x2")));
+        assertEquals("default", profile.get("a", context()));
+        assertEquals("default", profile.get("a", null, null));
+        assertEquals(6, cache.hits());
+        assertEquals(3, cache.misses());
+        assertEquals(3, cache.size());
+        assertEquals(0, cache.evictions());
+
+        assertEquals(Map.of("a", "x1,y1", "b", "x1"), profile.listValues("", context("x", "x1", "y", "y1")));
+        assertEquals(7, cache.hits());
+    }
+
+    @Test
+    public void testValuesMatchingNoVariantShareResolvedValues() {
+        CompiledQueryProfile profile = createProfile();
+        ResolutionCache cache = profile.getResolutionCache();
+        int lookups = 1000;
+        for (int i = 0; i < lookups; i++) {
+            assertEquals("default", profile.get("a", context("x", "unbound" + i, "y", "y1")));
+            assertEquals("x1", profile.get("b", context("x", "x1", "y", "unbound" + i)));
+        }
+        assertEquals(2, cache.misses());
+        assertEquals(2 * lookups - 2, cache.hits());
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.evictions());
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        int combinations = 1000;
+        QueryProfile profile = new QueryProfile("test");
+        profile.setDimensions(new String[] { "x" });
+        profile.set("a", "default", null);
+        for (int i = 0; i < combinations; i++)
+            profile.set("a", "x" + i, new String[] { "x" + i }, null);
+        CompiledQueryProfile compiled = profile.compile(null);
+        ResolutionCache cache = compiled.getResolutionCache();
+
+        for (int i = 0; i < combinations; i++)
+            assertEquals("x" + i, compiled.get("a", context("x", "x" + i)));
+        assertEquals(combinations, cache.misses());
+        assertEquals(256, cache.size());
+        assertEquals(combinations - 256, cache.evictions());
+
+        // The most recently added combination is kept
+        assertEquals("x" + (combinations - 1), compiled.get("a", context("x", "x" + (combinations - 1))));
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    public void testProfileWithoutVariantsIsResolvedOnce() {
+        QueryProfile profile = new QueryProfile("test");
+        profile.set("a", "value", null);
+        CompiledQueryProfile compiled = profile.compile(null);
+        assertEquals("value", compiled.get("a", context("x", "x1")));
+        assertEquals("value", compiled.get("a", context("x", "x2")));
+        assertEquals(0, compiled.getResolutionCache().misses());
+        assertEquals(0, compiled.getResolutionCache().size());
+    }
+
+    private static CompiledQueryProfile createProfile() {
+        QueryProfile profile = new QueryProfile("test");
+        profile.setDimensions(new String[] { "x", "y" });
+        profile.set("a", "default", null);
+        profile.set("b", "default", null);
+        profile.set("a", "x1,y1", new String[] { "x1", "y1" }, null);
+        profile.set("b", "x1", new String[] { "x1" }, null);
+        return profile.compile(null);
+    }
+
+    private static Map<String, String> context(String ... keysAndValues) {
+        Map<String, String> context = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2)
+            context.put(keysAndValues[i], keysAndValues[i + 1]);
+        return context;
+    }
+
+}
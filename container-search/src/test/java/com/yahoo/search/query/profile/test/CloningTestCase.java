@@ -9,6 +9,7 @@ import com.yahoo.jdisc.http.HttpRequest.Method;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * @author bratseth
@@ -197,6 +198,39 @@ public class CloningTestCase {
         assertEquals("config-a",q32.properties().get("a").toString());
     }
 
+    @Test
+    public void testClonesAreIndependentWhenModifiedAfterCloning() {
+        QueryProfile test = new QueryProfile("test");
+        test.freeze();
+        Query q1 = new Query(HttpRequest.createTestRequest("?query=q&a.b=ab1&a.c=ac1", Method.GET), test.compile(null));
+        Query q2 = q1.clone();
+        Query q3 = q1.clone();
+
+        q2.properties().clearAll("a");
+        q3.properties().set("a.b", "ab3");
+        q1.properties().set("a.c", "ac1-2");
+
+        assertEquals("ab1", q1.properties().get("a.b"));
+        assertEquals("ac1-2", q1.properties().get("a.c"));
+        assertNull(q2.properties().get("a.b"));
+        assertNull(q2.properties().get("a.c"));
+        assertEquals("ab3", q3.properties().get("a.b"));
+        assertEquals("ac1", q3.properties().get("a.c"));
+    }
+
+    @Test
+    public void testClonesAreIndependentWithoutQueryProfile() {
+        Query q1 = new Query("?query=q&a=a1&b=b1");
+        Query q2 = q1.clone();
+        q2.properties().set("a", "a2");
+        q1.properties().set("b", "b1-2");
+
+        assertEquals("a1", q1.properties().get("a"));
+        assertEquals("b1-2", q1.properties().get("b"));
+        assertEquals("a2", q2.properties().get("a"));
+        assertEquals("b1", q2.properties().get("b"));
+    }
+
     public static class MutableString {
 
         private String string;
@@ -1232,6 +1232,77 @@ public class JsonRendererTestCase {
         assertEqualJson(expected, summary);
     }
 
+    @Test
+    public void testSlimeFieldValuesInHit() throws IOException, InterruptedException, ExecutionException {
+        String expected = "{"
+                + "    \"root\": {"
+                + "        \"children\": ["
+                + "            {"
+                + "                \"fields\": {"
+                + "                    \"map\": {"
+                + "                        \"foo\": \"string \\\"foo\\\" \\u00e6\\u00f8\\u00e5\","
+                + "                        \"bar\": [1, 2.5, true, null]"
+                + "                    },"
+                + "                    \"duplicates\": {"
+                + "                        \"foo\": 2"
+                + "                    },"
+                + "                    \"struct\": {"
+                + "                        \"text\": \"line 1\\nline 2\","
+                + "                        \"data\": \"0x0102\""
+                + "                    }"
+                + "                },"
+                + "                \"id\": \"slime\","
+                + "                \"relevance\": 1.0"
+                + "            }"
+                + "        ],"
+                + "        \"fields\": {"
+                + "            \"totalCount\": 1"
+                + "        },"
+                + "        \"id\": \"toplevel\","
+                + "        \"relevance\": 1.0"
+                + "    }"
+                + "}";
+        Result r = newEmptyResult();
+        Hit h = new Hit("slime");
+
+        Slime map = new Slime();
+        Cursor mapEntries = map.setArray();
+        Cursor foo = mapEntries.addObject();
+        foo.setString("key", "foo");
+        foo.setString("value", "string \"foo\" \u00e6\u00f8\u00e5");
+        Cursor bar = mapEntries.addObject();
+        bar.setString("key", "bar");
+        Cursor barValue = bar.setArray("value");
+        barValue.addLong(1);
+        barValue.addDouble(2.5);
+        barValue.addBool(true);
+        barValue.addNix();
+        h.setField("map", new StructuredData(new SlimeAdapter(map.get())));
+
+        Slime duplicates = new Slime();
+        Cursor duplicateEntries = duplicates.setArray();
+        Cursor first = duplicateEntries.addObject();
+        first.setString("key", "foo");
+        first.setLong("value", 1);
+        Cursor second = duplicateEntries.addObject();
+        second.setString("key", "foo");
+        second.setLong("value", 2);
+        h.setField("duplicates", new StructuredData(new SlimeAdapter(duplicates.get())));
+
+        Slime struct = new Slime();
+        Cursor structRoot = struct.setObject();
+        structRoot.setString("text", "line 1\nline 2");
+        structRoot.setData("data", new byte[] { 1, 2 });
+        h.setField("struct", new StructuredData(new SlimeAdapter(struct.get())));
+
+        r.hits().add(h);
+        r.setTotalHitCount(1L);
+        String summary = render(r);
+        assertEqualJson(expected, summary);
+        // Non-ASCII characters are written as UTF-8 rather than escaped
+        assertTrue(summary.contains("string \\\"foo\\\" \u00e6\u00f8\u00e5"));
+    }
+
     @Test
     public void testThatTheJsonValidatorCanCatchErrors() {
         String json = "{"
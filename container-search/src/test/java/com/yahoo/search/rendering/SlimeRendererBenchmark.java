@@ -0,0 +1,113 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.rendering;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.yahoo.data.access.slime.SlimeAdapter;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.result.StructuredData;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.JsonDecoder;
+import com.yahoo.slime.Slime;
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Compares render time, payload size and client parse time of the JSON and Slime renderers
+ * for a result of 400 hits with string, struct and tensor fields.
+ */
+public class SlimeRendererBenchmark {
+
+    private static final int hits = 400;
+
+    private final Random random = new Random(42);
+
+    private Result createResult() {
+        Result result = new Result(new Query("/?query=a&hits=" + hits));
+        TensorType embeddingType = TensorType.fromSpec("tensor<float>(x[64])");
+        for (int i = 0; i < hits; i++) {
+            Hit hit = new Hit("id:test:test::" + i, 1.0 / (i + 1));
+            hit.setField("title", "A title of hit number " + i);
+            hit.setField("body", "Some body text which is somewhat longer than the title of hit number " + i +
+                                 ", since it is the body.");
+            hit.setField("popularity", random.nextInt(1000));
+
+            Slime attributes = new Slime();
+            Cursor entries = attributes.setArray();
+            for (int j = 0; j < 5; j++) {
+                Cursor entry = entries.addObject();
+                entry.setString("key", "attribute" + j);
+                entry.setLong("value", random.nextInt(100));
+            }
+            hit.setField("attributes", new StructuredData(new SlimeAdapter(attributes.get())));
+
+            IndexedTensor.Builder embedding = IndexedTensor.Builder.of(embeddingType);
+            for (int j = 0; j < 64; j++)
+                embedding.cell(random.nextFloat(), j);
+            hit.setField("embedding", embedding.build());
+            hit.setField("scores", Tensor.from("{ {category:news}: " + random.nextDouble() + ", " +
+                                               "{category:sports}: " + random.nextDouble() + " }"));
+            result.hits().add(hit);
+        }
+        result.setTotalHitCount(hits * 10);
+        return result;
+    }
+
+    private byte[] render(JsonRenderer prototype, Result result) throws Exception {
+        JsonRenderer renderer = (JsonRenderer)prototype.clone();
+        renderer.init();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        renderer.render(stream, result, new Execution(Execution.Context.createContextStub()), null).get();
+        return stream.toByteArray();
+    }
+
+    private void benchmark(String name, JsonRenderer prototype, Result result, boolean binary, int iterations) throws Exception {
+        byte[] rendered = null;
+        for (int i = 0; i < iterations / 5; i++) // warmup
+            rendered = render(prototype, result);
+
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            rendered = render(prototype, result);
+        double renderMillis = (System.nanoTime() - startTime) / 1000000.0 / iterations;
+
+        long checksum = 0;
+        for (int i = 0; i < iterations / 5; i++) // warmup
+            checksum += parse(rendered, binary).fields();
+        startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            checksum += parse(rendered, binary).fields();
+        double parseMillis = (System.nanoTime() - startTime) / 1000000.0 / iterations;
+
+        System.out.printf("%-6s render: %7.3f ms, parse: %7.3f ms, size: %8d bytes (checksum %d)\n",
+                          name, renderMillis, parseMillis, rendered.length, checksum);
+    }
+
+    private static com.yahoo.slime.Inspector parse(byte[] rendered, boolean binary) {
+        if (binary)
+            return BinaryFormat.decode(rendered).get();
+        else
+            return new JsonDecoder().decode(new Slime(), rendered).get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        SlimeRendererBenchmark benchmark = new SlimeRendererBenchmark();
+        Result result = benchmark.createResult();
+        JsonRenderer json = new JsonRenderer(MoreExecutors.directExecutor());
+        SlimeRenderer slime = new SlimeRenderer(MoreExecutors.directExecutor());
+        int iterations = 200;
+        System.out.println("Rendering " + hits + " hits, " + iterations + " iterations:");
+        for (int round = 0; round < 3; round++) {
+            benchmark.benchmark("JSON", json, result, false, iterations);
+            benchmark.benchmark("Slime", slime, result, true, iterations);
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.rendering;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.yahoo.component.ComponentSpecification;
+import com.yahoo.data.access.slime.SlimeAdapter;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.datatypes.TensorFieldValue;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.result.HitGroup;
+import com.yahoo.search.result.StructuredData;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.JsonDecoder;
+import com.yahoo.slime.Slime;
+import com.yahoo.tensor.Tensor;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link SlimeRenderer} renders the same structure as {@link JsonRenderer}.
+ */
+public class SlimeRendererTestCase {
+
+    @Test
+    public void testSameStructureAsJson() throws Exception {
+        // Rendering consumes the result, so each renderer gets its own
+        Inspector json = new JsonDecoder().decodeOrThrow(new Slime(), render(new JsonRenderer(), createResult())).get();
+        Inspector slime = BinaryFormat.decode(render(new SlimeRenderer(), createResult())).get();
+        assertTrue("Expected\n" + json + "\nbut got\n" + slime, json.equalTo(slime));
+        assertEquals("text \"with\" æøå", slime.field("root").field("children").entry(1).field("fields").field("string").asString());
+    }
+
+    private static Result createResult() {
+        Result result = new Result(new Query("/?query=a"));
+        result.setTotalHitCount(2);
+        result.setCoverage(new Coverage(500, 600).setDegradedReason(5));
+        result.hits().addError(ErrorMessage.createInternalServerError("boom"));
+
+        Hit hit = new Hit("hit1", 0.5);
+        hit.setField("string", "text \"with\" æøå");
+        hit.setField("stringFieldValue", new StringFieldValue("string field value"));
+        hit.setField("long", 4398046511104L);
+        hit.setField("integer", 7);
+        hit.setField("double", 0.00390625);
+        hit.setField("bool", true);
+        hit.setField("tensor", Tensor.from("{ {x:a, y:0}: 2.0, {x:a, y:1}: -1 }"));
+        hit.setField("tensorFieldValue", new TensorFieldValue(Tensor.from("tensor(x[3]):[1.5, 2, 2.5]")));
+        hit.setField("emptyString", "");
+        hit.setField("$hidden", "hidden");
+        result.hits().add(hit);
+
+        Hit slimeHit = new Hit("hit2", 0.25);
+        Slime map = new Slime();
+        Cursor entry = map.setArray().addObject();
+        entry.setString("key", "foo");
+        Cursor value = entry.setArray("value");
+        value.addLong(1);
+        value.addDouble(2.5);
+        value.addNix();
+        slimeHit.setField("map", new StructuredData(new SlimeAdapter(map.get())));
+        Slime duplicates = new Slime();
+        Cursor duplicateEntries = duplicates.setArray();
+        for (int i = 0; i < 2; i++) {
+            Cursor duplicate = duplicateEntries.addObject();
+            duplicate.setString("key", "foo");
+            duplicate.setLong("value", i);
+        }
+        slimeHit.setField("duplicates", new StructuredData(new SlimeAdapter(duplicates.get())));
+        Slime struct = new Slime();
+        struct.setObject().setString("text", "line 1\nline 2");
+        slimeHit.setField("struct", new StructuredData(new SlimeAdapter(struct.get())));
+        HitGroup group = new HitGroup("group");
+        group.add(slimeHit);
+        result.hits().add(group);
+        return result;
+    }
+
+    @Test
+    public void testSlimeDataIsNotConvertedToText() throws Exception {
+        Result result = new Result(new Query("/?query=a"));
+        Hit hit = new Hit("hit");
+        Slime struct = new Slime();
+        struct.setObject().setData("data", new byte[] { 1, 2 });
+        hit.setField("struct", new StructuredData(new SlimeAdapter(struct.get())));
+        result.hits().add(hit);
+
+        Inspector slime = BinaryFormat.decode(render(new SlimeRenderer(), result)).get();
+        Inspector data = slime.field("root").field("children").entry(0).field("fields").field("struct").field("data");
+        assertArrayEquals(new byte[] { 1, 2 }, data.asData());
+    }
+
+    @Test
+    public void testRendererRegistry() {
+        RendererRegistry registry = new RendererRegistry(MoreExecutors.directExecutor());
+        try {
+            assertTrue(registry.getRenderer(ComponentSpecification.fromString("slime")) instanceof SlimeRenderer);
+            assertTrue(registry.getRenderer(RendererRegistry.slimeRendererId.toSpecification()) instanceof SlimeRenderer);
+            SlimeRenderer renderer = (SlimeRenderer)registry.getRenderer(ComponentSpecification.fromString("slime"));
+            assertEquals("application/x-vespa-slime", renderer.getMimeType());
+            assertNull(renderer.getEncoding());
+        }
+        finally {
+            registry.deconstruct();
+        }
+    }
+
+    private static byte[] render(JsonRenderer prototype, Result result) throws InterruptedException, ExecutionException {
+        JsonRenderer renderer = (JsonRenderer)prototype.clone();
+        renderer.init();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        ListenableFuture<Boolean> f = renderer.render(stream, result, new Execution(Execution.Context.createContextStub()), null);
+        assertTrue(f.get());
+        return stream.toByteArray();
+    }
+
+}
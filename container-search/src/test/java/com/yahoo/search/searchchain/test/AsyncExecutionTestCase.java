@@ -15,7 +15,11 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -133,6 +137,24 @@ public class AsyncExecutionTestCase {
         assertEquals("hello",result.hits().get(0).getField("test"));
     }
 
+    @Test
+    public void testWaitingInTheExecutorOfTheExecutions() {
+        AtomicInteger tasks = new AtomicInteger();
+        ExecutorService threads = Executors.newCachedThreadPool();
+        Executor executor = task -> {
+            tasks.incrementAndGet();
+            threads.execute(task);
+        };
+        Query query = new Query("?query=test");
+        Execution execution = new Execution(new ResultProducingSearcher(), Execution.Context.createContextStub());
+        FutureResult futureResult = new AsyncExecution(execution, executor).search(query);
+
+        List<Result> results = AsyncExecution.waitForAll(List.of(futureResult), 1000, executor);
+        assertEquals("The search and the wait", 2, tasks.get());
+        assertEquals("hello", results.get(0).hits().get(0).getField("test"));
+        threads.shutdown();
+    }
+
     private static class ResultProducingSearcher extends Searcher {
 
         @Override
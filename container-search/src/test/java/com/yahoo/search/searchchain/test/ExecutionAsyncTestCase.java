@@ -0,0 +1,201 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.searchchain.test;
+
+import com.yahoo.component.ComponentId;
+import com.yahoo.component.chain.Chain;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.Searcher;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.yolean.trace.TraceNode;
+import com.yahoo.yolean.trace.TraceVisitor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests asynchronous execution of search chains mixing synchronous and asynchronous searchers
+ */
+public class ExecutionAsyncTestCase {
+
+    @Test
+    public void testSearchAsyncThroughSynchronousAndAsynchronousSearchers() throws Exception {
+        Chain<Searcher> chain = new Chain<>(new ComponentId("chain"),
+                                            List.of(new SynchronousSearcher("sync1"),
+                                                    new AsynchronousSearcher("async"),
+                                                    new SynchronousSearcher("sync2"),
+                                                    new BackendSearcher()));
+        Execution execution = new Execution(chain, Execution.Context.createContextStub());
+        Result result = execution.searchAsync(new Query("?query=test")).get(10, TimeUnit.SECONDS);
+        assertEquals(4, result.getConcreteHitCount());
+        for (String id : List.of("backend", "sync2", "async", "sync1"))
+            assertNotNull(result.hits().get(id));
+
+        assertFalse(result.isFilled("summary"));
+        execution.fillAsync(result, "summary").get(10, TimeUnit.SECONDS);
+        assertTrue(result.isFilled("summary"));
+        assertEquals("filled", result.hits().get("backend").getField("summary"));
+    }
+
+    @Test
+    public void testFillAsyncIsTraced() throws Exception {
+        Query query = new Query("?query=test&tracelevel=5");
+        BackendSearcher backend = new BackendSearcher();
+        Execution execution = new Execution(new Chain<>(backend), Execution.Context.createContextStub());
+        Result result = execution.searchAsync(query).get(10, TimeUnit.SECONDS);
+        execution.fillAsync(result, "summary").get(10, TimeUnit.SECONDS);
+
+        List<String> trace = new ArrayList<>();
+        query.getContext(false).getTrace().accept(new TraceVisitor() {
+            @Override
+            public void visit(TraceNode node) {
+                if (node.payload() != null)
+                    trace.add(node.payload().toString());
+            }
+        });
+        assertTrue(trace.contains("Invoke fill(summary) on " + backend));
+        assertTrue(trace.contains("Return fill(summary) on " + backend));
+    }
+
+    @Test
+    public void testSearchAsyncIsTimed() throws Exception {
+        Chain<Searcher> chain = new Chain<>(new ComponentId("chain"),
+                                            List.of(new DelayingSearcher(50), new BackendSearcher()));
+        Execution execution = new Execution(chain, Execution.Context.createContextStub());
+        Result result = execution.searchAsync(new Query("?query=test")).get(10, TimeUnit.SECONDS);
+        assertTrue("Search time includes the time until the future result completed",
+                   result.getElapsedTime().searchTime() >= 50);
+        assertEquals(0, result.getElapsedTime().fillTime());
+
+        execution.fillAsync(result, "summary").get(10, TimeUnit.SECONDS);
+        assertTrue(result.getElapsedTime().searchTime() >= 50);
+    }
+
+    @Test
+    public void testSearchAsyncWithNothingToExecute() throws Exception {
+        Execution execution = new Execution(new Chain<>(), Execution.Context.createContextStub());
+        Result result = execution.searchAsync(new Query("?query=test")).get(10, TimeUnit.SECONDS);
+        assertEquals(0, result.getConcreteHitCount());
+    }
+
+    @Test
+    public void testExceptionsFailTheFutureResult() throws Exception {
+        Chain<Searcher> chain = new Chain<>(new ComponentId("chain"),
+                                            List.of(new SynchronousSearcher("sync"), new FailingSearcher()));
+        Execution execution = new Execution(chain, Execution.Context.createContextStub());
+        try {
+            execution.searchAsync(new Query("?query=test")).get(10, TimeUnit.SECONDS);
+            fail("Expected exception");
+        }
+        catch (ExecutionException e) {
+            assertEquals("Failed", e.getCause().getMessage());
+        }
+    }
+
+    private static class SynchronousSearcher extends Searcher {
+
+        SynchronousSearcher(String id) { super(new ComponentId(id)); }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            Result result = execution.search(query);
+            result.hits().add(new Hit(getId().getName()));
+            return result;
+        }
+
+    }
+
+    /** Continues the chain asynchronously, and completes the result in another thread */
+    private static class AsynchronousSearcher extends Searcher {
+
+        AsynchronousSearcher(String id) { super(new ComponentId(id)); }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            return searchAsync(query, execution).join();
+        }
+
+        @Override
+        public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+            return CompletableFuture.supplyAsync(() -> execution.searchAsync(query))
+                                    .thenCompose(result -> result)
+                                    .thenApply(result -> {
+                                        result.hits().add(new Hit(getId().getName()));
+                                        return result;
+                                    });
+        }
+
+    }
+
+    /** Completes the result of the rest of the chain after the given delay */
+    private static class DelayingSearcher extends Searcher {
+
+        private final long delayMs;
+
+        DelayingSearcher(long delayMs) { this.delayMs = delayMs; }
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            return searchAsync(query, execution).join();
+        }
+
+        @Override
+        public CompletableFuture<Result> searchAsync(Query query, Execution execution) {
+            Executor delayed = CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS);
+            return execution.searchAsync(query).thenApplyAsync(result -> result, delayed);
+        }
+
+    }
+
+    /** Returns a hit which is filled in another thread */
+    private static class BackendSearcher extends Searcher {
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            Result result = new Result(query);
+            Hit hit = new Hit("backend");
+            hit.setFillable();
+            result.hits().add(hit);
+            return result;
+        }
+
+        @Override
+        public void fill(Result result, String summaryClass, Execution execution) {
+            fillAsync(result, summaryClass, execution).join();
+        }
+
+        @Override
+        public CompletableFuture<Result> fillAsync(Result result, String summaryClass, Execution execution) {
+            return CompletableFuture.supplyAsync(() -> {
+                for (Hit hit : result.hits().asUnorderedHits()) {
+                    hit.setField(summaryClass, "filled");
+                    hit.setFilled(summaryClass);
+                }
+                return result;
+            });
+        }
+
+    }
+
+    private static class FailingSearcher extends Searcher {
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            throw new IllegalStateException("Failed");
+        }
+
+    }
+
+}
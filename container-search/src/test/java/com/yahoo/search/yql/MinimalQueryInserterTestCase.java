@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -53,6 +54,31 @@ public class MinimalQueryInserterTestCase {
         execution = null;
     }
 
+    @Test
+    public void requireThatParsedProgramsAreCachedAndBoundToEachQuery() {
+        MinimalQueryInserter inserter = new MinimalQueryInserter();
+        Execution execution = new Execution(new Chain<>(inserter), context);
+        String yql = "select foo from bar where baz contains 'cox' and userInput(@input) " +
+                     "| all(group(a) each(output(count())));";
+
+        Query first = new Query("search/?input=first&yql=" + encode(yql));
+        execution.search(first);
+        Query second = new Query("search/?input=second&yql=" + encode(yql));
+        execution.search(second);
+
+        assertEquals("AND baz:cox default:first", first.getModel().getQueryTree().toString());
+        assertEquals("AND baz:cox default:second", second.getModel().getQueryTree().toString());
+        assertGrouping("[[]all(group(a) each(output(count())))]", second);
+        assertEquals(1, inserter.programCache().misses());
+        assertEquals(1, inserter.programCache().hits());
+        assertEquals(1, inserter.programCache().size());
+
+        Query invalid = new Query("search/?yql=" + encode("select foo from bar where"));
+        Result result = execution.search(invalid);
+        assertNotNull(result.hits().getError());
+        assertEquals(1, inserter.programCache().size());
+    }
+
     @Test
     public void requireThatGroupingStepsAreAttachedToQuery() {
         URIBuilder builder = new URIBuilder();
@@ -0,0 +1,167 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct byte buffers shared by all connections. Buffers
+ * are handed out in power of two size classes, and returned buffers
+ * are kept for reuse up to a limit on the total number of idle bytes
+ * across all size classes. Using direct buffers for socket I/O avoids
+ * the copying the JDK does between heap buffers and its own temporary
+ * direct buffers on each read and write.
+ *
+ * The limit of the shared pool is set by the system property
+ * jrt.bufferPool.maxIdleBytes. Idle buffers which are not needed
+ * between two calls to {@link #trim} are dropped, such that the
+ * memory is freed when they are collected.
+ *
+ * Requests for more than the largest size class are served with
+ * unpooled heap buffers.
+ *
+ * This class is thread safe.
+ **/
+class BufferPool {
+
+    static final int MIN_SIZE_SHIFT = 12;  // 4 KiB
+    static final int MAX_SIZE_SHIFT = 20;  // 1 MiB
+    static final long DEFAULT_MAX_IDLE_BYTES = 16 * 1024 * 1024;
+    static final long TRIM_INTERVAL_MILLIS = 10 * 1000;
+
+    private static final BufferPool instance = new BufferPool(Long.getLong("jrt.bufferPool.maxIdleBytes",
+                                                                           DEFAULT_MAX_IDLE_BYTES));
+
+    private final SizeClass[] sizeClasses = new SizeClass[MAX_SIZE_SHIFT - MIN_SIZE_SHIFT + 1];
+    private final long maxIdleBytes;
+    private final AtomicLong idleBytes = new AtomicLong(0);
+    private final AtomicLong usedBytes = new AtomicLong(0);
+    private final AtomicLong lastTrimMillis = new AtomicLong(0);
+
+    private static class SizeClass {
+        final int size;
+        final ConcurrentLinkedDeque<ByteBuffer> idle = new ConcurrentLinkedDeque<>();
+        final AtomicInteger idleCount = new AtomicInteger(0);
+        /** The lowest number of idle buffers since the last trim, which were not needed in that period */
+        final AtomicInteger minIdleCount = new AtomicInteger(0);
+        SizeClass(int size) {
+            this.size = size;
+        }
+    }
+
+    BufferPool() {
+        this(DEFAULT_MAX_IDLE_BYTES);
+    }
+
+    /**
+     * Creates a buffer pool
+     *
+     * @param maxIdleBytes the max number of bytes kept in idle buffers, across all size classes
+     **/
+    BufferPool(long maxIdleBytes) {
+        this.maxIdleBytes = maxIdleBytes;
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(1 << (MIN_SIZE_SHIFT + i));
+        }
+    }
+
+    /** Returns the pool shared by all transports */
+    static BufferPool getInstance() { return instance; }
+
+    private SizeClass sizeClassOf(int size) {
+        if (size > (1 << MAX_SIZE_SHIFT)) {
+            return null;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1);
+        return sizeClasses[Math.max(shift, MIN_SIZE_SHIFT) - MIN_SIZE_SHIFT];
+    }
+
+    /**
+     * Returns a cleared buffer with a capacity of at least the given
+     * size. The buffer must be given back to this by {@link #release}
+     * when it is no longer used.
+     **/
+    ByteBuffer acquire(int size) {
+        SizeClass sizeClass = sizeClassOf(size);
+        if (sizeClass == null) {
+            return ByteBuffer.allocate(size);
+        }
+        ByteBuffer buf = sizeClass.idle.pollFirst();
+        if (buf != null) {
+            int idleCount = sizeClass.idleCount.decrementAndGet();
+            sizeClass.minIdleCount.accumulateAndGet(idleCount, Math::min);
+            idleBytes.addAndGet(-sizeClass.size);
+        } else {
+            sizeClass.minIdleCount.set(0);
+            buf = ByteBuffer.allocateDirect(sizeClass.size);
+        }
+        usedBytes.addAndGet(sizeClass.size);
+        return buf;
+    }
+
+    /**
+     * Gives a buffer obtained from {@link #acquire} back to this. The
+     * buffer must not be used by the caller after this.
+     **/
+    void release(ByteBuffer buf) {
+        if (!buf.isDirect()) {
+            return;
+        }
+        SizeClass sizeClass = sizeClassOf(buf.capacity());
+        usedBytes.addAndGet(-sizeClass.size);
+        if (idleBytes.addAndGet(sizeClass.size) > maxIdleBytes) {
+            idleBytes.addAndGet(-sizeClass.size);
+            return; // freed when collected
+        }
+        buf.clear();
+        buf.order(ByteOrder.BIG_ENDIAN);
+        sizeClass.idle.addFirst(buf);
+        sizeClass.idleCount.incrementAndGet();
+    }
+
+    /**
+     * Drops the idle buffers which have not been needed since the
+     * last trim, least recently used first. They are freed when
+     * collected.
+     **/
+    void trim() {
+        for (SizeClass sizeClass : sizeClasses) {
+            int unneeded = sizeClass.minIdleCount.get();
+            for (int i = 0; i < unneeded; i++) {
+                if (sizeClass.idle.pollLast() == null) {
+                    break;
+                }
+                sizeClass.idleCount.decrementAndGet();
+                idleBytes.addAndGet(-sizeClass.size);
+            }
+            sizeClass.minIdleCount.set(Math.max(0, sizeClass.idleCount.get()));
+        }
+    }
+
+    /**
+     * Trims this if it is at least {@link #TRIM_INTERVAL_MILLIS}
+     * since it was last trimmed by this method. This is called
+     * periodically by all transport threads.
+     *
+     * @param nowMillis the current time in milliseconds
+     **/
+    void trimIfDue(long nowMillis) {
+        long lastTrim = lastTrimMillis.get();
+        if (nowMillis - lastTrim < TRIM_INTERVAL_MILLIS) {
+            return;
+        }
+        if (lastTrimMillis.compareAndSet(lastTrim, nowMillis)) {
+            trim();
+        }
+    }
+
+    /** Returns the number of bytes in buffers kept for reuse */
+    long idleBytes() { return idleBytes.get(); }
+
+    /** Returns the number of bytes in pooled buffers currently handed out */
+    long usedBytes() { return usedBytes.get(); }
+
+}
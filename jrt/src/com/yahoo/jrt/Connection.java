@@ -32,8 +32,8 @@ class Connection extends Target {
     private int state = INITIAL;
     private final Queue  queue   = new Queue();
     private final Queue  myQueue = new Queue();
-    private final Buffer input   = new Buffer(READ_SIZE * 2);
-    private final Buffer output  = new Buffer(WRITE_SIZE * 2);
+    private final Buffer input   = new Buffer(READ_SIZE * 2, BufferPool.getInstance());
+    private final Buffer output  = new Buffer(WRITE_SIZE * 2, BufferPool.getInstance());
     private int maxInputSize  = 64*1024;
     private int maxOutputSize = 64*1024;
     private final boolean tcpNoDelay;
@@ -368,6 +368,25 @@ class Connection extends Target {
         }
     }
 
+    /**
+     * Writes what can be written right away, and enables write events
+     * if there is more to write.
+     **/
+    public void writeOrEnableWrite() throws IOException {
+        if (state != CONNECTED) {
+            enableWrite();
+            return;
+        }
+        write();
+        boolean moreToWrite;
+        synchronized (this) {
+            moreToWrite = (writeWork > 0);
+        }
+        if (moreToWrite) {
+            enableWrite();
+        }
+    }
+
     public void handleWriteEvent() throws IOException {
         if (state == CONNECTED) {
             write();
@@ -383,6 +402,8 @@ class Connection extends Target {
         if (selectionKey != null) {
             selectionKey.cancel();
         }
+        input.release();
+        output.release();
     }
 
     public boolean isClosed() {
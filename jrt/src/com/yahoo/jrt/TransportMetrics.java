@@ -48,6 +48,16 @@ public class TransportMetrics {
         return clientUnencryptedConnectionsEstablished.get();
     }
 
+    /** Returns the number of bytes in direct buffers kept for reuse by connections */
+    public long bufferPoolIdleBytes() {
+        return BufferPool.getInstance().idleBytes();
+    }
+
+    /** Returns the number of bytes in pooled direct buffers currently used by connections */
+    public long bufferPoolUsedBytes() {
+        return BufferPool.getInstance().usedBytes();
+    }
+
     public Snapshot snapshot() { return new Snapshot(this); }
 
     void incrementTlsCertificateVerificationFailures() {
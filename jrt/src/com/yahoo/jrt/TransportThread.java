@@ -7,6 +7,7 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,12 +44,6 @@ public class TransportThread {
         public void run() { handleCloseConnection(conn); }
     }
 
-    private class EnableWriteCmd implements Runnable {
-        private Connection conn;
-        EnableWriteCmd(Connection conn) { this.conn = conn; }
-        public void run() { handleEnableWrite(conn); }
-    }
-
     private class HandshakeWorkDoneCmd implements Runnable {
         private Connection conn;
         HandshakeWorkDoneCmd(Connection conn) { this.conn = conn; }
@@ -75,8 +70,10 @@ public class TransportThread {
     private final Queue     queue;
     private final Queue     myQueue;
     private final Scheduler scheduler;
+    private final Task      bufferPoolTrimmer;
     private int             state;
     private final Selector  selector;
+    private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
 
     private void handleAddConnection(Connection conn) {
         if (conn.isClosed()) {
@@ -107,6 +104,18 @@ public class TransportThread {
         conn.enableWrite();
     }
 
+    private void handleWriteNow(Connection conn) {
+        if (conn.isClosed()) {
+            return;
+        }
+        try {
+            conn.writeOrEnableWrite();
+        } catch (IOException e) {
+            conn.setLostReason(e);
+            handleCloseConnection(conn);
+        }
+    }
+
     private void handleHandshakeWorkDone(Connection conn) {
         if (conn.isClosed()) {
             return;
@@ -119,7 +128,14 @@ public class TransportThread {
         }
     }
 
-    private boolean postCommand(Runnable cmd) {
+    /**
+     * Posts a command to the transport thread. The command is either
+     * a Runnable, or a Connection which has packets to write. The
+     * selector is only woken up if no other wakeup is pending since
+     * the transport thread last returned from select, as the
+     * transport thread will then handle all posted commands anyway.
+     **/
+    private boolean post(Object cmd) {
         boolean wakeup;
         synchronized (this) {
             if (state == CLOSED) {
@@ -128,18 +144,27 @@ public class TransportThread {
             wakeup = queue.isEmpty();
             queue.enqueue(cmd);
         }
-        if (wakeup) {
+        if (wakeup && wakeupPending.compareAndSet(false, true)) {
             selector.wakeup();
         }
         return true;
     }
 
+    private boolean postCommand(Runnable cmd) {
+        return post(cmd);
+    }
+
     private void handleEvents() {
         synchronized (this) {
             queue.flush(myQueue);
         }
         while (!myQueue.isEmpty()) {
-            ((Runnable)myQueue.dequeue()).run();
+            Object cmd = myQueue.dequeue();
+            if (cmd instanceof Connection) {
+                handleWriteNow((Connection)cmd);
+            } else {
+                ((Runnable)cmd).run();
+            }
         }
     }
 
@@ -173,6 +198,8 @@ public class TransportThread {
         queue     = new Queue();
         myQueue   = new Queue();
         scheduler = new Scheduler(System.currentTimeMillis());
+        bufferPoolTrimmer = new Task(scheduler, this::trimBufferPool);
+        bufferPoolTrimmer.schedule(BufferPool.TRIM_INTERVAL_MILLIS / 1000.0);
         state     = OPEN;
         try {
             selector = Selector.open();
@@ -183,6 +210,12 @@ public class TransportThread {
         thread.start();
     }
 
+    /** Trims the buffer pool shared by all transport threads if that is due, and checks again later */
+    private void trimBufferPool() {
+        BufferPool.getInstance().trimIfDue(System.currentTimeMillis());
+        bufferPoolTrimmer.schedule(BufferPool.TRIM_INTERVAL_MILLIS / 1000.0);
+    }
+
     public Transport transport() {
         return parent;
     }
@@ -221,7 +254,11 @@ public class TransportThread {
 
     /**
      * Request an asynchronous enabling of write events for a
-     * connection.
+     * connection. When invoked from another thread, the transport
+     * thread will write the packets queued on the connection as soon
+     * as it handles the command, rather than waiting for the next
+     * write event. All the packets posted to the connection until
+     * then are written together.
      *
      * @param conn the connection to enable write events for
      **/
@@ -229,7 +266,7 @@ public class TransportThread {
         if (Thread.currentThread() == thread) {
             handleEnableWrite(conn);
         } else {
-            postCommand(new EnableWriteCmd(conn));
+            post(conn);
         }
     }
 
@@ -299,6 +336,7 @@ public class TransportThread {
             } catch (IOException e) {
                 log.log(Level.WARNING, "error during select", e);
             }
+            wakeupPending.set(false);
 
             // handle internal events
             handleEvents();
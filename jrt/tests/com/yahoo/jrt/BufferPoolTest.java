@@ -0,0 +1,123 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BufferPoolTest {
+
+    @Test
+    public void requireThatBuffersAreRoundedUpToSizeClassesAndReused() {
+        BufferPool pool = new BufferPool();
+        ByteBuffer a = pool.acquire(5000);
+        assertTrue(a.isDirect());
+        assertEquals(8192, a.capacity());
+        assertEquals(8192, pool.usedBytes());
+        assertEquals(0, pool.idleBytes());
+
+        pool.release(a);
+        assertEquals(0, pool.usedBytes());
+        assertEquals(8192, pool.idleBytes());
+
+        ByteBuffer b = pool.acquire(8000);
+        assertSame(a, b);
+        assertEquals(0, b.position());
+        assertEquals(8192, b.limit());
+        assertEquals(0, pool.idleBytes());
+
+        ByteBuffer small = pool.acquire(1);
+        assertEquals(1 << BufferPool.MIN_SIZE_SHIFT, small.capacity());
+    }
+
+    @Test
+    public void requireThatLargeBuffersAreNotPooled() {
+        BufferPool pool = new BufferPool();
+        ByteBuffer large = pool.acquire((1 << BufferPool.MAX_SIZE_SHIFT) + 1);
+        assertFalse(large.isDirect());
+        pool.release(large);
+        assertEquals(0, pool.usedBytes());
+        assertEquals(0, pool.idleBytes());
+    }
+
+    @Test
+    public void requireThatPooledBufferKeepsDataWhenGrowingAndReleasesMemory() {
+        BufferPool pool = new BufferPool();
+        Buffer buf = new Buffer(4096, pool);
+        ByteBuffer wb = buf.getWritable(100);
+        for (int i = 0; i < 100; i++) {
+            wb.put((byte)i);
+        }
+        buf.getWritable(10000);
+        assertEquals(16384, pool.usedBytes());
+        assertEquals(4096, pool.idleBytes());
+        ByteBuffer rb = buf.getReadable();
+        assertEquals(100, rb.remaining());
+        for (int i = 0; i < 100; i++) {
+            assertEquals((byte)i, rb.get());
+        }
+
+        buf.release();
+        assertEquals(0, pool.usedBytes());
+        assertEquals(16384 + 4096, pool.idleBytes());
+        assertEquals(0, buf.bytes());
+        buf.release();
+        assertEquals(16384 + 4096, pool.idleBytes());
+    }
+
+    @Test
+    public void requireThatIdleBytesAreBoundedAcrossSizeClasses() {
+        BufferPool pool = new BufferPool(4096 + 8192);
+        ByteBuffer a = pool.acquire(4096);
+        ByteBuffer b = pool.acquire(8192);
+        ByteBuffer c = pool.acquire(4096);
+        pool.release(a);
+        pool.release(b);
+        assertEquals(4096 + 8192, pool.idleBytes());
+        pool.release(c);
+        assertEquals(0, pool.usedBytes());
+        assertEquals(4096 + 8192, pool.idleBytes());
+        assertSame(a, pool.acquire(4096));
+        assertNotSame(c, pool.acquire(4096));
+    }
+
+    @Test
+    public void requireThatIdleBuffersNotNeededSinceTheLastTrimAreDropped() {
+        BufferPool pool = new BufferPool();
+        ByteBuffer a = pool.acquire(4096);
+        ByteBuffer b = pool.acquire(4096);
+        pool.release(a);
+        pool.release(b);
+        pool.trim();
+        assertEquals("Both were needed", 8192, pool.idleBytes());
+
+        pool.release(pool.acquire(4096));
+        pool.trim();
+        assertEquals("One was not needed", 4096, pool.idleBytes());
+        assertSame(b, pool.acquire(4096)); // the most recently used is kept
+        pool.release(b);
+
+        pool.trim();
+        assertEquals(4096, pool.idleBytes());
+        pool.trim();
+        assertEquals(0, pool.idleBytes());
+    }
+
+    @Test
+    public void requireThatTrimmingIsDoneAtMostOncePerInterval() {
+        BufferPool pool = new BufferPool();
+        pool.release(pool.acquire(4096));
+        pool.trimIfDue(BufferPool.TRIM_INTERVAL_MILLIS);
+        pool.trimIfDue(BufferPool.TRIM_INTERVAL_MILLIS * 3 / 2);
+        assertEquals(4096, pool.idleBytes());
+        pool.trimIfDue(BufferPool.TRIM_INTERVAL_MILLIS * 2);
+        assertEquals(0, pool.idleBytes());
+    }
+
+}
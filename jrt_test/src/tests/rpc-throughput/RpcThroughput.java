@@ -0,0 +1,107 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+
+import com.yahoo.jrt.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of small RPCs between a client and a server in the same process,
+ * as RPCs per second and RPCs per second of CPU time (i.e per core fully used).
+ * Each client thread keeps a window of asynchronous requests outstanding, such that
+ * many packets are posted to each connection from outside the transport threads at the same time.
+ *
+ * usage: RpcThroughput [clientThreads] [transportThreads] [window] [seconds]
+ */
+public class RpcThroughput extends Thread implements RequestWaiter {
+
+    private final Target target;
+    private final Semaphore window;
+    private final AtomicLong completed;
+    private volatile boolean running = true;
+
+    RpcThroughput(Target target, int window, AtomicLong completed) {
+        this.target = target;
+        this.window = new Semaphore(window);
+        this.completed = completed;
+        setDaemon(true);
+    }
+
+    public void run() {
+        while (running) {
+            window.acquireUninterruptibly();
+            Request req = new Request("inc");
+            req.parameters().add(new Int32Value(1));
+            target.invokeAsync(req, 60.0, this);
+        }
+    }
+
+    public void handleRequestDone(Request req) {
+        if (req.isError() && running) {
+            System.err.println("Request failed: " + req.errorMessage());
+            System.exit(1);
+        }
+        completed.incrementAndGet();
+        window.release();
+    }
+
+    void shutdown() {
+        running = false;
+        window.release();
+    }
+
+    private static void rpc_inc(Request req) {
+        req.returnValues().add(new Int32Value(req.parameters().get(0).asInt32() + 1));
+    }
+
+    private static long cpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean)ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    private static int arg(String[] args, int index, int defaultValue) {
+        return (args.length > index) ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    private static void measure(AtomicLong completed, double seconds, String label) throws InterruptedException {
+        long startCount = completed.get();
+        long startCpu = cpuNanos();
+        long startTime = System.nanoTime();
+        Thread.sleep((long)(seconds * 1000));
+        long count = completed.get() - startCount;
+        double elapsed = (System.nanoTime() - startTime) / 1e9;
+        double cpu = (cpuNanos() - startCpu) / 1e9;
+        System.out.printf("%s: %.0f rpc/s, %.0f rpc/s per core (%.2f cores used)%n",
+                          label, count / elapsed, count / cpu, cpu / elapsed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clientThreads = arg(args, 0, 4);
+        int transportThreads = arg(args, 1, 2);
+        int window = arg(args, 2, 64);
+        int seconds = arg(args, 3, 10);
+
+        Supervisor server = new Supervisor(new Transport(transportThreads));
+        Supervisor client = new Supervisor(new Transport(transportThreads));
+        server.addMethod(new Method("inc", "i", "i", RpcThroughput::rpc_inc));
+        Acceptor acceptor = server.listen(new Spec(0));
+
+        AtomicLong completed = new AtomicLong();
+        RpcThroughput[] clients = new RpcThroughput[clientThreads];
+        for (int i = 0; i < clientThreads; i++) {
+            clients[i] = new RpcThroughput(client.connect(new Spec("localhost", acceptor.port())), window, completed);
+            clients[i].start();
+        }
+        measure(completed, 2.0, "warmup");
+        measure(completed, seconds, "clientThreads=" + clientThreads + " transportThreads=" + transportThreads + " window=" + window);
+        for (RpcThroughput c : clients) {
+            c.shutdown();
+            c.join();
+        }
+
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+}
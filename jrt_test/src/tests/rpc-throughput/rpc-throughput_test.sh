@@ -0,0 +1,18 @@
+#!/bin/bash
+# Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+
+if [ -z "$SOURCE_DIRECTORY" ]; then
+    SOURCE_DIRECTORY="."
+fi
+
+fail=0
+
+. ../../binref/env.sh
+
+$BINREF/compilejava -d . $SOURCE_DIRECTORY/RpcThroughput.java || fail=1
+
+for transportThreads in 1 2 4; do
+    $BINREF/runjava RpcThroughput 4 $transportThreads 64 10 || fail=1
+done
+
+exit $fail
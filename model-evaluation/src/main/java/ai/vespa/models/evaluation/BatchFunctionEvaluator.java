@@ -0,0 +1,210 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * An evaluator which can be used to evaluate a single function for a batch of argument values once.
+ * Each argument is either bound to a list of values containing one value per row of the batch,
+ * or to a single value used for all rows. The function is evaluated once per row, reusing the same
+ * context, and argument names and types are resolved once per batch rather than once per row.
+ *
+ * This is not multithread safe.
+ */
+// This wraps all access to the context and the ranking expression to avoid incorrect usage
+public class BatchFunctionEvaluator {
+
+    private final ExpressionFunction function;
+
+    /** The compiled body of the function, or null if it is not compiled */
+    private final RankingExpression compiledBody;
+
+    private final LazyArrayContext context;
+
+    /** The arguments bound to one value per row, by name */
+    private final Map<String, Value[]> columns = new LinkedHashMap<>();
+
+    private int rows = -1;
+    private boolean evaluated = false;
+
+    BatchFunctionEvaluator(ExpressionFunction function, RankingExpression compiledBody, LazyArrayContext context) {
+        this.function = function;
+        this.compiledBody = compiledBody;
+        this.context = context;
+    }
+
+    /**
+     * Binds the given variable referred in this expression to the given values, one for each row.
+     *
+     * @param name the variable to bind
+     * @param values the values this becomes bound to, which must contain one value per row
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator bind(String name, List<Tensor> values) {
+        TensorType requiredType = requireArgumentType(name);
+        Value[] column = new Value[values.size()];
+        TensorType validType = null;
+        for (int i = 0; i < column.length; i++) {
+            Tensor value = values.get(i);
+            if (value.type() != validType) { // Values in a batch usually share the same type instance
+                validate(name, value, requiredType);
+                validType = value.type();
+            }
+            column[i] = new TensorValue(value);
+        }
+        return bind(name, column);
+    }
+
+    /**
+     * Binds the given variable referred in this expression to the given values, one for each row.
+     * This is equivalent to binding each value as a tensor of the empty type.
+     *
+     * @param name the variable to bind
+     * @param values the values this becomes bound to, which must contain one value per row
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator bind(String name, double[] values) {
+        TensorType requiredType = requireArgumentType(name);
+        if ( ! TensorType.empty.isAssignableTo(requiredType))
+            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + TensorType.empty);
+        Value[] column = new Value[values.length];
+        for (int i = 0; i < column.length; i++)
+            column[i] = DoubleValue.frozen(values[i]);
+        return bind(name, column);
+    }
+
+    /**
+     * Binds the given variable referred in this expression to the given value in all rows.
+     *
+     * @param name the variable to bind
+     * @param value the value this becomes bound to
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator bind(String name, Tensor value) {
+        validate(name, value, requireArgumentType(name));
+        context.put(name, new TensorValue(value));
+        columns.remove(name);
+        if (columns.isEmpty())
+            rows = -1;
+        return this;
+    }
+
+    /**
+     * Binds the given variable referred in this expression to the given value in all rows.
+     * This is equivalent to <code>bind(name, Tensor.Builder.of(TensorType.empty).cell(value).build())</code>
+     *
+     * @param name the variable to bind
+     * @param value the value this becomes bound to
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator bind(String name, double value) {
+        return bind(name, Tensor.Builder.of(TensorType.empty).cell(value).build());
+    }
+
+    /**
+     * Sets the default value to use for variables which are not bound
+     *
+     * @param value the default value
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator setMissingValue(Tensor value) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot change the missing value in a used evaluator");
+        context.setMissingValue(value);
+        return this;
+    }
+
+    /**
+     * Sets the default value to use for variables which are not bound
+     *
+     * @param value the default value
+     * @return this for chaining
+     */
+    public BatchFunctionEvaluator setMissingValue(double value) {
+        return setMissingValue(Tensor.Builder.of(TensorType.empty).cell(value).build());
+    }
+
+    /**
+     * Evaluates the function once for each row of the bound values
+     *
+     * @return the result of each row, in the order of the bound values
+     * @throws IllegalStateException if no argument is bound to a list of values, or an argument is not bound
+     */
+    public List<Tensor> evaluate() {
+        if (columns.isEmpty())
+            throw new IllegalStateException("No argument is bound to a list of values in " + function);
+        for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet()) {
+            if (columns.containsKey(argument.getKey())) continue;
+            if (context.isMissing(argument.getKey()))
+                throw new IllegalStateException("Missing argument '" + argument.getKey() +
+                                                "': Must be bound to a value of type " + argument.getValue());
+            if (! context.get(argument.getKey()).type().isAssignableTo(argument.getValue()))
+                throw new IllegalStateException("Argument '" + argument.getKey() +
+                                                "' must be bound to a value of type " + argument.getValue());
+        }
+        evaluated = true;
+
+        int[] indexes = new int[columns.size()];
+        Value[][] values = new Value[columns.size()][];
+        int column = 0;
+        for (Map.Entry<String, Value[]> entry : columns.entrySet()) {
+            indexes[column] = context.getIndex(entry.getKey());
+            values[column++] = entry.getValue();
+        }
+
+        RankingExpression body = compiledBody != null && context.defaultValue().type().rank() == 0 ? compiledBody
+                                                                                                   : function.getBody();
+        List<Tensor> results = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            for (int i = 0; i < indexes.length; i++)
+                context.put(indexes[i], values[i][row]);
+            context.clearComputedValues();
+            results.add(body.evaluate(context).asTensor());
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    /** Returns the function evaluated by this */
+    public ExpressionFunction function() { return function; }
+
+    private BatchFunctionEvaluator bind(String name, Value[] column) {
+        if (rows >= 0 && column.length != rows && ! (columns.size() == 1 && columns.containsKey(name)))
+            throw new IllegalArgumentException("'" + name + "' is bound to " + column.length +
+                                               " values, but other arguments are bound to " + rows);
+        context.getIndex(name); // Verify that the name can be bound
+        columns.put(name, column);
+        rows = column.length;
+        return this;
+    }
+
+    private TensorType requireArgumentType(String name) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot bind a new value in a used evaluator");
+        TensorType requiredType = function.argumentTypes().get(name);
+        if (requiredType == null)
+            throw new IllegalArgumentException("'" + name + "' is not a valid argument in " + function +
+                                               ". Expected arguments: " + function.argumentTypes().entrySet().stream()
+                                                                                  .map(e -> e.getKey() + ": " + e.getValue())
+                                                                                  .collect(Collectors.joining(", ")));
+        return requiredType;
+    }
+
+    private void validate(String name, Tensor value, TensorType requiredType) {
+        if ( ! value.type().isAssignableTo(requiredType))
+            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + value.type());
+    }
+
+}
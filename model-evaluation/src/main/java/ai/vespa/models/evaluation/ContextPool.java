@@ -0,0 +1,61 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of evaluation contexts for a single function, allowing contexts to be reused by evaluators
+ * instead of copied from the prototype for each evaluation. This is multithread safe.
+ */
+final class ContextPool {
+
+    /** The max number of idle contexts kept in this, which should exceed the number of concurrently evaluating threads */
+    static final int maxIdle = 128;
+
+    private final LazyArrayContext prototype;
+
+    private final Queue<LazyArrayContext> idle = new ConcurrentLinkedQueue<>();
+
+    /** The number of contexts in idle, as the size of a concurrent queue is not a constant time operation */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    ContextPool(LazyArrayContext prototype) {
+        this.prototype = prototype;
+    }
+
+    /** Returns a context owned exclusively by the caller until it is released */
+    LazyArrayContext acquire() {
+        acquired.incrementAndGet();
+        LazyArrayContext context = idle.poll();
+        if (context != null) {
+            idleCount.decrementAndGet();
+            return context;
+        }
+        created.incrementAndGet();
+        return prototype.copy();
+    }
+
+    /** Resets the given context and returns it to this. The context cannot be used by the caller after this call. */
+    void release(LazyArrayContext context) {
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            discarded.incrementAndGet();
+            return;
+        }
+        context.reset();
+        idle.offer(context);
+    }
+
+    /** Adds the statistics of this to the given builder */
+    void addStatisticsTo(ContextPoolStatistics.Builder statistics) {
+        statistics.add(acquired.get(), created.get(), discarded.get(), idleCount.get());
+    }
+
+}
@@ -0,0 +1,64 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A snapshot of the usage of the pools of evaluation contexts which are reused by the evaluators of a model.
+ * Contexts are created when an evaluator is requested while no idle context is available,
+ * and reused when returned by closing the evaluator using it.
+ */
+@Beta
+public final class ContextPoolStatistics {
+
+    private final long acquired;
+    private final long created;
+    private final long discarded;
+    private final long idle;
+
+    private ContextPoolStatistics(long acquired, long created, long discarded, long idle) {
+        this.acquired = acquired;
+        this.created = created;
+        this.discarded = discarded;
+        this.idle = idle;
+    }
+
+    /** Returns the number of contexts handed out to evaluators */
+    public long acquired() { return acquired; }
+
+    /** Returns the number of contexts which were created because no idle context was available */
+    public long created() { return created; }
+
+    /** Returns the number of contexts handed out which were reused rather than created */
+    public long reused() { return acquired - created; }
+
+    /** Returns the number of released contexts which were discarded because the pool was full */
+    public long discarded() { return discarded; }
+
+    /** Returns the number of contexts currently idle in the pools */
+    public long idle() { return idle; }
+
+    @Override
+    public String toString() {
+        return "context pool statistics: " + acquired + " acquired, " + created + " created, " +
+               discarded + " discarded, " + idle + " idle";
+    }
+
+    static class Builder {
+
+        private long acquired, created, discarded, idle;
+
+        void add(long acquired, long created, long discarded, long idle) {
+            this.acquired += acquired;
+            this.created += created;
+            this.discarded += discarded;
+            this.idle += idle;
+        }
+
+        ContextPoolStatistics build() {
+            return new ContextPoolStatistics(acquired, created, discarded, idle);
+        }
+
+    }
+
+}
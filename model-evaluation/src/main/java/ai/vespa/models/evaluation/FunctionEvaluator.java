@@ -2,6 +2,7 @@
 package ai.vespa.models.evaluation;
 
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
 import com.yahoo.searchlib.rankingexpression.evaluation.StringValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
 import com.yahoo.tensor.Tensor;
@@ -12,19 +13,35 @@ import java.util.stream.Collectors;
 
 /**
  * An evaluator which can be used to evaluate a single function once.
+ * Closing this returns its context for reuse by other evaluators of the same function.
  *
  * @author bratseth
  */
 // This wraps all access to the context and the ranking expression to avoid incorrect usage
-public class FunctionEvaluator {
+public class FunctionEvaluator implements AutoCloseable {
 
     private final ExpressionFunction function;
+
+    /** The compiled body of the function, or null if it is not compiled */
+    private final RankingExpression compiledBody;
+
     private final LazyArrayContext context;
+
+    /** The pool the context of this is returned to on close, or null if it should not be reused */
+    private final ContextPool pool;
+
     private boolean evaluated = false;
+    private boolean closed = false;
 
     FunctionEvaluator(ExpressionFunction function, LazyArrayContext context) {
+        this(function, null, context, null);
+    }
+
+    FunctionEvaluator(ExpressionFunction function, RankingExpression compiledBody, LazyArrayContext context, ContextPool pool) {
         this.function = function;
+        this.compiledBody = compiledBody;
         this.context = context;
+        this.pool = pool;
     }
 
     /**
@@ -100,6 +117,7 @@ public class FunctionEvaluator {
     }
 
     public Tensor evaluate() {
+        requireOpen();
         for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet()) {
             if (context.isMissing(argument.getKey()))
                 throw new IllegalStateException("Missing argument '" + argument.getKey() +
@@ -110,12 +128,39 @@ public class FunctionEvaluator {
 
         }
         evaluated = true;
-        return function.getBody().evaluate(context).asTensor();
+        return body().evaluate(context).asTensor();
+    }
+
+    /** Returns the compiled body if there is one and the missing value is a scalar, and the function body otherwise */
+    private RankingExpression body() {
+        if (compiledBody == null || context.defaultValue().type().rank() > 0) return function.getBody();
+        return compiledBody;
     }
 
     /** Returns the function evaluated by this */
     public ExpressionFunction function() { return function; }
 
-    public LazyArrayContext context() { return context; }
+    public LazyArrayContext context() {
+        requireOpen();
+        return context;
+    }
+
+    /**
+     * Releases the context of this such that it can be reused by other evaluators.
+     * This evaluator, and its context, cannot be used after it is closed. Closing more than once has no effect.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        evaluated = true;
+        if (pool != null)
+            pool.release(context);
+    }
+
+    private void requireOpen() {
+        if (closed)
+            throw new IllegalStateException("This evaluator is closed");
+    }
 
 }
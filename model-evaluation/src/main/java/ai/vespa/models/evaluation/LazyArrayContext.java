@@ -133,6 +133,23 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         return indexedBindings.missingValue;
     }
 
+    /**
+     * Clears the values computed by the functions referenced in this, such that this can be used
+     * to evaluate again after rebinding some values.
+     */
+    void clearComputedValues() {
+        indexedBindings.clearComputedValues();
+    }
+
+    /**
+     * Resets this to the state it had when it was copied: Bound values are removed, the missing value is set back
+     * to the default and all computed values are cleared, such that this can be reused to evaluate the same function
+     * with new bindings.
+     */
+    void reset() {
+        indexedBindings.reset();
+    }
+
     /**
      * Creates a copy of this context suitable for evaluating against the same ranking expression
      * in a different thread or for re-binding free variables.
@@ -152,17 +169,24 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         /** The current values set */
         private final Value[] values;
 
+        /** The values set initially, restored on reset */
+        private final Value[] initialValues;
+
         /** The object instance which encodes "no value is set". The actual value of this is never used. */
         private static final Value missing = new DoubleValue(Double.NaN).freeze();
 
+        /** The default value to return for lookups where no value is set */
+        private static final Value defaultMissingValue = new DoubleValue(Double.NaN).freeze();
+
         /** The value to return for lookups where no value is set (default: NaN) */
-        private Value missingValue = new DoubleValue(Double.NaN).freeze();
+        private Value missingValue = defaultMissingValue;
 
         private IndexedBindings(ImmutableMap<String, Integer> nameToIndex,
                                 Value[] values,
                                 ImmutableSet<String> arguments) {
             this.nameToIndex = nameToIndex;
             this.values = values;
+            this.initialValues = values.clone();
             this.arguments = arguments;
         }
 
@@ -205,6 +229,7 @@ public final class LazyArrayContext extends Context implements ContextIndex {
                     values[index] = new LazyValue(referencedFunction.getKey(), owner, model);
                 }
             }
+            initialValues = values.clone();
         }
 
         private void setMissingValue(Tensor value) {
@@ -258,6 +283,18 @@ public final class LazyArrayContext extends Context implements ContextIndex {
             values[index] = value;
         }
 
+        void clearComputedValues() {
+            for (Value value : values)
+                if (value instanceof LazyValue)
+                    ((LazyValue)value).clearComputedValue();
+        }
+
+        void reset() {
+            System.arraycopy(initialValues, 0, values, 0, values.length);
+            clearComputedValues();
+            missingValue = defaultMissingValue;
+        }
+
         Set<String> names() { return nameToIndex.keySet(); }
         Set<String> arguments() { return arguments; }
         Integer indexOf(String name) { return nameToIndex.get(name); }
@@ -40,6 +40,11 @@ class LazyValue extends Value {
         return computedValue;
     }
 
+    /** Clears the value computed by this, such that it is computed again from the current context when requested */
+    void clearComputedValue() {
+        computedValue = null;
+    }
+
     @Override
     public TensorType type() {
         return model.requireReferencedFunction(function).returnType().get();
@@ -5,10 +5,14 @@ import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
 import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
 import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.evaluation.compilation.CompiledNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.compilation.ExpressionCompiler;
 import com.yahoo.tensor.TensorType;
 
 import java.util.Arrays;
@@ -16,6 +20,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -43,8 +48,16 @@ public class Model {
     /** Context prototypes, indexed by function name (as all invocations of the same function share the same context prototype) */
     private final ImmutableMap<String, LazyArrayContext> contextPrototypes;
 
+    /** Pools of contexts copied from the above prototypes, reused by evaluators, indexed by function name */
+    private final ImmutableMap<String, ContextPool> contextPools;
+
+    /** Compiled copies of the bodies of the free functions which only use scalar values, indexed by function name */
+    private final ImmutableMap<String, RankingExpression> compiledBodies;
+
     private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
 
+    private final ExpressionCompiler expressionCompiler = new ExpressionCompiler();
+
     /** Programmatically create a model containing functions without constant of function references only */
     public Model(String name, Collection<ExpressionFunction> functions) {
         this(name,
@@ -87,6 +100,10 @@ public class Model {
             }
         }
         this.contextPrototypes = contextBuilder.build();
+        ImmutableMap.Builder<String, ContextPool> poolBuilder = new ImmutableMap.Builder<>();
+        for (Map.Entry<String, LazyArrayContext> prototype : contextPrototypes.entrySet())
+            poolBuilder.put(prototype.getKey(), new ContextPool(prototype.getValue()));
+        this.contextPools = poolBuilder.build();
         this.functions = ImmutableList.copyOf(functions.values());
         this.publicFunctions = ImmutableList.copyOf(functions.values().stream()
                                                                       .filter(f ->  ! f.getName().startsWith(INTERMEDIATE_OPERATION_FUNCTION_PREFIX))
@@ -100,6 +117,16 @@ public class Model {
             functionsBuilder.put(function.getKey(), optimizedFunction);
         }
         this.referencedFunctions = functionsBuilder.build();
+
+        // Compile scalar functions
+        expressionCompiler.setEnabled(true);
+        ImmutableMap.Builder<String, RankingExpression> compiledBodiesBuilder = new ImmutableMap.Builder<>();
+        for (ExpressionFunction function : this.functions) {
+            RankingExpression compiledBody = compile(function, contextPrototypes.get(function.getName()));
+            if (compiledBody != null)
+                compiledBodiesBuilder.put(function.getName(), compiledBody);
+        }
+        this.compiledBodies = compiledBodiesBuilder.build();
     }
 
     /** Returns an optimized version of the given function */
@@ -109,6 +136,44 @@ public class Model {
         return function;
     }
 
+    /**
+     * Returns a compiled copy of the body of the given function, or null if it cannot be compiled.
+     * Compiled expressions read all values as doubles, so this is only done when all the values
+     * bound in the context of the function are scalars.
+     */
+    private RankingExpression compile(ExpressionFunction function, LazyArrayContext context) {
+        if ( ! bindsScalarsOnly(function, context)) return null;
+
+        RankingExpression body = new RankingExpression(function.getName(), function.getBody().getRoot());
+        expressionCompiler.optimize(body, context, new OptimizationReport());
+        return body.getRoot() instanceof CompiledNode ? body : null;
+    }
+
+    /** Returns whether all the arguments, constants and referenced functions of the given function are scalars */
+    private boolean bindsScalarsOnly(ExpressionFunction function, LazyArrayContext context) {
+        for (String name : context.names()) {
+            if (context.arguments().contains(name)) {
+                TensorType type = function.argumentTypes().get(name);
+                if (type == null || type.rank() > 0) return false;
+                continue;
+            }
+
+            Optional<FunctionReference> reference = FunctionReference.fromSerial(name);
+            if (reference.isPresent()) { // Scalar if it can be compiled, as the values it binds are checked here
+                try {
+                    expressionCompiler.compile(referencedFunctions.get(reference.get()).getBody().getRoot(), context);
+                }
+                catch (IllegalArgumentException e) {
+                    return false;
+                }
+            }
+            else if (context.get(name).type().rank() > 0) { // a constant
+                return false;
+            }
+        }
+        return true;
+    }
+
     public String name() { return name; }
 
     /**
@@ -148,6 +213,9 @@ public class Model {
     /** Returns an immutable map of the referenced function instances of this */
     Map<FunctionReference, ExpressionFunction> referencedFunctions() { return referencedFunctions; }
 
+    /** Returns the compiled body of the given function, or null if it is not compiled */
+    RankingExpression compiledBody(String functionName) { return compiledBodies.get(functionName); }
+
     /** Returns the given referred function, or throws a IllegalArgumentException if it does not exist */
     ExpressionFunction requireReferencedFunction(FunctionReference reference) {
         ExpressionFunction function = referencedFunctions.get(reference);
@@ -161,6 +229,8 @@ public class Model {
 
     /**
      * Returns an evaluator which can be used to evaluate the given function in a single thread once.
+     * The evaluator should be closed when it is no longer used, such that its context can be reused by other
+     * evaluators of the same function rather than be copied again.
      *
      * Usage:
      * <code>Tensor result = model.evaluatorOf("myFunction").bind("foo", value).bind("bar", value).evaluate()</code>
@@ -173,22 +243,43 @@ public class Model {
      * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
      */
     public FunctionEvaluator evaluatorOf(String ... names) {  // TODO: Parameter overloading?
+        return evaluatorOf(resolveFunction(names));
+    }
+
+    /**
+     * Returns an evaluator which can be used to evaluate the given function in a single thread for a batch of
+     * argument values at once.
+     *
+     * Usage:
+     * <code>List&lt;Tensor&gt; results = model.batchEvaluatorOf("myFunction").bind("foo", values).bind("bar", value).evaluate()</code>
+     *
+     * @param names the names identifying the function, as in {@link #evaluatorOf}
+     * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
+     */
+    public BatchFunctionEvaluator batchEvaluatorOf(String ... names) {
+        ExpressionFunction function = resolveFunction(names);
+        return new BatchFunctionEvaluator(function, compiledBodies.get(function.getName()),
+                                          requireContextProprotype(function.getName()).copy());
+    }
+
+    /** Returns the function identified by the given names, or throws an IllegalArgumentException if it is not present */
+    private ExpressionFunction resolveFunction(String ... names) {
         if (names.length == 0) {
             if (functions.size() > 1)
                 throwUndeterminedFunction("More than one function is available in " + this + ", but no name is given");
-            return evaluatorOf(functions.get(0));
+            return functions.get(0);
         }
         else if (names.length == 1) {
             String name = names[0];
             ExpressionFunction function = function(name);
-            if (function != null) return evaluatorOf(function);
+            if (function != null) return function;
 
             List<ExpressionFunction> functionsStartingByName =
                     functions.stream().filter(f -> f.getName().startsWith(name + ".")).collect(Collectors.toList());
             if (functionsStartingByName.size() == 0)
                 throwUndeterminedFunction("No function '" + name + "' in " + this);
             else if (functionsStartingByName.size() == 1)
-                return evaluatorOf(functionsStartingByName.get(0));
+                return functionsStartingByName.get(0);
             else
                 throwUndeterminedFunction("Multiple functions start by '" + name + "' in " + this);
 
@@ -197,7 +288,7 @@ public class Model {
             String name = names[0] + "." + names[1];
             ExpressionFunction function = function(name);
             if (function == null) throwUndeterminedFunction("No function '" + name + "' in " + this);
-            return evaluatorOf(function);
+            return function;
         }
         throw new IllegalArgumentException("No more than 2 names can be given when choosing a function, got " +
                                            Arrays.toString(names));
@@ -205,7 +296,17 @@ public class Model {
 
     /** Returns a single-use evaluator of a function */
     private FunctionEvaluator evaluatorOf(ExpressionFunction function) {
-        return new FunctionEvaluator(function, requireContextProprotype(function.getName()).copy());
+        requireContextProprotype(function.getName());
+        ContextPool pool = contextPools.get(function.getName());
+        return new FunctionEvaluator(function, compiledBodies.get(function.getName()), pool.acquire(), pool);
+    }
+
+    /** Returns the current usage statistics of the pools of evaluation contexts of the functions of this */
+    public ContextPoolStatistics contextPoolStatistics() {
+        ContextPoolStatistics.Builder statistics = new ContextPoolStatistics.Builder();
+        for (ContextPool pool : contextPools.values())
+            pool.addStatisticsTo(statistics);
+        return statistics.build();
     }
 
     private void throwUndeterminedFunction(String message) {
@@ -1,12 +1,15 @@
 // Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.models.handler;
 
+import ai.vespa.models.evaluation.ContextPoolStatistics;
 import ai.vespa.models.evaluation.FunctionEvaluator;
 import ai.vespa.models.evaluation.Model;
 import ai.vespa.models.evaluation.ModelsEvaluator;
+import com.google.inject.Inject;
 import com.yahoo.container.jdisc.HttpRequest;
 import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.container.jdisc.ThreadedHttpRequestHandler;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Slime;
@@ -33,10 +36,19 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
     public static final String VERSION_V1 = "v1";
     public static final String EVALUATE = "eval";
 
+    static final String CONTEXTS_CREATED_METRIC = "model_evaluation.contexts.created";
+    static final String CONTEXTS_REUSED_METRIC = "model_evaluation.contexts.reused";
+    static final String CONTEXTS_IDLE_METRIC = "model_evaluation.contexts.idle";
+
     private final ModelsEvaluator modelsEvaluator;
 
     public ModelsEvaluationHandler(ModelsEvaluator modelsEvaluator, Executor executor) {
-        super(executor);
+        this(modelsEvaluator, executor, null);
+    }
+
+    @Inject
+    public ModelsEvaluationHandler(ModelsEvaluator modelsEvaluator, Executor executor, Metric metric) {
+        super(executor, metric);
         this.modelsEvaluator = modelsEvaluator;
     }
 
@@ -72,24 +84,34 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
     }
 
     private HttpResponse evaluateModel(HttpRequest request, Model model, String[] function)  {
-        FunctionEvaluator evaluator = model.evaluatorOf(function);
-
-        property(request, missingValueKey).ifPresent(missingValue -> evaluator.setMissingValue(Tensor.from(missingValue)));
-
-        for (Map.Entry<String, TensorType> argument : evaluator.function().argumentTypes().entrySet()) {
-            Optional<String> value = property(request, argument.getKey());
-            if (value.isPresent()) {
-                try {
-                    evaluator.bind(argument.getKey(), Tensor.from(argument.getValue(), value.get()));
-                } catch (IllegalArgumentException e) {
-                    evaluator.bind(argument.getKey(), value.get());  // since we don't yet support tensors with string values
+        Tensor result;
+        try (FunctionEvaluator evaluator = model.evaluatorOf(function)) {
+            property(request, missingValueKey).ifPresent(missingValue -> evaluator.setMissingValue(Tensor.from(missingValue)));
+
+            for (Map.Entry<String, TensorType> argument : evaluator.function().argumentTypes().entrySet()) {
+                Optional<String> value = property(request, argument.getKey());
+                if (value.isPresent()) {
+                    try {
+                        evaluator.bind(argument.getKey(), Tensor.from(argument.getValue(), value.get()));
+                    } catch (IllegalArgumentException e) {
+                        evaluator.bind(argument.getKey(), value.get());  // since we don't yet support tensors with string values
+                    }
                 }
             }
+            result = evaluator.evaluate();
         }
-        Tensor result = evaluator.evaluate();
+        reportContextPoolMetrics(model);
         return new Response(200, JsonFormat.encode(result));
     }
 
+    private void reportContextPoolMetrics(Model model) {
+        ContextPoolStatistics statistics = model.contextPoolStatistics();
+        Metric.Context context = metric.createContext(Map.of("model", model.name()));
+        metric.set(CONTEXTS_CREATED_METRIC, statistics.created(), context);
+        metric.set(CONTEXTS_REUSED_METRIC, statistics.reused(), context);
+        metric.set(CONTEXTS_IDLE_METRIC, statistics.idle(), context);
+    }
+
     private HttpResponse listAllModels(HttpRequest request) {
         Slime slime = new Slime();
         Cursor root = slime.setObject();
@@ -121,15 +143,16 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
 
     private void listFunctionDetails(HttpRequest request, Model model, String[] function, Cursor cursor) {
         String compactedFunction = String.join(".", function);
-        FunctionEvaluator evaluator = model.evaluatorOf(function);
-        cursor.setString("function", compactedFunction);
-        cursor.setString("info", baseUrl(request) + model.name() + "/" + compactedFunction);
-        cursor.setString("eval", baseUrl(request) + model.name() + "/" + compactedFunction + "/" + EVALUATE);
-        Cursor bindings = cursor.setArray("arguments");
-        for (Map.Entry<String, TensorType> argument : evaluator.function().argumentTypes().entrySet()) {
-            Cursor binding = bindings.addObject();
-            binding.setString("name", argument.getKey());
-            binding.setString("type", argument.getValue().toString());
+        try (FunctionEvaluator evaluator = model.evaluatorOf(function)) {
+            cursor.setString("function", compactedFunction);
+            cursor.setString("info", baseUrl(request) + model.name() + "/" + compactedFunction);
+            cursor.setString("eval", baseUrl(request) + model.name() + "/" + compactedFunction + "/" + EVALUATE);
+            Cursor bindings = cursor.setArray("arguments");
+            for (Map.Entry<String, TensorType> argument : evaluator.function().argumentTypes().entrySet()) {
+                Cursor binding = bindings.addObject();
+                binding.setString("name", argument.getKey());
+                binding.setString("type", argument.getValue().toString());
+            }
         }
     }
 
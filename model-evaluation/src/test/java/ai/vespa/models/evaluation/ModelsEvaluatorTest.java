@@ -18,7 +18,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author bratseth
@@ -122,6 +125,129 @@ public class ModelsEvaluatorTest {
 
     }
 
+    @Test
+    public void testBatchEvaluation() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        BatchFunctionEvaluator function = models.batchEvaluatorOf("macros", "secondphase");
+        function.bind("match", new double[] { 3, 1, 3 });
+        function.bind("rankBoost", 5);
+        List<Tensor> results = function.evaluate();
+        assertEquals(3, results.size());
+        assertEquals(32.0, results.get(0).asDouble(), delta);
+        assertEquals(24.0, results.get(1).asDouble(), delta);
+        assertEquals(32.0, results.get(2).asDouble(), delta);
+    }
+
+    @Test
+    public void testBatchEvaluationOfTensors() {
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("sum(arg1 * arg2)"));
+        function = function.withArgument("arg1", TensorType.fromSpec("tensor(d0[2])"));
+        function = function.withArgument("arg2", TensorType.fromSpec("tensor(d0[2])"));
+        Model model = new Model("test-model", List.of(function));
+
+        TensorType type = TensorType.fromSpec("tensor(d0[2])");
+        BatchFunctionEvaluator evaluator = model.batchEvaluatorOf("test");
+        evaluator.bind("arg1", List.of(Tensor.from(type, "[1, 2]"), Tensor.from(type, "[3, 4]")));
+        evaluator.bind("arg2", Tensor.from(type, "[10, 100]"));
+        List<Tensor> results = evaluator.evaluate();
+        assertEquals(210.0, results.get(0).asDouble(), delta);
+        assertEquals(430.0, results.get(1).asDouble(), delta);
+
+        try { // Different number of values
+            model.batchEvaluatorOf("test")
+                 .bind("arg1", List.of(Tensor.from(type, "[1, 2]")))
+                 .bind("arg2", List.of(Tensor.from(type, "[1, 2]"), Tensor.from(type, "[3, 4]")));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("'arg2' is bound to 2 values, but other arguments are bound to 1",
+                         Exceptions.toMessageString(e));
+        }
+
+        try { // Wrong binding type
+            model.batchEvaluatorOf("test").bind("arg1", List.of(Tensor.from(TensorType.fromSpec("tensor(d3{})"), "{{d3:foo}:0.1}")));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("'arg1' must be of type tensor(d0[2]), not tensor(d3{})",
+                         Exceptions.toMessageString(e));
+        }
+
+        try { // Missing argument
+            model.batchEvaluatorOf("test").bind("arg1", List.of(Tensor.from(type, "[1, 2]"))).evaluate();
+            fail("Expected exception");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("Argument 'arg2' must be bound to a value of type tensor(d0[2])",
+                         Exceptions.toMessageString(e));
+        }
+    }
+
+    @Test
+    public void testContextReuse() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        Model model = models.requireModel("macros");
+
+        try (FunctionEvaluator function = models.evaluatorOf("macros", "secondphase")) {
+            function.setMissingValue(5);
+            function.bind("match", 3);
+            assertEquals(32.0, function.evaluate().asDouble(), delta);
+        }
+        assertEquals(1, model.contextPoolStatistics().created());
+        assertEquals(1, model.contextPoolStatistics().idle());
+
+        try (FunctionEvaluator function = models.evaluatorOf("macros", "secondphase")) {
+            // Bindings, missing value and computed function values of the previous evaluator are not retained
+            assertTrue(Double.isNaN(function.evaluate().asDouble()));
+        }
+        try (FunctionEvaluator function = models.evaluatorOf("macros", "secondphase")) {
+            function.bind("rankBoost", 2);
+            function.bind("match", 1);
+            assertEquals(12.0, function.evaluate().asDouble(), delta);
+        }
+        assertEquals(3, model.contextPoolStatistics().acquired());
+        assertEquals(1, model.contextPoolStatistics().created());
+        assertEquals(2, model.contextPoolStatistics().reused());
+
+        FunctionEvaluator closed = models.evaluatorOf("macros", "secondphase");
+        closed.close();
+        try {
+            closed.evaluate();
+            fail("Expected exception");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("This evaluator is closed", Exceptions.toMessageString(e));
+        }
+    }
+
+    @Test
+    public void testCompiledEvaluationOfScalarFunctions() {
+        ExpressionFunction scalar = new ExpressionFunction("scalar",
+                                                           RankingExpression.from("if (x < 0.5, 1.5, 2.5) + if (x in [1, 2], 10, 20) + y * 3"));
+        ExpressionFunction tensor = new ExpressionFunction("tensor", RankingExpression.from("sum(t * y)"))
+                                            .withArgument("t", TensorType.fromSpec("tensor(d0[2])"));
+        Model model = new Model("test-model", List.of(scalar, tensor));
+        assertNotNull(model.compiledBody("scalar"));
+        assertNull("Functions binding tensors are not compiled", model.compiledBody("tensor"));
+
+        assertEquals(27.5, model.evaluatorOf("scalar").bind("x", 0).bind("y", 2).evaluate().asDouble(), delta);
+        assertEquals(18.5, model.evaluatorOf("scalar").bind("x", 1).bind("y", 2).evaluate().asDouble(), delta);
+        assertEquals(21.5, model.evaluatorOf("scalar").setMissingValue(0).evaluate().asDouble(), delta);
+        assertEquals(List.of(Tensor.from(27.5), Tensor.from(18.5)),
+                     model.batchEvaluatorOf("scalar").bind("x", new double[] { 0, 1 }).bind("y", 2).evaluate());
+        assertEquals(9.0,
+                     model.evaluatorOf("tensor").bind("t", Tensor.from(TensorType.fromSpec("tensor(d0[2])"), "[1, 2]")).bind("y", 3).evaluate().asDouble(),
+                     delta);
+
+        // Functions referring other scalar functions are compiled
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        assertNotNull(models.requireModel("macros").compiledBody("secondphase"));
+        FunctionEvaluator function = models.evaluatorOf("macros", "secondphase");
+        function.bind("match", 3);
+        function.bind("rankBoost", 5);
+        assertEquals(32.0, function.evaluate().asDouble(), delta);
+    }
+
     // TODO: Test argument-less function
     // TODO: Test with nested functions
 
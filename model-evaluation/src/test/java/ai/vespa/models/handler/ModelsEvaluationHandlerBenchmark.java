@@ -0,0 +1,111 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.handler;
+
+import ai.vespa.models.evaluation.FunctionEvaluator;
+import ai.vespa.models.evaluation.Model;
+import ai.vespa.models.evaluation.ModelTester;
+import ai.vespa.models.evaluation.ModelsEvaluator;
+import com.yahoo.config.subscription.ConfigGetter;
+import com.yahoo.config.subscription.FileSource;
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.container.jdisc.HttpResponse;
+import com.yahoo.filedistribution.fileacquirer.MockFileAcquirer;
+import com.yahoo.path.Path;
+import com.yahoo.vespa.config.search.RankProfilesConfig;
+import com.yahoo.vespa.config.search.core.RankingConstantsConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures evaluations per second per core of the xgboost model in src/test/resources/config/models/
+ * when evaluated concurrently by one thread per core, with evaluators copying a new context for each evaluation
+ * (not closed), reusing pooled contexts (closed), and through the models evaluation handler.
+ */
+public class ModelsEvaluationHandlerBenchmark {
+
+    private static final String url = "http://localhost/model-evaluation/v1/xgboost_2_2/eval";
+
+    private final int threads = Runtime.getRuntime().availableProcessors();
+    private final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+    private final ModelsEvaluator models;
+    private final ModelsEvaluationHandler handler;
+
+    public ModelsEvaluationHandlerBenchmark(ModelsEvaluator models) {
+        this.models = models;
+        this.handler = new ModelsEvaluationHandler(models, executor);
+    }
+
+    public void run(int evaluationsPerThread) throws Exception {
+        Model model = models.requireModel("xgboost_2_2");
+        HttpRequest request = HttpRequest.createTestRequest(url, com.yahoo.jdisc.http.HttpRequest.Method.GET, null,
+                                                            Map.of("f29", "-1.0", "f56", "0.2", "f60", "0.3", "f109", "0.4"));
+
+        for (int round = 0; round < 2; round++) { // The first round is warmup
+            boolean report = round > 0;
+            benchmark("Copied contexts", report, evaluationsPerThread, () -> evaluate(model, false));
+            benchmark("Pooled contexts", report, evaluationsPerThread, () -> evaluate(model, true));
+            benchmark("Handler", report, evaluationsPerThread, () -> handle(request));
+        }
+        System.out.println(model.contextPoolStatistics());
+        executor.shutdown();
+    }
+
+    private double evaluate(Model model, boolean close) {
+        FunctionEvaluator evaluator = model.evaluatorOf();
+        evaluator.bind("f29", -1.0).bind("f56", 0.2).bind("f60", 0.3).bind("f109", 0.4);
+        double result = evaluator.evaluate().asDouble();
+        if (close)
+            evaluator.close();
+        return result;
+    }
+
+    private double handle(HttpRequest request) {
+        HttpResponse response = handler.handle(request);
+        if (response.getStatus() != 200)
+            throw new IllegalStateException("Got status " + response.getStatus());
+        return response.getStatus();
+    }
+
+    private void benchmark(String description, boolean report, int evaluationsPerThread, Callable<Double> evaluation) throws Exception {
+        List<Future<Double>> results = new ArrayList<>();
+        long startTime = System.nanoTime();
+        for (int thread = 0; thread < threads; thread++) {
+            results.add(executor.submit(() -> {
+                double total = 0;
+                for (int i = 0; i < evaluationsPerThread; i++)
+                    total += evaluation.call();
+                return total;
+            }));
+        }
+        for (Future<Double> result : results)
+            result.get();
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        if (report)
+            System.out.printf("%-16s %12.0f evaluations/second/core\n",
+                              description + ":", evaluationsPerThread / seconds);
+    }
+
+    private static ModelsEvaluator createModels(String path) {
+        Path configDir = Path.fromString(path);
+        RankProfilesConfig config = new ConfigGetter<>(new FileSource(configDir.append("rank-profiles.cfg").toFile()),
+                                                       RankProfilesConfig.class).getConfig("");
+        RankingConstantsConfig constantsConfig = new ConfigGetter<>(new FileSource(configDir.append("ranking-constants.cfg").toFile()),
+                                                                    RankingConstantsConfig.class).getConfig("");
+        ModelTester.RankProfilesConfigImporterWithMockedConstants importer =
+                new ModelTester.RankProfilesConfigImporterWithMockedConstants(Path.fromString(path).append("constants"),
+                                                                              MockFileAcquirer.returnFile(null));
+        return new ModelsEvaluator(importer.importFrom(config, constantsConfig));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new ModelsEvaluationHandlerBenchmark(createModels("src/test/resources/config/models/")).run(200000);
+    }
+
+}
@@ -0,0 +1,21 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
+
+/**
+ * A ranking expression (sub)tree compiled to a tree of evaluators specialized to the operations and
+ * variable indexes of the expression, which operate on doubles only.
+ * Instances are immutable and may be evaluated by multiple threads at the same time.
+ */
+public abstract class CompiledExpression {
+
+    /** Evaluates this using the given context, which must have the bindings this was compiled with */
+    public abstract double evaluate(ContextIndex context);
+
+    /** Evaluates this as a condition, which is true if the value of this is not 0 */
+    public boolean test(ContextIndex context) {
+        return evaluate(context) != 0.0;
+    }
+
+}
@@ -0,0 +1,46 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.SerializationContext;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.TypeContext;
+
+import java.util.Deque;
+
+/**
+ * A node evaluating a compiled expression. This must be evaluated using the context the expression was
+ * compiled for, or a copy of it.
+ */
+public final class CompiledNode extends ExpressionNode {
+
+    private final CompiledExpression expression;
+
+    public CompiledNode(CompiledExpression expression) {
+        this.expression = expression;
+    }
+
+    /** Returns the compiled expression evaluated by this */
+    public CompiledExpression expression() { return expression; }
+
+    @Override
+    public TensorType type(TypeContext<Reference> context) { return TensorType.empty; }
+
+    @Override
+    public Value evaluate(Context context) {
+        return new DoubleValue(expression.evaluate((ContextIndex)context));
+    }
+
+    /** Returns "(compiled expression)" */
+    @Override
+    public StringBuilder toString(StringBuilder string, SerializationContext context, Deque<String> path, CompositeNode parent) {
+        return string.append("(compiled expression)");
+    }
+
+}
@@ -0,0 +1,700 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleCompatibleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
+import com.yahoo.searchlib.rankingexpression.evaluation.Optimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.StringValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticNode;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticOperator;
+import com.yahoo.searchlib.rankingexpression.rule.ComparisonNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.SetMembershipNode;
+import com.yahoo.searchlib.rankingexpression.rule.TruthOperator;
+import com.yahoo.yolean.Exceptions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>Compiles a whole ranking expression into a {@link CompiledNode}, whose evaluators have the indexes of the
+ * variables of a context and the constants of the expression resolved in advance, and which evaluate
+ * doubles only, without creating any values. This is suitable for large decision tree forests and other
+ * expressions over scalar features. Expressions containing other nodes, such as tensor functions,
+ * are left unchanged.</p>
+ *
+ * <p>Like the GBDT optimizations, compiled expressions read all variables by
+ * {@link ContextIndex#getDouble}, so strings are represented by their hash. Compiled expressions <b>must</b>
+ * be evaluated using the context they were compiled for or a copy of it, and the values bound must
+ * have a double value. This optimizer is therefore disabled by default. Model evaluation enables it
+ * for functions where all the values bound are scalars.</p>
+ *
+ * <p>This class is not multithread safe.</p>
+ */
+public class ExpressionCompiler extends Optimizer {
+
+    private int compiledNodes;
+
+    public ExpressionCompiler() {
+        setEnabled(false);
+    }
+
+    @Override
+    public void optimize(RankingExpression expression, ContextIndex context, OptimizationReport report) {
+        if ( ! isEnabled()) return;
+
+        compiledNodes = 0;
+        try {
+            expression.setRoot(new CompiledNode(compile(expression.getRoot(), context)));
+        }
+        catch (IllegalArgumentException e) { // Compilation was impossible
+            report.note("Skipped compilation: " + Exceptions.toMessageString(e));
+            return;
+        }
+        report.incMetric("Compiled expression nodes", compiledNodes);
+        report.note("Expression compilation done");
+    }
+
+    /**
+     * Compiles the given expression to evaluate in the given context
+     *
+     * @throws IllegalArgumentException if the expression contains nodes which cannot be compiled
+     */
+    public CompiledExpression compile(ExpressionNode node, ContextIndex context) {
+        compiledNodes++;
+        if (node instanceof ConstantNode)
+            return new Constant(toValue(node));
+        if (node instanceof ReferenceNode)
+            return new Variable(indexOf((ReferenceNode)node, context));
+        if (node instanceof EmbracedNode)
+            return compile(((EmbracedNode)node).getValue(), context);
+        if (node instanceof NegativeNode)
+            return new Negate(compile(((NegativeNode)node).getValue(), context));
+        if (node instanceof NotNode)
+            return new Not(compile(((NotNode)node).getValue(), context));
+        if (node instanceof ArithmeticNode)
+            return compileArithmetic((ArithmeticNode)node, context);
+        if (node instanceof IfNode)
+            return compileIf((IfNode)node, context);
+        if (node instanceof ComparisonNode)
+            return compileComparison((ComparisonNode)node, context);
+        if (node instanceof SetMembershipNode)
+            return compileSetMembership((SetMembershipNode)node, context);
+        if (node instanceof FunctionNode)
+            return compileFunction((FunctionNode)node, context);
+        throw new IllegalArgumentException("Cannot compile a " + node.getClass().getSimpleName() + ": " + node);
+    }
+
+    /** Resolves operator precedence the same way as {@link ArithmeticNode#evaluate} */
+    private CompiledExpression compileArithmetic(ArithmeticNode node, ContextIndex context) {
+        if (node.operators().stream().allMatch(operator -> operator == ArithmeticOperator.PLUS))
+            return new Sum(compile(node.children(), context));
+
+        Iterator<ExpressionNode> child = node.children().iterator();
+        Deque<Item> stack = new ArrayDeque<>();
+        stack.push(new Item(ArithmeticOperator.OR, compile(child.next(), context)));
+        for (Iterator<ArithmeticOperator> it = node.operators().iterator(); it.hasNext() && child.hasNext();) {
+            ArithmeticOperator operator = it.next();
+            while (stack.peek().operator.hasPrecedenceOver(operator))
+                popStack(stack);
+            stack.push(new Item(operator, compile(child.next(), context)));
+        }
+        while (stack.size() > 1)
+            popStack(stack);
+        return stack.getFirst().expression;
+    }
+
+    private void popStack(Deque<Item> stack) {
+        Item right = stack.pop();
+        Item left = stack.peek();
+        left.expression = arithmetic(left.expression, right.operator, right.expression);
+    }
+
+    private CompiledExpression arithmetic(CompiledExpression left, ArithmeticOperator operator, CompiledExpression right) {
+        switch (operator) {
+            case OR: return new Or(left, right);
+            case AND: return new And(left, right);
+            case PLUS: return new Sum(new CompiledExpression[] { left, right });
+            case MINUS: return new Subtract(left, right);
+            case MULTIPLY: return new Multiply(left, right);
+            case DIVIDE: return new Divide(left, right);
+            case MODULO: return new Modulo(left, right);
+            case POWER: return new FunctionOf(Function.pow, left, right);
+            default: throw new IllegalArgumentException("Cannot compile arithmetic operator " + operator);
+        }
+    }
+
+    private CompiledExpression compileIf(IfNode node, ContextIndex context) {
+        DecisionTree tree = decisionTree(node, context);
+        if (tree != null) return tree;
+
+        CompiledExpression condition = compile(node.getCondition(), context);
+        CompiledExpression trueExpression = compile(node.getTrueExpression(), context);
+        CompiledExpression falseExpression = compile(node.getFalseExpression(), context);
+        if (condition instanceof VariableSmaller) { // the branches of decision trees
+            VariableSmaller smaller = (VariableSmaller)condition;
+            return new IfVariableSmaller(smaller.index, smaller.value, trueExpression, falseExpression);
+        }
+        if (condition instanceof Not && ((Not)condition).value instanceof VariableLargerEqual) {
+            VariableLargerEqual largerEqual = (VariableLargerEqual)((Not)condition).value;
+            return new IfVariableLargerEqual(largerEqual.index, largerEqual.value, falseExpression, trueExpression);
+        }
+        return new If(condition, trueExpression, falseExpression);
+    }
+
+    /**
+     * Returns the given node as a decision tree if its conditions are all of the form "variable &lt; constant"
+     * or "!(variable &gt;= constant)" and its leaves are constants, and null otherwise
+     */
+    private DecisionTree decisionTree(IfNode node, ContextIndex context) {
+        DecisionTreeBuilder builder = new DecisionTreeBuilder();
+        if (builder.add(node, context) == DecisionTreeBuilder.notATree) return null;
+        compiledNodes += builder.leaves.size() * 2 - 1;
+        return builder.build();
+    }
+
+    private CompiledExpression compileComparison(ComparisonNode node, ContextIndex context) {
+        ExpressionNode left = node.getLeftCondition();
+        ExpressionNode right = node.getRightCondition();
+        if (left instanceof ReferenceNode && isConstant(right)) { // the conditions of decision trees
+            int index = indexOf((ReferenceNode)left, context);
+            double value = toValue(right);
+            if (node.getOperator() == TruthOperator.SMALLER)
+                return new VariableSmaller(index, value);
+            if (node.getOperator() == TruthOperator.LARGEREQUAL)
+                return new VariableLargerEqual(index, value);
+        }
+        return new Comparison(compile(left, context), node.getOperator(), compile(right, context));
+    }
+
+    private CompiledExpression compileSetMembership(SetMembershipNode node, ContextIndex context) {
+        CompiledExpression testValue = compile(node.getTestValue(), context);
+        if ( ! node.getSetValues().stream().allMatch(this::isConstant))
+            return new SetMembership(testValue, compile(node.getSetValues(), context));
+
+        double[] setValues = new double[node.getSetValues().size()];
+        for (int i = 0; i < setValues.length; i++)
+            setValues[i] = toValue(node.getSetValues().get(i));
+        return new ConstantSetMembership(testValue, setValues);
+    }
+
+    private CompiledExpression compileFunction(FunctionNode node, ContextIndex context) {
+        List<ExpressionNode> arguments = node.children();
+        CompiledExpression zero = new Constant(0);
+        return new FunctionOf(node.getFunction(),
+                              arguments.size() > 0 ? compile(arguments.get(0), context) : zero,
+                              arguments.size() > 1 ? compile(arguments.get(1), context) : zero);
+    }
+
+    private CompiledExpression[] compile(List<ExpressionNode> nodes, ContextIndex context) {
+        CompiledExpression[] compiled = new CompiledExpression[nodes.size()];
+        for (int i = 0; i < compiled.length; i++)
+            compiled[i] = compile(nodes.get(i), context);
+        return compiled;
+    }
+
+    private int indexOf(ReferenceNode node, ContextIndex context) {
+        try {
+            return context.getIndex(node.toString());
+        }
+        catch (RuntimeException e) { // Unknown names are signalled by NullPointerException or IllegalArgumentException
+            throw new IllegalArgumentException("'" + node + "' is not bound in " + context);
+        }
+    }
+
+    private boolean isConstant(ExpressionNode node) {
+        if (node instanceof NegativeNode)
+            node = ((NegativeNode)node).getValue();
+        if ( ! (node instanceof ConstantNode)) return false;
+        Value value = ((ConstantNode)node).getValue();
+        return value instanceof DoubleCompatibleValue || value instanceof StringValue;
+    }
+
+    private double toValue(ExpressionNode node) {
+        if (node instanceof NegativeNode)
+            return -toValue(((NegativeNode)node).getValue());
+        Value value = ((ConstantNode)node).getValue();
+        if ( ! (value instanceof DoubleCompatibleValue || value instanceof StringValue))
+            throw new IllegalArgumentException("Cannot compile a constant of type " + value.getClass().getSimpleName() +
+                                               ": " + node);
+        return value.asDouble();
+    }
+
+    private class DecisionTreeBuilder {
+
+        static final int notATree = Integer.MIN_VALUE;
+
+        final List<Integer> variables = new ArrayList<>();
+        final List<Double> splits = new ArrayList<>();
+        final List<Boolean> missingIsTrue = new ArrayList<>();
+        final List<Integer> trueNext = new ArrayList<>();
+        final List<Integer> falseNext = new ArrayList<>();
+        final List<Double> leaves = new ArrayList<>();
+
+        /** Adds the given node and returns a reference to it, or notATree if it is not part of a decision tree */
+        int add(ExpressionNode node, ContextIndex context) {
+            if (isConstant(node)) {
+                leaves.add(toValue(node));
+                return ~(leaves.size() - 1);
+            }
+            if ( ! (node instanceof IfNode)) return notATree;
+
+            IfNode ifNode = (IfNode)node;
+            ExpressionNode condition = unembrace(ifNode.getCondition());
+            boolean missingIsTrue = false;
+            if (condition instanceof NotNode) { // !(variable >= constant), which is true for NaN
+                condition = unembrace(((NotNode)condition).getValue());
+                if ( ! isComparison(condition, TruthOperator.LARGEREQUAL)) return notATree;
+                missingIsTrue = true;
+            }
+            else if ( ! isComparison(condition, TruthOperator.SMALLER)) {
+                return notATree;
+            }
+
+            int id = variables.size();
+            variables.add(indexOf((ReferenceNode)((ComparisonNode)condition).getLeftCondition(), context));
+            splits.add(toValue(((ComparisonNode)condition).getRightCondition()));
+            this.missingIsTrue.add(missingIsTrue);
+            trueNext.add(0);
+            falseNext.add(0);
+            int trueReference = add(ifNode.getTrueExpression(), context);
+            if (trueReference == notATree) return notATree;
+            int falseReference = add(ifNode.getFalseExpression(), context);
+            if (falseReference == notATree) return notATree;
+            trueNext.set(id, trueReference);
+            falseNext.set(id, falseReference);
+            return id;
+        }
+
+        private ExpressionNode unembrace(ExpressionNode node) {
+            while (node instanceof EmbracedNode)
+                node = ((EmbracedNode)node).getValue();
+            return node;
+        }
+
+        private boolean isComparison(ExpressionNode node, TruthOperator operator) {
+            if ( ! (node instanceof ComparisonNode)) return false;
+            ComparisonNode comparison = (ComparisonNode)node;
+            return comparison.getOperator() == operator &&
+                   comparison.getLeftCondition() instanceof ReferenceNode &&
+                   isConstant(comparison.getRightCondition());
+        }
+
+        DecisionTree build() {
+            int size = variables.size();
+            int[] variableArray = new int[size];
+            double[] splitArray = new double[size];
+            boolean[] missingIsTrueArray = new boolean[size];
+            int[] trueNextArray = new int[size];
+            int[] falseNextArray = new int[size];
+            for (int i = 0; i < size; i++) {
+                variableArray[i] = variables.get(i);
+                splitArray[i] = splits.get(i);
+                missingIsTrueArray[i] = missingIsTrue.get(i);
+                trueNextArray[i] = trueNext.get(i);
+                falseNextArray[i] = falseNext.get(i);
+            }
+            double[] leafArray = new double[leaves.size()];
+            for (int i = 0; i < leafArray.length; i++)
+                leafArray[i] = leaves.get(i);
+            return new DecisionTree(variableArray, splitArray, missingIsTrueArray, trueNextArray, falseNextArray, leafArray);
+        }
+
+    }
+
+    private static class Item {
+
+        final ArithmeticOperator operator;
+        CompiledExpression expression;
+
+        Item(ArithmeticOperator operator, CompiledExpression expression) {
+            this.operator = operator;
+            this.expression = expression;
+        }
+
+    }
+
+    private static final class Constant extends CompiledExpression {
+
+        private final double value;
+
+        Constant(double value) { this.value = value; }
+
+        @Override
+        public double evaluate(ContextIndex context) { return value; }
+
+    }
+
+    private static final class Variable extends CompiledExpression {
+
+        private final int index;
+
+        Variable(int index) { this.index = index; }
+
+        @Override
+        public double evaluate(ContextIndex context) { return context.getDouble(index); }
+
+    }
+
+    private static final class Negate extends CompiledExpression {
+
+        private final CompiledExpression value;
+
+        Negate(CompiledExpression value) { this.value = value; }
+
+        @Override
+        public double evaluate(ContextIndex context) { return -value.evaluate(context); }
+
+    }
+
+    private static final class Not extends CompiledExpression {
+
+        private final CompiledExpression value;
+
+        Not(CompiledExpression value) { this.value = value; }
+
+        @Override
+        public double evaluate(ContextIndex context) { return test(context) ? 1 : 0; }
+
+        @Override
+        public boolean test(ContextIndex context) { return ! value.test(context); }
+
+    }
+
+    /** Sums right to left, which is the order {@link ArithmeticNode} adds operands of the same precedence */
+    private static final class Sum extends CompiledExpression {
+
+        private final CompiledExpression[] terms;
+
+        Sum(CompiledExpression[] terms) { this.terms = terms; }
+
+        @Override
+        public double evaluate(ContextIndex context) {
+            double sum = terms[terms.length - 1].evaluate(context);
+            for (int i = terms.length - 2; i >= 0; i--)
+                sum = terms[i].evaluate(context) + sum;
+            return sum;
+        }
+
+    }
+
+    private static final class Subtract extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+
+        Subtract(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) { return left.evaluate(context) - right.evaluate(context); }
+
+    }
+
+    private static final class Multiply extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+
+        Multiply(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) { return left.evaluate(context) * right.evaluate(context); }
+
+    }
+
+    private static final class Divide extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+
+        Divide(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) { return left.evaluate(context) / right.evaluate(context); }
+
+    }
+
+    private static final class Modulo extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+
+        Modulo(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) { return left.evaluate(context) % right.evaluate(context); }
+
+    }
+
+    private static final class And extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+
+        And(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) { return test(context) ? 1 : 0; }
+
+        @Override
+        public boolean test(ContextIndex context) { return left.test(context) && right.test(context); }
+
+    }
+
+    private static final class Or extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+
+        Or(CompiledExpression left, CompiledExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) { return test(context) ? 1 : 0; }
+
+        @Override
+        public boolean test(ContextIndex context) { return left.test(context) || right.test(context); }
+
+    }
+
+    private static final class FunctionOf extends CompiledExpression {
+
+        private final Function function;
+        private final CompiledExpression argument1, argument2;
+
+        FunctionOf(Function function, CompiledExpression argument1, CompiledExpression argument2) {
+            this.function = function;
+            this.argument1 = argument1;
+            this.argument2 = argument2;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) {
+            return function.evaluate(argument1.evaluate(context), argument2.evaluate(context));
+        }
+
+    }
+
+    private static final class If extends CompiledExpression {
+
+        private final CompiledExpression condition, trueExpression, falseExpression;
+
+        If(CompiledExpression condition, CompiledExpression trueExpression, CompiledExpression falseExpression) {
+            this.condition = condition;
+            this.trueExpression = trueExpression;
+            this.falseExpression = falseExpression;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) {
+            return condition.test(context) ? trueExpression.evaluate(context) : falseExpression.evaluate(context);
+        }
+
+    }
+
+    /**
+     * A decision tree stored in arrays, where each inner node compares a variable to a split value.
+     * References to other nodes are indexes of inner nodes if positive, and the complement of leaf indexes otherwise.
+     */
+    private static final class DecisionTree extends CompiledExpression {
+
+        private final int[] variables;
+        private final double[] splits;
+        private final boolean[] missingIsTrue;
+        private final int[] trueNext, falseNext;
+        private final double[] leaves;
+
+        DecisionTree(int[] variables, double[] splits, boolean[] missingIsTrue,
+                     int[] trueNext, int[] falseNext, double[] leaves) {
+            this.variables = variables;
+            this.splits = splits;
+            this.missingIsTrue = missingIsTrue;
+            this.trueNext = trueNext;
+            this.falseNext = falseNext;
+            this.leaves = leaves;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) {
+            int node = 0;
+            do {
+                double value = context.getDouble(variables[node]);
+                // non-short-circuit operators let the branch be selected without jumps, which is faster
+                // as branches are hard to predict
+                boolean isTrue = value < splits[node] | (missingIsTrue[node] & value != value);
+                node = isTrue ? trueNext[node] : falseNext[node];
+            } while (node >= 0);
+            return leaves[~node];
+        }
+
+    }
+
+    private static final class IfVariableSmaller extends CompiledExpression {
+
+        private final int index;
+        private final double value;
+        private final CompiledExpression trueExpression, falseExpression;
+
+        IfVariableSmaller(int index, double value, CompiledExpression trueExpression, CompiledExpression falseExpression) {
+            this.index = index;
+            this.value = value;
+            this.trueExpression = trueExpression;
+            this.falseExpression = falseExpression;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) {
+            return context.getDouble(index) < value ? trueExpression.evaluate(context) : falseExpression.evaluate(context);
+        }
+
+    }
+
+    private static final class IfVariableLargerEqual extends CompiledExpression {
+
+        private final int index;
+        private final double value;
+        private final CompiledExpression trueExpression, falseExpression;
+
+        IfVariableLargerEqual(int index, double value, CompiledExpression trueExpression, CompiledExpression falseExpression) {
+            this.index = index;
+            this.value = value;
+            this.trueExpression = trueExpression;
+            this.falseExpression = falseExpression;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) {
+            return context.getDouble(index) >= value ? trueExpression.evaluate(context) : falseExpression.evaluate(context);
+        }
+
+    }
+
+    private static final class Comparison extends CompiledExpression {
+
+        private final CompiledExpression left, right;
+        private final TruthOperator operator;
+
+        Comparison(CompiledExpression left, TruthOperator operator, CompiledExpression right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) { return test(context) ? 1 : 0; }
+
+        @Override
+        public boolean test(ContextIndex context) {
+            return operator.evaluate(left.evaluate(context), right.evaluate(context));
+        }
+
+    }
+
+    private static final class VariableSmaller extends CompiledExpression {
+
+        private final int index;
+        private final double value;
+
+        VariableSmaller(int index, double value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) { return test(context) ? 1 : 0; }
+
+        @Override
+        public boolean test(ContextIndex context) { return context.getDouble(index) < value; }
+
+    }
+
+    private static final class VariableLargerEqual extends CompiledExpression {
+
+        private final int index;
+        private final double value;
+
+        VariableLargerEqual(int index, double value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) { return test(context) ? 1 : 0; }
+
+        @Override
+        public boolean test(ContextIndex context) { return context.getDouble(index) >= value; }
+
+    }
+
+    private static final class SetMembership extends CompiledExpression {
+
+        private final CompiledExpression testValue;
+        private final CompiledExpression[] setValues;
+
+        SetMembership(CompiledExpression testValue, CompiledExpression[] setValues) {
+            this.testValue = testValue;
+            this.setValues = setValues;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) { return test(context) ? 1 : 0; }
+
+        @Override
+        public boolean test(ContextIndex context) {
+            double value = testValue.evaluate(context);
+            for (CompiledExpression setValue : setValues)
+                if (value == setValue.evaluate(context)) return true;
+            return false;
+        }
+
+    }
+
+    private static final class ConstantSetMembership extends CompiledExpression {
+
+        private final CompiledExpression testValue;
+        private final double[] setValues;
+
+        ConstantSetMembership(CompiledExpression testValue, double[] setValues) {
+            this.testValue = testValue;
+            this.setValues = setValues;
+        }
+
+        @Override
+        public double evaluate(ContextIndex context) { return test(context) ? 1 : 0; }
+
+        @Override
+        public boolean test(ContextIndex context) {
+            double value = testValue.evaluate(context);
+            for (double setValue : setValues)
+                if (value == setValue) return true;
+            return false;
+        }
+
+    }
+
+}
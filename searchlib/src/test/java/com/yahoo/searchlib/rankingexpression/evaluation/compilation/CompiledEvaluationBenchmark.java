@@ -0,0 +1,120 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.io.IOUtils;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleOnlyArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.MapContext;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Benchmarks interpreted, GBDT forest optimized and compiled evaluation of a large GBDT model,
+ * and of forests of the form produced by the XGBoost and LightGBM importers.
+ */
+public class CompiledEvaluationBenchmark {
+
+    private static final int features = 120;
+
+    private final Random random = new Random(13);
+
+    public void run(String name, String forest, int iterations) throws ParseException {
+        System.out.println(name + ":");
+        double interpreted = benchmark("Interpreted", new RankingExpression(forest), new MapContext(DoubleValue.NaN), iterations);
+
+        RankingExpression optimized = new RankingExpression(forest);
+        DoubleOnlyArrayContext optimizedContext = new DoubleOnlyArrayContext(optimized, true, DoubleValue.NaN);
+        new ExpressionOptimizer().optimize(optimized, optimizedContext);
+        double forestOptimized = benchmark("Forest optimized", optimized, optimizedContext, iterations);
+
+        RankingExpression compiled = new RankingExpression(forest);
+        DoubleOnlyArrayContext compiledContext = new DoubleOnlyArrayContext(compiled, true, DoubleValue.NaN);
+        ExpressionOptimizer compiler = new ExpressionOptimizer();
+        compiler.getOptimizer(ExpressionCompiler.class).setEnabled(true);
+        compiler.optimize(compiled, compiledContext);
+        if ( ! (compiled.getRoot() instanceof CompiledNode))
+            throw new IllegalStateException("Expected the expression to be compiled");
+        double compiledTotal = benchmark("Compiled", compiled, compiledContext, iterations);
+
+        // The forest optimizer sums trees in a different order, so results may differ in the last bits
+        if (Math.abs(interpreted - forestOptimized) > Math.abs(interpreted) / 1e9 || interpreted != compiledTotal)
+            throw new IllegalStateException("Results differ: Interpreted " + interpreted + ", forest optimized " +
+                                            forestOptimized + ", compiled " + compiledTotal);
+    }
+
+    private double benchmark(String description, RankingExpression expression, Context context, int iterations) {
+        evaluate(expression, context, Math.max(iterations / 5, 10)); // warmup
+        long startTime = System.nanoTime();
+        double total = evaluate(expression, context, iterations);
+        long totalTime = System.nanoTime() - startTime;
+        System.out.printf("   %-17s %8.3f us/evaluation\n", description + ":", totalTime / 1000.0 / iterations);
+        return total;
+    }
+
+    private double evaluate(RankingExpression expression, Context context, int iterations) {
+        double total = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (int feature = 0; feature < features; feature++)
+                context.put("F" + feature, (double)((i * 31 + feature * 17) % 100) / 10);
+            total += expression.evaluate(context).asDouble();
+        }
+        return total;
+    }
+
+    /** Returns a random forest in the form produced by the XGBoost importer */
+    private String xgboostForest(int trees, int depth) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < trees; i++) {
+            if (i > 0) b.append(" + ");
+            tree(depth, false, b);
+        }
+        return b.toString();
+    }
+
+    /** Returns a random forest in the form produced by the LightGBM importer, including categorical splits */
+    private String lightGbmForest(int trees, int depth) {
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < trees; i++) {
+            if (i > 0) b.append(" + ");
+            tree(depth, true, b);
+        }
+        return b.toString();
+    }
+
+    private void tree(int depth, boolean categorical, StringBuilder b) {
+        if (depth == 0) {
+            b.append(random.nextDouble() - 0.5);
+            return;
+        }
+        String feature = "F" + random.nextInt(features);
+        double split = random.nextInt(100) / 10.0;
+        b.append("if (");
+        if (categorical && random.nextInt(4) == 0)
+            b.append("isNan(").append(feature).append(") || (").append(feature).append(" in [")
+             .append(random.nextInt(10)).append(", ").append(random.nextInt(10)).append("])");
+        else if (random.nextBoolean())
+            b.append("!(").append(feature).append(" >= ").append(split).append(")");
+        else
+            b.append(feature).append(" < ").append(split);
+        b.append(", ");
+        tree(depth - 1, categorical, b);
+        b.append(", ");
+        tree(depth - 1, categorical, b);
+        b.append(")");
+    }
+
+    public static void main(String[] args) throws ParseException, IOException {
+        CompiledEvaluationBenchmark benchmark = new CompiledEvaluationBenchmark();
+        benchmark.run("GBDT (src/test/files/gbdt.expression)",
+                      IOUtils.readFile(new File("src/test/files/gbdt.expression")), 20000);
+        benchmark.run("XGBoost style forest, 500 trees of depth 6", benchmark.xgboostForest(500, 6), 5000);
+        benchmark.run("LightGBM style forest, 500 trees of depth 6", benchmark.lightGbmForest(500, 6), 5000);
+    }
+
+}
@@ -0,0 +1,109 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.compilation;
+
+import com.yahoo.io.IOUtils;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleOnlyArrayContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
+import com.yahoo.searchlib.rankingexpression.evaluation.MapContext;
+import com.yahoo.searchlib.rankingexpression.evaluation.OptimizationReport;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExpressionCompilerTestCase {
+
+    @Test
+    public void testArithmetic() throws ParseException {
+        assertCompiled("a + b * c - a / b % c ^ 2", 1, 2, 3);
+        assertCompiled("a - b - c + a - b", 1, 2, 3);
+        assertCompiled("a * b / c * a / b", 1, 2, 3);
+        assertCompiled("-(a + 3.5) * -b", 1, 2, 3);
+        assertCompiled("a && b || !c", 1, 0, 1);
+        assertCompiled("a && b || !c", 1, 0, 0);
+        assertCompiled("(a < b) + (a <= b) + (a == b) + (a ~= b) + (a > b) + (a >= b) + (a != b)", 1, 2, 3);
+        assertCompiled("max(a, b) + sqrt(c) + isNan(a) + atan2(a, c)", 1, 2, 3);
+        assertCompiled("a + b", Double.NaN, 2, 3);
+    }
+
+    @Test
+    public void testConditions() throws ParseException {
+        String tree = "if (a < 2, if (b >= 2, 5, 6), 4) + if (!(c >= 3), 7, 8) + if (a in [1, 2, \"x\"], 1, 0) + " +
+                      "if (isNan(b) || (b in [b, c]), 10, 20) + if (a * b, 100, 200)";
+        assertCompiled(tree, 1, 2, 3);
+        assertCompiled(tree, 3, 0, 2);
+        assertCompiled(tree, 2, 1, Double.NaN);
+        assertCompiled(tree, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    @Test
+    public void testGBDT() throws ParseException, IOException {
+        String gbdtString = IOUtils.readFile(new File("src/test/files/gbdt.expression"));
+        RankingExpression interpretedGbdt = new RankingExpression(gbdtString);
+        RankingExpression compiledGbdt = new RankingExpression(gbdtString);
+        MapContext interpreted = new MapContext(DoubleValue.NaN);
+        DoubleOnlyArrayContext compiled = compile(compiledGbdt);
+        assertTrue(compiledGbdt.getRoot() instanceof CompiledNode);
+
+        Random random = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            for (int feature = 0; feature < 120; feature++) {
+                double value = random.nextDouble() * 10;
+                interpreted.put("F" + feature, value);
+                compiled.put("F" + feature, value);
+            }
+            assertEquals(interpretedGbdt.evaluate(interpreted).asDouble(), compiledGbdt.evaluate(compiled).asDouble(), 0);
+        }
+    }
+
+    @Test
+    public void testUncompilableExpressionIsNotChanged() throws ParseException {
+        RankingExpression expression = new RankingExpression("a + reduce(tensor0 * tensor1, sum)");
+        DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression);
+        ExpressionOptimizer optimizer = new ExpressionOptimizer();
+        optimizer.getOptimizer(ExpressionCompiler.class).setEnabled(true);
+        optimizer.optimize(expression, context);
+        assertFalse(expression.getRoot() instanceof CompiledNode);
+    }
+
+    @Test
+    public void testCompilerIsDisabledByDefault() throws ParseException {
+        RankingExpression expression = new RankingExpression("a + b");
+        new ExpressionOptimizer().optimize(expression, new DoubleOnlyArrayContext(expression));
+        assertFalse(expression.getRoot() instanceof CompiledNode);
+    }
+
+    private void assertCompiled(String expressionString, double a, double b, double c) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        MapContext interpreted = new MapContext();
+        interpreted.put("a", a);
+        interpreted.put("b", b);
+        interpreted.put("c", c);
+        double expected = expression.evaluate(interpreted).asDouble();
+
+        DoubleOnlyArrayContext compiled = compile(expression);
+        assertTrue(expression.getRoot() instanceof CompiledNode);
+        compiled.put("a", a);
+        compiled.put("b", b);
+        compiled.put("c", c);
+        assertEquals(expressionString, expected, expression.evaluate(compiled).asDouble(), 0);
+    }
+
+    private DoubleOnlyArrayContext compile(RankingExpression expression) {
+        DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression, true, DoubleValue.NaN);
+        ExpressionOptimizer optimizer = new ExpressionOptimizer();
+        optimizer.getOptimizer(ExpressionCompiler.class).setEnabled(true);
+        OptimizationReport report = optimizer.optimize(expression, context);
+        assertTrue(report.toString(), report.getMetric("Compiled expression nodes") > 0);
+        return context;
+    }
+
+}
@@ -6,9 +6,14 @@ import net.jpountz.lz4.LZ4Factory;
 import net.jpountz.lz4.LZ4FastDecompressor;
 import net.jpountz.lz4.LZ4SafeDecompressor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Compressor which can compress and decompress in various formats.
@@ -23,8 +28,21 @@ public class Compressor {
     private final double compressionThresholdFactor;
     private final int compressMinSizeBytes;
 
+    /** Pooled buffers are handed out in power of two sizes from 2^minBufferSizeShift to 2^maxBufferSizeShift bytes */
+    private static final int minBufferSizeShift = 12; // 4 KiB
+    private static final int maxBufferSizeShift = 20; // 1 MiB
+
+    /** The max number of bytes kept in buffers for reuse, across all threads using this */
+    private static final long maxRetainedBytes = 4 * 1024 * 1024;
+
     private static final LZ4Factory factory = LZ4Factory.fastestInstance();
 
+    /** Idle buffers for reuse by any thread, per size from the smallest */
+    private final List<ConcurrentLinkedDeque<byte[]>> idleBuffers = new ArrayList<>();
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder reusedBytes = new LongAdder();
+
     /** Creates a compressor with default settings. */
     public Compressor() {
         this(CompressionType.LZ4);
@@ -53,6 +71,8 @@ public class Compressor {
         this.level = level;
         this.compressionThresholdFactor = compressionThresholdFactor;
         this.compressMinSizeBytes = compressMinSizeBytes;
+        for (int shift = minBufferSizeShift; shift <= maxBufferSizeShift; shift++)
+            idleBuffers.add(new ConcurrentLinkedDeque<>());
     }
 
     /** Returns the default compression type used by this */
@@ -67,6 +87,15 @@ public class Compressor {
     /** Returns the minimal data size required to perform compression */
     public int compressMinSizeBytes() { return compressMinSizeBytes; }
 
+    /** Returns the total number of bytes allocated by this for compression and decompression output so far */
+    public long allocatedBytes() { return allocatedBytes.sum(); }
+
+    /** Returns the total number of bytes this has served from reused pooled buffers so far */
+    public long reusedBytes() { return reusedBytes.sum(); }
+
+    /** Returns the number of bytes currently kept in idle buffers for reuse. This is at most 4 MiB. */
+    public long retainedBytes() { return retainedBytes.get(); }
+
     /**
      * Compresses some data
      *
@@ -87,10 +116,18 @@ public class Compressor {
             case LZ4:
                 int dataSize = uncompressedSize.isPresent() ? uncompressedSize.get() : data.length;
                 if (dataSize < compressMinSizeBytes) return new Compression(CompressionType.INCOMPRESSIBLE, dataSize, data);
-                byte[] compressedData = getCompressor().compress(data, 0, dataSize);
-                if (compressedData.length + 8 >= dataSize * compressionThresholdFactor)
-                    return new Compression(CompressionType.INCOMPRESSIBLE, dataSize, data);
-                return new Compression(CompressionType.LZ4, dataSize, compressedData);
+                LZ4Compressor compressor = getCompressor();
+                byte[] buffer = acquireBuffer(compressor.maxCompressedLength(dataSize));
+                try {
+                    int compressedSize = compressor.compress(data, 0, dataSize, buffer, 0, buffer.length);
+                    if (compressedSize + 8 >= dataSize * compressionThresholdFactor)
+                        return new Compression(CompressionType.INCOMPRESSIBLE, dataSize, data);
+                    allocatedBytes.add(compressedSize);
+                    return new Compression(CompressionType.LZ4, dataSize, Arrays.copyOf(buffer, compressedSize));
+                }
+                finally {
+                    releaseBuffer(buffer);
+                }
             default:
                 throw new IllegalArgumentException(requestedCompression + " is not supported");
         }
@@ -125,6 +162,7 @@ public class Compressor {
                 return Arrays.copyOfRange(compressedData, compressedDataOffset, endPosition);
             case LZ4:
                 byte[] uncompressedLZ4Data = new byte[expectedUncompressedSize];
+                allocatedBytes.add(expectedUncompressedSize);
                 int compressedSize = factory.fastDecompressor().decompress(compressedData, compressedDataOffset,
                                                                            uncompressedLZ4Data, 0, expectedUncompressedSize);
                 if (expectedCompressedSize.isPresent() && compressedSize != expectedCompressedSize.get())
@@ -143,6 +181,72 @@ public class Compressor {
         return decompress(compression.type(), compression.data(), 0, compression.uncompressedSize(), Optional.empty());
     }
 
+    /**
+     * Decompresses some data into a buffer from the pool of this, instead of allocating a new array.
+     * The returned decompression must be closed when the caller is done with the data, after which
+     * the caller must not keep any reference to it, as the buffer is then reused.
+     *
+     * @param compressedData the compressed data. This array is only read by this method.
+     * @param compressionType the compression type used
+     * @param uncompressedSize the uncompressed size in bytes of this data
+     * @return the uncompressed data, in a pooled buffer or, if the data is not compressed, the compressed data array itself
+     * @throws IllegalArgumentException if the compression type is not supported
+     */
+    public Decompression decompressToPooledBuffer(byte[] compressedData, CompressionType compressionType, int uncompressedSize) {
+        switch (compressionType) {
+            case NONE: case INCOMPRESSIBLE:
+                return new Decompression(compressedData, uncompressedSize, null);
+            case LZ4:
+                byte[] buffer = acquireBuffer(uncompressedSize);
+                try {
+                    factory.fastDecompressor().decompress(compressedData, 0, buffer, 0, uncompressedSize);
+                }
+                catch (RuntimeException e) {
+                    releaseBuffer(buffer);
+                    throw e;
+                }
+                return new Decompression(buffer, uncompressedSize, this);
+            default:
+                throw new IllegalArgumentException(compressionType + " is not supported");
+        }
+    }
+
+    /** Returns an idle buffer with room for the given size if there is one, and a new buffer otherwise */
+    private byte[] acquireBuffer(int size) {
+        int sizeIndex = sizeIndexOf(size);
+        if (sizeIndex < 0) {
+            allocatedBytes.add(size);
+            return new byte[size];
+        }
+        byte[] buffer = idleBuffers.get(sizeIndex).pollFirst();
+        if (buffer != null) {
+            retainedBytes.addAndGet(-buffer.length);
+            reusedBytes.add(size);
+            return buffer;
+        }
+        buffer = new byte[1 << (minBufferSizeShift + sizeIndex)];
+        allocatedBytes.add(buffer.length);
+        return buffer;
+    }
+
+    /** Keeps a buffer from acquireBuffer for reuse, unless it is too large or this already retains as much as it may */
+    private void releaseBuffer(byte[] buffer) {
+        int sizeIndex = sizeIndexOf(buffer.length);
+        if (sizeIndex < 0) return;
+        if (retainedBytes.addAndGet(buffer.length) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-buffer.length);
+            return;
+        }
+        idleBuffers.get(sizeIndex).addFirst(buffer);
+    }
+
+    /** Returns the index of the smallest pooled buffer size which has room for the given size, or -1 if it is too large */
+    private static int sizeIndexOf(int size) {
+        if (size > 1 << maxBufferSizeShift) return -1;
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1);
+        return Math.max(shift, minBufferSizeShift) - minBufferSizeShift;
+    }
+
     public byte[] compressUnconditionally(byte[] input) {
         return getCompressor().compress(input);
     }
@@ -202,4 +306,36 @@ public class Compressor {
 
     }
 
+    /**
+     * Decompressed data in a buffer which may be pooled. This must be closed when the data is no longer used,
+     * to give the buffer back for reuse.
+     */
+    public static class Decompression implements AutoCloseable {
+
+        private final byte[] data;
+        private final int size;
+        private Compressor pool;
+
+        private Decompression(byte[] data, int size, Compressor pool) {
+            this.data = data;
+            this.size = size;
+            this.pool = pool;
+        }
+
+        /** Returns the buffer holding the decompressed data from position 0. It may be longer than the data. */
+        public byte[] data() { return data; }
+
+        /** Returns the size of the decompressed data in bytes */
+        public int size() { return size; }
+
+        /** Gives the buffer back for reuse, after which it must not be accessed */
+        @Override
+        public void close() {
+            if (pool == null) return;
+            pool.releaseBuffer(data);
+            pool = null;
+        }
+
+    }
+
 }
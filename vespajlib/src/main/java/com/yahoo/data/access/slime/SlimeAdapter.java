@@ -20,6 +20,8 @@ public final class SlimeAdapter implements com.yahoo.data.access.Inspector {
     @Override public int hashCode() { return inspector.hashCode(); }
     @Override public String toString() { return inspector.toString(); }
     public com.yahoo.data.access.Inspector inspect() { return this; }
+    /** Returns the slime inspector wrapped by this */
+    public com.yahoo.slime.Inspector slimeInspector() { return inspector; }
     public boolean valid() { return inspector.valid(); }
     public com.yahoo.data.access.Type type() {
         switch(inspector.type()) {
@@ -85,4 +85,25 @@ public class BinaryFormat {
         BinaryDecoder decoder = new BinaryDecoder();
         return decoder.decode(data, offset, length);
     }
+
+    /**
+     * Take binary data and return a read-only view of the value it contains,
+     * which only decodes the values that are accessed. This is cheaper than
+     * {@link #decode} when only some of the values are used.
+     * The data is assumed to be the binary representation
+     * as if obtained by a call to the @ref encode() method, and must
+     * not be modified while the returned inspector is in use.
+     *
+     * If the binary data can't be deserialized without problems
+     * this instead returns the root of the Slime object returned by
+     * {@link #decode(byte[], int, int)} for the same data.
+     *
+     * @param data array containing the data to be viewed.
+     * @param offset where in the array the data starts.
+     * @param length how many bytes the view is allowed to consume.
+     * @return an inspector for the value in the data.
+     **/
+    public static Inspector view(byte[] data, int offset, int length) {
+        return BinaryView.inspect(data, offset, length);
+    }
 }
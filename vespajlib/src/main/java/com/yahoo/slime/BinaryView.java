@@ -0,0 +1,349 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import java.util.Arrays;
+
+import static com.yahoo.slime.BinaryFormat.decode_double;
+import static com.yahoo.slime.BinaryFormat.decode_meta;
+import static com.yahoo.slime.BinaryFormat.decode_type;
+import static com.yahoo.slime.BinaryFormat.decode_zigzag;
+
+/**
+ * A read-only view of a value in the Slime binary format.
+ * The data is scanned once to index where each value starts, but values are not decoded
+ * until they are accessed, and strings and data are not copied until they are read.
+ * This is cheaper than decoding into a Slime when only some of the values are used.
+ *
+ * The viewed data must not be modified while the view is in use.
+ **/
+final class BinaryView extends Value {
+
+    private static final int NO_SYMBOL = -1;
+    private static final byte[] emptyData = new byte[0];
+
+    private final byte[] data;
+    private final SymbolTable names;
+    private final DecodeIndex index;
+    private final int node;
+
+    private BinaryView(byte[] data, SymbolTable names, DecodeIndex index, int node) {
+        this.data = data;
+        this.names = names;
+        this.index = index;
+        this.node = node;
+    }
+
+    /**
+     * Returns a view of the given binary data, or a decoded Slime value as returned
+     * by {@link BinaryFormat#decode} if the data is not valid
+     */
+    static Inspector inspect(byte[] data, int offset, int length) {
+        try {
+            Indexer indexer = new Indexer(data, offset, length);
+            SymbolTable names = indexer.indexSymbols();
+            DecodeIndex index = indexer.indexRoot();
+            return new BinaryView(data, names, index, 0);
+        }
+        catch (IllegalArgumentException e) {
+            return BinaryFormat.decode(data, offset, length).get();
+        }
+    }
+
+    private BinaryView view(int node) { return new BinaryView(data, names, index, node); }
+
+    private byte header() { return index.header(node); }
+
+    private boolean is(Type type) { return decode_type(header()) == type; }
+
+    @Override
+    public Type type() { return decode_type(header()); }
+
+    @Override
+    public int children() { return is(Type.ARRAY) || is(Type.OBJECT) ? index.size(node) : 0; }
+
+    @Override
+    public int entries() { return is(Type.ARRAY) ? index.size(node) : 0; }
+
+    @Override
+    public int fields() { return is(Type.OBJECT) ? index.size(node) : 0; }
+
+    @Override
+    public boolean asBool() { return is(Type.BOOL) && decode_meta(header()) != 0; }
+
+    @Override
+    public long asLong() {
+        switch (type()) {
+            case LONG: return longValue();
+            case DOUBLE: return (long)doubleValue();
+            default: return 0;
+        }
+    }
+
+    @Override
+    public double asDouble() {
+        switch (type()) {
+            case LONG: return (double)longValue();
+            case DOUBLE: return doubleValue();
+            default: return 0.0;
+        }
+    }
+
+    @Override
+    public String asString() {
+        if ( ! is(Type.STRING)) return "";
+        return Utf8Codec.decode(data, index.position(node), index.size(node));
+    }
+
+    @Override
+    public byte[] asUtf8() { return is(Type.STRING) ? bytes() : emptyData; }
+
+    @Override
+    public byte[] asData() { return is(Type.DATA) ? bytes() : emptyData; }
+
+    @Override
+    public void accept(Visitor v) {
+        switch (type()) {
+            case NIX: v.visitNix(); break;
+            case BOOL: v.visitBool(asBool()); break;
+            case LONG: v.visitLong(longValue()); break;
+            case DOUBLE: v.visitDouble(doubleValue()); break;
+            case STRING: v.visitString(bytes()); break;
+            case DATA: v.visitData(bytes()); break;
+            case ARRAY: v.visitArray(this); break;
+            case OBJECT: v.visitObject(this); break;
+        }
+    }
+
+    @Override
+    public void traverse(ArrayTraverser at) {
+        int entries = entries();
+        int first = index.position(node);
+        for (int i = 0; i < entries; i++)
+            at.entry(i, view(first + i));
+    }
+
+    @Override
+    public void traverse(ObjectSymbolTraverser ot) {
+        int fields = fields();
+        int first = index.position(node);
+        for (int i = 0; i < fields; i++)
+            ot.field(index.symbol(first + i), view(first + i));
+    }
+
+    @Override
+    public void traverse(ObjectTraverser ot) {
+        int fields = fields();
+        int first = index.position(node);
+        for (int i = 0; i < fields; i++)
+            ot.field(names.inspect(index.symbol(first + i)), view(first + i));
+    }
+
+    @Override
+    public Value entry(int idx) {
+        if (idx < 0 || idx >= entries()) return NixValue.invalid();
+        return view(index.position(node) + idx);
+    }
+
+    @Override
+    public Value field(int sym) {
+        int fields = fields();
+        int first = index.position(node);
+        for (int i = 0; i < fields; i++) {
+            if (index.symbol(first + i) == sym)
+                return view(first + i);
+        }
+        return NixValue.invalid();
+    }
+
+    @Override
+    public Value field(String name) {
+        if ( ! is(Type.OBJECT)) return NixValue.invalid();
+        int sym = names.lookup(name);
+        if (sym == SymbolTable.INVALID) return NixValue.invalid();
+        return field(sym);
+    }
+
+    private long longValue() {
+        int position = index.position(node);
+        long encoded = 0;
+        for (int i = 0, shift = 0; i < decode_meta(header()); i++, shift += 8)
+            encoded |= (data[position + i] & 0xffL) << shift;
+        return decode_zigzag(encoded);
+    }
+
+    private double doubleValue() {
+        int position = index.position(node);
+        long encoded = 0;
+        for (int i = 0, shift = 56; i < decode_meta(header()); i++, shift -= 8)
+            encoded |= (data[position + i] & 0xffL) << shift;
+        return decode_double(encoded);
+    }
+
+    private byte[] bytes() {
+        int position = index.position(node);
+        return Arrays.copyOfRange(data, position, position + index.size(node));
+    }
+
+    /**
+     * The location of each value in the data. Values are numbered in the order they are indexed,
+     * such that the entries or fields of an array or object have consecutive numbers.
+     * For each value this stores its type and meta byte, its symbol if it is an object field,
+     * the position of its payload or first child, and the byte size of its payload or its number of children.
+     */
+    private static final class DecodeIndex {
+
+        private static final int stride = 4;
+
+        private int[] nodes;
+        private int used = 0;
+
+        DecodeIndex(int expectedValues) {
+            nodes = new int[Math.max(expectedValues, 1) * stride];
+        }
+
+        /** Reserves consecutive numbers for the given number of values and returns the first */
+        int reserve(int count) {
+            int first = used;
+            used += count;
+            if (used * stride > nodes.length)
+                nodes = Arrays.copyOf(nodes, Math.max(nodes.length * 2, used * stride));
+            return first;
+        }
+
+        void set(int node, byte header, int symbol, int position, int size) {
+            int base = node * stride;
+            nodes[base] = header;
+            nodes[base + 1] = symbol;
+            nodes[base + 2] = position;
+            nodes[base + 3] = size;
+        }
+
+        byte header(int node) { return (byte)nodes[node * stride]; }
+        int symbol(int node) { return nodes[node * stride + 1]; }
+        int position(int node) { return nodes[node * stride + 2]; }
+        int size(int node) { return nodes[node * stride + 3]; }
+
+    }
+
+    /** Builds the index of some binary data, throwing IllegalArgumentException if the data is not valid */
+    private static final class Indexer {
+
+        private final byte[] data;
+        private final int end;
+        private int position;
+        private SymbolTable names;
+        private DecodeIndex index;
+
+        Indexer(byte[] data, int offset, int length) {
+            if (offset < 0 || length < 0 || offset + length > data.length)
+                throw new IllegalArgumentException("Invalid range");
+            this.data = data;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        SymbolTable indexSymbols() {
+            names = new SymbolTable();
+            int symbols = readSize(0);
+            for (int i = 0; i < symbols; i++) {
+                int size = readSize(0);
+                skip(size);
+                if (names.insert(Utf8Codec.decode(data, position - size, size)) != i)
+                    throw new IllegalArgumentException("Duplicate symbols in symbol table");
+            }
+            return names;
+        }
+
+        DecodeIndex indexRoot() {
+            index = new DecodeIndex((end - position) / 16); // a rough guess, the index grows as needed
+            indexValue(index.reserve(1), NO_SYMBOL);
+            return index;
+        }
+
+        private void indexValue(int node, int symbol) {
+            byte header = nextByte();
+            int meta = decode_meta(header);
+            switch (decode_type(header)) {
+                case NIX:
+                case BOOL:
+                    index.set(node, header, symbol, position, 0);
+                    break;
+                case LONG:
+                case DOUBLE:
+                    index.set(node, header, symbol, position, meta);
+                    skip(meta);
+                    break;
+                case STRING:
+                case DATA: {
+                    int size = readSize(meta);
+                    index.set(node, header, symbol, position, size);
+                    skip(size);
+                    break;
+                }
+                case ARRAY: {
+                    int entries = readChildCount(meta);
+                    int first = index.reserve(entries);
+                    index.set(node, header, symbol, first, entries);
+                    for (int i = 0; i < entries; i++)
+                        indexValue(first + i, NO_SYMBOL);
+                    break;
+                }
+                case OBJECT: {
+                    int fields = readChildCount(meta);
+                    int first = index.reserve(fields);
+                    index.set(node, header, symbol, first, fields);
+                    for (int i = 0; i < fields; i++)
+                        indexValue(first + i, readSymbol());
+                    break;
+                }
+            }
+        }
+
+        private byte nextByte() {
+            if (position == end)
+                throw new IllegalArgumentException("Underflow");
+            return data[position++];
+        }
+
+        private void skip(int size) {
+            if (size > end - position)
+                throw new IllegalArgumentException("Underflow");
+            position += size;
+        }
+
+        /** Reads the size given in the meta bits, or a compressed size following it if they are 0 */
+        private int readSize(int meta) {
+            if (meta != 0) return meta - 1;
+            long value = 0;
+            int shift = 0;
+            byte next;
+            do {
+                if (shift > 28)
+                    throw new IllegalArgumentException("Size out of range");
+                next = nextByte();
+                value |= (long)(next & 0x7f) << shift;
+                shift += 7;
+            } while ((next & 0x80) != 0);
+            if (value > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Size out of range");
+            return (int)value;
+        }
+
+        private int readSymbol() {
+            int symbol = readSize(0);
+            if (symbol >= names.symbols())
+                throw new IllegalArgumentException("Unknown symbol " + symbol);
+            return symbol;
+        }
+
+        /** Reads a number of children, each of which takes at least one byte */
+        private int readChildCount(int meta) {
+            int count = readSize(meta);
+            if (count > end - position)
+                throw new IllegalArgumentException("Underflow");
+            return count;
+        }
+
+    }
+
+}
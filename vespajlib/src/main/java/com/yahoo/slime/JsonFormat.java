@@ -113,35 +113,39 @@ public final class JsonFormat implements SlimeFormat
             }
         }
 
+        /**
+         * Writes the given UTF-8 string as a JSON string. Runs of bytes which need no escaping,
+         * which is usually all of them, are written to the output as-is.
+         */
         private void encodeSTRING(byte[] value) throws IOException {
-
-            byte [] data = new byte[value.length * 6 + 2];
-            int len = 2;
-            int p = 0;
-            data[p++] = '"';
+            out.append((byte) '"');
+            int unescaped = 0; // start of the current run of bytes which need no escaping
             for (int pos = 0; pos < value.length; pos++) {
                 byte c = value[pos];
-                switch (c) {
-                case '"':  data[p++] = '\\'; data[p++] = '"';  len += 2; break;
-                case '\\': data[p++] = '\\'; data[p++] = '\\'; len += 2; break;
-                case '\b': data[p++] = '\\'; data[p++] = 'b';  len += 2; break;
-                case '\f': data[p++] = '\\'; data[p++] = 'f';  len += 2; break;
-                case '\n': data[p++] = '\\'; data[p++] = 'n';  len += 2; break;
-                case '\r': data[p++] = '\\'; data[p++] = 'r';  len += 2; break;
-                case '\t': data[p++] = '\\'; data[p++] = 't';  len += 2; break;
-                default:
-                    if (c > 0x1f || c < 0) {
-                        data[p++] = c;
-                        len++;
-                    } else { // requires escaping according to RFC 4627
-                        data[p++] = '\\'; data[p++] = 'u'; data[p++] = '0'; data[p++] = '0';
-                        data[p++] = HEX[(c >> 4) & 0xf]; data[p++] = HEX[c & 0xf];
-                        len += 6;
-                    }
-                }
+                if ((c > 0x1f && c != '"' && c != '\\') || c < 0) continue;
+
+                if (pos > unescaped)
+                    out.append(value, unescaped, pos - unescaped);
+                encodeEscaped(c);
+                unescaped = pos + 1;
+            }
+            if (value.length > unescaped)
+                out.append(value, unescaped, value.length - unescaped);
+            out.append((byte) '"');
+        }
+
+        private void encodeEscaped(byte c) throws IOException {
+            switch (c) {
+            case '"':  out.append((byte) '\\'); out.append((byte) '"'); break;
+            case '\\': out.append((byte) '\\'); out.append((byte) '\\'); break;
+            case '\b': out.append((byte) '\\'); out.append((byte) 'b'); break;
+            case '\f': out.append((byte) '\\'); out.append((byte) 'f'); break;
+            case '\n': out.append((byte) '\\'); out.append((byte) 'n'); break;
+            case '\r': out.append((byte) '\\'); out.append((byte) 'r'); break;
+            case '\t': out.append((byte) '\\'); out.append((byte) 't'); break;
+            default: // requires escaping according to RFC 4627
+                out.append(new byte[] { '\\', 'u', '0', '0', HEX[(c >> 4) & 0xf], HEX[c & 0xf] });
             }
-            data[p] = '"';
-            out.append(data, 0, len);
         }
 
         private void encodeDATA(byte[] value) throws IOException {
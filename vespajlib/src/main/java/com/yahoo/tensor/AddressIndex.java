@@ -0,0 +1,111 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.util.Arrays;
+
+/**
+ * An insertion ordered set of tensor addresses, where each address is identified by its position in
+ * the set. This is an open addressing hash table storing positions in a primitive array, such that
+ * values of the cells can be kept in primitive arrays indexed by the same positions, instead of as
+ * boxed values in map entries.
+ *
+ * This is not thread safe while it is being built, but is safe for concurrent reads once built.
+ */
+final class AddressIndex {
+
+    private static final TensorAddress[] noAddresses = new TensorAddress[0];
+
+    private TensorAddress[] addresses;
+    private int[] hashes;
+
+    /** Position + 1 of the address hashed to each slot, or 0 if the slot is empty */
+    private int[] slots;
+    private int size = 0;
+
+    AddressIndex(int expectedSize) {
+        addresses = expectedSize > 0 ? new TensorAddress[expectedSize] : noAddresses;
+        hashes = new int[expectedSize];
+        slots = new int[tableSizeFor(expectedSize)];
+    }
+
+    private AddressIndex(AddressIndex other) {
+        addresses = other.addresses.clone();
+        hashes = other.hashes.clone();
+        slots = other.slots.clone();
+        size = other.size;
+    }
+
+    /** Returns a copy of this which can be added to without changing this */
+    AddressIndex copy() { return new AddressIndex(this); }
+
+    /** Returns the number of addresses in this */
+    int size() { return size; }
+
+    /** Returns the address at the given position */
+    TensorAddress address(int position) { return addresses[position]; }
+
+    /** Returns the position of the given address, or -1 if it is not present */
+    int indexOf(TensorAddress address) {
+        int hash = spread(address.hashCode());
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) return -1;
+            int position = entry - 1;
+            if (hashes[position] == hash && addresses[position].equals(address)) return position;
+        }
+    }
+
+    /**
+     * Adds the given address if it is not already present.
+     *
+     * @return the position of the address if it was added, or -(position + 1) if it was already present
+     */
+    int add(TensorAddress address) {
+        int hash = spread(address.hashCode());
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int position = slots[slot] - 1;
+            if (hashes[position] == hash && addresses[position].equals(address)) return -(position + 1);
+        }
+        if (size == addresses.length) {
+            addresses = Arrays.copyOf(addresses, Math.max(8, size * 2));
+            hashes = Arrays.copyOf(hashes, addresses.length);
+        }
+        addresses[size] = address;
+        hashes[size] = hash;
+        slots[slot] = ++size;
+        if (size * 2 > slots.length)
+            rehash(slots.length * 2);
+        return size - 1;
+    }
+
+    private void rehash(int tableSize) {
+        slots = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int position = 0; position < size; position++) {
+            int slot = hashes[position] & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = position + 1;
+        }
+    }
+
+    /** Returns a power of two table size which keeps the load factor at most 0.5 for the given size */
+    private static int tableSizeFor(int size) {
+        int tableSize = 4;
+        while (tableSize < size * 2)
+            tableSize *= 2;
+        return tableSize;
+    }
+
+    /**
+     * Mixes the bits of the hash. Address hashes are polynomials of short label strings which are heavily
+     * clustered, and linear probing degrades badly on clustered hashes.
+     */
+    private static int spread(int hash) {
+        return 0x1b873593 * Integer.rotateLeft(hash * 0xcc9e2d51, 15);
+    }
+
+}
@@ -0,0 +1,90 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An indexed tensor implementation reading its values directly from a buffer, holding them as
+ * floats or doubles in the standard value order. This allows large tensors to be used without copying them
+ * into the heap, e.g when the buffer is a memory mapped file.
+ *
+ * The buffer is never modified by this, and must not be modified by others while this is in use.
+ */
+class IndexedBufferTensor extends IndexedTensor {
+
+    /** The cell values, from position 0 */
+    private final ByteBuffer cells;
+
+    /** The value type of the cells in the buffer, which is kept when this is given a new type */
+    private final TensorType.Value cellType;
+
+    private final long size;
+
+    IndexedBufferTensor(TensorType type, DimensionSizes dimensionSizes, ByteBuffer cells) {
+        this(type, dimensionSizes, cells.slice().order(cells.order()).asReadOnlyBuffer(), type.valueType());
+        long requiredBytes = size * bytesPerCell(cellType);
+        if (this.cells.capacity() != requiredBytes)
+            throw new IllegalArgumentException("Invalid size (" + this.cells.capacity() + " bytes) of supplied cell buffer." +
+                                               " Type specifies that size should be " + requiredBytes + " bytes");
+    }
+
+    private IndexedBufferTensor(TensorType type, DimensionSizes dimensionSizes, ByteBuffer cells, TensorType.Value cellType) {
+        super(type, dimensionSizes);
+        this.cells = cells;
+        this.cellType = cellType;
+        this.size = dimensionSizes.totalSize();
+    }
+
+    @Override
+    public long size() { return size; }
+
+    @Override
+    public double get(long valueIndex) {
+        if (cellType == TensorType.Value.FLOAT)
+            return cells.getFloat(byteIndex(valueIndex, Float.BYTES));
+        else
+            return cells.getDouble(byteIndex(valueIndex, Double.BYTES));
+    }
+
+    @Override
+    public float getFloat(long valueIndex) {
+        if (cellType == TensorType.Value.FLOAT)
+            return cells.getFloat(byteIndex(valueIndex, Float.BYTES));
+        else
+            return (float)cells.getDouble(byteIndex(valueIndex, Double.BYTES));
+    }
+
+    private int byteIndex(long valueIndex, int bytesPerCell) {
+        if (valueIndex < 0 || valueIndex >= size)
+            throw new IllegalArgumentException("Index " + valueIndex + " is out of bounds of a tensor of size " + size);
+        return (int)valueIndex * bytesPerCell;
+    }
+
+    @Override
+    public IndexedTensor withType(TensorType type) {
+        throwOnIncompatibleType(type);
+        return new IndexedBufferTensor(type, dimensionSizes(), cells, cellType);
+    }
+
+    /** Returns the same hash code as the array backed tensor holding the same values as the same value type */
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (long i = 0; i < size; i++) {
+            if (cellType == TensorType.Value.FLOAT)
+                hashCode = 31 * hashCode + Float.hashCode(getFloat(i));
+            else
+                hashCode = 31 * hashCode + Double.hashCode(get(i));
+        }
+        return hashCode;
+    }
+
+    private static int bytesPerCell(TensorType.Value cellType) {
+        switch (cellType) {
+            case DOUBLE: return Double.BYTES;
+            case FLOAT: return Float.BYTES;
+            default: throw new IllegalArgumentException("Unexpected value type " + cellType);
+        }
+    }
+
+}
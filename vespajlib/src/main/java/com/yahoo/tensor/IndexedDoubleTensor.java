@@ -28,6 +28,19 @@ class IndexedDoubleTensor extends IndexedTensor {
     @Override
     public float getFloat(long valueIndex) { return (float)get(valueIndex); }
 
+    @Override
+    public double sumOfProducts(long start, IndexedTensor other, long otherStart, long length) {
+        if ( ! (other instanceof IndexedDoubleTensor)) return super.sumOfProducts(start, other, otherStart, length);
+
+        double[] otherValues = ((IndexedDoubleTensor)other).values;
+        int offset = (int)start;
+        int otherOffset = (int)otherStart;
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += values[offset + i] * otherValues[otherOffset + i];
+        return sum;
+    }
+
     @Override
     public IndexedTensor withType(TensorType type) {
         throwOnIncompatibleType(type);
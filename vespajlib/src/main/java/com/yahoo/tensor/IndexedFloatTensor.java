@@ -28,6 +28,20 @@ class IndexedFloatTensor extends IndexedTensor {
     @Override
     public float getFloat(long valueIndex) { return values[(int)valueIndex]; }
 
+    @Override
+    public double sumOfProducts(long start, IndexedTensor other, long otherStart, long length) {
+        if ( ! (other instanceof IndexedFloatTensor)) return super.sumOfProducts(start, other, otherStart, length);
+
+        float[] otherValues = ((IndexedFloatTensor)other).values;
+        int offset = (int)start;
+        int otherOffset = (int)otherStart;
+        // multiply as doubles to get the same result as the general implementation
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += (double)values[offset + i] * otherValues[otherOffset + i];
+        return sum;
+    }
+
     @Override
     public IndexedTensor withType(TensorType type) {
         throwOnIncompatibleType(type);
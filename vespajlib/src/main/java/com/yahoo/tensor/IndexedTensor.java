@@ -4,6 +4,7 @@ package com.yahoo.tensor;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -134,6 +135,26 @@ public abstract class IndexedTensor implements Tensor {
      */
     public abstract float getFloat(long valueIndex);
 
+    /**
+     * Returns the sum of the products of the values at the given number of consecutive direct indexes
+     * in this and in the given tensor, i.e the dot product of those ranges.
+     *
+     * The products are summed in index order, as when the product is computed by joining and reducing,
+     * such that both produce exactly the same result. Subclasses implement this as loops over their
+     * value arrays and must sum in the same order.
+     *
+     * @param start the direct index of the first value of this to include
+     * @param other the tensor to multiply values with
+     * @param otherStart the direct index of the first value of the other tensor to include
+     * @param length the number of values to include from each tensor
+     */
+    public double sumOfProducts(long start, IndexedTensor other, long otherStart, long length) {
+        double sum = 0;
+        for (long i = 0; i < length; i++)
+            sum += get(start + i) * other.get(otherStart + i);
+        return sum;
+    }
+
     static long toValueIndex(long[] indexes, DimensionSizes sizes) {
         if (indexes.length == 1) return indexes[0]; // for speed
         if (indexes.length == 0) return 0; // for speed
@@ -244,6 +265,18 @@ public abstract class IndexedTensor implements Tensor {
         return Tensor.equals(this, ((Tensor)other));
     }
 
+    /**
+     * Returns an indexed tensor which reads its values directly from the given buffer instead of copying them.
+     * The buffer must hold the values in the standard value order, as floats or doubles as given by
+     * the value type of the type, from its position to its limit, in the byte order of the buffer.
+     * The buffer must not be modified while the returned tensor is in use.
+     *
+     * @throws IllegalArgumentException if the buffer does not hold the number of values given by the sizes
+     */
+    public static IndexedTensor wrap(TensorType type, DimensionSizes sizes, ByteBuffer cells) {
+        return new IndexedBufferTensor(type, sizes, cells);
+    }
+
     public abstract static class Builder implements Tensor.Builder {
 
         final TensorType type;
@@ -1,15 +1,16 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor;
 
-import com.google.common.collect.ImmutableMap;
-
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.function.DoubleBinaryOperator;
 
 /**
- * A sparse implementation of a tensor backed by a Map of cells to values.
+ * A sparse implementation of a tensor backed by an index of cell addresses and an array of values.
  *
  * @author bratseth
  */
@@ -17,31 +18,37 @@ public class MappedTensor implements Tensor {
 
     private final TensorType type;
 
-    private final ImmutableMap<TensorAddress, Double> cells;
+    /** The addresses of the cells. The value of the cell at position i in the index is values[i] */
+    private final AddressIndex index;
+    private final double[] values;
 
     /** Creates a sparse tensor. The cell addresses must match the type. */
-    private MappedTensor(TensorType type, Map<TensorAddress, Double> cells) {
+    private MappedTensor(TensorType type, AddressIndex index, double[] values) {
         this.type = type;
-        this.cells = ImmutableMap.copyOf(cells);
+        this.index = index;
+        this.values = values;
     }
 
     @Override
     public TensorType type() { return type; }
 
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return index.size(); }
 
     @Override
-    public double get(TensorAddress address) { return cells.getOrDefault(address, Double.NaN); }
+    public double get(TensorAddress address) {
+        int position = index.indexOf(address);
+        return position < 0 ? Double.NaN : values[position];
+    }
 
     @Override
-    public Iterator<Cell> cellIterator() { return new CellIteratorAdaptor(cells.entrySet().iterator()); }
+    public Iterator<Cell> cellIterator() { return new CellIterator(); }
 
     @Override
-    public Iterator<Double> valueIterator() { return cells.values().iterator(); }
+    public Iterator<Double> valueIterator() { return new ValueIterator(); }
 
     @Override
-    public Map<TensorAddress, Double> cells() { return cells; }
+    public Map<TensorAddress, Double> cells() { return new CellMap(); }
 
     @Override
     public Tensor withType(TensorType other) {
@@ -49,7 +56,7 @@ public class MappedTensor implements Tensor {
             throw new IllegalArgumentException("MappedTensor.withType: types are not compatible. Current type: '" +
                     this.type.toString() + "', requested type: '" + type.toString() + "'");
         }
-        return new MappedTensor(other, cells);
+        return new MappedTensor(other, index, values);
     }
 
     @Override
@@ -66,7 +73,7 @@ public class MappedTensor implements Tensor {
     }
 
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() { return cells().hashCode(); }
 
     @Override
     public String toString() { return Tensor.toStandardString(this); }
@@ -80,7 +87,12 @@ public class MappedTensor implements Tensor {
     public static class Builder implements Tensor.Builder {
 
         private final TensorType type;
-        private final ImmutableMap.Builder<TensorAddress, Double> cells = new ImmutableMap.Builder<>();
+        private AddressIndex index = new AddressIndex(16);
+        private double[] values = new double[16];
+        private TensorAddress duplicate = null;
+
+        /** Whether the index is owned by a built tensor, such that it must be copied before it is changed */
+        private boolean indexShared = false;
 
         public static Builder of(TensorType type) { return new Builder(type); }
 
@@ -102,7 +114,19 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(TensorAddress address, double value) {
-            cells.put(address, value);
+            if (indexShared) {
+                index = index.copy();
+                indexShared = false;
+            }
+            int position = index.add(address);
+            if (position < 0) {
+                if (duplicate == null)
+                    duplicate = address;
+                return this;
+            }
+            if (position == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[position] = value;
             return this;
         }
 
@@ -113,32 +137,93 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(double value, long... labels) {
-            cells.put(TensorAddress.of(labels), value);
-            return this;
+            return cell(TensorAddress.of(labels), value);
         }
 
         @Override
         public MappedTensor build() {
-            return new MappedTensor(type, cells.build());
+            if (duplicate != null)
+                throw new IllegalArgumentException("Multiple entries with same key: " + duplicate);
+            indexShared = true;
+            return new MappedTensor(type, index, Arrays.copyOf(values, index.size()));
         }
 
     }
 
-    private static class CellIteratorAdaptor implements Iterator<Cell> {
+    private class CellIterator implements Iterator<Cell> {
 
-        private final Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator;
+        private int position = 0;
+
+        @Override
+        public boolean hasNext() { return position < index.size(); }
 
-        private CellIteratorAdaptor(Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator) {
-            this.adaptedIterator = adaptedIterator;
+        @Override
+        public Cell next() {
+            if ( ! hasNext()) throw new NoSuchElementException();
+            Cell cell = new Cell(index.address(position), values[position]);
+            position++;
+            return cell;
         }
 
+    }
+
+    private class ValueIterator implements Iterator<Double> {
+
+        private int position = 0;
+
         @Override
-        public boolean hasNext() { return adaptedIterator.hasNext(); }
+        public boolean hasNext() { return position < index.size(); }
 
         @Override
-        public Cell next() {
-            Map.Entry<TensorAddress, Double> entry = adaptedIterator.next();
-            return new Cell(entry.getKey(), entry.getValue());
+        public Double next() {
+            if ( ! hasNext()) throw new NoSuchElementException();
+            return values[position++];
+        }
+
+    }
+
+    /** An unmodifiable map view of the cells of this */
+    private class CellMap extends AbstractMap<TensorAddress, Double> {
+
+        @Override
+        public int size() { return index.size(); }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return (key instanceof TensorAddress) && index.indexOf((TensorAddress)key) >= 0;
+        }
+
+        @Override
+        public Double get(Object key) {
+            if ( ! (key instanceof TensorAddress)) return null;
+            int position = index.indexOf((TensorAddress)key);
+            return position < 0 ? null : values[position];
+        }
+
+        @Override
+        public Set<Entry<TensorAddress, Double>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() { return index.size(); }
+
+                @Override
+                public Iterator<Entry<TensorAddress, Double>> iterator() {
+                    return new Iterator<>() {
+                        private int position = 0;
+
+                        @Override
+                        public boolean hasNext() { return position < index.size(); }
+
+                        @Override
+                        public Entry<TensorAddress, Double> next() {
+                            if ( ! hasNext()) throw new NoSuchElementException();
+                            Entry<TensorAddress, Double> entry = new SimpleImmutableEntry<>(index.address(position), values[position]);
+                            position++;
+                            return entry;
+                        }
+                    };
+                }
+            };
         }
 
     }
@@ -5,6 +5,8 @@ package com.yahoo.tensor;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -12,6 +14,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.DoubleBinaryOperator;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * A mixed tensor type. This is class is currently suitable for serialization
@@ -115,11 +118,11 @@ public class MixedTensor implements Tensor {
         Tensor.Builder builder = Tensor.Builder.of(type());
 
         // iterate through all sparse addresses referencing a dense subspace
-        for (Map.Entry<TensorAddress, Long> entry : index.sparseMap.entrySet()) {
-            TensorAddress sparsePartialAddress = entry.getKey();
+        for (int subspace = 0; subspace < index.sparseAddresses.size(); subspace++) {
+            TensorAddress sparsePartialAddress = index.sparseAddresses.address(subspace);
             if ( ! addresses.contains(sparsePartialAddress)) {  // assumption: addresses only contain the sparse part
-                long offset = entry.getValue();
-                for (int i = 0; i < index.denseSubspaceSize; ++i) {
+                long offset = index.subspaceOffsets[subspace];
+                for (int i = 0; i < index.denseSubspaceSize(); ++i) {
                     Cell cell = cells.get((int)offset + i);
                     builder.cell(cell.getKey(), cell.getValue());
                 }
@@ -209,14 +212,12 @@ public class MixedTensor implements Tensor {
 
         /** For each sparse partial address, hold a dense subspace */
         private final Map<TensorAddress, double[]> denseSubspaceMap = new HashMap<>();
-        private final Index.Builder indexBuilder;
         private final Index index;
         private final TensorType denseSubtype;
 
         private BoundBuilder(TensorType type) {
             super(type);
-            indexBuilder = new Index.Builder(type);
-            index = indexBuilder.index();
+            index = new Index(type);
             denseSubtype = new TensorType(type.valueType(),
                                           type.dimensions().stream().filter(d -> d.isIndexed()).collect(Collectors.toList()));
         }
@@ -266,6 +267,7 @@ public class MixedTensor implements Tensor {
         public MixedTensor build() {
             long count = 0;
             ImmutableList.Builder<Cell> builder = new ImmutableList.Builder<>();
+            Index.Builder indexBuilder = new Index.Builder(type);
 
             for (Map.Entry<TensorAddress, double[]> entry : denseSubspaceMap.entrySet()) {
                 TensorAddress sparsePart = entry.getKey();
@@ -364,7 +366,9 @@ public class MixedTensor implements Tensor {
         private final List<TensorType.Dimension> mappedDimensions;
         private final List<TensorType.Dimension> indexedDimensions;
 
-        private ImmutableMap<TensorAddress, Long> sparseMap;
+        /** The sparse partial addresses of this. The dense subspace at position i starts at subspaceOffsets[i] */
+        private AddressIndex sparseAddresses;
+        private long[] subspaceOffsets;
         private long denseSubspaceSize = -1;
 
         private Index(TensorType type) {
@@ -378,35 +382,54 @@ public class MixedTensor implements Tensor {
         /** Returns the index of the given address, or -1 if it is not present */
         public long indexOf(TensorAddress address) {
             TensorAddress sparsePart = sparsePartialAddress(address);
-            if ( ! sparseMap.containsKey(sparsePart))
+            int subspace = sparseAddresses.indexOf(sparsePart);
+            if (subspace < 0)
                 return -1;
-            long base = sparseMap.get(sparsePart);
+            long base = subspaceOffsets[subspace];
             long offset = denseOffset(address);
             return base + offset;
         }
 
         public static class Builder {
 
-            private final Index index;
-            private final ImmutableMap.Builder<TensorAddress, Long> builder;
+            private final TensorType type;
+            private AddressIndex sparseAddresses = new AddressIndex(16);
+            private long[] subspaceOffsets = new long[16];
+
+            /** Whether the sparse addresses are owned by a built index, such that they must be copied before they are changed */
+            private boolean sparseAddressesShared = false;
 
             public Builder(TensorType type) {
-                index = new Index(type);
-                builder = new ImmutableMap.Builder<>();
+                this.type = type;
             }
 
             public void put(TensorAddress address, long index) {
-                builder.put(address, index);
+                if (sparseAddressesShared) {
+                    sparseAddresses = sparseAddresses.copy();
+                    sparseAddressesShared = false;
+                }
+                int subspace = sparseAddresses.add(address);
+                if (subspace < 0)
+                    throw new IllegalArgumentException("Multiple entries with same key: " + address);
+                if (subspace == subspaceOffsets.length)
+                    subspaceOffsets = Arrays.copyOf(subspaceOffsets, subspaceOffsets.length * 2);
+                subspaceOffsets[subspace] = index;
             }
 
+            /** Returns a new index of the addresses put so far. Further puts to this do not change it. */
             public Index build() {
-                index.sparseMap = builder.build();
-                return index;
+                Index built = new Index(type);
+                built.sparseAddresses = sparseAddresses;
+                built.subspaceOffsets = Arrays.copyOf(subspaceOffsets, sparseAddresses.size());
+                sparseAddressesShared = true;
+                return built;
             }
 
+            /** Returns a new index of the addresses put so far, as {@link #build} does */
             public Index index() {
-                return index;
+                return build();
             }
+
         }
 
         public long denseSubspaceSize() {
@@ -451,12 +474,12 @@ public class MixedTensor implements Tensor {
         }
 
         private TensorAddress denseOffsetToAddress(long denseOffset) {
-            if (denseOffset < 0 || denseOffset > denseSubspaceSize) {
+            if (denseOffset < 0 || denseOffset > denseSubspaceSize()) {
                 throw new IllegalArgumentException("Offset out of bounds");
             }
 
             long restSize = denseOffset;
-            long innerSize = denseSubspaceSize;
+            long innerSize = denseSubspaceSize();
             long[] labels = new long[indexedDimensions.size()];
 
             for (int i = 0; i < labels.length; ++i) {
@@ -503,10 +526,12 @@ public class MixedTensor implements Tensor {
 
             // Exactly 1 mapped dimension
             StringBuilder b = new StringBuilder("{");
-            sparseMap.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
-                b.append(TensorAddress.labelToString(entry.getKey().label(0 )));
+            IntStream.range(0, sparseAddresses.size()).boxed()
+                     .sorted(Comparator.comparing(sparseAddresses::address))
+                     .forEach(subspace -> {
+                b.append(TensorAddress.labelToString(sparseAddresses.address(subspace).label(0 )));
                 b.append(":");
-                denseSubspaceToString(tensor, entry.getValue(), b);
+                denseSubspaceToString(tensor, subspaceOffsets[subspace], b);
                 b.append(",");
             });
             if (b.length() > 1)
@@ -516,13 +541,13 @@ public class MixedTensor implements Tensor {
         }
 
         private void denseSubspaceToString(MixedTensor tensor, long subspaceIndex, StringBuilder b) {
-            if (denseSubspaceSize == 1) {
+            if (denseSubspaceSize() == 1) {
                 b.append(getDouble(subspaceIndex, 0, tensor));
                 return;
             }
 
             IndexedTensor.Indexes indexes = IndexedTensor.Indexes.of(denseType);
-            for (int index = 0; index < denseSubspaceSize; index++) {
+            for (int index = 0; index < denseSubspaceSize(); index++) {
                 indexes.next();
 
                 // start brackets
@@ -540,7 +565,7 @@ public class MixedTensor implements Tensor {
                 // end bracket and comma
                 for (int i = 0; i < indexes.nextDimensionsAtEnd(); i++)
                     b.append("]");
-                if (index < denseSubspaceSize - 1)
+                if (index < denseSubspaceSize() - 1)
                     b.append(", ");
             }
         }
@@ -2,6 +2,7 @@
 package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
+import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
@@ -130,13 +131,16 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
 
         // Special case: Reduce all
         if (dimensions.isEmpty() || dimensions.size() == argument.type().dimensions().size())
-            if (argument.type().dimensions().size() == 1 && argument instanceof IndexedTensor)
-                return reduceIndexedVector((IndexedTensor)argument, aggregator);
+            if (argument instanceof IndexedTensor)
+                return reduceAllIndexed((IndexedTensor)argument, aggregator);
             else
                 return reduceAllGeneral(argument, aggregator);
 
         TensorType reducedType = type(argument.type(), dimensions);
 
+        if (argument instanceof IndexedTensor && argument.size() > 0)
+            return reduceIndexed((IndexedTensor)argument, reducedType, dimensions, aggregator);
+
         // Reduce cells
         Map<TensorAddress, ValueAggregator> aggregatingCells = new HashMap<>();
         for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
@@ -173,13 +177,56 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
         return Tensor.Builder.of(TensorType.empty).cell((valueAggregator.aggregatedValue())).build();
     }
 
-    private static Tensor reduceIndexedVector(IndexedTensor argument, Aggregator aggregator) {
+    private static Tensor reduceAllIndexed(IndexedTensor argument, Aggregator aggregator) {
         ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
-        for (int i = 0; i < argument.dimensionSizes().size(0); i++)
+        for (long i = 0; i < argument.size(); i++)
             valueAggregator.aggregate(argument.get(i));
         return Tensor.Builder.of(TensorType.empty).cell((valueAggregator.aggregatedValue())).build();
     }
 
+    /**
+     * Reduces some dimensions of an indexed tensor by walking its values in the standard value order
+     * while tracking the direct index of the reduced cell each value belongs to. This avoids creating
+     * an address and a map entry per cell, and builds the result directly in the cell type of the reduced type.
+     */
+    private static Tensor reduceIndexed(IndexedTensor argument, TensorType reducedType, List<String> dimensions, Aggregator aggregator) {
+        DimensionSizes sizes = argument.dimensionSizes();
+        int rank = sizes.dimensions();
+
+        // The stride of each argument dimension in the reduced tensor, 0 for the dimensions reduced away
+        long[] reducedStrides = new long[rank];
+        DimensionSizes.Builder reducedSizes = new DimensionSizes.Builder(reducedType.dimensions().size());
+        long reducedSize = 1;
+        for (int i = rank - 1, reducedIndex = reducedType.dimensions().size() - 1; i >= 0; i--) {
+            if (dimensions.contains(argument.type().dimensions().get(i).name())) continue;
+            reducedStrides[i] = reducedSize;
+            reducedSizes.set(reducedIndex--, sizes.size(i));
+            reducedSize *= sizes.size(i);
+        }
+
+        ValueAggregator[] aggregators = new ValueAggregator[(int)reducedSize];
+        for (int i = 0; i < aggregators.length; i++)
+            aggregators[i] = ValueAggregator.ofType(aggregator);
+
+        long[] indexes = new long[rank];
+        long reducedValueIndex = 0;
+        for (long valueIndex = 0; valueIndex < argument.size(); valueIndex++) {
+            aggregators[(int)reducedValueIndex].aggregate(argument.get(valueIndex));
+            for (int i = rank - 1; i >= 0; i--) { // step to the next index in the standard value order
+                indexes[i]++;
+                reducedValueIndex += reducedStrides[i];
+                if (indexes[i] < sizes.size(i)) break;
+                reducedValueIndex -= reducedStrides[i] * indexes[i];
+                indexes[i] = 0;
+            }
+        }
+
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType, reducedSizes.build());
+        for (int i = 0; i < aggregators.length; i++)
+            builder.cellByDirectIndex(i, aggregators[i].aggregatedValue());
+        return builder.build();
+    }
+
     static abstract class ValueAggregator {
 
         static ValueAggregator ofType(Aggregator aggregator) {
@@ -146,6 +146,10 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
         IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType);
         long commonSize = Math.min(a.dimensionSizes().size(0), b.dimensionSizes().size(0));
 
+        if (isSumOfProducts()) {
+            builder.cellByDirectIndex(0, dotProduct(a, 0, b, 0, commonSize));
+            return builder.build();
+        }
         Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
         for (int ic = 0; ic < commonSize; ++ic) {
             double va = a.get(ic);
@@ -164,6 +168,12 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
         DimensionSizes sizesA = a.dimensionSizes();
         DimensionSizes sizesB = b.dimensionSizes();
 
+        if (isSumOfProducts()) {
+            long commonSize = Math.min(sizesA.size(0), sizesB.size(1));
+            for (int ib = 0; ib < sizesB.size(0); ++ib)
+                builder.cellByDirectIndex(ib, dotProduct(a, 0, b, ib * sizesB.size(1), commonSize));
+            return builder.build();
+        }
         Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
         for (int ib = 0; ib < sizesB.size(0); ++ib) {
             agg.reset();
@@ -190,6 +200,16 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
         long strideA = iaToReduced < ibToReduced ? sizesB.size(0) : 1;
         long strideB = ibToReduced < iaToReduced ? sizesA.size(0) : 1;
 
+        if (isSumOfProducts()) {
+            long commonSize = Math.min(sizesA.size(1), sizesB.size(1));
+            for (int ia = 0; ia < sizesA.size(0); ++ia) {
+                for (int ib = 0; ib < sizesB.size(0); ++ib) {
+                    builder.cellByDirectIndex(ia * strideA + ib * strideB,
+                                              dotProduct(a, ia * sizesA.size(1), b, ib * sizesB.size(1), commonSize));
+                }
+            }
+            return builder.build();
+        }
         Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
         for (int ia = 0; ia < sizesA.size(0); ++ia) {
             for (int ib = 0; ib < sizesB.size(0); ++ib) {
@@ -205,6 +225,19 @@ public class ReduceJoin<NAMETYPE extends Name> extends CompositeTensorFunction<N
         return builder.build();
     }
 
+    /**
+     * Returns whether this is a sum of products (e.g a dot product or matrix multiplication),
+     * which is evaluated by a dedicated loop instead of through the combinator and aggregator.
+     */
+    private boolean isSumOfProducts() {
+        return aggregator == Reduce.Aggregator.sum && combinator instanceof ScalarFunctions.Multiply;
+    }
+
+    /** Returns the sum of the products of length values starting at the given direct indexes in a and b */
+    private static double dotProduct(IndexedTensor a, long aStart, IndexedTensor b, long bStart, long length) {
+        return a.sumOfProducts(aStart, b, bStart, length);
+    }
+
     private Tensor evaluateGeneral(IndexedTensor a, IndexedTensor b, TensorType reducedType) {
         IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType);
         TensorType onlyInA = Reduce.outputType(a.type(), dimensions);
@@ -7,6 +7,7 @@ import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -68,29 +69,48 @@ public class DenseBinaryFormat implements BinaryFormat {
 
     @Override
     public Tensor decode(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
-        TensorType type;
-        DimensionSizes sizes;
-        if (optionalType.isPresent()) {
-            type = optionalType.get();
-            if (type.valueType() != this.serializationValueType) {
-                throw new IllegalArgumentException("Tensor value type mismatch. Value type " + type.valueType() +
-                                                   " is not " + this.serializationValueType);
-            }
-            TensorType serializedType = decodeType(buffer);
-            if ( ! serializedType.isAssignableTo(type))
-                throw new IllegalArgumentException("Type/instance mismatch: A tensor of type " + serializedType +
-                                                   " cannot be assigned to type " + type);
-            sizes = sizesFromType(serializedType);
-        }
-        else {
-            type = decodeType(buffer);
-            sizes = sizesFromType(type);
-        }
+        TensorType serializedType = decodeType(optionalType, buffer);
+        TensorType type = optionalType.orElse(serializedType);
+        DimensionSizes sizes = sizesFromType(serializedType);
         Tensor.Builder builder = Tensor.Builder.of(type, sizes);
         decodeCells(sizes, buffer, (IndexedTensor.BoundBuilder)builder);
         return builder.build();
     }
 
+    /**
+     * Returns a tensor which reads its cells directly from the buffer instead of copying them.
+     * The position of the buffer is moved past the cells.
+     */
+    Tensor view(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
+        TensorType serializedType = decodeType(optionalType, buffer);
+        TensorType type = optionalType.orElse(serializedType);
+        DimensionSizes sizes = sizesFromType(serializedType);
+        long cellBytes = sizes.totalSize() * (serializationValueType == TensorType.Value.FLOAT ? Float.BYTES : Double.BYTES);
+        ByteBuffer cells = buffer.getByteBuffer().slice();
+        if (cells.remaining() < cellBytes)
+            throw new IllegalArgumentException("Tensor data is truncated: Expected " + cellBytes + " bytes of cells, but got " +
+                                               cells.remaining());
+        cells.limit((int)cellBytes);
+        buffer.position(buffer.position() + (int)cellBytes);
+        return IndexedTensor.wrap(type, sizes, cells);
+    }
+
+    /** Decodes the serialized type and validates it against the given type, if any */
+    private TensorType decodeType(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
+        if (optionalType.isEmpty()) return decodeType(buffer);
+
+        TensorType type = optionalType.get();
+        if (type.valueType() != this.serializationValueType) {
+            throw new IllegalArgumentException("Tensor value type mismatch. Value type " + type.valueType() +
+                                               " is not " + this.serializationValueType);
+        }
+        TensorType serializedType = decodeType(buffer);
+        if ( ! serializedType.isAssignableTo(type))
+            throw new IllegalArgumentException("Type/instance mismatch: A tensor of type " + serializedType +
+                                               " cannot be assigned to type " + type);
+        return serializedType;
+    }
+
     private TensorType decodeType(GrowableByteBuffer buffer) {
         TensorType.Builder builder = new TensorType.Builder(serializationValueType);
         int dimensionCount = buffer.getInt1_4Bytes();
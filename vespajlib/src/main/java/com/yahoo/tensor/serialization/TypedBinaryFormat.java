@@ -7,6 +7,7 @@ import com.yahoo.tensor.MixedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 /**
@@ -50,6 +51,25 @@ public class TypedBinaryFormat {
         return decoder.decode(type, buffer);
     }
 
+    /**
+     * Returns a tensor from some data without copying the cells of dense tensors: These are returned as tensors
+     * reading their cells directly from the given buffer, which must not be modified while the tensor is in use.
+     * This allows large tensors to be read e.g from a memory mapped file without copying them into the heap.
+     * Other tensors are decoded as by {@link #decode}.
+     *
+     * @param type the type to decode and validate to, or empty to use the type given in the data
+     * @param buffer the buffer containing the data from its position
+     * @return the resulting tensor
+     * @throws IllegalArgumentException if the tensor data was invalid
+     */
+    public static Tensor view(Optional<TensorType> type, ByteBuffer buffer) {
+        GrowableByteBuffer growableBuffer = new GrowableByteBuffer(buffer);
+        BinaryFormat decoder = getFormatDecoder(growableBuffer);
+        if (decoder instanceof DenseBinaryFormat)
+            return ((DenseBinaryFormat)decoder).view(type, growableBuffer);
+        return decoder.decode(type, growableBuffer);
+    }
+
     private static BinaryFormat getFormatEncoder(GrowableByteBuffer buffer, Tensor tensor) {
         if (tensor instanceof MixedTensor && tensor.type().valueType() == TensorType.Value.DOUBLE) {
             encodeFormatType(buffer, MIXED_BINARY_FORMAT_TYPE);
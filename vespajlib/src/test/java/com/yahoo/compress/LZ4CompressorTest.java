@@ -3,10 +3,14 @@ package com.yahoo.compress;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class LZ4CompressorTest {
@@ -22,4 +26,72 @@ public class LZ4CompressorTest {
         assertTrue(Arrays.equals(decompressed, Arrays.copyOf(toCompress, compressBytes)));
     }
 
+    @Test
+    public void decompression_to_pooled_buffer_reuses_the_buffer() {
+        byte[] toCompress = "bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb".getBytes();
+        Compressor compressor = new Compressor();
+        Compressor.Compression compressed = compressor.compress(CompressionType.LZ4, toCompress);
+        assertEquals(CompressionType.LZ4, compressed.type());
+
+        byte[] first;
+        try (Compressor.Decompression decompressed = compressor.decompressToPooledBuffer(compressed.data(), compressed.type(),
+                                                                                         compressed.uncompressedSize())) {
+            first = decompressed.data();
+            assertEquals(toCompress.length, decompressed.size());
+            assertTrue(Arrays.equals(toCompress, Arrays.copyOf(first, decompressed.size())));
+        }
+        long allocated = compressor.allocatedBytes();
+
+        byte[] shorter = Arrays.copyOf(toCompress, 40);
+        Compressor.Compression compressedShorter = compressor.compress(CompressionType.LZ4, shorter);
+        try (Compressor.Decompression decompressed = compressor.decompressToPooledBuffer(compressedShorter.data(), compressedShorter.type(),
+                                                                                         shorter.length)) {
+            assertSame(first, decompressed.data());
+            assertTrue(Arrays.equals(shorter, Arrays.copyOf(decompressed.data(), shorter.length)));
+        }
+        assertEquals(allocated + compressedShorter.data().length, compressor.allocatedBytes());
+        assertTrue(compressor.reusedBytes() > 0);
+    }
+
+    @Test
+    public void pooled_buffers_are_not_shared_while_in_use() {
+        byte[] data = "cccccccccccccccccccccccccccccccccccccccccccccccccccccccc".getBytes();
+        Compressor compressor = new Compressor();
+        Compressor.Compression compressed = compressor.compress(CompressionType.LZ4, data);
+        try (Compressor.Decompression first = compressor.decompressToPooledBuffer(compressed.data(), compressed.type(), data.length);
+             Compressor.Decompression second = compressor.decompressToPooledBuffer(compressed.data(), compressed.type(), data.length)) {
+            assertNotSame(first.data(), second.data());
+        }
+    }
+
+    @Test
+    public void retained_bytes_are_bounded() {
+        Compressor compressor = new Compressor();
+        byte[] data = new byte[1 << 19];
+        Compressor.Compression compressed = compressor.compress(CompressionType.LZ4, data);
+        assertEquals(1 << 20, compressor.retainedBytes()); // the compression buffer, which has room for the worst case
+
+        List<Compressor.Decompression> inUse = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            inUse.add(compressor.decompressToPooledBuffer(compressed.data(), compressed.type(), data.length));
+        assertEquals(1 << 20, compressor.retainedBytes());
+        inUse.forEach(Compressor.Decompression::close);
+        assertEquals(4 << 20, compressor.retainedBytes());
+
+        Compressor.Compression large = compressor.compress(CompressionType.LZ4, new byte[2 << 20]);
+        compressor.decompressToPooledBuffer(large.data(), large.type(), large.uncompressedSize()).close();
+        assertEquals("Buffers larger than 1 MiB are not retained", 4 << 20, compressor.retainedBytes());
+    }
+
+    @Test
+    public void uncompressed_data_is_not_copied_when_decompressing_to_pooled_buffer() {
+        byte[] data = "abc".getBytes();
+        Compressor compressor = new Compressor();
+        try (Compressor.Decompression decompressed = compressor.decompressToPooledBuffer(data, CompressionType.INCOMPRESSIBLE, data.length)) {
+            assertSame(data, decompressed.data());
+        }
+        assertEquals(0, compressor.allocatedBytes());
+        assertEquals(0, compressor.retainedBytes());
+    }
+
 }
@@ -0,0 +1,155 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryViewTestCase {
+
+    @Test
+    public void testViewOfBasicValues() {
+        assertViewEqualsDecoded(slime -> slime.setNix());
+        assertViewEqualsDecoded(slime -> slime.setBool(true));
+        assertViewEqualsDecoded(slime -> slime.setBool(false));
+        assertViewEqualsDecoded(slime -> slime.setLong(0));
+        assertViewEqualsDecoded(slime -> slime.setLong(-123456789012345L));
+        assertViewEqualsDecoded(slime -> slime.setLong(Long.MAX_VALUE));
+        assertViewEqualsDecoded(slime -> slime.setDouble(0.0));
+        assertViewEqualsDecoded(slime -> slime.setDouble(-3.5));
+        assertViewEqualsDecoded(slime -> slime.setDouble(Double.MIN_VALUE));
+        assertViewEqualsDecoded(slime -> slime.setString(""));
+        assertViewEqualsDecoded(slime -> slime.setString("blåbærsyltetøy"));
+        assertViewEqualsDecoded(slime -> slime.setData(new byte[] { 1, 2, 3, 0, -1 }));
+    }
+
+    @Test
+    public void testViewOfStructure() {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setLong("id", 17);
+        root.setString("title", "A title which is long enough to need a compressed size in the binary format");
+        root.setDouble("score", 0.25);
+        root.setData("raw", new byte[] { 7, 8 });
+        Cursor array = root.setArray("tags");
+        for (int i = 0; i < 40; i++)
+            array.addString("tag" + i);
+        Cursor nested = root.setObject("nested");
+        nested.setBool("flag", true);
+        nested.setArray("empty");
+        nested.setObject("alsoEmpty");
+        Cursor map = nested.setArray("map");
+        for (String key : List.of("a", "b")) {
+            Cursor entry = map.addObject();
+            entry.setString("key", key);
+            entry.setLong("value", map.entries());
+        }
+
+        byte[] data = BinaryFormat.encode(slime);
+        Inspector view = BinaryFormat.view(data, 0, data.length);
+        assertTrue(view instanceof BinaryView);
+        assertTrue(view.equalTo(slime.get()));
+        assertTrue(slime.get().equalTo(view));
+        assertEquals(slime.get().toString(), view.toString());
+
+        assertEquals(Type.OBJECT, view.type());
+        assertEquals(6, view.fields());
+        assertEquals(6, view.children());
+        assertEquals(0, view.entries());
+        assertEquals(17, view.field("id").asLong());
+        assertEquals(17.0, view.field("id").asDouble(), 0);
+        assertEquals(0.25, view.field("score").asDouble(), 0);
+        assertArrayEquals(new byte[] { 7, 8 }, view.field("raw").asData());
+        assertEquals(40, view.field("tags").entries());
+        assertEquals("tag39", view.field("tags").entry(39).asString());
+        assertArrayEquals("tag3".getBytes(StandardCharsets.UTF_8), view.field("tags").entry(3).asUtf8());
+        assertTrue(view.field("nested").field("flag").asBool());
+        assertEquals("b", view.field("nested").field("map").entry(1).field("key").asString());
+        assertEquals(2, view.field("nested").field("map").entry(1).field("value").asLong());
+
+        List<String> names = new ArrayList<>();
+        view.traverse((ObjectTraverser)(name, inspector) -> names.add(name));
+        assertEquals(List.of("id", "title", "score", "raw", "tags", "nested"), names);
+        List<String> tags = new ArrayList<>();
+        view.field("tags").traverse((ArrayTraverser)(index, inspector) -> tags.add(inspector.asString()));
+        assertEquals(40, tags.size());
+        assertEquals("tag0", tags.get(0));
+    }
+
+    @Test
+    public void testAccessOfMissingAndMismatchedValues() {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setString("text", "value");
+        root.setArray("array").addLong(1);
+
+        byte[] data = BinaryFormat.encode(slime);
+        Inspector view = BinaryFormat.view(data, 0, data.length);
+        assertFalse(view.field("unknown").valid());
+        assertFalse(view.field("array").entry(1).valid());
+        assertFalse(view.field("array").entry(-1).valid());
+        assertFalse(view.field("text").field("text").valid());
+        assertFalse(view.field("text").entry(0).valid());
+        assertFalse(view.entry(0).valid());
+        assertEquals(0, view.field("text").asLong());
+        assertEquals(0, view.field("text").entries());
+        assertEquals("", view.field("array").asString());
+        assertEquals(0, view.field("array").asData().length);
+        assertFalse(view.field("array").asBool());
+        assertTrue(view.field("array").entry(0).valid());
+    }
+
+    @Test
+    public void testViewWithOffset() {
+        Slime slime = new Slime();
+        slime.setObject().setString("field", "value");
+        byte[] encoded = BinaryFormat.encode(slime);
+        byte[] data = new byte[encoded.length + 7];
+        System.arraycopy(encoded, 0, data, 4, encoded.length);
+        Inspector view = BinaryFormat.view(data, 4, encoded.length);
+        assertEquals("value", view.field("field").asString());
+    }
+
+    @Test
+    public void testInvalidDataIsDecodedAsPartialResult() {
+        Slime slime = new Slime();
+        slime.setObject().setString("field", "value");
+        byte[] data = BinaryFormat.encode(slime);
+        Inspector view = BinaryFormat.view(data, 0, data.length - 1);
+        Inspector decoded = BinaryFormat.decode(data, 0, data.length - 1).get();
+        assertFalse(view instanceof BinaryView);
+        assertTrue(view.field("partial_result").valid());
+        assertTrue(decoded.equalTo(view));
+    }
+
+    private interface Setter {
+        void set(Slime slime);
+    }
+
+    private static void assertViewEqualsDecoded(Setter setter) {
+        Slime slime = new Slime();
+        setter.set(slime);
+        byte[] data = BinaryFormat.encode(slime);
+        Inspector view = BinaryFormat.view(data, 0, data.length);
+        Inspector decoded = BinaryFormat.decode(data).get();
+        assertTrue(view instanceof BinaryView);
+        assertTrue(view.valid());
+        assertTrue(decoded.equalTo(view));
+        assertEquals(decoded.type(), view.type());
+        assertEquals(decoded.asBool(), view.asBool());
+        assertEquals(decoded.asLong(), view.asLong());
+        assertEquals(decoded.asDouble(), view.asDouble(), 0);
+        assertEquals(decoded.asString(), view.asString());
+        assertArrayEquals(decoded.asUtf8(), view.asUtf8());
+        assertArrayEquals(decoded.asData(), view.asData());
+        assertEquals(decoded.toString(), view.toString());
+    }
+
+}
@@ -248,6 +248,21 @@ public class JsonFormatTestCase {
         assertEquals("\"M\u00E6L\"", val);
     }
 
+    @Test
+    public void testEncodingEscapes() {
+        Slime slime = new Slime();
+        Cursor c = slime.setArray();
+        c.addString("\"quoted\" back\\slash");
+        c.addString("\b\f\n\r\t\u0001\u001f");
+        c.addString("M\u00E6L\n");
+        String longString = "x".repeat(5000);
+        c.addString(longString + "\t" + longString);
+        verifyEncoding(slime, "[\"\\\"quoted\\\" back\\\\slash\"," +
+                              "\"\\b\\f\\n\\r\\t\\u0001\\u001F\"," +
+                              "\"M\u00E6L\\n\"," +
+                              "\"" + longString + "\\t" + longString + "\"]");
+    }
+
     private void verifyEncoding(Slime slime, String expected, boolean compact) {
         try {
             ByteArrayOutputStream a = new ByteArrayOutputStream();
@@ -0,0 +1,137 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ReduceJoin;
+import com.yahoo.tensor.functions.ScalarFunctions;
+import com.yahoo.tensor.functions.TensorFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Microbenchmark of dot products between dense embedding vectors, and of a dense
+ * embedding matrix multiplied by a vector, with double and float cells.
+ */
+public class EmbeddingDotProductBenchmark {
+
+    private final static Random random = new Random(42);
+
+    private final TensorType.Value valueType;
+    private final int dimensions;
+
+    public EmbeddingDotProductBenchmark(TensorType.Value valueType, int dimensions) {
+        this.valueType = valueType;
+        this.dimensions = dimensions;
+    }
+
+    /** Returns the time in microseconds per dot product of a query and a document embedding */
+    public double benchmarkDotProduct(int iterations, int documents, boolean fused) {
+        TensorFunction<Name> dotProduct = fused
+                ? new ReduceJoin<>(new VariableTensor<>("query"), new VariableTensor<>("document"),
+                                   ScalarFunctions.multiply(), Reduce.Aggregator.sum, List.of("x"))
+                : new Reduce<>(new Join<>(new VariableTensor<>("query"), new VariableTensor<>("document"), ScalarFunctions.multiply()),
+                               Reduce.Aggregator.sum, "x");
+        Tensor query = vector();
+        List<Tensor> embeddings = new ArrayList<>();
+        for (int i = 0; i < documents; i++)
+            embeddings.add(vector());
+
+        MapEvaluationContext<Name> context = new MapEvaluationContext<>();
+        context.put("query", query);
+        dotProducts(dotProduct, context, embeddings, Math.max(iterations / 10, 10)); // warmup
+        System.gc();
+        long startTime = System.nanoTime();
+        dotProducts(dotProduct, context, embeddings, iterations);
+        long totalTime = System.nanoTime() - startTime;
+        return totalTime / 1000.0 / iterations / documents;
+    }
+
+    /** Returns the time in nanoseconds per call to the dot product kernel used by the evaluations above */
+    public double benchmarkSumOfProducts(int iterations) {
+        IndexedTensor a = (IndexedTensor)vector();
+        IndexedTensor b = (IndexedTensor)vector();
+        sumOfProducts(a, b, Math.max(iterations / 10, 10)); // warmup
+        long startTime = System.nanoTime();
+        sumOfProducts(a, b, iterations);
+        long totalTime = System.nanoTime() - startTime;
+        return (double)totalTime / iterations;
+    }
+
+    /** Returns the time in milliseconds per multiplication of a rows x dimensions embedding matrix by a vector */
+    public double benchmarkMatmul(int iterations, int rows) {
+        Tensor matrix = matrix(rows);
+        Tensor vector = vector();
+        matmul(matrix, vector, Math.max(iterations / 10, 10)); // warmup
+        System.gc();
+        long startTime = System.nanoTime();
+        matmul(matrix, vector, iterations);
+        long totalTime = System.nanoTime() - startTime;
+        return totalTime / 1000000.0 / iterations;
+    }
+
+    private double dotProducts(TensorFunction<Name> dotProduct, MapEvaluationContext<Name> context,
+                               List<Tensor> embeddings, int iterations) {
+        double largest = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < iterations; i++) {
+            for (Tensor embedding : embeddings) {
+                context.put("document", embedding);
+                largest = Math.max(largest, dotProduct.evaluate(context).asDouble());
+            }
+        }
+        return largest;
+    }
+
+    private double sumOfProducts(IndexedTensor a, IndexedTensor b, int iterations) {
+        double sum = 0;
+        for (int i = 0; i < iterations; i++)
+            sum += a.sumOfProducts(0, b, 0, dimensions);
+        return sum;
+    }
+
+    private long matmul(Tensor matrix, Tensor vector, int iterations) {
+        long cells = 0;
+        for (int i = 0; i < iterations; i++)
+            cells += matrix.matmul(vector, "x").size();
+        return cells;
+    }
+
+    private Tensor vector() {
+        IndexedTensor.BoundBuilder builder =
+                (IndexedTensor.BoundBuilder)Tensor.Builder.of(new TensorType.Builder(valueType).indexed("x", dimensions).build());
+        for (int i = 0; i < dimensions; i++)
+            builder.cellByDirectIndex(i, random.nextDouble());
+        return builder.build();
+    }
+
+    private Tensor matrix(int rows) {
+        IndexedTensor.BoundBuilder builder =
+                (IndexedTensor.BoundBuilder)Tensor.Builder.of(new TensorType.Builder(valueType).indexed("d", rows)
+                                                                                                .indexed("x", dimensions).build());
+        for (int i = 0; i < rows * dimensions; i++)
+            builder.cellByDirectIndex(i, random.nextDouble());
+        return builder.build();
+    }
+
+    public static void main(String[] args) {
+        for (TensorType.Value valueType : List.of(TensorType.Value.DOUBLE, TensorType.Value.FLOAT)) {
+            for (int dimensions : List.of(128, 256, 384, 512, 1024)) {
+                EmbeddingDotProductBenchmark benchmark = new EmbeddingDotProductBenchmark(valueType, dimensions);
+                System.out.printf("%-6s reduce(join) dot product, %4d dimensions: %8.3f us\n",
+                                  valueType, dimensions, benchmark.benchmarkDotProduct(200, 1000, false));
+                System.out.printf("%-6s reduce_join dot product,  %4d dimensions: %8.3f us\n",
+                                  valueType, dimensions, benchmark.benchmarkDotProduct(200, 1000, true));
+                System.out.printf("%-6s sum of products kernel,  %4d dimensions: %8.1f ns\n",
+                                  valueType, dimensions, benchmark.benchmarkSumOfProducts(1000000));
+                System.out.printf("%-6s matmul 1000x%d by %d:              %8.3f ms\n",
+                                  valueType, dimensions, dimensions, benchmark.benchmarkMatmul(50, 1000));
+            }
+        }
+    }
+
+}
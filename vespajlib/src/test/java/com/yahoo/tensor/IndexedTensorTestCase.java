@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -60,6 +61,48 @@ public class IndexedTensorTestCase {
         }
     }
 
+    @Test
+    public void testSumOfProducts() {
+        Tensor doubleVector = Tensor.from("tensor(x[7]):[1,2,3,4,5,6,7]");
+        Tensor floatVector = Tensor.from("tensor<float>(x[7]):[7,6,5,4,3,2,1]");
+        Tensor floatMatrix = Tensor.from("tensor<float>(d[2],x[7]):[[1,1,1,1,1,1,1],[7,6,5,4,3,2,1]]");
+        Tensor doubleMatrix = Tensor.from("tensor(d[2],x[7]):[[1,1,1,1,1,1,1],[7,6,5,4,3,2,1]]");
+
+        assertEquals(140.0, ((IndexedTensor)doubleVector).sumOfProducts(0, (IndexedTensor)doubleVector, 0, 7), 0.0);
+        assertEquals(84.0, ((IndexedTensor)doubleVector).sumOfProducts(0, (IndexedTensor)floatVector, 0, 7), 0.0);
+        assertEquals(84.0, ((IndexedTensor)floatVector).sumOfProducts(0, (IndexedTensor)doubleVector, 0, 7), 0.0);
+        assertEquals(140.0, ((IndexedTensor)floatVector).sumOfProducts(0, (IndexedTensor)floatMatrix, 7, 7), 0.0);
+        assertEquals(28.0, ((IndexedTensor)doubleMatrix).sumOfProducts(7, (IndexedTensor)floatMatrix, 0, 7), 0.0);
+        assertEquals(12.0, ((IndexedTensor)doubleMatrix).sumOfProducts(2, (IndexedTensor)doubleVector, 2, 3), 0.0);
+        assertEquals(0.0, ((IndexedTensor)floatVector).sumOfProducts(0, (IndexedTensor)floatVector, 0, 0), 0.0);
+    }
+
+    @Test
+    public void testSumOfProductsIsExactlyTheSumOfTheJoinedProducts() {
+        Random random = new Random(17);
+        int size = 1001;
+        IndexedTensor.BoundBuilder a = (IndexedTensor.BoundBuilder)Tensor.Builder.of(TensorType.fromSpec("tensor(x[" + size + "])"));
+        IndexedTensor.BoundBuilder b = (IndexedTensor.BoundBuilder)Tensor.Builder.of(TensorType.fromSpec("tensor(x[" + size + "])"));
+        IndexedTensor.BoundBuilder fa = (IndexedTensor.BoundBuilder)Tensor.Builder.of(TensorType.fromSpec("tensor<float>(x[" + size + "])"));
+        IndexedTensor.BoundBuilder fb = (IndexedTensor.BoundBuilder)Tensor.Builder.of(TensorType.fromSpec("tensor<float>(x[" + size + "])"));
+        for (int i = 0; i < size; i++) { // values of very different magnitudes, such that addition order matters
+            a.cellByDirectIndex(i, (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(16) - 8));
+            b.cellByDirectIndex(i, (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(16) - 8));
+            fa.cellByDirectIndex(i, (float)((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8) - 4)));
+            fb.cellByDirectIndex(i, (float)((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8) - 4)));
+        }
+        IndexedTensor doubleA = a.build(), doubleB = b.build(), floatA = fa.build(), floatB = fb.build();
+
+        assertEquals(doubleA.multiply(doubleB).sum().asDouble(), doubleA.sumOfProducts(0, doubleB, 0, size), 0.0);
+
+        // Float products are rounded to float when joined, so compare with the general implementation instead
+        IndexedTensor.BoundBuilder db = (IndexedTensor.BoundBuilder)Tensor.Builder.of(TensorType.fromSpec("tensor(x[" + size + "])"));
+        for (int i = 0; i < size; i++)
+            db.cellByDirectIndex(i, floatB.get(i));
+        IndexedTensor floatBAsDouble = db.build();
+        assertEquals(floatA.sumOfProducts(0, floatBAsDouble, 0, size), floatA.sumOfProducts(0, floatB, 0, size), 0.0);
+    }
+
     @Test
     public void testBoundHandoverBuilding() {
         verifyFloat("tensor<float>(x[3])");
@@ -4,8 +4,13 @@ package com.yahoo.tensor;
 import com.google.common.collect.Sets;
 import org.junit.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Basic tensor tests. Tensor operations are tested in EvaluationTestCase
@@ -48,4 +53,54 @@ public class MappedTensorTestCase {
         assertEquals("tensor(x{},y{}):{{x:0,y:0}:1.0,{x:1,y:0}:2.0}", tensor.toString());
     }
 
+    @Test
+    public void testManyCells() {
+        TensorType type = new TensorType.Builder().mapped("x").mapped("y").build();
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        Map<TensorAddress, Double> expected = new HashMap<>();
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 10; y++) {
+                TensorAddress address = TensorAddress.ofLabels(String.valueOf(x), String.valueOf(y));
+                builder.cell(address, x * 10 + y);
+                expected.put(address, (double)(x * 10 + y));
+            }
+        }
+        Tensor tensor = builder.build();
+        assertEquals(1000, tensor.size());
+        assertEquals(expected, tensor.cells());
+        assertEquals(expected.hashCode(), tensor.hashCode());
+        assertEquals(537.0, tensor.get(TensorAddress.ofLabels("53", "7")), 0.0);
+        assertTrue(Double.isNaN(tensor.get(TensorAddress.ofLabels("53", "10"))));
+        assertFalse(tensor.cells().containsKey(TensorAddress.ofLabels("100", "0")));
+        assertEquals(tensor, Tensor.from(tensor.toString()));
+    }
+
+    @Test
+    public void testDuplicateCells() {
+        TensorType type = new TensorType.Builder().mapped("x").build();
+        try {
+            Tensor.Builder.of(type).cell().label("x", "0").value(1).cell().label("x", "0").value(2).build();
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Multiple entries with same key: cell address (0)", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testBuilderReuse() {
+        TensorType type = new TensorType.Builder().mapped("x").build();
+        Tensor.Builder builder = Tensor.Builder.of(type).cell().label("x", "0").value(1).cell().label("x", "1").value(2);
+        Tensor first = builder.build();
+        for (int x = 2; x < 100; x++) // enough to grow the index
+            builder.cell(TensorAddress.ofLabels(String.valueOf(x)), x + 1);
+        Tensor second = builder.build();
+
+        assertEquals("tensor(x{}):{0:1.0,1:2.0}", first.toString());
+        assertEquals(2, first.size());
+        assertTrue(Double.isNaN(first.get(TensorAddress.ofLabels("50"))));
+        assertEquals(100, second.size());
+        assertEquals(51.0, second.get(TensorAddress.ofLabels("50")), 0.0);
+    }
+
 }
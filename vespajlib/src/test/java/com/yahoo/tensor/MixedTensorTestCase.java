@@ -152,4 +152,21 @@ public class MixedTensorTestCase {
                 tensor.toString());
     }
 
+    @Test
+    public void testBuilderReuse() {
+        TensorType type = new TensorType.Builder().mapped("x").indexed("y", 2).build();
+        MixedTensor.Builder builder = MixedTensor.Builder.of(type);
+        builder.cell().label("x", "a").label("y", 0).value(1).cell().label("x", "a").label("y", 1).value(2);
+        Tensor first = builder.build();
+        for (int x = 0; x < 100; x++) // enough to grow the index
+            builder.cell().label("x", String.valueOf(x)).label("y", 1).value(x);
+        Tensor second = builder.build();
+
+        assertEquals("tensor(x{},y[2]):{a:[1.0, 2.0]}", first.toString());
+        assertTrue(Double.isNaN(first.get(TensorAddress.ofLabels("50", "1"))));
+        assertEquals(202, second.size());
+        assertEquals(50.0, second.get(TensorAddress.ofLabels("50", "1")), 0.0);
+        assertEquals(2.0, second.get(TensorAddress.ofLabels("a", "1")), 0.0);
+    }
+
 }
@@ -0,0 +1,80 @@
+// Copyright Verizon Media. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.TensorFunction;
+
+import java.util.Random;
+
+/**
+ * Microbenchmark of joins and reduces of sparse (mapped) tensors, which exercise
+ * building and looking up cells in mapped tensor storage.
+ */
+public class SparseTensorFunctionBenchmark {
+
+    private final static Random random = new Random(17);
+
+    /** Returns the time in ms per evaluation of a sparse join (x{},y{}) * (y{},z{}) */
+    public double benchmarkJoin(int iterations, int size) {
+        Tensor a = matrix("x", "y", size);
+        Tensor b = matrix("y", "z", size);
+        TensorFunction<Name> join = new Join<>(new VariableTensor<>("a"), new VariableTensor<>("b"), (x, y) -> x * y).toPrimitive();
+        return time(iterations, join, a, b);
+    }
+
+    /** Returns the time in ms per evaluation of a sparse join (x{},y{}) * (x{},y{}) followed by a sum over y */
+    public double benchmarkJoinReduce(int iterations, int size) {
+        Tensor a = matrix("x", "y", size);
+        Tensor b = matrix("x", "y", size);
+        TensorFunction<Name> joinReduce = new Reduce<>(new Join<>(new VariableTensor<>("a"), new VariableTensor<>("b"), (x, y) -> x * y),
+                                                       Reduce.Aggregator.sum, "y").toPrimitive();
+        return time(iterations, joinReduce, a, b);
+    }
+
+    private double time(int iterations, TensorFunction<Name> function, Tensor a, Tensor b) {
+        MapEvaluationContext<Name> context = new MapEvaluationContext<>();
+        context.put("a", a);
+        context.put("b", b);
+        evaluate(function, context, Math.max(iterations / 10, 10)); // warmup
+        System.gc();
+        long startTime = System.currentTimeMillis();
+        evaluate(function, context, iterations);
+        long totalTime = System.currentTimeMillis() - startTime;
+        return (double)totalTime / (double)iterations;
+    }
+
+    private long evaluate(TensorFunction<Name> function, MapEvaluationContext<Name> context, int iterations) {
+        long cells = 0;
+        for (int i = 0; i < iterations; i++)
+            cells += function.evaluate(context).size();
+        return cells;
+    }
+
+    private static Tensor matrix(String dimension1, String dimension2, int size) {
+        TensorType type = new TensorType.Builder().mapped(dimension1).mapped(dimension2).build();
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                builder.cell().label(dimension1, String.valueOf(i))
+                              .label(dimension2, String.valueOf(j))
+                              .value(random.nextDouble());
+            }
+        }
+        return builder.build();
+    }
+
+    public static void main(String[] args) {
+        double time;
+
+        time = new SparseTensorFunctionBenchmark().benchmarkJoin(200, 30);
+        System.out.printf("Sparse join 30x30 * 30x30,          time per evaluation: %1$8.3f ms\n", time);
+
+        time = new SparseTensorFunctionBenchmark().benchmarkJoinReduce(500, 100);
+        System.out.printf("Sparse join-reduce 100x100 * 100x100, time per evaluation: %1$8.3f ms\n", time);
+    }
+
+}
@@ -8,6 +8,8 @@ import com.yahoo.tensor.evaluation.VariableTensor;
 import com.yahoo.tensor.functions.ConstantTensor;
 import com.yahoo.tensor.functions.Join;
 import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ReduceJoin;
+import com.yahoo.tensor.functions.ScalarFunctions;
 import com.yahoo.tensor.functions.TensorFunction;
 import org.junit.Test;
 
@@ -152,6 +154,27 @@ public class TensorTestCase {
         assertEquals("Generic computation implementation", 42, (int)dotProduct(vectorInJSpace, Collections.singletonList(matrixInKSpace)));
     }
 
+    @Test
+    public void testIndexedComputationPreservesCellType() {
+        Tensor matrix = Tensor.from("tensor<float>(x[2],y[3]):[[1,2,3],[4,5,6]]");
+        Tensor vector = Tensor.from("tensor<float>(y[3]):[1,1,2]");
+
+        Tensor sumOverY = matrix.sum("y");
+        assertEquals(IndexedFloatTensor.class, sumOverY.getClass());
+        assertEquals(Tensor.from("tensor<float>(x[2]):[6,15]"), sumOverY);
+        assertEquals(Tensor.from("tensor<float>(y[3]):[4,5,6]"), matrix.reduce(Reduce.Aggregator.max, "x"));
+        assertEquals(Tensor.from("tensor(x[2],z[2]):[[4,6],[12,14]]"),
+                     Tensor.from("tensor(x[2],y[2],z[2]):[[[1,2],[3,4]],[[5,6],[7,8]]]").sum("y"));
+
+        Tensor product = matrix.matmul(vector, "y");
+        assertEquals(IndexedFloatTensor.class, product.getClass());
+        assertEquals(Tensor.from("tensor<float>(x[2]):[9,21]"), product);
+        assertEquals(product,
+                     new ReduceJoin<>(new ConstantTensor<>(matrix), new ConstantTensor<>(vector),
+                                      ScalarFunctions.multiply(), Reduce.Aggregator.sum, List.of("y"))
+                             .evaluate(new MapEvaluationContext<>()));
+    }
+
     @Test
     public void testTensorModify() {
         assertTensorModify((left, right) -> right,
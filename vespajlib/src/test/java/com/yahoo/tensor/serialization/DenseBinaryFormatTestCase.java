@@ -2,14 +2,18 @@
 package com.yahoo.tensor.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -73,6 +77,35 @@ public class DenseBinaryFormatTestCase {
         assertSerialization("tensor<float>(x[],y[]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
     }
 
+    @Test
+    public void testViewOfBufferWithOffset() {
+        Tensor tensor = Tensor.from("tensor<float>(x[2],y[3]):[[1, 2, 3], [4, 5, 6]]");
+        byte[] encodedTensor = TypedBinaryFormat.encode(tensor);
+        ByteBuffer buffer = ByteBuffer.allocate(encodedTensor.length + 10);
+        buffer.position(3);
+        buffer.put(encodedTensor);
+        buffer.position(3);
+        Tensor view = TypedBinaryFormat.view(Optional.empty(), buffer);
+        assertTrue(view instanceof IndexedTensor);
+        assertEquals(tensor, view);
+        assertEquals(3 + encodedTensor.length, buffer.position());
+        assertEquals(5.0, view.get(TensorAddress.of(1, 1)), 0);
+        assertEquals(tensor.hashCode(), view.hashCode());
+        assertEquals(view, view.multiply(Tensor.from("tensor<float>(x[2],y[3]):[[1, 1, 1], [1, 1, 1]]")));
+    }
+
+    @Test
+    public void testViewOfTruncatedData() {
+        byte[] encodedTensor = TypedBinaryFormat.encode(Tensor.from("tensor(x[3]):[1, 2, 3]"));
+        try {
+            TypedBinaryFormat.view(Optional.empty(), ByteBuffer.wrap(encodedTensor, 0, encodedTensor.length - 1));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException expected) {
+            assertEquals("Tensor data is truncated: Expected 24 bytes of cells, but got 23", expected.getMessage());
+        }
+    }
+
     private void assertSerialization(String tensorString) {
         assertSerialization(Tensor.from(tensorString));
     }
@@ -85,6 +118,11 @@ public class DenseBinaryFormatTestCase {
         byte[] encodedTensor = TypedBinaryFormat.encode(tensor);
         Tensor decodedTensor = TypedBinaryFormat.decode(Optional.of(expectedType), GrowableByteBuffer.wrap(encodedTensor));
         assertEquals(tensor, decodedTensor);
+
+        Tensor view = TypedBinaryFormat.view(Optional.of(expectedType), ByteBuffer.wrap(encodedTensor));
+        assertEquals(tensor, view);
+        assertEquals(expectedType, view.type());
+        assertEquals(decodedTensor.hashCode(), view.hashCode());
     }
 
 }